@@ -4,6 +4,7 @@ plugins {
   `maven-publish`
   id("com.diffplug.spotless") version "7.0.3"
   id("com.github.gmazzo.buildconfig") version "5.6.5"
+  id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.gtnewhorizons.retrofuturabootstrap"
@@ -65,6 +66,8 @@ buildConfig {
 }
 
 lateinit var java9: SourceSet
+lateinit var java11: SourceSet
+lateinit var java21: SourceSet
 
 // Apply a specific Java toolchain to ease working on different environments.
 java {
@@ -80,6 +83,16 @@ java {
           compileClasspath +=
               this@sourceSets.main.get().output + files(configurations.compileClasspath)
         }
+    java11 =
+        create("java11") {
+          compileClasspath +=
+              this@sourceSets.main.get().output + files(configurations.compileClasspath)
+        }
+    java21 =
+        create("java21") {
+          compileClasspath +=
+              this@sourceSets.main.get().output + files(configurations.compileClasspath)
+        }
     test {
       runtimeClasspath = files(this@test.output, tasks.jar, configurations.testRuntimeClasspath)
     }
@@ -93,8 +106,17 @@ tasks.withType<JavaCompile>() {
 
 tasks.named<JavaCompile>(java9.compileJavaTaskName) { options.release = 9 }
 
+tasks.named<JavaCompile>(java11.compileJavaTaskName) { options.release = 11 }
+
+tasks.named<JavaCompile>(java21.compileJavaTaskName) {
+  javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(21)) })
+  options.release = 21
+}
+
 tasks.jar {
   into("META-INF/versions/9") { from(java9.output) }
+  into("META-INF/versions/11") { from(java11.output) }
+  into("META-INF/versions/21") { from(java21.output) }
   manifest.attributes["Multi-Release"] = "true"
   manifest.attributes["Specification-Title"] = "launchwrapper"
   manifest.attributes["Specification-Version"] = "1.12"
@@ -106,6 +128,8 @@ tasks.jar {
 
 tasks.named<Jar>("sourcesJar").configure {
   into("META-INF/versions/9") { from(java9.java.sourceDirectories) }
+  into("META-INF/versions/11") { from(java11.java.sourceDirectories) }
+  into("META-INF/versions/21") { from(java21.java.sourceDirectories) }
 }
 
 tasks.processResources {
@@ -141,6 +165,43 @@ val test8 =
 
 tasks.check { dependsOn(test8) }
 
+jmh {
+  jmhVersion = "1.37"
+  resultFormat = "JSON"
+  // -PbenchCorpus=a.jar:b.jar to benchmark against real mod jars instead of the benchmark classpath
+  providers.gradleProperty("benchCorpus").orNull?.let { jvmArgsAppend.add("-Drfb.bench.corpus=$it") }
+  // -PbenchInclude=Regex to only run matching benchmarks
+  providers.gradleProperty("benchInclude").orNull?.let { includes.add(it) }
+}
+
+tasks.register<JavaExec>("modpackBenchmark") {
+  group = "benchmark"
+  description = "Boot RFB with a generated synthetic modpack and measure the startup phases."
+
+  dependsOn(tasks.jar)
+  // The jar goes first so that the multi-release classes are used in the booted JVMs
+  classpath = files(tasks.jar) + sourceSets["jmh"].runtimeClasspath
+  mainClass = "com.gtnewhorizons.retrofuturabootstrap.benchmark.modpack.ModpackBenchmark"
+  systemProperty(
+      "rfb.bench.modpack.dir",
+      layout.buildDirectory.dir("modpack-benchmark").get().asFile.absolutePath)
+  // -PmodpackJars=50 -PmodpackClasses=200 -PmodpackRuns=3 to change the modpack size and run count
+  providers.gradleProperty("modpackJars").orNull?.let { systemProperty("rfb.bench.modpack.jars", it) }
+  providers.gradleProperty("modpackClasses").orNull?.let {
+    systemProperty("rfb.bench.modpack.classes", it)
+  }
+  providers.gradleProperty("modpackRuns").orNull?.let { systemProperty("rfb.bench.modpack.runs", it) }
+  // -PmodpackJvmArgs="-Xmx4G -Drfb.metrics=full" for extra arguments of the booted JVMs
+  providers.gradleProperty("modpackJvmArgs").orNull?.let {
+    systemProperty("rfb.bench.modpack.jvmArgs", it)
+  }
+  // -PmodpackJava=8 to boot the modpack on a different Java version
+  providers.gradleProperty("modpackJava").orNull?.let { version ->
+    javaLauncher =
+        javaToolchains.launcherFor { languageVersion = JavaLanguageVersion.of(version.toInt()) }
+  }
+}
+
 publishing {
   publications { create<MavenPublication>("rfbMaven") { from(components["java"]) } }
 
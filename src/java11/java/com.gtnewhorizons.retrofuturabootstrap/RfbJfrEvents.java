@@ -0,0 +1,367 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Java Flight Recorder events for RFB's class loading, transformation and plugin lifecycle.
+ * <p>
+ * Every {@code begin} method returns an opaque token, which is null when no active recording wants the event,
+ * and which must be passed into the matching {@code end} method.
+ * The enabled checks read a single flag maintained by JFR, so there is no allocation when not recording.
+ */
+@SuppressWarnings("unused")
+public final class RfbJfrEvents {
+    private RfbJfrEvents() {}
+
+    private static final String CATEGORY = "RetroFuturaBootstrap";
+
+    @Name("rfb.FindClass")
+    @Label("Find Class")
+    @Description("A class lookup in one of the RFB class loaders")
+    @Category({CATEGORY, "Class Loading"})
+    @StackTrace(false)
+    static final class FindClassEvent extends Event {
+        @Label("Class Loader")
+        String loaderName;
+
+        @Label("Class Name")
+        String className;
+
+        @Label("Class Size")
+        @DataAmount
+        int bytes;
+
+        @Label("Cache Hit")
+        boolean cacheHit;
+    }
+
+    @Name("rfb.Transform")
+    @Label("Class Transform")
+    @Description("A single class transformer invocation")
+    @Category({CATEGORY, "Class Loading"})
+    @StackTrace(false)
+    static final class TransformEvent extends Event {
+        @Label("Class Loader")
+        String loaderName;
+
+        @Label("Transformer")
+        String transformer;
+
+        @Label("Class Name")
+        String className;
+
+        @Label("RFB Transformer")
+        boolean rfbTransformer;
+
+        @Label("Modified")
+        boolean modified;
+    }
+
+    @Name("rfb.ClassNodeParse")
+    @Label("ClassNode Parse")
+    @Description("A full ClassReader parse in ClassNodeHandle")
+    @Category({CATEGORY, "ASM"})
+    @StackTrace(false)
+    static final class ClassNodeParseEvent extends Event {
+        @Label("Class Name")
+        String className;
+
+        @Label("Class Size")
+        @DataAmount
+        int bytes;
+    }
+
+    @Name("rfb.ClassNodeWrite")
+    @Label("ClassNode Write")
+    @Description("A ClassWriter serialization in ClassNodeHandle")
+    @Category({CATEGORY, "ASM"})
+    @StackTrace(false)
+    static final class ClassNodeWriteEvent extends Event {
+        @Label("Class Name")
+        String className;
+
+        @Label("Class Size")
+        @DataAmount
+        int bytes;
+
+        @Label("Writer Flags")
+        int writerFlags;
+    }
+
+    @Name("rfb.CommonSuperClass")
+    @Label("Common Super Class")
+    @Description("A SafeAsmClassWriter common superclass lookup")
+    @Category({CATEGORY, "ASM"})
+    static final class CommonSuperClassEvent extends Event {
+        @Label("Type 1")
+        String type1;
+
+        @Label("Type 2")
+        String type2;
+
+        @Label("Result")
+        String result;
+    }
+
+    @Name("rfb.PluginDiscovery")
+    @Label("Plugin Discovery")
+    @Description("Scanning the classpath and mods directory for RFB plugin manifests")
+    @Category({CATEGORY, "Plugins"})
+    @StackTrace(false)
+    static final class PluginDiscoveryEvent extends Event {
+        @Label("Plugins Found")
+        int plugins;
+    }
+
+    @Name("rfb.PluginSort")
+    @Label("Plugin Sort")
+    @Description("RFB plugin dependency resolution")
+    @Category({CATEGORY, "Plugins"})
+    @StackTrace(false)
+    static final class PluginSortEvent extends Event {
+        @Label("Plugins")
+        int plugins;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    /**
+     * Runtimes linked without the jdk.jfr module can't load the event classes, all the methods are no-ops there.
+     * The event classes are only touched after this check.
+     */
+    private static final boolean JFR_AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    /** Never committed, only used for the isEnabled checks that JFR keeps up to date with the active recordings. */
+    private static final class Probes {
+        static final FindClassEvent FIND_CLASS = new FindClassEvent();
+        static final TransformEvent TRANSFORM = new TransformEvent();
+        static final ClassNodeParseEvent CLASS_NODE_PARSE = new ClassNodeParseEvent();
+        static final ClassNodeWriteEvent CLASS_NODE_WRITE = new ClassNodeWriteEvent();
+        static final CommonSuperClassEvent COMMON_SUPER_CLASS = new CommonSuperClassEvent();
+        static final PluginDiscoveryEvent PLUGIN_DISCOVERY = new PluginDiscoveryEvent();
+        static final PluginSortEvent PLUGIN_SORT = new PluginSortEvent();
+    }
+
+    /** Starts timing a class lookup in one of the RFB class loaders */
+    public static @Nullable Object beginFindClass() {
+        if (!JFR_AVAILABLE || !Probes.FIND_CLASS.isEnabled()) {
+            return null;
+        }
+        final FindClassEvent event = new FindClassEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param loaderName The name of the class loader
+     * @param className The name of the class
+     * @param bytes The size of the defined class bytes, or 0 if already loaded
+     * @param cacheHit If the class was returned from the loaded class cache
+     */
+    public static void endFindClass(
+            @Nullable Object token,
+            @Nullable String loaderName,
+            @NotNull String className,
+            int bytes,
+            boolean cacheHit) {
+        if (token == null) {
+            return;
+        }
+        final FindClassEvent event = (FindClassEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.loaderName = loaderName;
+            event.className = className;
+            event.bytes = bytes;
+            event.cacheHit = cacheHit;
+            event.commit();
+        }
+    }
+
+    /** Starts timing a single transformer invocation */
+    public static @Nullable Object beginTransform() {
+        if (!JFR_AVAILABLE || !Probes.TRANSFORM.isEnabled()) {
+            return null;
+        }
+        final TransformEvent event = new TransformEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param loaderName The name of the class loader
+     * @param transformer The RFB transformer id, or LaunchWrapper transformer class name
+     * @param className The name of the transformed class
+     * @param rfbTransformer If it's a RFB transformer
+     * @param modified If the transformer changed the class
+     */
+    public static void endTransform(
+            @Nullable Object token,
+            @Nullable String loaderName,
+            @NotNull String transformer,
+            @NotNull String className,
+            boolean rfbTransformer,
+            boolean modified) {
+        if (token == null) {
+            return;
+        }
+        final TransformEvent event = (TransformEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.loaderName = loaderName;
+            event.transformer = transformer;
+            event.className = className;
+            event.rfbTransformer = rfbTransformer;
+            event.modified = modified;
+            event.commit();
+        }
+    }
+
+    /** Starts timing a full class parse in ClassNodeHandle */
+    public static @Nullable Object beginClassNodeParse() {
+        if (!JFR_AVAILABLE || !Probes.CLASS_NODE_PARSE.isEnabled()) {
+            return null;
+        }
+        final ClassNodeParseEvent event = new ClassNodeParseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param className The internal name of the class
+     * @param bytes The size of the parsed class
+     */
+    public static void endClassNodeParse(@Nullable Object token, @Nullable String className, int bytes) {
+        if (token == null) {
+            return;
+        }
+        final ClassNodeParseEvent event = (ClassNodeParseEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.className = className;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /** Starts timing a class write in ClassNodeHandle */
+    public static @Nullable Object beginClassNodeWrite() {
+        if (!JFR_AVAILABLE || !Probes.CLASS_NODE_WRITE.isEnabled()) {
+            return null;
+        }
+        final ClassNodeWriteEvent event = new ClassNodeWriteEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param className The internal name of the class
+     * @param bytes The size of the written class
+     * @param writerFlags The ClassWriter flags used
+     */
+    public static void endClassNodeWrite(
+            @Nullable Object token, @Nullable String className, int bytes, int writerFlags) {
+        if (token == null) {
+            return;
+        }
+        final ClassNodeWriteEvent event = (ClassNodeWriteEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.className = className;
+            event.bytes = bytes;
+            event.writerFlags = writerFlags;
+            event.commit();
+        }
+    }
+
+    /** Starts timing a SafeAsmClassWriter common superclass lookup */
+    public static @Nullable Object beginCommonSuperClass() {
+        if (!JFR_AVAILABLE || !Probes.COMMON_SUPER_CLASS.isEnabled()) {
+            return null;
+        }
+        final CommonSuperClassEvent event = new CommonSuperClassEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param type1 The first internal type name
+     * @param type2 The second internal type name
+     * @param result The computed common superclass internal name
+     */
+    public static void endCommonSuperClass(
+            @Nullable Object token, @NotNull String type1, @NotNull String type2, @Nullable String result) {
+        if (token == null) {
+            return;
+        }
+        final CommonSuperClassEvent event = (CommonSuperClassEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.type1 = type1;
+            event.type2 = type2;
+            event.result = result;
+            event.commit();
+        }
+    }
+
+    /** Starts timing the RFB plugin manifest discovery */
+    public static @Nullable Object beginPluginDiscovery() {
+        if (!JFR_AVAILABLE || !Probes.PLUGIN_DISCOVERY.isEnabled()) {
+            return null;
+        }
+        final PluginDiscoveryEvent event = new PluginDiscoveryEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param plugins The number of plugin manifests found
+     */
+    public static void endPluginDiscovery(@Nullable Object token, int plugins) {
+        if (token == null) {
+            return;
+        }
+        final PluginDiscoveryEvent event = (PluginDiscoveryEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.plugins = plugins;
+            event.commit();
+        }
+    }
+
+    /** Starts timing the RFB plugin dependency resolution */
+    public static @Nullable Object beginPluginSort() {
+        if (!JFR_AVAILABLE || !Probes.PLUGIN_SORT.isEnabled()) {
+            return null;
+        }
+        final PluginSortEvent event = new PluginSortEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param plugins The number of plugins being sorted
+     * @param success If no critical issues were found
+     */
+    public static void endPluginSort(@Nullable Object token, int plugins, boolean success) {
+        if (token == null) {
+            return;
+        }
+        final PluginSortEvent event = (PluginSortEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.plugins = plugins;
+            event.success = success;
+            event.commit();
+        }
+    }
+}
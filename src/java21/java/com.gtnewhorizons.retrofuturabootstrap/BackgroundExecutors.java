@@ -0,0 +1,38 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the executors running RFB's blocking background work, like class dumping and jar reading or scanning.
+ * <p>
+ * The workers are virtual threads, which don't keep platform threads and their stacks around between bursts of work
+ * and are cheap to recreate, so idle workers exit. The number of tasks running at once stays bounded like on Java 8,
+ * to limit the open files and buffers of the I/O work.
+ */
+final class BackgroundExecutors {
+    private BackgroundExecutors() {}
+
+    private static final long IDLE_SECONDS = 5;
+
+    /**
+     * @param name The name of the executor's threads.
+     * @param threads The maximum number of tasks running at once.
+     * @param priority The priority of the threads, ignored for virtual threads.
+     * @return A new executor running at most the given number of tasks at once.
+     */
+    static @NotNull ExecutorService newExecutor(@NotNull String name, int threads, int priority) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                IDLE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                Thread.ofVirtual().name(name).factory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
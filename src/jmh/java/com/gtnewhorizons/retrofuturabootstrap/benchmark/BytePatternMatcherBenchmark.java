@@ -0,0 +1,68 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Constant pool pattern matching as done by transformers in shouldTransformClass, over the whole corpus. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BytePatternMatcherBenchmark {
+    /** Patterns resembling the ones used by the built-in compat transformers */
+    private static final String[] PATTERNS = {
+        "org/objectweb/asm/",
+        "java/util/UUID",
+        "sun/misc/Unsafe",
+        "java/lang/reflect/Field",
+        "org/objectweb/asm/ClassWriter",
+        "getDeclaredField",
+        "java/lang/System",
+        "runFinalizersOnExit"
+    };
+
+    @Param({"Contains", "Equals", "StartsWith"})
+    public BytePatternMatcher.Mode mode;
+
+    @Param({"1", "8"})
+    public int patternCount;
+
+    private byte[][] classBytes;
+    private ClassHeaderMetadata[] metadata;
+    private BytePatternMatcher matcher;
+
+    @Setup
+    public void setup() {
+        final ClassCorpus corpus = ClassCorpus.get();
+        classBytes = corpus.classBytes;
+        metadata = new ClassHeaderMetadata[classBytes.length];
+        for (int i = 0; i < classBytes.length; i++) {
+            metadata[i] = new ClassHeaderMetadata(classBytes[i]);
+        }
+        final String[] patterns = new String[patternCount];
+        System.arraycopy(PATTERNS, 0, patterns, 0, patternCount);
+        matcher = new BytePatternMatcher(patterns, mode);
+    }
+
+    @Benchmark
+    public void matchesBytes(Blackhole bh) {
+        for (int i = 0; i < classBytes.length; i++) {
+            bh.consume(metadata[i].matchesBytes(classBytes[i], matcher));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Repeated lookups of a class in the {@link LaunchClassLoader} invalid class cache, like mods probing for optional
+ * dependencies. {@code findCachedMissWithStackTraces} forks with {@code -Drfb.stacklessClassNotFound=false} to throw
+ * the regular stack-traced exceptions, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CachedClassNotFoundBenchmark {
+    private static final String MISSING_CLASS = "com.example.optional.MissingApi";
+
+    private LaunchClassLoader loader;
+
+    @Setup
+    public void setup() {
+        loader = new LaunchClassLoader(new URL[0]);
+        try {
+            loader.findClass(MISSING_CLASS);
+            throw new IllegalStateException(MISSING_CLASS + " was found");
+        } catch (ClassNotFoundException e) {
+            // Now in the invalid class cache
+        }
+    }
+
+    @Benchmark
+    public Object findCachedMiss() {
+        try {
+            return loader.findClass(MISSING_CLASS);
+        } catch (ClassNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Drfb.stacklessClassNotFound=false")
+    public Object findCachedMissWithStackTraces() {
+        return findCachedMiss();
+    }
+
+    @Benchmark
+    public Object loadCachedMiss() {
+        try {
+            return loader.loadClass(MISSING_CLASS);
+        } catch (ClassNotFoundException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A corpus of real-world class files used by the benchmarks.
+ * Reads the jars and directories listed in the {@code rfb.bench.corpus} system property (separated by the platform path separator),
+ * or the benchmark classpath (ASM, log4j, RFB itself, etc.) if not set.
+ * At most {@code rfb.bench.corpusLimit} (default 5000) classes are loaded, in a stable order.
+ */
+public final class ClassCorpus {
+    private static ClassCorpus instance;
+
+    /** Internal names (a/b/C) of the classes */
+    public final String[] internalNames;
+    /** Regular names (a.b.C) of the classes */
+    public final String[] classNames;
+    /** Class file contents */
+    public final byte[][] classBytes;
+    /** The jars and directories the corpus was read from */
+    public final URL[] sources;
+
+    private ClassCorpus(List<Path> roots, int limit) throws IOException {
+        final TreeMap<String, byte[]> classes = new TreeMap<>();
+        final List<URL> urls = new ArrayList<>();
+        for (final Path root : roots) {
+            urls.add(root.toUri().toURL());
+            if (Files.isDirectory(root)) {
+                readDirectory(root, classes);
+            } else if (Files.isRegularFile(root)) {
+                readJar(root, classes);
+            }
+        }
+        final int count = Math.min(limit, classes.size());
+        internalNames = new String[count];
+        classNames = new String[count];
+        classBytes = new byte[count][];
+        int i = 0;
+        for (final String name : classes.keySet()) {
+            if (i >= count) {
+                break;
+            }
+            internalNames[i] = name;
+            classNames[i] = name.replace('/', '.');
+            classBytes[i] = classes.get(name);
+            i++;
+        }
+        sources = urls.toArray(new URL[0]);
+    }
+
+    /** @return The lazily loaded shared corpus. */
+    public static synchronized ClassCorpus get() {
+        if (instance == null) {
+            final String corpus = System.getProperty("rfb.bench.corpus", System.getProperty("java.class.path"));
+            final int limit = Integer.getInteger("rfb.bench.corpusLimit", 5000);
+            final List<Path> roots = new ArrayList<>();
+            for (final String entry : corpus.split(File.pathSeparator)) {
+                if (!entry.isEmpty()) {
+                    roots.add(new File(entry).toPath().toAbsolutePath());
+                }
+            }
+            try {
+                instance = new ClassCorpus(roots, limit);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (instance.classBytes.length == 0) {
+                throw new IllegalStateException("Empty benchmark class corpus, check -Drfb.bench.corpus");
+            }
+        }
+        return instance;
+    }
+
+    /** @return The number of classes in the corpus. */
+    public int size() {
+        return classBytes.length;
+    }
+
+    private static boolean isCorpusEntry(String path) {
+        return path.endsWith(".class")
+                && !path.startsWith("META-INF/")
+                && !path.endsWith("module-info.class")
+                && !path.endsWith("package-info.class");
+    }
+
+    private static void readJar(Path jar, TreeMap<String, byte[]> out) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final String path = entry.getName();
+                if (entry.isDirectory() || !isCorpusEntry(path)) {
+                    continue;
+                }
+                try (InputStream is = zip.getInputStream(entry)) {
+                    out.putIfAbsent(path.substring(0, path.length() - ".class".length()), readFully(is));
+                }
+            }
+        }
+    }
+
+    private static void readDirectory(Path dir, TreeMap<String, byte[]> out) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        }
+        Collections.sort(files);
+        for (final Path file : files) {
+            final String path = dir.relativize(file).toString().replace(File.separatorChar, '/');
+            if (isCorpusEntry(path)) {
+                out.putIfAbsent(path.substring(0, path.length() - ".class".length()), Files.readAllBytes(file));
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,61 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHierarchyHeader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Constant pool scanning of every class in the corpus. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassHeaderMetadataBenchmark {
+    private byte[][] classBytes;
+
+    @Setup
+    public void setup() {
+        classBytes = ClassCorpus.get().classBytes;
+    }
+
+    @Benchmark
+    public void construct(Blackhole bh) {
+        for (final byte[] bytes : classBytes) {
+            bh.consume(new ClassHeaderMetadata(bytes));
+        }
+    }
+
+    @Benchmark
+    public void scanHierarchyHeader(Blackhole bh) {
+        for (final byte[] bytes : classBytes) {
+            bh.consume(new ClassHierarchyHeader(bytes));
+        }
+    }
+
+    /** Construction plus reading the super class name, the typical findClassMetadata usage */
+    @Benchmark
+    public void superNameHierarchyHeader(Blackhole bh) {
+        for (final byte[] bytes : classBytes) {
+            bh.consume(new ClassHierarchyHeader(bytes).binarySuperName());
+        }
+    }
+
+    @Benchmark
+    public void isValidClass(Blackhole bh) {
+        for (final byte[] bytes : classBytes) {
+            bh.consume(ClassHeaderMetadata.isValidClass(bytes));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** ClassNodeHandle creation, full parsing and re-serialization of every class in the corpus. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ClassNodeHandleBenchmark {
+    private byte[][] classBytes;
+
+    @Setup
+    public void setup() {
+        classBytes = ClassCorpus.get().classBytes;
+    }
+
+    /** Only the header scan done for every loaded class */
+    @Benchmark
+    public void create(Blackhole bh) {
+        for (final byte[] bytes : classBytes) {
+            bh.consume(new ClassNodeHandle(bytes));
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (final byte[] bytes : classBytes) {
+            bh.consume(new ClassNodeHandle(bytes).getNode());
+        }
+    }
+
+    @Benchmark
+    public void parseAndCompute(Blackhole bh) {
+        for (final byte[] bytes : classBytes) {
+            final ClassNodeHandle handle = new ClassNodeHandle(bytes);
+            handle.getNode();
+            handle.markDirty();
+            bh.consume(handle.computeBytes());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.asm.SafeAsmClassWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Common superclass lookups between pairs of corpus classes, as done when computing frames.
+ * Each writer only lives for a few lookups like in real class transformation, so its inheritance cache is mostly cold.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommonSuperClassBenchmark {
+    /** How many lookups share one writer */
+    private static final int LOOKUPS_PER_WRITER = 8;
+
+    private RfbSystemClassLoader loader;
+    private String[] types1;
+    private String[] types2;
+
+    /** Exposes the lookup and uses the benchmark class loader instead of the global RFB loaders */
+    private static final class BenchmarkClassWriter extends SafeAsmClassWriter {
+        private final ClassLoader loader;
+
+        BenchmarkClassWriter(ClassLoader loader) {
+            super(0);
+            this.loader = loader;
+        }
+
+        @Override
+        protected ClassLoader getClassLoader() {
+            return loader;
+        }
+
+        String lookup(String type1, String type2) {
+            return getCommonSuperClass(type1, type2);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        final ClassCorpus corpus = ClassCorpus.get();
+        loader = new RfbSystemClassLoader("Benchmark", corpus.sources);
+        final List<String> classes = new ArrayList<>();
+        for (int i = 0; i < corpus.size(); i++) {
+            final ClassHeaderMetadata metadata = ClassHeaderMetadata.of(corpus.classBytes[i]);
+            if (metadata != null && (metadata.accessFlags & Opcodes.ACC_INTERFACE) == 0) {
+                classes.add(corpus.internalNames[i]);
+            }
+        }
+        // Pair up classes from the same neighbourhood, which tend to share some of their hierarchy
+        final int pairs = Math.max(0, classes.size() - 1);
+        types1 = new String[pairs];
+        types2 = new String[pairs];
+        for (int i = 0; i < pairs; i++) {
+            types1[i] = classes.get(i);
+            types2[i] = classes.get(i + 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loader.close();
+    }
+
+    @Benchmark
+    public void getCommonSuperClass(Blackhole bh) {
+        BenchmarkClassWriter writer = null;
+        for (int i = 0; i < types1.length; i++) {
+            if (i % LOOKUPS_PER_WRITER == 0) {
+                writer = new BenchmarkClassWriter(loader);
+            }
+            try {
+                bh.consume(writer.lookup(types1[i], types2[i]));
+            } catch (TypeNotPresentException e) {
+                // Corpus classes referencing optional dependencies not present in the corpus
+                bh.consume(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.versioning.ComparableVersion;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing and comparison of typical mod and library version strings. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComparableVersionBenchmark {
+    private static final String[] VERSIONS = {
+        "1.0.0",
+        "1.7.10",
+        "1.7.10-10.13.4.1614",
+        "2.7.15-GTNH",
+        "0.8.5",
+        "0.8.7-GTNH-pre",
+        "1.0.0-SNAPSHOT",
+        "1.2-alpha-3",
+        "1.2-beta-1",
+        "1.2-rc1",
+        "2.0.0-beta9-fixed",
+        "9.9.1",
+        "17.0.10",
+        "1.8.0.402-b06",
+        "21",
+        "5.10.0",
+        "1.0.0-final",
+        "r2.3.1",
+        "3.4.13-GTNH-dev",
+        "2024.01.15",
+    };
+
+    private ComparableVersion[] parsed;
+
+    @Setup
+    public void setup() {
+        parsed = new ComparableVersion[VERSIONS.length];
+        for (int i = 0; i < VERSIONS.length; i++) {
+            parsed[i] = new ComparableVersion(VERSIONS[i]);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (final String version : VERSIONS) {
+            bh.consume(new ComparableVersion(version));
+        }
+    }
+
+    @Benchmark
+    public ComparableVersion[] sort() {
+        final ComparableVersion[] copy = parsed.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,72 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.plugin.PluginSorter;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Dependency resolution of a synthetic, acyclic set of plugins with random load order relations. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PluginSorterBenchmark {
+    @Param({"10", "100", "500"})
+    public int pluginCount;
+
+    private List<RfbPluginMetadata> plugins;
+
+    @Setup
+    public void setup() throws MalformedURLException {
+        final URI source = URI.create("file:benchmark");
+        final URL url = source.toURL();
+        final Random random = new Random(1234);
+        plugins = new ArrayList<>(pluginCount);
+        for (int i = 0; i < pluginCount; i++) {
+            final String id = "plugin-" + i;
+            final RfbPluginMetadata.Builder builder =
+                    new RfbPluginMetadata.Builder(url, source, id, id, "1." + i + ".0", "plugins.Plugin" + i);
+            // Only refer to earlier plugins to keep the graph acyclic
+            final int relations = i == 0 ? 0 : random.nextInt(Math.min(i, 4) + 1);
+            for (int r = 0; r < relations; r++) {
+                final String other = "plugin-" + random.nextInt(i);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        builder.loadAfter(other);
+                        break;
+                    case 1:
+                        builder.loadAfter(other).loadRequires(other);
+                        break;
+                    default:
+                        builder.loadAfter(other).versionConstraint(other, "[1.0.0,)");
+                        break;
+                }
+            }
+            plugins.add(builder.build());
+        }
+    }
+
+    @Benchmark
+    public Optional<List<RfbPluginMetadata>> resolve() {
+        return new PluginSorter(plugins).resolve();
+    }
+}
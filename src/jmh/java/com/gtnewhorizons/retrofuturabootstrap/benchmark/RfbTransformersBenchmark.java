@@ -0,0 +1,87 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPlugin;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginMetadata;
+import com.gtnewhorizons.rfbplugins.compat.DummyRfbPlugin;
+import com.gtnewhorizons.rfbplugins.compat.transformers.AsmTypeTransformer;
+import com.gtnewhorizons.rfbplugins.compat.transformers.AsmUpgradeTransformer;
+import com.gtnewhorizons.rfbplugins.compat.transformers.DeprecatedRedirectTransformer;
+import com.gtnewhorizons.rfbplugins.compat.transformers.InterfaceMethodRefFixer;
+import com.gtnewhorizons.rfbplugins.compat.transformers.SafeClassWriterTransformer;
+import com.gtnewhorizons.rfbplugins.compat.transformers.UnsafeReflectionTransformer;
+import com.gtnewhorizons.rfbplugins.compat.transformers.UuidTransformer;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** The full RFB transformer chain with all the built-in compat transformers, over the whole corpus. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RfbTransformersBenchmark {
+    private ClassCorpus corpus;
+    private RfbSystemClassLoader loader;
+    private List<RfbClassTransformerHandle> transformers;
+
+    @Setup
+    public void setup() throws IOException {
+        corpus = ClassCorpus.get();
+        loader = new RfbSystemClassLoader("Benchmark", corpus.sources);
+        final URI source = URI.create("file:benchmark");
+        final URL url = source.toURL();
+        final RfbPluginMetadata metadata = new RfbPluginMetadata.Builder(
+                        url, source, "benchmark", "Benchmark", "1.0.0", DummyRfbPlugin.class)
+                .build();
+        final RfbPlugin plugin = new DummyRfbPlugin();
+        final RfbClassTransformer[] builtIns = {
+            new SafeClassWriterTransformer(),
+            new AsmTypeTransformer(),
+            new AsmUpgradeTransformer(),
+            new InterfaceMethodRefFixer(),
+            new UnsafeReflectionTransformer(),
+            new UuidTransformer(),
+            new DeprecatedRedirectTransformer()
+        };
+        transformers = new ArrayList<>(builtIns.length);
+        for (final RfbClassTransformer transformer : builtIns) {
+            transformer.onRegistration(loader);
+            transformers.add(new RfbClassTransformerHandle(metadata, plugin, transformer));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loader.close();
+    }
+
+    @Benchmark
+    public void runRfbTransformers(Blackhole bh) {
+        final String[] names = corpus.classNames;
+        final byte[][] classBytes = corpus.classBytes;
+        for (int i = 0; i < classBytes.length; i++) {
+            bh.consume(loader.runRfbTransformers(
+                    transformers, RfbClassTransformer.Context.LCL_WITH_TRANSFORMS, null, names[i], classBytes[i]));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.asm.UnsafeReflectionRedirector;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import sun.misc.Unsafe;
+
+/**
+ * Redirected {@link Field} writes and modifier reads from several threads at once, like mods updating unlocked
+ * {@code static final} fields from the server and client threads. {@code legacySetUnlocked} is the previous
+ * implementation (a synchronized {@link WeakHashMap} lookup and offset computation on every call), for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class UnsafeReflectionRedirectorBenchmark {
+    @SuppressWarnings("unused")
+    private static final Object UNLOCKED_TARGET = String.valueOf(System.nanoTime());
+
+    public static final class Holder {
+        public volatile Object plainValue;
+    }
+
+    private static final Set<Field> legacyUnlockedFields = Collections.newSetFromMap(new WeakHashMap<>());
+    private static final Unsafe unsafe;
+
+    static {
+        try {
+            final Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = (Unsafe) theUnsafe.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Field unlockedField;
+    private Field plainField;
+    private Field modifiersField;
+    private final Holder holder = new Holder();
+    private final String value = "value";
+
+    @Setup
+    public void setup() throws Exception {
+        unlockedField = UnsafeReflectionRedirectorBenchmark.class.getDeclaredField("UNLOCKED_TARGET");
+        unlockedField.setAccessible(true);
+        modifiersField = UnsafeReflectionRedirector.getDeclaredField(Field.class, "modifiers");
+        UnsafeReflectionRedirector.setInt(
+                modifiersField, unlockedField, unlockedField.getModifiers() & ~Modifier.FINAL);
+        legacyUnlock(unlockedField);
+        plainField = Holder.class.getDeclaredField("plainValue");
+    }
+
+    @Benchmark
+    public void setUnlocked() throws Exception {
+        UnsafeReflectionRedirector.set(unlockedField, null, value);
+    }
+
+    @Benchmark
+    public void legacySetUnlocked() throws Exception {
+        legacySet(unlockedField, value);
+    }
+
+    @Benchmark
+    public void setPlainField() throws Exception {
+        UnsafeReflectionRedirector.set(plainField, holder, value);
+    }
+
+    @Benchmark
+    public int getModifiers() throws Exception {
+        return UnsafeReflectionRedirector.getInt(modifiersField, unlockedField);
+    }
+
+    private static synchronized void legacyUnlock(Field f) {
+        legacyUnlockedFields.add(f);
+    }
+
+    private static synchronized boolean legacyIsUnlocked(Field f) {
+        return legacyUnlockedFields.contains(f);
+    }
+
+    private static void legacySet(Field field, Object value) {
+        if (legacyIsUnlocked(field)) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                throw new IllegalStateException("unsafe redirect of non-static field set");
+            }
+            if (!field.getType().isAssignableFrom(value.getClass())) {
+                throw new IllegalArgumentException(
+                        "Field " + field.getType() + " not assignable from " + value.getClass());
+            }
+            unsafe.putObjectVolatile(unsafe.staticFieldBase(field), unsafe.staticFieldOffset(field), value);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark;
+
+import com.gtnewhorizons.retrofuturabootstrap.asm.UuidStringConstructor;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The lenient {@link UUID#fromString(String)} redirect on player UUID strings, next to the Java 8 algorithm it replaced and
+ * the strict JDK parser. Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UuidStringConstructorBenchmark {
+    private String[] uuids;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        uuids = new String[64];
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+    }
+
+    @Benchmark
+    public void redirect(Blackhole bh) {
+        for (final String uuid : uuids) {
+            bh.consume(UuidStringConstructor.fromString(uuid));
+        }
+    }
+
+    @Benchmark
+    public void java8(Blackhole bh) {
+        for (final String uuid : uuids) {
+            bh.consume(java8FromString(uuid));
+        }
+    }
+
+    @Benchmark
+    public void jdk(Blackhole bh) {
+        for (final String uuid : uuids) {
+            bh.consume(UUID.fromString(uuid));
+        }
+    }
+
+    /** The previous implementation of the redirect */
+    private static UUID java8FromString(String name) {
+        String[] components = name.split("-");
+        if (components.length != 5) throw new IllegalArgumentException("Invalid UUID string: " + name);
+        for (int i = 0; i < 5; i++) components[i] = "0x" + components[i];
+
+        long mostSigBits = Long.decode(components[0]);
+        mostSigBits <<= 16;
+        mostSigBits |= Long.decode(components[1]);
+        mostSigBits <<= 16;
+        mostSigBits |= Long.decode(components[2]);
+
+        long leastSigBits = Long.decode(components[3]);
+        leastSigBits <<= 48;
+        leastSigBits |= Long.decode(components[4]);
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
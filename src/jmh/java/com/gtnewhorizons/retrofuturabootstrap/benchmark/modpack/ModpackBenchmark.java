@@ -0,0 +1,141 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark.modpack;
+
+import com.gtnewhorizons.retrofuturabootstrap.Main;
+import com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader;
+import com.gtnewhorizons.rfbbench.modpack.ModpackBenchTarget;
+import com.gtnewhorizons.rfbbench.modpack.ModpackBenchTweaker;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end startup benchmark: generates a {@link SyntheticModpack}, then boots RFB in fresh JVMs with the
+ * {@link ModpackBenchTweaker} and {@link ModpackBenchTarget}, loading every synthetic class through the LaunchClassLoader.
+ * The tweaker and target live outside the {@code com.gtnewhorizons.retrofuturabootstrap} package, which is excluded from
+ * the RFB class loaders, so that they are loaded the same way a mod's tweaker would be.
+ * Prints the median of each measured phase across all runs, and saves it as {@code summary.properties}.
+ * <p>
+ * Configured with system properties: {@code rfb.bench.modpack.dir} (output directory), {@code rfb.bench.modpack.jars},
+ * {@code rfb.bench.modpack.classes} (per jar), {@code rfb.bench.modpack.runs} and {@code rfb.bench.modpack.jvmArgs}
+ * (space-separated extra arguments for the booted JVMs).
+ */
+public final class ModpackBenchmark {
+    private ModpackBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        final Path dir = Paths.get(System.getProperty("rfb.bench.modpack.dir", "build/modpack-benchmark"))
+                .toAbsolutePath();
+        final int jars = Integer.getInteger("rfb.bench.modpack.jars", 50);
+        final int classes = Integer.getInteger("rfb.bench.modpack.classes", 200);
+        final int runs = Integer.getInteger("rfb.bench.modpack.runs", 3);
+        final String extraJvmArgs = System.getProperty("rfb.bench.modpack.jvmArgs", "").trim();
+
+        final Path gameDir = dir.resolve("game");
+        final Path modsDir = gameDir.resolve("mods");
+        deleteRecursively(gameDir);
+        final long genStart = System.nanoTime();
+        final List<String> classNames = new SyntheticModpack(jars, classes).generate(modsDir);
+        final Path classList = dir.resolve("classes.txt");
+        SyntheticModpack.writeClassList(classList, classNames);
+        System.out.printf(
+                "Generated %d classes in %d jars in %d ms%n",
+                classNames.size(), jars, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - genStart));
+
+        final List<Properties> results = new ArrayList<>(runs);
+        for (int run = 0; run < runs; run++) {
+            final Path resultFile = dir.resolve("run-" + run + ".properties");
+            Files.deleteIfExists(resultFile);
+            final List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-Djava.awt.headless=true");
+            command.add("-Djava.system.class.loader=" + RfbSystemClassLoader.class.getName());
+            command.add("-Drfb.metrics=basic");
+            command.add("-D" + ModpackBenchTarget.PROP_CLASS_LIST + "=" + classList);
+            command.add("-D" + ModpackBenchTarget.PROP_RESULT + "=" + resultFile);
+            if (!extraJvmArgs.isEmpty()) {
+                command.addAll(Arrays.asList(extraJvmArgs.split("\\s+")));
+            }
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Main.class.getName());
+            command.add("--version");
+            command.add("modpack-benchmark");
+            command.add("--gameDir");
+            command.add(gameDir.toString());
+            command.add("--assetsDir");
+            command.add(gameDir.resolve("assets").toString());
+            command.add("--tweakClass");
+            command.add(ModpackBenchTweaker.class.getName());
+
+            final Process process = new ProcessBuilder(command)
+                    .directory(gameDir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(dir.resolve("run-" + run + ".log").toFile())
+                    .start();
+            final int exitCode = process.waitFor();
+            if (exitCode != 0 || !Files.isRegularFile(resultFile)) {
+                throw new IllegalStateException("Benchmark run " + run + " failed with exit code " + exitCode
+                        + ", see " + dir.resolve("run-" + run + ".log"));
+            }
+            final Properties result = new Properties();
+            try (InputStream is = Files.newInputStream(resultFile)) {
+                result.load(is);
+            }
+            System.out.printf(
+                    "Run %d: total %s ms, class loading %s ms%n",
+                    run, result.getProperty("totalMs"), result.getProperty("classLoadMs"));
+            results.add(result);
+        }
+
+        final Map<String, Double> medians = medians(results);
+        final Properties summary = new Properties();
+        System.out.printf("%nMedian of %d runs (%d jars x %d classes):%n", runs, jars, classes);
+        for (Map.Entry<String, Double> entry : medians.entrySet()) {
+            System.out.printf("  %-24s %12.2f%n", entry.getKey(), entry.getValue());
+            summary.setProperty(entry.getKey(), String.format("%.2f", entry.getValue()));
+        }
+        try (OutputStream os = Files.newOutputStream(dir.resolve("summary.properties"))) {
+            summary.store(os, "RFB synthetic modpack benchmark, median of " + runs + " runs");
+        }
+    }
+
+    private static Map<String, Double> medians(List<Properties> results) {
+        final Map<String, Double> medians = new LinkedHashMap<>();
+        final List<String> keys = new ArrayList<>(results.get(0).stringPropertyNames());
+        keys.sort(null);
+        for (final String key : keys) {
+            final double[] values = new double[results.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Double.parseDouble(results.get(i).getProperty(key, "NaN"));
+            }
+            Arrays.sort(values);
+            final int mid = values.length / 2;
+            medians.put(key, values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2.0);
+        }
+        return medians;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        final File[] children = path.toFile().listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child.toPath());
+            }
+        }
+        Files.delete(path);
+    }
+}
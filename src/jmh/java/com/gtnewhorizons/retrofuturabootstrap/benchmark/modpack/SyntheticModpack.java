@@ -0,0 +1,271 @@
+package com.gtnewhorizons.retrofuturabootstrap.benchmark.modpack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates a reproducible set of mod jars full of synthetic classes, resembling a large modpack:
+ * <ul>
+ *     <li>Inheritance chains up to {@link #MAX_DEPTH} deep, some of them crossing jar boundaries</li>
+ *     <li>Lambdas (invokedynamic with LambdaMetafactory)</li>
+ *     <li>Classes using ASM ClassWriters, UUID.fromString and field reflection, which trigger the built-in compat transformers</li>
+ * </ul>
+ * Classes are named {@code bench/modN/CK}, the generated class list is written next to the jars.
+ */
+public final class SyntheticModpack {
+    /** Maximum inheritance depth of the synthetic classes, not counting Object */
+    public static final int MAX_DEPTH = 8;
+
+    private static final String API = "Api";
+    private static final Handle LAMBDA_METAFACTORY = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/LambdaMetafactory",
+            "metafactory",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;",
+            false);
+
+    private final int jarCount;
+    private final int classesPerJar;
+
+    public SyntheticModpack(int jarCount, int classesPerJar) {
+        if (jarCount < 1 || classesPerJar < MAX_DEPTH) {
+            throw new IllegalArgumentException("Need at least 1 jar and " + MAX_DEPTH + " classes per jar");
+        }
+        this.jarCount = jarCount;
+        this.classesPerJar = classesPerJar;
+    }
+
+    /**
+     * Writes the jars into the given directory.
+     * @return The regular (a.b.C) names of all generated classes, in generation order.
+     */
+    public List<String> generate(Path modsDir) throws IOException {
+        Files.createDirectories(modsDir);
+        final List<String> classNames = new ArrayList<>(jarCount * (classesPerJar + 1));
+        for (int jar = 0; jar < jarCount; jar++) {
+            final Path jarPath = modsDir.resolve(String.format("synthetic-mod-%04d.jar", jar));
+            final Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            try (OutputStream os = Files.newOutputStream(jarPath);
+                    JarOutputStream jos = new JarOutputStream(os, manifest)) {
+                final String pkg = "bench/mod" + jar + "/";
+                writeEntry(jos, pkg + API + ".class", generateApi(pkg));
+                classNames.add((pkg + API).replace('/', '.'));
+                for (int k = 0; k < classesPerJar; k++) {
+                    writeEntry(jos, pkg + "C" + k + ".class", generateClass(jar, k));
+                    classNames.add((pkg + "C" + k).replace('/', '.'));
+                }
+            }
+        }
+        return classNames;
+    }
+
+    private static void writeEntry(JarOutputStream jos, String name, byte[] data) throws IOException {
+        jos.putNextEntry(new JarEntry(name));
+        jos.write(data);
+        jos.closeEntry();
+    }
+
+    private static ClassWriter newWriter() {
+        return new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // Frames are only merged for primitives and 'this' in the generated code
+                return "java/lang/Object";
+            }
+        };
+    }
+
+    private static byte[] generateApi(String pkg) {
+        final ClassWriter cw = newWriter();
+        cw.visit(
+                Opcodes.V1_8,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
+                pkg + API,
+                null,
+                "java/lang/Object",
+                null);
+        cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "value", "()I", null, null)
+                .visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** The internal name of the superclass of class k in the given jar */
+    private String superName(int jar, int k) {
+        final int depth = k % MAX_DEPTH;
+        if (depth != 0) {
+            return "bench/mod" + jar + "/C" + (k - 1);
+        }
+        if (jar > 0 && (k / MAX_DEPTH) % 4 == 1) {
+            // Extend the last class of a chain in the previous mod
+            final int target = Math.min(classesPerJar - 1, k + MAX_DEPTH - 1);
+            return "bench/mod" + (jar - 1) + "/C" + target;
+        }
+        return "java/lang/Object";
+    }
+
+    private byte[] generateClass(int jar, int k) {
+        final String pkg = "bench/mod" + jar + "/";
+        final String name = pkg + "C" + k;
+        final String superName = superName(jar, k);
+        final boolean root = k % MAX_DEPTH == 0;
+        final ClassWriter cw = newWriter();
+        cw.visit(
+                Opcodes.V1_8,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER,
+                name,
+                null,
+                superName,
+                root ? new String[] {pkg + API} : null);
+        cw.visitField(Opcodes.ACC_PRIVATE, "counter", "I", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "ID", "I", null, k)
+                .visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // int value() { int sum = ID; for (int i = 0; i < counter; i++) sum += i * 31; return sum; }
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "value", "()I", null, null);
+        mv.visitCode();
+        mv.visitLdcInsn(k);
+        mv.visitVarInsn(Opcodes.ISTORE, 1);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitVarInsn(Opcodes.ISTORE, 2);
+        final Label loop = new Label();
+        final Label end = new Label();
+        mv.visitLabel(loop);
+        mv.visitVarInsn(Opcodes.ILOAD, 2);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, name, "counter", "I");
+        mv.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitVarInsn(Opcodes.ILOAD, 2);
+        mv.visitIntInsn(Opcodes.BIPUSH, 31);
+        mv.visitInsn(Opcodes.IMUL);
+        mv.visitInsn(Opcodes.IADD);
+        mv.visitVarInsn(Opcodes.ISTORE, 1);
+        mv.visitIincInsn(2, 1);
+        mv.visitJumpInsn(Opcodes.GOTO, loop);
+        mv.visitLabel(end);
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        if (k % 3 == 0) {
+            generateLambda(cw, name, k);
+        }
+        switch (k % 10) {
+            case 1:
+                generateClassWriterUser(cw);
+                break;
+            case 4:
+                generateUuidUser(cw, jar, k);
+                break;
+            case 7:
+                generateReflectionUser(cw, name);
+                break;
+            default:
+                break;
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** Runnable task() { return () -> counter(k); } */
+    private static void generateLambda(ClassWriter cw, String name, int k) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "task", "()Ljava/lang/Runnable;", null, null);
+        mv.visitCode();
+        mv.visitInvokeDynamicInsn(
+                "run",
+                "()Ljava/lang/Runnable;",
+                LAMBDA_METAFACTORY,
+                Type.getType("()V"),
+                new Handle(Opcodes.H_INVOKESTATIC, name, "lambda$task$0", "()V", false),
+                Type.getType("()V"));
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(
+                Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, "lambda$task$0", "()V", null, null);
+        mv.visitCode();
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        mv.visitLdcInsn((long) k);
+        mv.visitInsn(Opcodes.LADD);
+        mv.visitInsn(Opcodes.POP2);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** Object newWriter() { return new ClassWriter(ClassWriter.COMPUTE_FRAMES); } */
+    private static void generateClassWriterUser(ClassWriter cw) {
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "newWriter", "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitTypeInsn(Opcodes.NEW, "org/objectweb/asm/ClassWriter");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitInsn(Opcodes.ICONST_2);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "org/objectweb/asm/ClassWriter", "<init>", "(I)V", false);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** Object uuid() { return UUID.fromString("..."); } */
+    private static void generateUuidUser(ClassWriter cw, int jar, int k) {
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "uuid", "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitLdcInsn(String.format("%08x-0000-4000-8000-%012x", jar, k));
+        mv.visitMethodInsn(
+                Opcodes.INVOKESTATIC, "java/util/UUID", "fromString", "(Ljava/lang/String;)Ljava/util/UUID;", false);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** Object field() throws Exception { return C.class.getDeclaredField("counter"); } */
+    private static void generateReflectionUser(ClassWriter cw, String name) {
+        final MethodVisitor mv = cw.visitMethod(
+                Opcodes.ACC_PUBLIC, "field", "()Ljava/lang/Object;", null, new String[] {"java/lang/Exception"});
+        mv.visitCode();
+        mv.visitLdcInsn(Type.getObjectType(name));
+        mv.visitLdcInsn("counter");
+        mv.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                "java/lang/Class",
+                "getDeclaredField",
+                "(Ljava/lang/String;)Ljava/lang/reflect/Field;",
+                false);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** Writes the class list, one regular class name per line. */
+    public static void writeClassList(Path file, List<String> classNames) throws IOException {
+        Files.write(file, classNames, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,115 @@
+package com.gtnewhorizons.rfbbench.modpack;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.RetroFuturaBootstrap;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbMetrics;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import net.minecraft.launchwrapper.Launch;
+
+/**
+ * Dummy launch target used by {@link com.gtnewhorizons.retrofuturabootstrap.benchmark.modpack.ModpackBenchmark}, loads and initializes every synthetic class through
+ * the LaunchClassLoader and writes the measured numbers into the result file.
+ */
+public class ModpackBenchTarget {
+    /** System property with the path of the file listing the classes to load, one per line */
+    public static final String PROP_CLASS_LIST = "rfb.bench.modpack.classList";
+    /** System property with the path of the properties file the results are written to */
+    public static final String PROP_RESULT = "rfb.bench.modpack.result";
+
+    public static void main(String[] args) throws IOException {
+        final long mainNanos = System.nanoTime();
+        final List<String> classNames = Files.readAllLines(
+                Paths.get(System.getProperty(PROP_CLASS_LIST)), StandardCharsets.UTF_8);
+        final Path resultFile = Paths.get(System.getProperty(PROP_RESULT));
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final long allocStart = allocatedBytes(threads);
+        final long loadStart = System.nanoTime();
+        int failures = 0;
+        for (final String name : classNames) {
+            try {
+                Class.forName(name, true, Launch.classLoader);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                if (failures++ == 0) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        final long loadEnd = System.nanoTime();
+        final long allocEnd = allocatedBytes(threads);
+
+        final Properties result = new Properties();
+        put(result, "bootstrapMs", ModpackBenchTweaker.constructedMillis - ModpackBenchTweaker.jvmStartMillis);
+        put(
+                result,
+                "tweakerInjectMs",
+                nanosToMillis(ModpackBenchTweaker.injectEndNanos - ModpackBenchTweaker.injectStartNanos));
+        put(result, "launchTargetMs", nanosToMillis(mainNanos - ModpackBenchTweaker.injectEndNanos));
+        put(result, "classLoadMs", nanosToMillis(loadEnd - loadStart));
+        put(result, "classLoadAllocatedMb", allocStart < 0 ? -1 : (allocEnd - allocStart) / (1024.0 * 1024.0));
+        put(result, "totalMs", System.currentTimeMillis() - ModpackBenchTweaker.jvmStartMillis);
+        put(result, "classes", classNames.size());
+        put(result, "failedClasses", failures);
+        put(result, "modJars", ModpackBenchTweaker.modJars);
+        long gcCount = 0, gcMillis = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        put(result, "gcCount", gcCount);
+        put(result, "gcMs", gcMillis);
+        put(
+                result,
+                "heapUsedMb",
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0));
+
+        final RfbMetrics metrics = RetroFuturaBootstrap.API.metrics();
+        if (metrics.enabled()) {
+            long rfbNanos = 0, lwNanos = 0;
+            for (final RfbMetrics.TransformerStats stats : metrics.transformers()) {
+                if (stats.rfbTransformer()) {
+                    rfbNanos += stats.wallTimeNanos();
+                } else {
+                    lwNanos += stats.wallTimeNanos();
+                }
+            }
+            put(result, "rfbTransformersMs", nanosToMillis(rfbNanos));
+            put(result, "launchTransformersMs", nanosToMillis(lwNanos));
+            put(result, "classNodeParses", metrics.classNodeParses());
+            put(result, "classNodeWrites", metrics.classNodeWrites());
+        }
+
+        try (OutputStream os = Files.newOutputStream(resultFile)) {
+            result.store(os, "RFB synthetic modpack benchmark run");
+        }
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void put(Properties props, String key, Number value) {
+        props.setProperty(key, value.toString());
+    }
+
+    /** Allocated bytes of the current thread, or -1 if not supported by the JVM */
+    @SuppressWarnings("deprecation") // Thread.getId is the only option on Java 8
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
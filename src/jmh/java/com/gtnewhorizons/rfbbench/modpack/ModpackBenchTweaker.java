@@ -0,0 +1,67 @@
+package com.gtnewhorizons.rfbbench.modpack;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import net.minecraft.launchwrapper.ITweaker;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+
+/**
+ * Dummy tweaker used by {@link com.gtnewhorizons.retrofuturabootstrap.benchmark.modpack.ModpackBenchmark}, adds every jar in the mods directory to the LaunchClassLoader
+ * like a mod loader would, and records the phase timestamps.
+ */
+public class ModpackBenchTweaker implements ITweaker {
+    /** Wall clock time of JVM start, in ms */
+    static long jvmStartMillis;
+    /** Wall clock time of the tweaker construction, in ms (the end of RFB's own bootstrap) */
+    static long constructedMillis;
+    static long constructedNanos;
+    static long injectStartNanos;
+    static long injectEndNanos;
+    static int modJars;
+
+    private File gameDir;
+
+    public ModpackBenchTweaker() {
+        constructedMillis = System.currentTimeMillis();
+        constructedNanos = System.nanoTime();
+        jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    @Override
+    public void acceptOptions(List<String> args, File gameDir, File assetsDir, String profile) {
+        this.gameDir = gameDir;
+    }
+
+    @Override
+    public void injectIntoClassLoader(LaunchClassLoader classLoader) {
+        injectStartNanos = System.nanoTime();
+        final Path modsDir = gameDir.toPath().resolve("mods");
+        try (DirectoryStream<Path> jars = Files.newDirectoryStream(modsDir, "*.jar")) {
+            for (final Path jar : jars) {
+                classLoader.addURL(jar.toUri().toURL());
+                modJars++;
+            }
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list " + modsDir, e);
+        }
+        injectEndNanos = System.nanoTime();
+    }
+
+    @Override
+    public String getLaunchTarget() {
+        return ModpackBenchTarget.class.getName();
+    }
+
+    @Override
+    public String[] getLaunchArguments() {
+        return new String[0];
+    }
+}
@@ -0,0 +1,353 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.AnnotationIndex;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Builds {@link AnnotationIndex}es for {@link com.gtnewhorizons.retrofuturabootstrap.api.RfbApi#annotationIndex}.
+ * <p>
+ * The index of every jar is persisted in {@code rfb-cache/annotation-index/<hash>.idx} in the game directory, where the
+ * hash is computed from the names, CRC32s and sizes of all the jar entries (read from the zip central directory, without
+ * inflating anything). Only jars without a cached index are read, in parallel, using {@link BulkClassReader}.
+ * Classes without annotation attributes in their constant pool are skipped without parsing them with ASM.
+ * Class directories are not cached, and are read every time.
+ * The indexes of jars that were not indexed during a launch are deleted when the game finishes loading.
+ */
+public final class AnnotationIndexer {
+    /** Controlled by system property {@code rfb.annotationIndexCache=true}, whether annotation indexes of jars are persisted in the game directory */
+    public static final boolean cfgAnnotationIndexCache =
+            Boolean.parseBoolean(System.getProperty("rfb.annotationIndexCache", "true"));
+
+    private static final String FILE_EXTENSION = ".idx";
+    private static final int FILE_MAGIC = 0x52464241; // RFBA
+    private static final int FILE_VERSION = 1;
+
+    private static final byte[] VISIBLE_ANNOTATIONS = ClassHeaderMetadata.toModifiedUtf8("RuntimeVisibleAnnotations");
+    private static final byte[] INVISIBLE_ANNOTATIONS =
+            ClassHeaderMetadata.toModifiedUtf8("RuntimeInvisibleAnnotations");
+    private static final AnnotationIndex.TargetType[] TARGET_TYPES = AnnotationIndex.TargetType.values();
+
+    /** Indexes built or loaded during this launch, keyed by the content hash and the URL */
+    private static final ConcurrentHashMap<String, List<AnnotationIndex.Entry>> loadedIndexes =
+            new ConcurrentHashMap<>();
+    /** Content hashes of the jars indexed during this launch */
+    private static final Set<String> usedHashes = ConcurrentHashMap.newKeySet();
+    /** Cache directories indexes were loaded from or saved to during this launch */
+    private static final Set<Path> usedCacheDirectories = ConcurrentHashMap.newKeySet();
+
+    private static volatile @Nullable ExecutorService indexService;
+
+    private AnnotationIndexer() {}
+
+    /**
+     * Builds a combined index of the given classpath entries, entries that can't be read are skipped with a warning.
+     * @param classpathEntries file: URLs of jars or class directories.
+     * @param cacheDirectory The directory to persist jar indexes in, or null to not persist them.
+     */
+    public static @NotNull AnnotationIndex index(
+            @NotNull Collection<@NotNull URL> classpathEntries, @Nullable Path cacheDirectory) {
+        final List<URL> urls = new ArrayList<>(classpathEntries);
+        final List<Future<List<AnnotationIndex.Entry>>> futures = new ArrayList<>(urls.size());
+        final ExecutorService service = getIndexService();
+        for (final URL url : urls) {
+            futures.add(service.submit(() -> indexEntry(url, cacheDirectory)));
+        }
+        final List<AnnotationIndex.Entry> entries = new ArrayList<>();
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            while (true) {
+                try {
+                    entries.addAll(futures.get(i).get());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    SharedConfig.logWarning("Could not index annotations of " + urls.get(i), e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return new AnnotationIndex(entries);
+    }
+
+    private static @NotNull List<AnnotationIndex.Entry> indexEntry(@NotNull URL url, @Nullable Path cacheDirectory)
+            throws Exception {
+        final File file = new File(url.toURI());
+        if (!file.isFile()) {
+            return scan(url);
+        }
+        final String hash = contentHash(file);
+        usedHashes.add(hash);
+        final String memoryKey = hash + "|" + url;
+        final List<AnnotationIndex.Entry> loaded = loadedIndexes.get(memoryKey);
+        if (loaded != null) {
+            return loaded;
+        }
+        final Path cacheFile = (cacheDirectory == null || !cfgAnnotationIndexCache)
+                ? null
+                : cacheDirectory.resolve(hash + FILE_EXTENSION);
+        if (cacheFile != null) {
+            usedCacheDirectories.add(cacheDirectory);
+        }
+        List<AnnotationIndex.Entry> entries = null;
+        if (cacheFile != null && Files.isRegularFile(cacheFile)) {
+            try {
+                entries = read(cacheFile, url);
+            } catch (IOException e) {
+                SharedConfig.logDebug("Discarding unreadable annotation index " + cacheFile, e);
+            }
+        }
+        if (entries == null) {
+            entries = scan(url);
+            if (cacheFile != null) {
+                try {
+                    write(cacheFile, entries);
+                } catch (IOException e) {
+                    SharedConfig.logWarning("Could not save annotation index " + cacheFile, e);
+                }
+            }
+        }
+        loadedIndexes.put(memoryKey, entries);
+        return entries;
+    }
+
+    /** Deletes the cached indexes of jars that were not indexed during this launch, in every used cache directory */
+    static void startupFinished() {
+        for (final Path cacheDirectory : usedCacheDirectories) {
+            deleteStaleIndexes(cacheDirectory);
+        }
+    }
+
+    /**
+     * Deletes the cached indexes of jars not indexed during this launch, such as older versions of updated mods.
+     * Does nothing if no index was loaded from or saved to the directory during this launch.
+     */
+    public static void deleteStaleIndexes(@NotNull Path cacheDirectory) {
+        if (!usedCacheDirectories.contains(cacheDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory, "*" + FILE_EXTENSION)) {
+            for (final Path file : files) {
+                final String fileName = file.getFileName().toString();
+                final String hash = fileName.substring(0, fileName.length() - FILE_EXTENSION.length());
+                if (!usedHashes.contains(hash)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            SharedConfig.logDebug("Could not clean up the annotation index directory " + cacheDirectory, e);
+        }
+    }
+
+    /** @return A hex SHA-1 of the names, CRC32s and sizes of all the jar entries */
+    private static @NotNull String contentHash(@NotNull File file) throws Exception {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        final byte[] numbers = new byte[16];
+        try (JarFile jar = new JarFile(file, false)) {
+            final Enumeration<? extends ZipEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                final long crc = entry.getCrc();
+                final long size = entry.getSize();
+                for (int i = 0; i < 8; i++) {
+                    numbers[i] = (byte) (crc >>> (i * 8));
+                    numbers[8 + i] = (byte) (size >>> (i * 8));
+                }
+                digest.update(numbers);
+            }
+        }
+        final StringBuilder hex = new StringBuilder(40);
+        for (final byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static @NotNull List<AnnotationIndex.Entry> scan(@NotNull URL url) throws IOException {
+        final ConcurrentHashMap<String, List<AnnotationIndex.Entry>> byClass = new ConcurrentHashMap<>();
+        BulkClassReader.forEachClassIn(
+                url,
+                (className, classBytes, metadata) -> {
+                    if (metadata.findUtf8Index(classBytes, VISIBLE_ANNOTATIONS) == 0
+                            && metadata.findUtf8Index(classBytes, INVISIBLE_ANNOTATIONS) == 0) {
+                        return;
+                    }
+                    final List<AnnotationIndex.Entry> classEntries = new ArrayList<>();
+                    new ClassReader(classBytes)
+                            .accept(
+                                    new IndexingClassVisitor(url, className, classEntries),
+                                    ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                    if (!classEntries.isEmpty()) {
+                        byClass.put(className, classEntries);
+                    }
+                },
+                null);
+        // Sort by class name to not depend on the order the classes were read in
+        final List<AnnotationIndex.Entry> entries = new ArrayList<>();
+        for (final List<AnnotationIndex.Entry> classEntries : new TreeMap<>(byClass).values()) {
+            entries.addAll(classEntries);
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static final class IndexingClassVisitor extends ClassVisitor {
+        private final @NotNull URL source;
+        private final @NotNull String className;
+        private final @NotNull List<AnnotationIndex.Entry> entries;
+
+        IndexingClassVisitor(
+                @NotNull URL source, @NotNull String className, @NotNull List<AnnotationIndex.Entry> entries) {
+            super(Opcodes.ASM9);
+            this.source = source;
+            this.className = className;
+            this.entries = entries;
+        }
+
+        private void add(
+                String descriptor,
+                AnnotationIndex.TargetType targetType,
+                @Nullable String memberName,
+                @Nullable String memberDescriptor,
+                boolean visible) {
+            entries.add(new AnnotationIndex.Entry(
+                    source, descriptor, className, targetType, memberName, memberDescriptor, visible));
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            add(descriptor, AnnotationIndex.TargetType.CLASS, null, null, visible);
+            return null;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            return new FieldVisitor(Opcodes.ASM9) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    add(annotationDescriptor, AnnotationIndex.TargetType.FIELD, name, descriptor, visible);
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+                int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    add(annotationDescriptor, AnnotationIndex.TargetType.METHOD, name, descriptor, visible);
+                    return null;
+                }
+            };
+        }
+    }
+
+    private static @NotNull List<AnnotationIndex.Entry> read(@NotNull Path cacheFile, @NotNull URL source)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Unsupported annotation index format");
+            }
+            final int count = in.readInt();
+            final List<AnnotationIndex.Entry> entries = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                final String annotationDescriptor = in.readUTF();
+                final String className = in.readUTF();
+                final AnnotationIndex.TargetType targetType = TARGET_TYPES[in.readUnsignedByte()];
+                final String memberName = in.readUTF();
+                final String memberDescriptor = in.readUTF();
+                final boolean visible = in.readBoolean();
+                entries.add(new AnnotationIndex.Entry(
+                        source,
+                        annotationDescriptor,
+                        className,
+                        targetType,
+                        targetType == AnnotationIndex.TargetType.CLASS ? null : memberName,
+                        targetType == AnnotationIndex.TargetType.CLASS ? null : memberDescriptor,
+                        visible));
+            }
+            return Collections.unmodifiableList(entries);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupted annotation index", e);
+        }
+    }
+
+    private static void write(@NotNull Path cacheFile, @NotNull List<AnnotationIndex.Entry> entries)
+            throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        final Path tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(entries.size());
+                for (final AnnotationIndex.Entry entry : entries) {
+                    out.writeUTF(entry.annotationDescriptor());
+                    out.writeUTF(entry.className());
+                    out.writeByte(entry.targetType().ordinal());
+                    out.writeUTF(entry.memberName() == null ? "" : entry.memberName());
+                    out.writeUTF(entry.memberDescriptor() == null ? "" : entry.memberDescriptor());
+                    out.writeBoolean(entry.runtimeVisible());
+                }
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static @NotNull ExecutorService getIndexService() {
+        ExecutorService service = indexService;
+        if (service == null) {
+            synchronized (AnnotationIndexer.class) {
+                service = indexService;
+                if (service == null) {
+                    service = BackgroundExecutors.newExecutor(
+                            "RFB Annotation Indexer", BulkClassReader.cfgBulkReadThreads, Thread.NORM_PRIORITY);
+                    indexService = service;
+                }
+            }
+        }
+        return service;
+    }
+}
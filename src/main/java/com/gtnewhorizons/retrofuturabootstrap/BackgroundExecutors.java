@@ -0,0 +1,31 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the executors running RFB's blocking background work, like class dumping and jar reading or scanning.
+ * This is the Java 8 version using daemon platform threads, the Java 21+ multi-release layer uses virtual threads.
+ */
+final class BackgroundExecutors {
+    private BackgroundExecutors() {}
+
+    /**
+     * @param name The name of the executor's threads.
+     * @param threads The maximum number of tasks running at once.
+     * @param priority The priority of the threads, ignored for virtual threads.
+     * @return A new executor running at most the given number of tasks at once.
+     */
+    static @NotNull ExecutorService newExecutor(@NotNull String name, int threads, int priority) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread t = new Thread(runnable);
+            t.setName(name);
+            t.setDaemon(true);
+            if (priority != Thread.NORM_PRIORITY) {
+                t.setPriority(priority);
+            }
+            return t;
+        });
+    }
+}
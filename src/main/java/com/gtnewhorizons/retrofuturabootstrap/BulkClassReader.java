@@ -0,0 +1,290 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Implementation of {@link ExtensibleClassLoader#forEachClassIn}, reads and inflates all the classes of a jar or a
+ * directory on multiple threads.
+ * <p>
+ * The calling thread reads classes too, and the helper tasks that did not start by the time it runs out of classes don't
+ * read anything, so nested or concurrent calls can't deadlock on the shared pool.
+ */
+public final class BulkClassReader {
+    /** Controlled by system property {@code rfb.bulkReadThreads=<CPU count>}, the maximum number of threads reading classes of a single classpath entry */
+    public static final int cfgBulkReadThreads = Math.max(
+            1, Integer.getInteger("rfb.bulkReadThreads", Runtime.getRuntime().availableProcessors()));
+
+    /** Helper threads are only started for at least this many classes each */
+    private static final int MIN_CLASSES_PER_THREAD = 32;
+
+    private static final Attributes.Name MULTI_RELEASE = new Attributes.Name("Multi-Release");
+
+    private static volatile @Nullable ExecutorService readerService;
+
+    private BulkClassReader() {}
+
+    /** Reads the bytes of one class entry, using the given thread-local buffer if useful */
+    @FunctionalInterface
+    private interface EntryReader {
+        byte @NotNull [] read(int index, byte @NotNull [] readBuffer) throws IOException;
+    }
+
+    /**
+     * Reads all the classes of a classpath entry, see {@link ExtensibleClassLoader#forEachClassIn}.
+     * @param classpathEntry A file: URL of a jar/zip file or a class directory.
+     * @param visitor The visitor, called concurrently.
+     * @param cacheSink If not null, called with the class name and bytes before visiting each class, unless the bytes
+     *                  could differ from what a class loader would read for that class name (multi-release jars).
+     */
+    public static void forEachClassIn(
+            @NotNull URL classpathEntry,
+            @NotNull ExtensibleClassLoader.ClassEntryVisitor visitor,
+            @Nullable BiConsumer<String, byte[]> cacheSink)
+            throws IOException {
+        if (!"file".equals(classpathEntry.getProtocol())) {
+            throw new IOException("Only file: classpath entries can be read in bulk, got " + classpathEntry);
+        }
+        final File file;
+        try {
+            file = new File(classpathEntry.toURI());
+        } catch (Exception e) {
+            throw new IOException("Invalid classpath entry " + classpathEntry, e);
+        }
+        if (file.isDirectory()) {
+            final Path root = file.toPath();
+            final List<Path> classFiles;
+            try (Stream<Path> walk = Files.walk(root)) {
+                classFiles = walk.filter(p -> isClassEntry(root.relativize(p).toString()) && Files.isRegularFile(p))
+                        .collect(Collectors.toList());
+            }
+            final String[] entryNames = new String[classFiles.size()];
+            for (int i = 0; i < entryNames.length; i++) {
+                entryNames[i] = root.relativize(classFiles.get(i)).toString().replace(File.separatorChar, '/');
+            }
+            readAll(entryNames, (index, buffer) -> Files.readAllBytes(classFiles.get(index)), visitor, cacheSink);
+        } else if (file.isFile()) {
+            try (JarFile jar = new JarFile(file, false)) {
+                final Manifest manifest = jar.getManifest();
+                final boolean multiRelease = manifest != null
+                        && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue(MULTI_RELEASE));
+                final ArrayList<JarEntry> classEntries = new ArrayList<>();
+                final Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && isClassEntry(entry.getName())) {
+                        classEntries.add(entry);
+                    }
+                }
+                final String[] entryNames = new String[classEntries.size()];
+                for (int i = 0; i < entryNames.length; i++) {
+                    entryNames[i] = classEntries.get(i).getName();
+                }
+                readAll(
+                        entryNames,
+                        (index, buffer) -> readEntry(jar, classEntries.get(index), buffer),
+                        visitor,
+                        multiRelease ? null : cacheSink);
+            }
+        } else {
+            throw new IOException("Classpath entry " + classpathEntry + " does not exist");
+        }
+    }
+
+    /**
+     * @param resource The URL a class loader resolved the class resource to.
+     * @param classpathEntry The file: URL of the jar or directory the class was read from.
+     * @param entryName The path of the class file (a/b/C.class).
+     * @return If the class loader would read the class from the given classpath entry.
+     */
+    public static boolean isResolvedFrom(
+            @Nullable URL resource, @NotNull URL classpathEntry, @NotNull String entryName) {
+        if (resource == null) {
+            return false;
+        }
+        final String entry = classpathEntry.toString();
+        final String resolved = resource.toString();
+        if (entry.endsWith("/")) {
+            return resolved.length() == entry.length() + entryName.length()
+                    && resolved.startsWith(entry)
+                    && resolved.endsWith(entryName);
+        }
+        return resolved.length() == 4 + entry.length() + 2 + entryName.length()
+                && resolved.startsWith("jar:")
+                && resolved.startsWith(entry, 4)
+                && resolved.startsWith("!/", 4 + entry.length())
+                && resolved.endsWith(entryName);
+    }
+
+    /** Class files outside of META-INF (such as multi-release versioned classes), excluding module descriptors */
+    private static boolean isClassEntry(@NotNull String entryName) {
+        return entryName.endsWith(".class")
+                && !entryName.startsWith("META-INF")
+                && !entryName.endsWith("module-info.class");
+    }
+
+    private static byte @NotNull [] readEntry(@NotNull JarFile jar, @NotNull JarEntry entry, byte @NotNull [] buffer)
+            throws IOException {
+        try (InputStream is = jar.getInputStream(entry)) {
+            final long size = entry.getSize();
+            if (size < 0 || size > Integer.MAX_VALUE - 8) {
+                return URLClassLoaderBase.readAllBytes(is, buffer);
+            }
+            final byte[] data = new byte[(int) size];
+            int offset = 0;
+            while (offset < data.length) {
+                final int read = is.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of " + entry.getName() + " in " + jar.getName());
+                }
+                offset += read;
+            }
+            return data;
+        }
+    }
+
+    private static void readAll(
+            final @NotNull String @NotNull [] entryNames,
+            final @NotNull EntryReader reader,
+            final @NotNull ExtensibleClassLoader.ClassEntryVisitor visitor,
+            final @Nullable BiConsumer<String, byte[]> cacheSink)
+            throws IOException {
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            final byte[] readBuffer = new byte[8192];
+            int index;
+            while ((index = nextIndex.getAndIncrement()) < entryNames.length) {
+                final String entryName = entryNames[index];
+                try {
+                    final byte[] classBytes = reader.read(index, readBuffer);
+                    final ClassHeaderMetadata metadata = ClassHeaderMetadata.of(classBytes);
+                    if (metadata == null) {
+                        // Not a loadable class
+                        continue;
+                    }
+                    final String className = entryName
+                            .substring(0, entryName.length() - ".class".length())
+                            .replace('/', '.');
+                    if (cacheSink != null) {
+                        cacheSink.accept(className, classBytes);
+                    }
+                    visitor.visit(className, classBytes, metadata);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    nextIndex.set(entryNames.length);
+                    return;
+                }
+            }
+        };
+
+        final int helperCount = Math.min(cfgBulkReadThreads, entryNames.length / MIN_CLASSES_PER_THREAD) - 1;
+        final HelperGate gate = new HelperGate();
+        if (helperCount > 0) {
+            final ExecutorService service = getReaderService();
+            try {
+                for (int i = 0; i < helperCount; i++) {
+                    service.execute(() -> {
+                        if (gate.enter()) {
+                            try {
+                                worker.run();
+                            } finally {
+                                gate.exit();
+                            }
+                        }
+                    });
+                }
+            } catch (RejectedExecutionException e) {
+                // Read the remaining classes on this thread
+            }
+        }
+        worker.run();
+        // The jar can't be closed while helpers are still reading it
+        gate.closeAndAwait();
+
+        final Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /** Tracks the helpers reading classes, the helpers that didn't start before the gate is closed do nothing */
+    private static final class HelperGate {
+        private boolean closed = false;
+        private int active = 0;
+
+        synchronized boolean enter() {
+            if (closed) {
+                return false;
+            }
+            active++;
+            return true;
+        }
+
+        synchronized void exit() {
+            active--;
+            if (active == 0) {
+                notifyAll();
+            }
+        }
+
+        synchronized void closeAndAwait() {
+            closed = true;
+            boolean interrupted = false;
+            while (active > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static @NotNull ExecutorService getReaderService() {
+        ExecutorService service = readerService;
+        if (service == null) {
+            synchronized (BulkClassReader.class) {
+                service = readerService;
+                if (service == null) {
+                    service = BackgroundExecutors.newExecutor(
+                            "RFB Bulk Class Reader", cfgBulkReadThreads, Thread.NORM_PRIORITY);
+                    readerService = service;
+                }
+            }
+        }
+        return service;
+    }
+}
@@ -0,0 +1,49 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link ClassNotFoundException} for lookups already known to fail, like classes in the invalid class cache.
+ * Mods probe for optional classes over and over, so these don't capture a stack trace and only build their message
+ * when it's requested.
+ */
+public final class CachedClassNotFoundException extends ClassNotFoundException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Controlled by system property {@code rfb.stacklessClassNotFound=true}, set to false to throw regular exceptions
+     * with full stack traces for known missing classes when debugging class loading.
+     */
+    public static final boolean cfgStacklessClassNotFound =
+            Boolean.parseBoolean(System.getProperty("rfb.stacklessClassNotFound", "true"));
+
+    private final @NotNull String className;
+    private final @NotNull String reason;
+
+    private CachedClassNotFoundException(@NotNull String className, @NotNull String reason) {
+        super(null);
+        this.className = className;
+        this.reason = reason;
+    }
+
+    /**
+     * @param className The name of the class that was not found.
+     * @param reason Appended to the class name in the exception message, can be empty.
+     * @return The exception to throw for a class that's known to be missing.
+     */
+    public static @NotNull ClassNotFoundException of(@NotNull String className, @NotNull String reason) {
+        return cfgStacklessClassNotFound
+                ? new CachedClassNotFoundException(className, reason)
+                : new ClassNotFoundException(className + reason);
+    }
+
+    @Override
+    public String getMessage() {
+        return className + reason;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,173 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Streams dumped classes into one zip archive per class loader ({@code <dump directory>/<loader name>.zip}), used when
+ * {@link SharedConfig#cfgDumpClassesToArchive} is enabled.
+ * <p>
+ * Asynchronous dumps go through a bounded queue drained by a single writer thread, class loading threads block when the
+ * queue is full instead of piling up class bytes on the heap. The archives are finished by a shutdown hook, so they
+ * are not readable until the JVM exits normally. Classes dumped after the shutdown hook started are dropped.
+ * It cannot depend on most libraries due to being used early in the system class loader init process.
+ */
+final class ClassDumpArchive {
+    /** Controlled by system property {@code rfb.dumpQueueSize=1024}, the number of classes that can wait to be written to the archives */
+    static final int cfgDumpQueueSize = Math.max(1, Integer.getInteger("rfb.dumpQueueSize", 1024));
+
+    private static volatile @Nullable ClassDumpArchive instance;
+
+    private final @NotNull Path dumpRoot;
+    private final @NotNull ArrayBlockingQueue<PendingClass> queue = new ArrayBlockingQueue<>(cfgDumpQueueSize);
+    /** Open archives by class loader name, guarded by this */
+    private final @NotNull Map<String, Archive> archives = new HashMap<>();
+
+    private final @NotNull Thread writerThread;
+    /** Guarded by this */
+    private boolean closed = false;
+    /** Set when the shutdown hook starts, after which no more classes are queued */
+    private volatile boolean closing = false;
+
+    private static final class PendingClass {
+        final @NotNull String archiveName;
+        final @NotNull String entryName;
+        final byte @NotNull [] bytes;
+
+        PendingClass(@NotNull String archiveName, @NotNull String entryName, byte @NotNull [] bytes) {
+            this.archiveName = archiveName;
+            this.entryName = entryName;
+            this.bytes = bytes;
+        }
+    }
+
+    /** Marks the end of the queue */
+    private static final PendingClass END = new PendingClass("", "", new byte[0]);
+
+    private static final class Archive {
+        final @NotNull ZipOutputStream zip;
+        /** Number of times each entry name was written, to rename repeated dumps of the same class */
+        final @NotNull Map<String, Integer> entryCounts = new HashMap<>();
+
+        Archive(@NotNull ZipOutputStream zip) {
+            this.zip = zip;
+        }
+    }
+
+    private ClassDumpArchive(@NotNull Path dumpRoot) {
+        this.dumpRoot = dumpRoot;
+        this.writerThread = new Thread(this::runWriter, "RFB Class Dump Archive Writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "RFB Class Dump Archive Shutdown hook"));
+    }
+
+    static @NotNull ClassDumpArchive get(@NotNull Path dumpRoot) {
+        ClassDumpArchive archive = instance;
+        if (archive == null) {
+            synchronized (ClassDumpArchive.class) {
+                archive = instance;
+                if (archive == null) {
+                    archive = new ClassDumpArchive(dumpRoot);
+                    instance = archive;
+                }
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * Queues the class to be written by the writer thread, blocking while the queue is full.
+     * The class is dropped if the archives are being finished, as the writer thread may never take it from the queue.
+     * @param archiveName The class loader name, or empty
+     * @param entryName The path of the class inside the archive
+     */
+    void submit(@NotNull String archiveName, @NotNull String entryName, byte @NotNull [] bytes) {
+        final PendingClass pending = new PendingClass(archiveName, entryName, bytes);
+        try {
+            while (!closing) {
+                if (queue.offer(pending, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            SharedConfig.logWarning("Interrupted while waiting to dump class " + entryName, null);
+        }
+    }
+
+    /** Writes the class on the calling thread. */
+    synchronized void write(@NotNull String archiveName, @NotNull String entryName, byte @NotNull [] bytes) {
+        if (closed) {
+            return;
+        }
+        try {
+            Archive archive = archives.get(archiveName);
+            if (archive == null) {
+                Files.createDirectories(dumpRoot);
+                final Path path = dumpRoot.resolve((archiveName.isEmpty() ? "classes" : archiveName) + ".zip");
+                archive = new Archive(new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(path))));
+                archives.put(archiveName, archive);
+            }
+            final int count = archive.entryCounts.merge(entryName, 1, Integer::sum);
+            final String uniqueName = count == 1
+                    ? entryName
+                    : entryName.substring(0, entryName.length() - ".class".length()) + "__dup" + (count - 1)
+                            + ".class";
+            archive.zip.putNextEntry(new ZipEntry(uniqueName));
+            archive.zip.write(bytes);
+            archive.zip.closeEntry();
+        } catch (IOException e) {
+            SharedConfig.logWarning("Could not save transformed class", e);
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            final PendingClass pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (pending == END) {
+                return;
+            }
+            write(pending.archiveName, pending.entryName, pending.bytes);
+        }
+    }
+
+    /** Writes the remaining queued classes, and finishes all the archives. */
+    private void close() {
+        closing = true;
+        try {
+            if (!queue.offer(END, 10, TimeUnit.SECONDS)) {
+                SharedConfig.logWarning("Classes did not finish dumping in 10 seconds, aborting.", null);
+            }
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closed = true;
+            for (final Archive archive : archives.values()) {
+                try {
+                    archive.zip.close();
+                } catch (IOException e) {
+                    SharedConfig.logWarning("Could not finish a class dump archive", e);
+                }
+            }
+            archives.clear();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.BitSet;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A per-jar bitmap of the RFB transformers that can possibly apply to any class in that jar.
+ * <p>
+ * Jars are registered when they're added to an RFB class loader, and scanned once in the background: every transformer
+ * is asked {@link RfbClassTransformer#mayTransformJar(Manifest)} with the jar manifest, and
+ * {@link RfbClassTransformer#mayTransformClassBytes(ClassHeaderMetadata, byte[])} with every class in the jar until it
+ * answers true. Class loaders then skip transformers that can't apply to any class of the jar without calling them.
+ * Jars are rescanned when the transformer list changes, until a scan finishes lookups return null and nothing is skipped.
+ * It cannot depend on most libraries due to being used early in the system class loader init process.
+ */
+public final class JarTransformerApplicability {
+    /** Controlled by system property {@code rfb.jarTransformerScan=true}, whether jars are scanned in the background to skip inapplicable RFB transformers */
+    public static final boolean cfgJarTransformerScan =
+            Boolean.parseBoolean(System.getProperty("rfb.jarTransformerScan", "true"));
+
+    /** Registered jars, keyed by the path of their file: URL */
+    private static final ConcurrentHashMap<String, JarState> jars = new ConcurrentHashMap<>();
+    /** Incremented on every transformer list change, so that results of older scans don't replace newer ones */
+    private static final AtomicLong generationCounter = new AtomicLong();
+
+    private static volatile @Nullable ExecutorService scanService;
+
+    private final long generation;
+    /** Indices of the transformer handles this jar was scanned for */
+    private final @NotNull BitSet scanned;
+    /** Indices of the transformers which may transform at least one class in the jar, ignoring the manifest */
+    private final @NotNull BitSet classApplicable;
+    /** Indices of the transformers which may transform classes from a jar with this manifest */
+    private final @NotNull BitSet manifestApplicable;
+
+    private JarTransformerApplicability(
+            long generation,
+            @NotNull BitSet scanned,
+            @NotNull BitSet classApplicable,
+            @NotNull BitSet manifestApplicable) {
+        this.generation = generation;
+        this.scanned = scanned;
+        this.classApplicable = classApplicable;
+        this.manifestApplicable = manifestApplicable;
+    }
+
+    /**
+     * @param handle The transformer to check.
+     * @param manifest The manifest passed to the transformer, the manifest opt-outs only apply if it's not null.
+     * @return true if the transformer can't transform any class from this jar and doesn't need to be called.
+     */
+    public boolean canSkip(@NotNull RfbClassTransformerHandle handle, @Nullable Manifest manifest) {
+        final int index = handle.index();
+        if (!scanned.get(index)) {
+            return false;
+        }
+        return !classApplicable.get(index) || (manifest != null && !manifestApplicable.get(index));
+    }
+
+    /**
+     * Never blocks on a scan in progress.
+     * @param jarFileUrl The file: URL of a jar.
+     * @return The latest finished scan of the given jar, or null if it's not registered or not scanned yet.
+     */
+    public static @Nullable JarTransformerApplicability lookup(@Nullable URL jarFileUrl) {
+        if (jarFileUrl == null || jars.isEmpty() || !"file".equals(jarFileUrl.getProtocol())) {
+            return null;
+        }
+        final JarState state = jars.get(jarFileUrl.getPath());
+        return state == null ? null : state.result;
+    }
+
+    /**
+     * Registers a classpath entry to be scanned, only regular jar and zip files are tracked.
+     * The scan is started in the background if there are any RFB transformers registered already.
+     */
+    public static void register(@Nullable URL url) {
+        if (!cfgJarTransformerScan || url == null || !"file".equals(url.getProtocol())) {
+            return;
+        }
+        final String path = url.getPath();
+        if (jars.containsKey(path)) {
+            return;
+        }
+        final String lowerPath = path.toLowerCase(Locale.ROOT);
+        if (!lowerPath.endsWith(".jar") && !lowerPath.endsWith(".zip")) {
+            return;
+        }
+        final File file;
+        try {
+            file = new File(url.toURI());
+        } catch (Exception e) {
+            return;
+        }
+        if (!file.isFile()) {
+            return;
+        }
+        final JarState state = new JarState(file);
+        if (jars.putIfAbsent(path, state) == null && !SharedConfig.getRfbTransformers().isEmpty()) {
+            state.scheduleScan();
+        }
+    }
+
+    /** Called after the RFB transformer list changes, rescans all registered jars in the background. */
+    public static void onTransformersChanged() {
+        if (!cfgJarTransformerScan || jars.isEmpty()) {
+            return;
+        }
+        generationCounter.incrementAndGet();
+        for (final JarState state : jars.values()) {
+            state.scheduleScan();
+        }
+    }
+
+    private static @NotNull ExecutorService getScanService() {
+        ExecutorService service = scanService;
+        if (service == null) {
+            synchronized (JarTransformerApplicability.class) {
+                service = scanService;
+                if (service == null) {
+                    final int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+                    service = BackgroundExecutors.newExecutor("RFB Jar Scanner", threads, Thread.MIN_PRIORITY);
+                    scanService = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    private static final class JarState {
+        private final @NotNull File file;
+        /** Set while a scan is queued but not started, to coalesce bursts of transformer list changes */
+        private final AtomicBoolean scanQueued = new AtomicBoolean(false);
+
+        private volatile @Nullable JarTransformerApplicability result;
+
+        private JarState(@NotNull File file) {
+            this.file = file;
+        }
+
+        private void scheduleScan() {
+            if (!scanQueued.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                getScanService().submit(this::runScan);
+            } catch (RejectedExecutionException e) {
+                scanQueued.set(false);
+            }
+        }
+
+        private void runScan() {
+            scanQueued.set(false);
+            final long generation = generationCounter.get();
+            final List<RfbClassTransformerHandle> handles = SharedConfig.getRfbTransformers();
+            if (handles.isEmpty()) {
+                return;
+            }
+            final JarTransformerApplicability scanResult;
+            try {
+                scanResult = scan(file, handles, generation);
+            } catch (Throwable t) {
+                SharedConfig.logDebug("Could not scan " + file + " for applicable RFB transformers", t);
+                return;
+            }
+            synchronized (this) {
+                final JarTransformerApplicability previous = result;
+                if (previous == null || previous.generation <= scanResult.generation) {
+                    result = scanResult;
+                }
+            }
+        }
+    }
+
+    private static @NotNull JarTransformerApplicability scan(
+            @NotNull File file, @NotNull List<RfbClassTransformerHandle> handles, long generation) throws Exception {
+        final BitSet scanned = new BitSet();
+        final BitSet classApplicable = new BitSet();
+        final BitSet manifestApplicable = new BitSet();
+        final RfbClassTransformerHandle[] pending = handles.toArray(new RfbClassTransformerHandle[0]);
+        int pendingCount = pending.length;
+        try (JarFile jar = new JarFile(file, false)) {
+            final Manifest manifest = jar.getManifest();
+            for (final RfbClassTransformerHandle handle : pending) {
+                scanned.set(handle.index());
+                if (mayTransformJar(handle.transformer(), manifest)) {
+                    manifestApplicable.set(handle.index());
+                }
+            }
+            final byte[] readBuffer = new byte[8192];
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (pendingCount > 0 && entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                final byte[] classBytes;
+                try (InputStream is = jar.getInputStream(entry)) {
+                    classBytes = URLClassLoaderBase.readAllBytes(is, readBuffer);
+                }
+                final ClassHeaderMetadata metadata = ClassHeaderMetadata.of(classBytes);
+                for (int i = 0; i < pending.length; i++) {
+                    final RfbClassTransformerHandle handle = pending[i];
+                    // Unparseable classes are passed to the transformers as-is, so assume any of them may apply
+                    if (handle != null
+                            && (metadata == null
+                                    || mayTransformClassBytes(handle.transformer(), metadata, classBytes))) {
+                        classApplicable.set(handle.index());
+                        pending[i] = null;
+                        pendingCount--;
+                    }
+                }
+            }
+        }
+        return new JarTransformerApplicability(generation, scanned, classApplicable, manifestApplicable);
+    }
+
+    private static boolean mayTransformJar(@NotNull RfbClassTransformer transformer, @Nullable Manifest manifest) {
+        try {
+            return transformer.mayTransformJar(manifest);
+        } catch (Throwable t) {
+            return true;
+        }
+    }
+
+    private static boolean mayTransformClassBytes(
+            @NotNull RfbClassTransformer transformer,
+            @NotNull ClassHeaderMetadata metadata,
+            byte @NotNull [] classBytes) {
+        try {
+            return transformer.mayTransformClassBytes(metadata, classBytes);
+        } catch (Throwable t) {
+            return true;
+        }
+    }
+}
@@ -14,7 +14,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
@@ -52,6 +51,9 @@ public class Main {
     /** Controlled by system property {@code rfb.dumpClassesAsynchronously=true}, if the class dumps are done from another Thread to avoid slow IO */
     public static final boolean cfgDumpClassesAsynchronously = SharedConfig.cfgDumpClassesAsynchronously;
 
+    /** Controlled by system property {@code rfb.dumpClassesToArchive=false}, if the class dumps are written into a single zip file per class loader by one writer thread instead of a file per class */
+    public static final boolean cfgDumpClassesToArchive = SharedConfig.cfgDumpClassesToArchive;
+
     /** The target class dumping directory, initialized during commandline option parsing. */
     public static @NotNull AtomicReference<@Nullable Path> classDumpDirectory = SharedConfig.classDumpDirectory;
 
@@ -67,14 +69,13 @@ public class Main {
     public static final @NotNull String JAVA_VERSION = URLClassLoaderBase.getJavaVersion();
     public static final int JAVA_MAJOR_VERSION = URLClassLoaderBase.getJavaMajorVersion();
 
-    private static final @Nullable ExecutorService classDumpingService = cfgDumpClassesAsynchronously
-            ? Executors.newFixedThreadPool(Math.min(4, Runtime.getRuntime().availableProcessors()), runnable -> {
-                final Thread t = new Thread(runnable);
-                t.setName("RFB Class Dumping Executor");
-                t.setDaemon(true);
-                return t;
-            })
-            : null;
+    private static final @Nullable ExecutorService classDumpingService =
+            cfgDumpClassesAsynchronously && !cfgDumpClassesToArchive
+                    ? BackgroundExecutors.newExecutor(
+                            "RFB Class Dumping Executor",
+                            Math.min(4, Runtime.getRuntime().availableProcessors()),
+                            Thread.NORM_PRIORITY)
+                    : null;
 
     /** A utility to convert the java.class.path system property to an array of URLs */
     public static @NotNull URL @NotNull [] getUrlClasspathEntries() {
@@ -123,6 +124,7 @@ public class Main {
                 break;
             }
         }
+        JarTransformerApplicability.onTransformersChanged();
     }
 
     public static void main(String[] args) throws Throwable {
@@ -218,4 +220,22 @@ public class Main {
     public static void dumpClass(String classLoaderName, String className, byte[] classBytes) {
         SharedConfig.dumpClass(classLoaderName, className, classBytes);
     }
+
+    /**
+     * Asynchronously dumps the given class data if dumping is enabled and the class passes the dump filter.
+     * @param className Regular class name (a.b.C)
+     * @param suffix Appended to the dumped file name to distinguish multiple dumps of the same class, or null
+     * @param classBytes The bytes to save, assumed to not be modified after passing into this method call
+     */
+    public static void dumpClass(String classLoaderName, String className, @Nullable String suffix, byte[] classBytes) {
+        SharedConfig.dumpClass(classLoaderName, className, suffix, classBytes);
+    }
+
+    /**
+     * @param className Regular class name (a.b.C)
+     * @return If the class passes the {@code rfb.dumpClassFilter} filter, check before doing any expensive work to produce the dumped bytes.
+     */
+    public static boolean shouldDumpClass(@NotNull String className) {
+        return SharedConfig.shouldDumpClass(className);
+    }
 }
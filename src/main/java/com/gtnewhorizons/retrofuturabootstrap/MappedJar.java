@@ -0,0 +1,646 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A read-only memory-mapped jar, used by {@link URLClassLoaderWithUtilities} to read class files without going through
+ * {@link java.net.JarURLConnection} streams.
+ * <p>
+ * The central directory is parsed once into an open-addressing hash table of the {@code .class} entries, which only
+ * stores offsets into the mapped central directory instead of entry objects and name strings. Stored entries are copied
+ * straight out of the mapping, and deflated entries are inflated with a pooled {@link Inflater} into an exact-sized array.
+ * Jars this reader doesn't handle the same way as the JDK (zip64, Class-Path manifest attributes, signed jars, unknown
+ * compression methods) are left to the JDK class path implementation.
+ * <p>
+ * Jars are shared by all the class loaders, and unmapped once the last class loader using them is closed so that the
+ * files are not locked (on Windows) until the mapping is garbage collected.
+ * It cannot depend on most libraries due to being used early in the system class loader init process.
+ */
+final class MappedJar {
+    /** Controlled by system property {@code rfb.mappedJars=true}, whether RFB class loaders read classes from memory-mapped jars */
+    static final boolean cfgMappedJars = Boolean.parseBoolean(System.getProperty("rfb.mappedJars", "true"));
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_HEADER_SIZE = 22;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final byte[] MANIFEST_NAME = "META-INF/MANIFEST.MF".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] META_INF_PREFIX = "META-INF/".getBytes(StandardCharsets.UTF_8);
+    private static final Attributes.Name MULTI_RELEASE = new Attributes.Name("Multi-Release");
+
+    /** Jars opened so far, shared by all the class loaders, keyed by their absolute path. Guards {@link #users}. */
+    private static final ConcurrentHashMap<String, MappedJar> openJars = new ConcurrentHashMap<>();
+    /** Placeholder for jars that are not handled by this reader */
+    private static final MappedJar UNSUPPORTED = new MappedJar();
+
+    private static final ArrayBlockingQueue<PooledInflater> inflaterPool =
+            new ArrayBlockingQueue<>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private final @Nullable File file;
+    /** Null once unmapped, guarded by {@link #mappingLock} */
+    private @Nullable ByteBuffer mapping;
+    /** Keeps the mapping from being unmapped while it's being read */
+    private final ReentrantReadWriteLock mappingLock = new ReentrantReadWriteLock();
+    /** Number of class loaders using this jar, guarded by {@link #openJars} */
+    private int users = 0;
+    /** Open-addressing table of central directory header offsets of .class entries, -1 for empty slots */
+    private final int @Nullable [] table;
+
+    private final int tableMask;
+    /** Whether versioned entries from META-INF/versions/ take precedence over the base entries */
+    private final boolean multiRelease;
+
+    /** SHA-1 of the central directory and the file size, only computed when the packed class store is enabled */
+    private final byte @Nullable [] rawContentHash;
+
+    private final @Nullable String contentHash;
+    /** Uncompressed classes read on a previous launch, see {@link PackedClassStore} and {@link #store()} */
+    private volatile @Nullable PackedClassStore store;
+
+    private volatile boolean storeOpened;
+    /** Central directory headers of the deflated classes read while there's no store for this jar */
+    private final @Nullable Set<Integer> inflatedHeaders;
+
+    private static final class PooledInflater {
+        final Inflater inflater = new Inflater(true);
+        byte[] input = new byte[16384];
+    }
+
+    private MappedJar() {
+        this.file = null;
+        this.mapping = null;
+        this.table = null;
+        this.tableMask = 0;
+        this.multiRelease = false;
+        this.rawContentHash = null;
+        this.contentHash = null;
+        this.storeOpened = true;
+        this.inflatedHeaders = null;
+    }
+
+    private MappedJar(
+            @NotNull File file,
+            @NotNull ByteBuffer mapping,
+            int @NotNull [] table,
+            boolean multiRelease,
+            byte @Nullable [] rawContentHash) {
+        this.file = file;
+        this.mapping = mapping;
+        this.table = table;
+        this.tableMask = table.length - 1;
+        this.multiRelease = multiRelease;
+        this.rawContentHash = rawContentHash;
+        if (rawContentHash != null) {
+            final StringBuilder hex = new StringBuilder(rawContentHash.length * 2);
+            for (final byte b : rawContentHash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            this.contentHash = hex.toString();
+            this.storeOpened = false;
+            this.inflatedHeaders = ConcurrentHashMap.newKeySet();
+        } else {
+            this.contentHash = null;
+            this.storeOpened = true;
+            this.inflatedHeaders = null;
+        }
+    }
+
+    /**
+     * @param file A jar file on the classpath.
+     * @return The mapped jar, or null if it has to be read by the JDK class path implementation instead.
+     *         Must be {@link #release(MappedJar) released} when the class loader is closed.
+     */
+    static @Nullable MappedJar open(@NotNull File file) {
+        final MappedJar jar = openJars.compute(file.getAbsolutePath(), (path, existing) -> {
+            MappedJar opened = existing;
+            if (opened == null) {
+                try {
+                    opened = map(file);
+                } catch (Exception e) {
+                    SharedConfig.logDebug("Could not map " + file + ", it will be read through the JDK", e);
+                    opened = UNSUPPORTED;
+                }
+            }
+            if (opened != UNSUPPORTED) {
+                opened.users++;
+            }
+            return opened;
+        });
+        return jar == UNSUPPORTED ? null : jar;
+    }
+
+    /** Releases a jar returned by {@link #open(File)}, unmapping it if no other class loader uses it. */
+    static void release(@NotNull MappedJar jar) {
+        final File file = jar.file;
+        if (file == null) {
+            return;
+        }
+        final MappedJar remaining = openJars.computeIfPresent(file.getAbsolutePath(), (path, existing) -> {
+            if (existing != jar) {
+                return existing;
+            }
+            return --jar.users > 0 ? jar : null;
+        });
+        if (remaining != jar) {
+            jar.unmap();
+        }
+    }
+
+    private void unmap() {
+        mappingLock.writeLock().lock();
+        try {
+            final ByteBuffer mapping = this.mapping;
+            this.mapping = null;
+            if (mapping != null) {
+                freeMapping(mapping);
+            }
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
+    /** Frees the mapping right away, instead of whenever the buffer is garbage collected. */
+    private static void freeMapping(@NotNull ByteBuffer mapping) {
+        try {
+            if (URLClassLoaderBase.getJavaMajorVersion() >= 9) {
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                invokeCleaner.invoke(theUnsafe.get(null), mapping);
+            } else {
+                final Method cleanerGetter = mapping.getClass().getMethod("cleaner");
+                cleanerGetter.setAccessible(true);
+                final Object cleaner = cleanerGetter.invoke(mapping);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            SharedConfig.logDebug("Could not unmap a jar, it will be unmapped when garbage collected", e);
+        }
+    }
+
+    private static @NotNull MappedJar map(@NotNull File file) throws Exception {
+        final ByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < END_HEADER_SIZE) {
+                return UNSUPPORTED;
+            }
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapping = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        final int end = findEndHeader(mapping);
+        if (end < 0) {
+            return UNSUPPORTED;
+        }
+        final int entryCount = u16(mapping, end + 10);
+        final long centralSize = u32(mapping, end + 12);
+        final long centralOffset = u32(mapping, end + 16);
+        if (entryCount == 0xFFFF || centralSize == 0xFFFFFFFFL || centralOffset == 0xFFFFFFFFL) {
+            // zip64
+            return UNSUPPORTED;
+        }
+        if (centralOffset + centralSize > end) {
+            return UNSUPPORTED;
+        }
+        final int[] table = new int[tableSizeFor(entryCount)];
+        Arrays.fill(table, -1);
+        final int mask = table.length - 1;
+        int manifestHeader = -1;
+        int offset = (int) centralOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (offset + CENTRAL_HEADER_SIZE > end || mapping.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+                return UNSUPPORTED;
+            }
+            final int nameLength = u16(mapping, offset + 28);
+            final int nameStart = offset + CENTRAL_HEADER_SIZE;
+            if (nameStart + nameLength > end) {
+                return UNSUPPORTED;
+            }
+            if (isSignatureFile(mapping, nameStart, nameLength)) {
+                // The JDK verifies signed jars and provides the code signers of their entries
+                return UNSUPPORTED;
+            }
+            if (isClassName(mapping, nameStart, nameLength)) {
+                int slot = hash(mapping, nameStart, nameLength) & mask;
+                while (table[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = offset;
+            } else if (nameEquals(mapping, nameStart, nameLength, MANIFEST_NAME)) {
+                manifestHeader = offset;
+            }
+            offset = nameStart + nameLength + u16(mapping, offset + 30) + u16(mapping, offset + 32);
+        }
+        boolean multiRelease = false;
+        if (manifestHeader != -1) {
+            final byte[] manifestBytes = readEntry(mapping, manifestHeader);
+            if (manifestBytes == null) {
+                return UNSUPPORTED;
+            }
+            final Attributes attributes =
+                    new Manifest(new ByteArrayInputStream(manifestBytes)).getMainAttributes();
+            if (attributes.getValue(Attributes.Name.CLASS_PATH) != null) {
+                // The JDK adds the referenced jars right after this one, leave the lookup order to it
+                return UNSUPPORTED;
+            }
+            multiRelease = URLClassLoaderBase.getJavaMajorVersion() >= 9
+                    && "true".equalsIgnoreCase(attributes.getValue(MULTI_RELEASE));
+        }
+        byte[] rawContentHash = null;
+        if (PackedClassStore.cfgClassStore != null) {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            final ByteBuffer centralDirectory = mapping.duplicate();
+            centralDirectory.position((int) centralOffset).limit((int) (centralOffset + centralSize));
+            digest.update(centralDirectory);
+            digest.update(ByteBuffer.allocate(8).putLong(0, mapping.limit()));
+            rawContentHash = digest.digest();
+        }
+        final MappedJar jar = new MappedJar(file, mapping, table, multiRelease, rawContentHash);
+        if (jar.inflatedHeaders != null) {
+            PackedClassStore.addPendingJar(jar);
+        }
+        return jar;
+    }
+
+    /**
+     * @param classPath The class file path, a/b/C.class.
+     * @return If the jar has an entry for this class, taking multi-release versions into account.
+     */
+    boolean contains(@NotNull String classPath) {
+        mappingLock.readLock().lock();
+        try {
+            return findVersionedHeader(classPath) != -1;
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param classPath The class file path, a/b/C.class.
+     * @return The uncompressed class bytes, or null if not present or not readable by this reader.
+     */
+    byte @Nullable [] read(@NotNull String classPath) {
+        mappingLock.readLock().lock();
+        try {
+            final ByteBuffer mapping = this.mapping;
+            final int header = findVersionedHeader(classPath);
+            if (mapping == null || header == -1) {
+                return null;
+            }
+            final PackedClassStore store = store();
+            if (store != null) {
+                final byte[] stored = store.read(
+                        mapping, header + CENTRAL_HEADER_SIZE, u16(mapping, header + 28), u32(mapping, header + 24));
+                if (stored != null) {
+                    return stored;
+                }
+            }
+            final byte[] data = readEntry(mapping, header);
+            if (data != null
+                    && store == null
+                    && inflatedHeaders != null
+                    && u16(mapping, header + 10) == METHOD_DEFLATED) {
+                inflatedHeaders.add(header);
+            }
+            return data;
+        } catch (Exception e) {
+            return null;
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Jars on the system classpath are opened before the game directory the stores are kept in is known, so the store
+     * is looked up on the first read after that.
+     * @return The packed class store of this jar, or null if there is none (yet).
+     */
+    @Nullable
+    PackedClassStore store() {
+        if (!storeOpened) {
+            synchronized (this) {
+                final String contentHash = this.contentHash;
+                final byte[] rawContentHash = this.rawContentHash;
+                final Path storeDir = PackedClassStore.directory();
+                if (!storeOpened && storeDir != null && contentHash != null && rawContentHash != null) {
+                    store = PackedClassStore.open(storeDir, contentHash, rawContentHash);
+                    storeOpened = true;
+                }
+            }
+        }
+        return store;
+    }
+
+    /** @return The jar file, for messages. */
+    @Nullable File path() {
+        return file;
+    }
+
+    /** @return The hex content hash of the jar, null if the packed class store is disabled. */
+    @Nullable String contentHash() {
+        return contentHash;
+    }
+
+    byte @Nullable [] rawContentHash() {
+        return rawContentHash;
+    }
+
+    /** @return The central directory headers of the deflated classes read so far, and clears them. */
+    int @NotNull [] takeInflatedHeaders() {
+        final Set<Integer> headers = inflatedHeaders;
+        if (headers == null) {
+            return new int[0];
+        }
+        final Integer[] taken = headers.toArray(new Integer[0]);
+        final int[] result = new int[taken.length];
+        for (int i = 0; i < taken.length; i++) {
+            result[i] = taken[i];
+            headers.remove(taken[i]);
+        }
+        return result;
+    }
+
+    /** @return The uncompressed bytes of the entry with the given central directory header. */
+    byte @Nullable [] readEntryAt(int header) throws IOException, DataFormatException {
+        mappingLock.readLock().lock();
+        try {
+            final ByteBuffer mapping = this.mapping;
+            return mapping == null ? null : readEntry(mapping, header);
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+
+    /** @return The UTF-8 name of the entry with the given central directory header. */
+    byte @NotNull [] entryNameAt(int header) {
+        mappingLock.readLock().lock();
+        try {
+            final ByteBuffer mapping = this.mapping;
+            if (mapping == null) {
+                return new byte[0];
+            }
+            final byte[] name = new byte[u16(mapping, header + 28)];
+            final ByteBuffer view = mapping.duplicate();
+            view.position(header + CENTRAL_HEADER_SIZE);
+            view.get(name);
+            return name;
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+
+    private int findVersionedHeader(@NotNull String classPath) {
+        if (multiRelease) {
+            for (int version = URLClassLoaderBase.getJavaMajorVersion(); version >= 9; version--) {
+                final int header = findHeader("META-INF/versions/" + version + "/" + classPath);
+                if (header != -1) {
+                    return header;
+                }
+            }
+        }
+        return findHeader(classPath);
+    }
+
+    private int findHeader(@NotNull String name) {
+        final ByteBuffer mapping = this.mapping;
+        final int[] table = this.table;
+        if (mapping == null || table == null) {
+            return -1;
+        }
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (c >= 0x80) {
+                return findHeader(name.getBytes(StandardCharsets.UTF_8));
+            }
+            hash = 31 * hash + c;
+        }
+        int slot = mix(hash) & tableMask;
+        int header;
+        while ((header = table[slot]) != -1) {
+            final int nameLength = u16(mapping, header + 28);
+            if (nameLength == name.length()) {
+                final int nameStart = header + CENTRAL_HEADER_SIZE;
+                boolean equal = true;
+                for (int i = 0; i < nameLength; i++) {
+                    if (mapping.get(nameStart + i) != (byte) name.charAt(i)) {
+                        equal = false;
+                        break;
+                    }
+                }
+                if (equal) {
+                    return header;
+                }
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    private int findHeader(byte @NotNull [] name) {
+        final ByteBuffer mapping = this.mapping;
+        final int[] table = this.table;
+        if (mapping == null || table == null) {
+            return -1;
+        }
+        int slot = hash(name) & tableMask;
+        int header;
+        while ((header = table[slot]) != -1) {
+            if (nameEquals(mapping, header + CENTRAL_HEADER_SIZE, u16(mapping, header + 28), name)) {
+                return header;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    /** @return The uncompressed entry bytes, or null for unsupported compression methods */
+    private static byte @Nullable [] readEntry(@NotNull ByteBuffer mapping, int header)
+            throws IOException, DataFormatException {
+        final int method = u16(mapping, header + 10);
+        final long compressedSize = u32(mapping, header + 20);
+        final long size = u32(mapping, header + 24);
+        final long localOffset = u32(mapping, header + 42);
+        if (size > Integer.MAX_VALUE - 8 || localOffset + LOCAL_HEADER_SIZE > mapping.limit()) {
+            return null;
+        }
+        final int local = (int) localOffset;
+        if (mapping.getInt(local) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header offset");
+        }
+        final long dataStart = localOffset + LOCAL_HEADER_SIZE + u16(mapping, local + 26) + u16(mapping, local + 28);
+        if (dataStart + compressedSize > mapping.limit()) {
+            throw new IOException("Truncated entry");
+        }
+        final byte[] data = new byte[(int) size];
+        if (method == METHOD_STORED) {
+            if (compressedSize != size) {
+                throw new IOException("Invalid stored entry size");
+            }
+            final ByteBuffer view = mapping.duplicate();
+            view.position((int) dataStart);
+            view.get(data);
+            return data;
+        } else if (method != METHOD_DEFLATED) {
+            return null;
+        }
+        PooledInflater pooled = inflaterPool.poll();
+        if (pooled == null) {
+            pooled = new PooledInflater();
+        }
+        try {
+            // Java 8 inflaters only take arrays as the input, with an extra dummy byte like ZipFile provides
+            if (pooled.input.length < compressedSize + 1) {
+                pooled.input = new byte[(int) compressedSize + 1];
+            }
+            final ByteBuffer view = mapping.duplicate();
+            view.position((int) dataStart);
+            view.get(pooled.input, 0, (int) compressedSize);
+            pooled.input[(int) compressedSize] = 0;
+            final Inflater inflater = pooled.inflater;
+            inflater.setInput(pooled.input, 0, (int) compressedSize + 1);
+            int produced = 0;
+            while (produced < data.length) {
+                final int n = inflater.inflate(data, produced, data.length - produced);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                produced += n;
+            }
+            if (produced != data.length) {
+                throw new IOException("Inflated size mismatch");
+            }
+            return data;
+        } finally {
+            pooled.inflater.reset();
+            if (!inflaterPool.offer(pooled)) {
+                pooled.inflater.end();
+            }
+        }
+    }
+
+    private static int findEndHeader(@NotNull ByteBuffer mapping) {
+        final int limit = mapping.limit();
+        final int minOffset = Math.max(0, limit - END_HEADER_SIZE - 0xFFFF);
+        for (int offset = limit - END_HEADER_SIZE; offset >= minOffset; offset--) {
+            if (mapping.getInt(offset) == END_SIGNATURE
+                    && offset + END_HEADER_SIZE + u16(mapping, offset + 20) == limit) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isClassName(@NotNull ByteBuffer mapping, int start, int length) {
+        return length > 6
+                && mapping.get(start + length - 6) == '.'
+                && mapping.get(start + length - 5) == 'c'
+                && mapping.get(start + length - 4) == 'l'
+                && mapping.get(start + length - 3) == 'a'
+                && mapping.get(start + length - 2) == 's'
+                && mapping.get(start + length - 1) == 's';
+    }
+
+    /** @return If the entry is a META-INF/*.SF, .RSA, .DSA or .EC signature file */
+    private static boolean isSignatureFile(@NotNull ByteBuffer mapping, int start, int length) {
+        if (length <= META_INF_PREFIX.length) {
+            return false;
+        }
+        for (int i = 0; i < META_INF_PREFIX.length; i++) {
+            if (Character.toUpperCase(mapping.get(start + i)) != META_INF_PREFIX[i]) {
+                return false;
+            }
+        }
+        final byte[] name = new byte[length];
+        final ByteBuffer view = mapping.duplicate();
+        view.position(start);
+        view.get(name);
+        final String upperName = new String(name, StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+        return upperName.endsWith(".SF")
+                || upperName.endsWith(".RSA")
+                || upperName.endsWith(".DSA")
+                || upperName.endsWith(".EC");
+    }
+
+    private static boolean nameEquals(@NotNull ByteBuffer mapping, int start, int length, byte @NotNull [] name) {
+        if (length != name.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (mapping.get(start + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The hash of an entry name, also used by {@link PackedClassStore} */
+    static int hash(@NotNull ByteBuffer mapping, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (mapping.get(start + i) & 0xFF);
+        }
+        return mix(hash);
+    }
+
+    static int hash(byte @NotNull [] name) {
+        int hash = 0;
+        for (final byte b : name) {
+            hash = 31 * hash + (b & 0xFF);
+        }
+        return mix(hash);
+    }
+
+    /** Spreads the String-like hash over the low bits used for the table index */
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    static int tableSizeFor(int entries) {
+        int size = 16;
+        while (size < entries * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static int u16(@NotNull ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private static long u32(@NotNull ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,351 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A memory-mapped file of uncompressed class bytes for one jar, keyed by the jar content hash, used by {@link MappedJar}
+ * to skip inflating classes that were already read on a previous launch.
+ * <p>
+ * Jars without a store record which deflated classes they had to inflate, and the stores for them are written once
+ * {@link #startupFinished()} signals a successful start (in the background, finishing at JVM shutdown). Nothing is
+ * written for launches that never signal it, such as crashed ones, which may not have loaded the usual classes.
+ * Every jar gets its own store file, so updating a mod only writes the store of the new jar, and files that are
+ * currently mapped are never replaced (which Windows doesn't allow). Stores are immutable, classes first read after the
+ * store was written are inflated as usual.
+ * <p>
+ * By default, the stores are kept in {@code rfb-cache/class-store} in the game directory, and are only used once the
+ * game directory is known. The stores of jars that were not opened in a launch are deleted from there after writing new
+ * ones. A custom store directory may be shared by several game instances with different jars, nothing is deleted there.
+ * <p>
+ * File layout (little-endian): magic, version, table size, entry count, the 20 byte jar content hash, an open-addressing
+ * table of record offsets (0 for empty slots) using the {@link MappedJar} name hash, then the records
+ * (u16 name length, UTF-8 entry name, int class length, class bytes).
+ * It cannot depend on most libraries due to being used early in the system class loader init process.
+ */
+final class PackedClassStore {
+    private static final @Nullable String STORE_DIR = System.getProperty("rfb.classStore");
+    /** Controlled by system property {@code rfb.classStore=false}, {@code true} or a directory, where to keep the packed class stores, relative to the game directory, null when disabled */
+    static final @Nullable Path cfgClassStore = STORE_DIR == null || "false".equalsIgnoreCase(STORE_DIR)
+            ? null
+            : ("true".equalsIgnoreCase(STORE_DIR)
+                    ? Paths.get("rfb-cache", "class-store")
+                    : Paths.get(STORE_DIR).toAbsolutePath());
+    /** Only the default directory belongs to one game directory, a custom one may be shared by other instances */
+    private static final boolean DELETES_STALE_STORES = "true".equalsIgnoreCase(STORE_DIR);
+
+    private static final int FILE_MAGIC = 0x52464243;
+    private static final int FILE_VERSION = 1;
+    private static final int HASH_SIZE = 20;
+    private static final int TABLE_OFFSET = 16 + HASH_SIZE;
+    private static final String FILE_EXTENSION = ".rfbcs";
+
+    /** Jars that were opened without a store, waiting for theirs to be written */
+    private static final ConcurrentLinkedQueue<MappedJar> pendingJars = new ConcurrentLinkedQueue<>();
+    /** Content hashes of all the jars opened in this session, the other store files are stale */
+    private static final Set<String> usedHashes = ConcurrentHashMap.newKeySet();
+
+    private static volatile @Nullable Thread writerThread;
+
+    static {
+        if (cfgClassStore != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(PackedClassStore::finish, "RFB Class Store Shutdown hook"));
+        }
+    }
+
+    private final @NotNull ByteBuffer mapping;
+    private final int tableMask;
+
+    private PackedClassStore(@NotNull ByteBuffer mapping, int tableSize) {
+        this.mapping = mapping;
+        this.tableMask = tableSize - 1;
+    }
+
+    /** @return The directory of the stores, or null if they're disabled or the game directory isn't known yet. */
+    static @Nullable Path directory() {
+        final Path configured = cfgClassStore;
+        if (configured == null || configured.isAbsolute()) {
+            return configured;
+        }
+        final Path gameDir = SharedConfig.gameDirectory.get();
+        return gameDir == null ? null : gameDir.resolve(configured).toAbsolutePath();
+    }
+
+    /**
+     * @param storeDir The directory of the stores.
+     * @param contentHash The hex content hash of the jar.
+     * @param rawHash The content hash bytes of the jar.
+     * @return The mapped store for the jar, or null if there is none yet or it's unreadable.
+     */
+    static @Nullable PackedClassStore open(
+            @NotNull Path storeDir, @NotNull String contentHash, byte @NotNull [] rawHash) {
+        final Path file = storeDir.resolve(contentHash + FILE_EXTENSION);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < TABLE_OFFSET) {
+                return null;
+            }
+            final ByteBuffer mapping =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            final int tableSize = mapping.getInt(8);
+            if (mapping.getInt(0) != FILE_MAGIC
+                    || mapping.getInt(4) != FILE_VERSION
+                    || tableSize <= 0
+                    || Integer.bitCount(tableSize) != 1
+                    || TABLE_OFFSET + (long) tableSize * 4 > size) {
+                SharedConfig.logDebug("Ignoring invalid class store " + file, null);
+                return null;
+            }
+            for (int i = 0; i < HASH_SIZE; i++) {
+                if (mapping.get(16 + i) != rawHash[i]) {
+                    return null;
+                }
+            }
+            return new PackedClassStore(mapping, tableSize);
+        } catch (IOException e) {
+            SharedConfig.logDebug("Could not map class store " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Looks up a class by its jar entry name.
+     * @param names The buffer holding the entry name (the mapped jar).
+     * @param nameStart The offset of the UTF-8 entry name.
+     * @param nameLength The length of the entry name.
+     * @param size The uncompressed size from the jar central directory.
+     * @return The class bytes, or null if not stored.
+     */
+    byte @Nullable [] read(@NotNull ByteBuffer names, int nameStart, int nameLength, long size) {
+        final ByteBuffer mapping = this.mapping;
+        final int limit = mapping.limit();
+        int slot = MappedJar.hash(names, nameStart, nameLength) & tableMask;
+        for (int probes = 0; probes <= tableMask; probes++) {
+            final int record = mapping.getInt(TABLE_OFFSET + slot * 4);
+            if (record == 0) {
+                return null;
+            }
+            if (record < 0 || record + 2 > limit) {
+                return null;
+            }
+            final int recordNameLength = mapping.getShort(record) & 0xFFFF;
+            if (recordNameLength == nameLength && record + 2 + nameLength + 4 <= limit) {
+                boolean equal = true;
+                for (int i = 0; i < nameLength; i++) {
+                    if (mapping.get(record + 2 + i) != names.get(nameStart + i)) {
+                        equal = false;
+                        break;
+                    }
+                }
+                if (equal) {
+                    final int dataLength = mapping.getInt(record + 2 + nameLength);
+                    final int dataStart = record + 2 + nameLength + 4;
+                    if (dataLength != size || dataLength < 0 || dataStart + (long) dataLength > limit) {
+                        return null;
+                    }
+                    final byte[] data = new byte[dataLength];
+                    final ByteBuffer view = mapping.duplicate();
+                    view.position(dataStart);
+                    view.get(data);
+                    return data;
+                }
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return null;
+    }
+
+    /** Registers an opened jar, to write a store for the classes it inflates if it doesn't have one. */
+    static void addPendingJar(@NotNull MappedJar jar) {
+        final String contentHash = jar.contentHash();
+        if (contentHash != null) {
+            usedHashes.add(contentHash);
+        }
+        pendingJars.add(jar);
+    }
+
+    /** Starts writing the stores of the jars opened without one on a background thread, only the first call has any effect. */
+    static void startupFinished() {
+        if (cfgClassStore == null || writerThread != null) {
+            return;
+        }
+        synchronized (PackedClassStore.class) {
+            if (writerThread != null) {
+                return;
+            }
+            final Thread thread = new Thread(PackedClassStore::writePending, "RFB Class Store Writer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            writerThread = thread;
+            thread.start();
+        }
+    }
+
+    /** Waits for the background writer, and writes the stores of the jars it didn't get to, if startup finished. */
+    private static void finish() {
+        final Thread thread;
+        synchronized (PackedClassStore.class) {
+            thread = writerThread;
+            if (thread == null) {
+                // Startup never finished, keep later startupFinished calls from starting a writer
+                writerThread = Thread.currentThread();
+                return;
+            }
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        writePending();
+    }
+
+    private static synchronized void writePending() {
+        final Path storeDir = directory();
+        if (storeDir == null) {
+            return;
+        }
+        boolean wroteAny = false;
+        MappedJar jar;
+        while ((jar = pendingJars.poll()) != null) {
+            try {
+                wroteAny |= write(storeDir, jar);
+            } catch (Exception e) {
+                SharedConfig.logWarning("Could not write the class store for " + jar.path(), e);
+            }
+        }
+        if (wroteAny && DELETES_STALE_STORES) {
+            deleteStaleStores(storeDir);
+        }
+    }
+
+    private static boolean write(@NotNull Path storeDir, @NotNull MappedJar jar) throws Exception {
+        final String contentHash = jar.contentHash();
+        final byte[] rawHash = jar.rawContentHash();
+        final int[] headers = jar.takeInflatedHeaders();
+        if (contentHash == null || rawHash == null || headers.length == 0 || jar.store() != null) {
+            return false;
+        }
+        Arrays.sort(headers);
+        final List<byte[]> names = new ArrayList<>(headers.length);
+        final List<byte[]> classes = new ArrayList<>(headers.length);
+        for (final int header : headers) {
+            final byte[] data = jar.readEntryAt(header);
+            if (data != null) {
+                names.add(jar.entryNameAt(header));
+                classes.add(data);
+            }
+        }
+        if (!write(storeDir, contentHash, rawHash, names, classes)) {
+            return false;
+        }
+        SharedConfig.logDebug("Wrote " + names.size() + " classes of " + jar.path() + " to the class store", null);
+        return true;
+    }
+
+    /**
+     * Writes a store file, replacing any existing one.
+     * @param names The UTF-8 jar entry names of the classes.
+     * @param classes The uncompressed class bytes, in the same order as the names.
+     * @return If the store was written, false if it would be too large.
+     */
+    static boolean write(
+            @NotNull Path storeDir,
+            @NotNull String contentHash,
+            byte @NotNull [] rawHash,
+            @NotNull List<byte[]> names,
+            @NotNull List<byte[]> classes)
+            throws IOException {
+        final int tableSize = MappedJar.tableSizeFor(names.size());
+        final int[] table = new int[tableSize];
+        long offset = TABLE_OFFSET + (long) tableSize * 4;
+        for (int i = 0; i < names.size(); i++) {
+            final byte[] name = names.get(i);
+            int slot = MappedJar.hash(name) & (tableSize - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = (int) offset;
+            offset += 2 + name.length + 4 + classes.get(i).length;
+            if (offset > Integer.MAX_VALUE) {
+                return false;
+            }
+        }
+
+        Files.createDirectories(storeDir);
+        final Path storeFile = storeDir.resolve(contentHash + FILE_EXTENSION);
+        final Path tempFile = Files.createTempFile(storeDir, contentHash, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                final ByteBuffer header =
+                        ByteBuffer.allocate(TABLE_OFFSET + tableSize * 4).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(tableSize).putInt(names.size());
+                header.put(rawHash);
+                header.asIntBuffer().put(table);
+                header.clear();
+                writeFully(channel, header);
+                final ByteBuffer recordHeader = ByteBuffer.allocate(0xFFFF + 6).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < names.size(); i++) {
+                    final byte[] name = names.get(i);
+                    final byte[] data = classes.get(i);
+                    recordHeader.clear();
+                    recordHeader.putShort((short) name.length).put(name).putInt(data.length);
+                    recordHeader.flip();
+                    writeFully(channel, recordHeader);
+                    writeFully(channel, ByteBuffer.wrap(data));
+                }
+            }
+            try {
+                Files.move(tempFile, storeFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, storeFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return true;
+    }
+
+    private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /** Deletes the stores of jars that were not opened in this session, such as older versions of updated mods. */
+    private static void deleteStaleStores(@NotNull Path storeDir) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storeDir, "*" + FILE_EXTENSION)) {
+            for (final Path file : files) {
+                final String fileName = file.getFileName().toString();
+                final String hash = fileName.substring(0, fileName.length() - FILE_EXTENSION.length());
+                if (!usedHashes.contains(hash)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            SharedConfig.logDebug("Could not clean up the class store directory " + storeDir, e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runtime view of a jar written by {@link Pretransformer}, in which a prefix of the RFB transformer chain was already
+ * applied to every class ahead of time.
+ * <p>
+ * Such jars have a {@link #MANIFEST_ATTRIBUTE} main manifest attribute listing the applied transformers as
+ * {@code plugin:transformer@pluginVersion}, and a {@link #HASHES_ENTRY} properties file with the CRC32 of every
+ * pre-transformed class. The pre-applied transformers are skipped for a class if they still form the prefix of the
+ * runtime transformer chain with the same plugin versions, the class is loaded in the {@link #CONTEXT_ATTRIBUTE recorded context},
+ * and the class bytes read from the jar match the recorded hash.
+ * <p>
+ * The classes are stored already rewritten by the pre-applied transformers, so LaunchWrapper transformers see the
+ * RFB-rewritten bytes instead of the original ones. If a LaunchWrapper transformer modifies a class, the pre-applied
+ * transformers are not skipped for it and run again on its output.
+ * It cannot depend on most libraries due to being used early in the system class loader init process.
+ */
+public final class PretransformedJar {
+    /** Main manifest attribute of pre-transformed jars, a semicolon-separated list of the applied transformers */
+    public static final Attributes.Name MANIFEST_ATTRIBUTE = new Attributes.Name("Rfb-Pretransformed");
+    /** Jar entry with the CRC32 hashes (8 hex digits) of the pre-transformed classes, keyed by entry name */
+    public static final String HASHES_ENTRY = "META-INF/rfb-pretransformed.properties";
+    /** Main manifest attribute with the {@link RfbClassTransformer.Context} the transformers were applied in */
+    public static final Attributes.Name CONTEXT_ATTRIBUTE = new Attributes.Name("Rfb-Pretransformed-Context");
+    /** The context {@link Pretransformer} applies the transformers in, used for jars without a {@link #CONTEXT_ATTRIBUTE} */
+    public static final RfbClassTransformer.Context DEFAULT_CONTEXT = RfbClassTransformer.Context.LCL_WITH_TRANSFORMS;
+
+    /** Controlled by system property {@code rfb.usePretransformedJars=true}, whether pre-applied transformers are skipped for classes from pre-transformed jars */
+    public static final boolean cfgUsePretransformedJars =
+            Boolean.parseBoolean(System.getProperty("rfb.usePretransformedJars", "true"));
+
+    /** Jars already looked at, keyed by the path of their file: URL */
+    private static final ConcurrentHashMap<String, PretransformedJar> jars = new ConcurrentHashMap<>();
+    /** Placeholder for jars that couldn't be read */
+    private static final PretransformedJar INVALID =
+            new PretransformedJar(null, DEFAULT_CONTEXT, new String[0], new HashMap<>());
+
+    private final @Nullable File file;
+    /** The context the transformers were applied in, they're only skipped for classes loaded in the same context */
+    private final @NotNull RfbClassTransformer.Context context;
+    /** The applied transformers, in plugin:transformer@pluginVersion format */
+    private final @NotNull String @NotNull [] appliedTransformers;
+
+    private final @NotNull Map<String, Integer> classHashes;
+    /** The last runtime transformer chain found to start with the applied transformers, compared by identity */
+    private volatile @Nullable RfbClassTransformerHandle @Nullable [] validatedChain;
+
+    private volatile boolean warnedMismatch = false;
+
+    private PretransformedJar(
+            @Nullable File file,
+            @NotNull RfbClassTransformer.Context context,
+            @NotNull String @NotNull [] appliedTransformers,
+            @NotNull Map<String, Integer> classHashes) {
+        this.file = file;
+        this.context = context;
+        this.appliedTransformers = appliedTransformers;
+        this.classHashes = classHashes;
+    }
+
+    /**
+     * @param jarFileUrl The file: URL of the jar a class is loaded from.
+     * @param manifest The manifest of that jar.
+     * @return The pre-transformation data of the jar, or null if it's not a pre-transformed jar.
+     */
+    public static @Nullable PretransformedJar of(@Nullable URL jarFileUrl, @Nullable Manifest manifest) {
+        if (!cfgUsePretransformedJars || jarFileUrl == null || manifest == null) {
+            return null;
+        }
+        final String applied = manifest.getMainAttributes().getValue(MANIFEST_ATTRIBUTE);
+        if (applied == null || !"file".equals(jarFileUrl.getProtocol())) {
+            return null;
+        }
+        final String context = manifest.getMainAttributes().getValue(CONTEXT_ATTRIBUTE);
+        final PretransformedJar jar =
+                jars.computeIfAbsent(jarFileUrl.getPath(), path -> load(jarFileUrl, applied, context));
+        return jar == INVALID ? null : jar;
+    }
+
+    private static @NotNull PretransformedJar load(
+            @NotNull URL jarFileUrl, @NotNull String applied, @Nullable String contextName) {
+        try {
+            final File file = new File(jarFileUrl.toURI());
+            final RfbClassTransformer.Context context = contextName == null
+                    ? DEFAULT_CONTEXT
+                    : RfbClassTransformer.Context.valueOf(contextName.trim());
+            final Properties props = new Properties();
+            try (JarFile jar = new JarFile(file, false)) {
+                final ZipEntry hashesEntry = jar.getEntry(HASHES_ENTRY);
+                if (hashesEntry == null) {
+                    SharedConfig.logWarning("Pre-transformed jar " + file + " is missing " + HASHES_ENTRY, null);
+                    return INVALID;
+                }
+                try (InputStream is = jar.getInputStream(hashesEntry)) {
+                    props.load(is);
+                }
+            }
+            final HashMap<String, Integer> hashes = new HashMap<>(props.size() * 2);
+            for (final String entryName : props.stringPropertyNames()) {
+                hashes.put(entryName, (int) Long.parseLong(props.getProperty(entryName), 16));
+            }
+            final String[] appliedTransformers = applied.trim().isEmpty() ? new String[0] : applied.split(";");
+            return new PretransformedJar(file, context, appliedTransformers, hashes);
+        } catch (Exception e) {
+            SharedConfig.logWarning("Could not read the pre-transformation data of " + jarFileUrl, e);
+            return INVALID;
+        }
+    }
+
+    /**
+     * @param context The context the class is being loaded in.
+     * @param chain The runtime RFB transformer chain the class is about to be passed through.
+     * @param entryName The jar entry name of the class (a/b/C.class).
+     * @param classBytes The class bytes as read from the jar, before any LaunchWrapper transformers.
+     * @return The number of transformers at the start of the chain that were already applied to this class.
+     */
+    public int pretransformedCount(
+            @NotNull RfbClassTransformer.Context context,
+            @NotNull List<RfbClassTransformerHandle> chain,
+            @NotNull String entryName,
+            byte @Nullable [] classBytes) {
+        if (classBytes == null
+                || context != this.context
+                || appliedTransformers.length == 0
+                || !isPrefixOf(chain)) {
+            return 0;
+        }
+        final Integer expectedHash = classHashes.get(entryName);
+        if (expectedHash == null) {
+            return 0;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(classBytes, 0, classBytes.length);
+        return (int) crc.getValue() == expectedHash ? appliedTransformers.length : 0;
+    }
+
+    private boolean isPrefixOf(@NotNull List<RfbClassTransformerHandle> chain) {
+        final RfbClassTransformerHandle[] validated = validatedChain;
+        if (validated != null && validated.length == chain.size()) {
+            boolean same = true;
+            for (int i = 0; i < validated.length; i++) {
+                if (validated[i] != chain.get(i)) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                return true;
+            }
+        }
+        boolean matches = chain.size() >= appliedTransformers.length;
+        for (int i = 0; matches && i < appliedTransformers.length; i++) {
+            matches = appliedTransformers[i].equals(describe(chain.get(i)));
+        }
+        if (!matches) {
+            if (!warnedMismatch) {
+                warnedMismatch = true;
+                SharedConfig.logWarning(
+                        "Jar " + file + " was pre-transformed with different RFB transformers ("
+                                + String.join(";", appliedTransformers)
+                                + "), it should be pre-transformed again. Running all transformers on it.",
+                        null);
+            }
+            return false;
+        }
+        validatedChain = chain.toArray(new RfbClassTransformerHandle[0]);
+        return true;
+    }
+
+    /** @return The plugin:transformer@pluginVersion identifier recorded in pre-transformed jars for the given transformer */
+    public static @NotNull String describe(@NotNull RfbClassTransformerHandle handle) {
+        return handle.id() + "@" + handle.pluginMetadata().version();
+    }
+}
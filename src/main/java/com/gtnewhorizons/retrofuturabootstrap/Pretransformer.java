@@ -0,0 +1,356 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import com.gtnewhorizons.retrofuturabootstrap.plugin.PluginLoader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Offline pre-transformation of a modpack: applies the RFB transformers that {@link RfbClassTransformer#supportsPretransformation() support it}
+ * to every class of every mod jar ahead of time, in parallel, and writes the pre-transformed jars for {@link PretransformedJar} to recognize at runtime.
+ * <p>
+ * Run it like the game, with RFB as the system class loader and the game's classpath:
+ * <pre>{@code java -Djava.system.class.loader=com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader -cp <classpath>
+ *     com.gtnewhorizons.retrofuturabootstrap.Pretransformer --gameDir <dir> [--output <dir>] [--threads <n>]}</pre>
+ * Plugins are loaded the same way as during a launch, then every jar in the mods directory is written to the same relative path in the output
+ * directory (by default {@code rfb-pretransformed} in the game directory). Signed and already pre-transformed jars are skipped.
+ */
+public final class Pretransformer {
+    private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+    private final @NotNull URLClassLoaderWithUtilities loader;
+    private final @NotNull List<RfbClassTransformerHandle> transformers;
+    private final @NotNull String appliedTransformers;
+    private final @NotNull ExecutorService transformService;
+
+    private final AtomicInteger classCount = new AtomicInteger();
+    private final AtomicInteger transformedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    private Pretransformer(
+            @NotNull URLClassLoaderWithUtilities loader,
+            @NotNull List<RfbClassTransformerHandle> transformers,
+            @NotNull ExecutorService transformService) {
+        this.loader = loader;
+        this.transformers = transformers;
+        final StringBuilder applied = new StringBuilder();
+        for (final RfbClassTransformerHandle handle : transformers) {
+            if (applied.length() > 0) {
+                applied.append(';');
+            }
+            applied.append(PretransformedJar.describe(handle));
+        }
+        this.appliedTransformers = applied.toString();
+        this.transformService = transformService;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        final OptionParser parser = new OptionParser();
+        final OptionSpec<File> aGameDir =
+                parser.accepts("gameDir").withRequiredArg().ofType(File.class);
+        final OptionSpec<File> aOutput = parser.accepts("output").withRequiredArg().ofType(File.class);
+        final OptionSpec<Integer> aThreads = parser.accepts("threads")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(Runtime.getRuntime().availableProcessors());
+        final OptionSet options = parser.parse(args);
+        if (!options.has(aGameDir)) {
+            System.err.println("Usage: Pretransformer --gameDir <dir> [--output <dir>] [--threads <n>]");
+            System.exit(1);
+        }
+        final File gameDir = options.valueOf(aGameDir).getAbsoluteFile();
+        final File outputDir = options.has(aOutput)
+                ? options.valueOf(aOutput).getAbsoluteFile()
+                : new File(gameDir, "rfb-pretransformed");
+        final int threads = Math.max(1, options.valueOf(aThreads));
+
+        SharedConfig.warnLogHandler = (msg, throwable) -> Main.logger.warn("{}", msg, throwable);
+        SharedConfig.debugLogHandler = (msg, throwable) -> Main.logger.debug("{}", msg, throwable);
+        if (ClassLoader.getSystemClassLoader() instanceof RfbSystemClassLoader) {
+            Main.compatLoader = (RfbSystemClassLoader) ClassLoader.getSystemClassLoader();
+        } else {
+            Main.compatLoader = new RfbSystemClassLoader(ClassLoader.getSystemClassLoader());
+        }
+        Main.initialGameDir = gameDir;
+        SharedConfig.gameDirectory.set(gameDir.toPath().toAbsolutePath());
+        Main.launchLoader = Main.compatLoader.getChildLoader();
+        Thread.currentThread().setContextClassLoader(Main.launchLoader.asURLClassLoader());
+        PluginLoader.initializePlugins();
+
+        final List<RfbClassTransformerHandle> pretransformable = new ArrayList<>();
+        for (final RfbClassTransformerHandle handle : Main.getRfbTransformers()) {
+            if (!handle.transformer().supportsPretransformation()) {
+                break;
+            }
+            pretransformable.add(handle);
+        }
+        if (pretransformable.isEmpty()) {
+            Main.logger.warn("The first RFB transformer does not support pre-transformation, there is nothing to do.");
+            return;
+        }
+        Main.logger.info(
+                "Pre-transforming with {} of {} RFB transformers on {} threads: {}",
+                pretransformable.size(),
+                Main.getRfbTransformers().size(),
+                threads,
+                pretransformable.stream().map(RfbClassTransformerHandle::id).collect(Collectors.joining(", ")));
+
+        final Path modsDir = gameDir.toPath().resolve("mods");
+        final List<Path> modJars = findJars(modsDir);
+        for (final Path modJar : modJars) {
+            // Make the classes of all mods visible to the transformers, like they would be at runtime
+            Main.launchLoader.addSilentURL(modJar.toUri().toURL());
+        }
+
+        final long startTime = System.nanoTime();
+        final ExecutorService transformService = Executors.newFixedThreadPool(threads, daemonThreads("Transformer"));
+        // Reading and writing jars happens on a separate pool to keep the transformer threads busy
+        final ExecutorService jarService =
+                Executors.newFixedThreadPool(Math.max(1, Math.min(4, threads)), daemonThreads("Jar IO"));
+        final Pretransformer pretransformer = new Pretransformer(
+                (URLClassLoaderWithUtilities) Main.launchLoader, pretransformable, transformService);
+        final List<Future<?>> jarTasks = new ArrayList<>(modJars.size());
+        for (final Path modJar : modJars) {
+            final Path target = outputDir.toPath().resolve(modsDir.relativize(modJar).toString());
+            jarTasks.add(jarService.submit(() -> {
+                pretransformer.processJar(modJar, target);
+                return null;
+            }));
+        }
+        int failedJars = 0;
+        for (final Future<?> task : jarTasks) {
+            try {
+                task.get();
+            } catch (Exception e) {
+                failedJars++;
+                Main.logger.error("Could not pre-transform a jar", e);
+            }
+        }
+        jarService.shutdown();
+        transformService.shutdown();
+        Main.logger.info(
+                "Pre-transformed {} classes ({} modified, {} failed) in {} jars ({} failed) in {} ms, written to {}",
+                pretransformer.classCount.get(),
+                pretransformer.transformedCount.get(),
+                pretransformer.failedCount.get(),
+                modJars.size(),
+                failedJars,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                outputDir);
+    }
+
+    private static @NotNull ThreadFactory daemonThreads(@NotNull String name) {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            final Thread t = new Thread(runnable);
+            t.setName("RFB Pretransformer " + name + " #" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static @NotNull List<Path> findJars(@NotNull Path dir) throws IOException {
+        final List<Path> jars = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return jars;
+        }
+        Files.walkFileTree(
+                dir,
+                new HashSet<>(Collections.singletonList(FileVisitOption.FOLLOW_LINKS)),
+                256,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar")) {
+                            jars.add(file);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+        Collections.sort(jars);
+        return jars;
+    }
+
+    /** One entry of the processed jar, with the transformed bytes if it's a class */
+    private static final class PendingEntry {
+        final @NotNull ZipEntry original;
+        final byte @NotNull [] bytes;
+        final @Nullable Future<byte @Nullable []> transformed;
+
+        PendingEntry(
+                @NotNull ZipEntry original, byte @NotNull [] bytes, @Nullable Future<byte @Nullable []> transformed) {
+            this.original = original;
+            this.bytes = bytes;
+            this.transformed = transformed;
+        }
+    }
+
+    private void processJar(@NotNull Path source, @NotNull Path target) throws Exception {
+        final List<PendingEntry> entries = new ArrayList<>();
+        final Manifest manifest;
+        try (JarFile jar = new JarFile(source.toFile(), false)) {
+            final Manifest sourceManifest = jar.getManifest();
+            if (sourceManifest != null
+                    && sourceManifest.getMainAttributes().containsKey(PretransformedJar.MANIFEST_ATTRIBUTE)) {
+                Main.logger.warn("Skipping {}, it is already pre-transformed", source);
+                return;
+            }
+            manifest = sourceManifest == null ? new Manifest() : sourceManifest;
+            final byte[] readBuffer = new byte[8192];
+            final Enumeration<? extends ZipEntry> jarEntries = jar.entries();
+            while (jarEntries.hasMoreElements()) {
+                final ZipEntry entry = jarEntries.nextElement();
+                final String name = entry.getName();
+                final String upperName = name.toUpperCase(Locale.ROOT);
+                if (upperName.startsWith("META-INF/")
+                        && (upperName.endsWith(".SF") || upperName.endsWith(".RSA") || upperName.endsWith(".DSA")
+                                || upperName.endsWith(".EC"))) {
+                    Main.logger.warn("Skipping {}, it is signed", source);
+                    return;
+                }
+                if (name.equals(MANIFEST_NAME) || name.equals(PretransformedJar.HASHES_ENTRY)) {
+                    continue;
+                }
+                final byte[] bytes;
+                try (InputStream is = jar.getInputStream(entry)) {
+                    bytes = URLClassLoaderBase.readAllBytes(is, readBuffer);
+                }
+                Future<byte[]> transformed = null;
+                // Multi-release variants are left alone, they're loaded as-is and transformed at runtime
+                if (!entry.isDirectory() && name.endsWith(".class") && !upperName.startsWith("META-INF/")) {
+                    final String className = name.substring(0, name.length() - ".class".length())
+                            .replace('/', '.');
+                    transformed = transformService.submit(() -> transform(source, manifest, className, bytes));
+                }
+                entries.add(new PendingEntry(entry, bytes, transformed));
+            }
+        }
+
+        // The transformers may still be reading the original manifest
+        final Manifest outputManifest = new Manifest(manifest);
+        outputManifest.getMainAttributes().putIfAbsent(Attributes.Name.MANIFEST_VERSION, "1.0");
+        outputManifest.getMainAttributes().put(PretransformedJar.MANIFEST_ATTRIBUTE, appliedTransformers);
+        outputManifest
+                .getMainAttributes()
+                .put(PretransformedJar.CONTEXT_ATTRIBUTE, PretransformedJar.DEFAULT_CONTEXT.name());
+        final long time = Files.getLastModifiedTime(source).toMillis();
+        final TreeMap<String, Integer> hashes = new TreeMap<>();
+        Files.createDirectories(target.getParent());
+        final Path tempTarget = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tempTarget);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            final ZipEntry manifestEntry = new ZipEntry(MANIFEST_NAME);
+            manifestEntry.setTime(time);
+            zos.putNextEntry(manifestEntry);
+            outputManifest.write(zos);
+            zos.closeEntry();
+            for (final PendingEntry pending : entries) {
+                byte[] bytes = pending.bytes;
+                if (pending.transformed != null) {
+                    final byte[] transformed = pending.transformed.get();
+                    if (transformed != null) {
+                        bytes = transformed;
+                        final CRC32 crc = new CRC32();
+                        crc.update(bytes, 0, bytes.length);
+                        hashes.put(pending.original.getName(), (int) crc.getValue());
+                    }
+                }
+                final ZipEntry entry = new ZipEntry(pending.original.getName());
+                entry.setTime(pending.original.getTime());
+                zos.putNextEntry(entry);
+                zos.write(bytes);
+                zos.closeEntry();
+            }
+            final ZipEntry hashesEntry = new ZipEntry(PretransformedJar.HASHES_ENTRY);
+            hashesEntry.setTime(time);
+            zos.putNextEntry(hashesEntry);
+            zos.write(formatHashes(hashes));
+            zos.closeEntry();
+        }
+        Files.move(tempTarget, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** @return The transformed class, or null if it could not be transformed and should be transformed at runtime */
+    private byte @Nullable [] transform(
+            @NotNull Path source, @NotNull Manifest manifest, @NotNull String className, byte @NotNull [] bytes) {
+        classCount.incrementAndGet();
+        try {
+            final byte[] transformed = loader.runRfbTransformers(
+                    transformers, PretransformedJar.DEFAULT_CONTEXT, manifest, className, bytes);
+            if (transformed == null) {
+                failedCount.incrementAndGet();
+                return null;
+            }
+            if (!Arrays.equals(transformed, bytes)) {
+                transformedCount.incrementAndGet();
+            }
+            return transformed;
+        } catch (Throwable t) {
+            failedCount.incrementAndGet();
+            Main.logger.warn(
+                    "Could not pre-transform {} from {}, it will be transformed at runtime",
+                    className,
+                    source,
+                    t);
+            return null;
+        }
+    }
+
+    /** Writes the hashes as a properties file, in a stable order and without a timestamp for reproducible output */
+    private static byte @NotNull [] formatHashes(@NotNull Map<String, Integer> hashes) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("# RFB pre-transformed class CRC32 hashes\n");
+        for (final Map.Entry<String, Integer> entry : hashes.entrySet()) {
+            for (final char c : entry.getKey().toCharArray()) {
+                if (c < 0x20 || c > 0x7e) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                    continue;
+                }
+                if (c == '\\' || c == ':' || c == '=' || c == ' ' || c == '#' || c == '!') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+            sb.append('=').append(String.format("%08x", entry.getValue())).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -1,11 +1,15 @@
 package com.gtnewhorizons.retrofuturabootstrap;
 
+import com.gtnewhorizons.retrofuturabootstrap.api.AnnotationIndex;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbApi;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbMetrics;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginHandle;
 import com.gtnewhorizons.retrofuturabootstrap.plugin.PluginLoader;
+import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
@@ -82,4 +86,27 @@ public final class RfbApiImpl implements RfbApi {
     public long currentPid() {
         return URLClassLoaderBase.getCurrentPid();
     }
+
+    @Override
+    public @NotNull RfbMetrics metrics() {
+        return RfbMetricsRecorder.snapshot();
+    }
+
+    @Override
+    public void finishStartupTrace() {
+        StartupTracer.finish();
+    }
+
+    @Override
+    public void startupFinished() {
+        StartupTracer.finish();
+        PackedClassStore.startupFinished();
+        AnnotationIndexer.startupFinished();
+    }
+
+    @Override
+    public @NotNull AnnotationIndex annotationIndex(@NotNull Collection<@NotNull URL> classpathEntries) {
+        return AnnotationIndexer.index(
+                classpathEntries, gameDirectory().resolve("rfb-cache").resolve("annotation-index"));
+    }
 }
@@ -0,0 +1,112 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Java Flight Recorder events for RFB's class loading, transformation and plugin lifecycle.
+ * This is the Java 8 no-op version, the real events are implemented in the Java 11+ multi-release layer.
+ * <p>
+ * Every {@code begin} method returns an opaque token, which is null when no active recording wants the event,
+ * and which must be passed into the matching {@code end} method.
+ */
+@SuppressWarnings("unused")
+public final class RfbJfrEvents {
+    private RfbJfrEvents() {}
+
+    /** Starts timing a class lookup in one of the RFB class loaders */
+    public static @Nullable Object beginFindClass() {
+        return null;
+    }
+
+    /**
+     * @param loaderName The name of the class loader
+     * @param className The name of the class
+     * @param bytes The size of the defined class bytes, or 0 if already loaded
+     * @param cacheHit If the class was returned from the loaded class cache
+     */
+    public static void endFindClass(
+            @Nullable Object token,
+            @Nullable String loaderName,
+            @NotNull String className,
+            int bytes,
+            boolean cacheHit) {}
+
+    /** Starts timing a single transformer invocation */
+    public static @Nullable Object beginTransform() {
+        return null;
+    }
+
+    /**
+     * @param loaderName The name of the class loader
+     * @param transformer The RFB transformer id, or LaunchWrapper transformer class name
+     * @param className The name of the transformed class
+     * @param rfbTransformer If it's a RFB transformer
+     * @param modified If the transformer changed the class
+     */
+    public static void endTransform(
+            @Nullable Object token,
+            @Nullable String loaderName,
+            @NotNull String transformer,
+            @NotNull String className,
+            boolean rfbTransformer,
+            boolean modified) {}
+
+    /** Starts timing a full class parse in ClassNodeHandle */
+    public static @Nullable Object beginClassNodeParse() {
+        return null;
+    }
+
+    /**
+     * @param className The internal name of the class
+     * @param bytes The size of the parsed class
+     */
+    public static void endClassNodeParse(@Nullable Object token, @Nullable String className, int bytes) {}
+
+    /** Starts timing a class write in ClassNodeHandle */
+    public static @Nullable Object beginClassNodeWrite() {
+        return null;
+    }
+
+    /**
+     * @param className The internal name of the class
+     * @param bytes The size of the written class
+     * @param writerFlags The ClassWriter flags used
+     */
+    public static void endClassNodeWrite(
+            @Nullable Object token, @Nullable String className, int bytes, int writerFlags) {}
+
+    /** Starts timing a SafeAsmClassWriter common superclass lookup */
+    public static @Nullable Object beginCommonSuperClass() {
+        return null;
+    }
+
+    /**
+     * @param type1 The first internal type name
+     * @param type2 The second internal type name
+     * @param result The computed common superclass internal name
+     */
+    public static void endCommonSuperClass(
+            @Nullable Object token, @NotNull String type1, @NotNull String type2, @Nullable String result) {}
+
+    /** Starts timing the RFB plugin manifest discovery */
+    public static @Nullable Object beginPluginDiscovery() {
+        return null;
+    }
+
+    /**
+     * @param plugins The number of plugin manifests found
+     */
+    public static void endPluginDiscovery(@Nullable Object token, int plugins) {}
+
+    /** Starts timing the RFB plugin dependency resolution */
+    public static @Nullable Object beginPluginSort() {
+        return null;
+    }
+
+    /**
+     * @param plugins The number of plugins being sorted
+     * @param success If no critical issues were found
+     */
+    public static void endPluginSort(@Nullable Object token, int plugins, boolean success) {}
+}
@@ -0,0 +1,188 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbMetrics;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects per-transformer and class loader metrics, exposed through {@link RfbApiImpl#metrics()}.
+ * Controlled by the {@code rfb.metrics} system property:
+ * <ul>
+ *     <li>{@code off} (default) - nothing is recorded, all hooks are constant-folded away by the JIT</li>
+ *     <li>{@code basic} - invocation, modification and wall time counters, cheap enough to keep on in production</li>
+ *     <li>{@code full} - basic plus per-transformer thread allocation tracking (HotSpot-only, slower on Java 8)</li>
+ * </ul>
+ * Like {@link SharedConfig}, this class is used from the system class loader, so it can't depend on most libraries.
+ */
+public final class RfbMetricsRecorder {
+    private RfbMetricsRecorder() {}
+
+    private static final String MODE = System.getProperty("rfb.metrics", "off").toLowerCase(Locale.ROOT);
+
+    /** If any metrics are collected */
+    public static final boolean ENABLED = MODE.equals("basic") || MODE.equals("full");
+
+    private static final @Nullable com.sun.management.ThreadMXBean ALLOCATION_BEAN = MODE.equals("full")
+            ? findAllocationBean()
+            : null;
+
+    /** If thread allocations are tracked */
+    public static final boolean TRACK_ALLOCATIONS = ALLOCATION_BEAN != null;
+
+    private static final Map<String, Counters> launchTransformers = new ConcurrentHashMap<>();
+    private static final Map<String, Counters> rfbTransformers = new ConcurrentHashMap<>();
+    private static final LongAdder classNodeParses = new LongAdder();
+    private static final LongAdder classNodeWrites = new LongAdder();
+    private static final LongAdder classBytesCacheHits = new LongAdder();
+    private static final LongAdder classBytesCacheMisses = new LongAdder();
+
+    private static final class Counters {
+        final LongAdder invocations = new LongAdder();
+        final LongAdder modified = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+    }
+
+    private static @Nullable com.sun.management.ThreadMXBean findAllocationBean() {
+        try {
+            final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                SharedConfig.logWarning("Thread allocation metrics are not supported on this JVM", null);
+                return null;
+            }
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (!sunBean.isThreadAllocatedMemorySupported()) {
+                SharedConfig.logWarning("Thread allocation metrics are not supported on this JVM", null);
+                return null;
+            }
+            if (!sunBean.isThreadAllocatedMemoryEnabled()) {
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return sunBean;
+        } catch (Throwable t) {
+            SharedConfig.logWarning("Could not initialize thread allocation metrics", t);
+            return null;
+        }
+    }
+
+    /** @return The timestamp to pass into the record methods, 0 when disabled. */
+    public static long startTime() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /** @return The current thread's allocation counter to pass into the record methods, 0 when not tracked. */
+    @SuppressWarnings("deprecation") // Thread.getId is the only option on Java 8
+    public static long startAllocation() {
+        final com.sun.management.ThreadMXBean bean = ALLOCATION_BEAN;
+        return bean == null ? 0L : bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Records a single invocation of a LaunchWrapper IClassTransformer.
+     * @param transformerClass The class of the transformer
+     * @param startTime The value returned by {@link #startTime()} before the invocation
+     * @param startAllocation The value returned by {@link #startAllocation()} before the invocation
+     * @param modified If the transformer changed the class
+     */
+    public static void recordLaunchTransformer(
+            @NotNull Class<?> transformerClass, long startTime, long startAllocation, boolean modified) {
+        if (!ENABLED) {
+            return;
+        }
+        record(launchTransformers, transformerClass.getName(), startTime, startAllocation, modified);
+    }
+
+    /**
+     * Records a single invocation of a RFB transformer.
+     * @param transformerId The {@link com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle#id()} of the transformer
+     * @param startTime The value returned by {@link #startTime()} before the invocation
+     * @param startAllocation The value returned by {@link #startAllocation()} before the invocation
+     * @param modified If the transformer changed the class
+     */
+    public static void recordRfbTransformer(
+            @NotNull String transformerId, long startTime, long startAllocation, boolean modified) {
+        if (!ENABLED) {
+            return;
+        }
+        record(rfbTransformers, transformerId, startTime, startAllocation, modified);
+    }
+
+    private static void record(
+            Map<String, Counters> map, String key, long startTime, long startAllocation, boolean modified) {
+        final long elapsed = System.nanoTime() - startTime;
+        final long allocated = TRACK_ALLOCATIONS ? startAllocation() - startAllocation : 0L;
+        Counters counters = map.get(key);
+        if (counters == null) {
+            counters = map.computeIfAbsent(key, k -> new Counters());
+        }
+        counters.invocations.increment();
+        if (modified) {
+            counters.modified.increment();
+        }
+        counters.nanos.add(elapsed);
+        if (TRACK_ALLOCATIONS) {
+            counters.allocatedBytes.add(allocated);
+        }
+    }
+
+    /** Counts a full ClassReader parse done by a ClassNodeHandle */
+    public static void recordClassNodeParse() {
+        if (ENABLED) {
+            classNodeParses.increment();
+        }
+    }
+
+    /** Counts a ClassWriter serialization done by a ClassNodeHandle */
+    public static void recordClassNodeWrite() {
+        if (ENABLED) {
+            classNodeWrites.increment();
+        }
+    }
+
+    /** Counts a class bytes lookup in one of the RFB class loaders */
+    public static void recordClassBytesLookup(boolean cacheHit) {
+        if (ENABLED) {
+            (cacheHit ? classBytesCacheHits : classBytesCacheMisses).increment();
+        }
+    }
+
+    /** @return A snapshot of the current metric values. */
+    public static @NotNull RfbMetrics snapshot() {
+        final List<RfbMetrics.TransformerStats> stats = new ArrayList<>();
+        addStats(stats, launchTransformers, false);
+        addStats(stats, rfbTransformers, true);
+        stats.sort(Comparator.comparingLong(RfbMetrics.TransformerStats::wallTimeNanos)
+                .reversed());
+        return new RfbMetrics(
+                ENABLED,
+                TRACK_ALLOCATIONS,
+                Collections.unmodifiableList(stats),
+                classNodeParses.sum(),
+                classNodeWrites.sum(),
+                classBytesCacheHits.sum(),
+                classBytesCacheMisses.sum());
+    }
+
+    private static void addStats(List<RfbMetrics.TransformerStats> out, Map<String, Counters> map, boolean rfb) {
+        for (Map.Entry<String, Counters> entry : map.entrySet()) {
+            final Counters c = entry.getValue();
+            out.add(new RfbMetrics.TransformerStats(
+                    entry.getKey(),
+                    rfb,
+                    c.invocations.sum(),
+                    c.modified.sum(),
+                    c.nanos.sum(),
+                    TRACK_ALLOCATIONS ? c.allocatedBytes.sum() : -1L));
+        }
+    }
+}
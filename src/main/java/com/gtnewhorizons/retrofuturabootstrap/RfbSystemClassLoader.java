@@ -1,9 +1,10 @@
 package com.gtnewhorizons.retrofuturabootstrap;
 
-import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHierarchyHeader;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.FastClassAccessor;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
@@ -82,6 +83,9 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
                 "LZMA.",
                 "org.slf4j.",
                 "com.gtnewhorizons.retrofuturabootstrap."));
+        for (final URL source : sources) {
+            JarTransformerApplicability.register(source);
+        }
     }
 
     /** Invoked by Java itself */
@@ -168,7 +172,7 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
         try {
             final byte[] classBytes = getClassBytes(name);
             if (classBytes != null) {
-                return ClassHeaderMetadata.of(classBytes);
+                return ClassHierarchyHeader.of(classBytes);
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -193,7 +197,7 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
             this.isDelegatingToChild.set(isDelegatingToChild);
         }
         if (isDelegatingToChild.contains(name)) {
-            throw new ClassNotFoundException(name);
+            throw CachedClassNotFoundException.of(name, "");
         }
         for (final String delegation : childDelegations) {
             if (name.startsWith(delegation)) {
@@ -207,11 +211,14 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
                 }
             }
         }
+        final Object jfrEvent = RfbJfrEvents.beginFindClass();
+        final long traceStart = StartupTracer.begin();
         {
             final WeakReference<Class<?>> cached = cachedClasses.get(name);
             if (cached != null) {
                 final Class<?> cachedStrong = cached.get();
                 if (cachedStrong != null) {
+                    RfbJfrEvents.endFindClass(jfrEvent, getClassLoaderName(), name, 0, true);
                     return cachedStrong;
                 }
             }
@@ -223,11 +230,13 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
         Package pkg = null;
         final CodeSource codeSource;
         Manifest manifest = null;
+        URL jarFileUrl = null;
         byte[] classBytes = null;
         if (!packageName.isEmpty()) {
             if (!name.startsWith("net.minecraft.") && connection instanceof JarURLConnection) {
                 final JarURLConnection jarConnection = (JarURLConnection) connection;
                 final URL codeSourceUrl = jarConnection.getJarFileURL();
+                jarFileUrl = codeSourceUrl;
                 CodeSigner[] codeSigners = null;
                 try {
                     manifest = jarConnection.getManifest();
@@ -254,10 +263,21 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
         }
         try {
             if (SharedConfig.cfgDumpLoadedClassesPerTransformer && classBytes != null) {
-                SharedConfig.dumpClass(this.getClassLoaderName(), name + "_000_pretransform", classBytes);
+                SharedConfig.dumpClass(this.getClassLoaderName(), name, "_000_pretransform", classBytes);
             }
+            final List<RfbClassTransformerHandle> rfbTransformers = SharedConfig.getRfbTransformers();
+            final PretransformedJar pretransformedJar = PretransformedJar.of(jarFileUrl, manifest);
+            final RfbClassTransformer.Context context = RfbClassTransformer.Context.SYSTEM;
             classBytes = runRfbTransformers(
-                    SharedConfig.getRfbTransformers(), RfbClassTransformer.Context.SYSTEM, manifest, name, classBytes);
+                    rfbTransformers,
+                    context,
+                    manifest,
+                    name,
+                    classBytes,
+                    JarTransformerApplicability.lookup(jarFileUrl),
+                    pretransformedJar == null
+                            ? 0
+                            : pretransformedJar.pretransformedCount(context, rfbTransformers, classPath, classBytes));
         } catch (Throwable t) {
             ClassNotFoundException err =
                     new ClassNotFoundException("Exception caught while transforming class " + name, t);
@@ -275,6 +295,8 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
         }
         Class<?> result = defineClass(name, classBytes, 0, classBytes.length, codeSource);
         cachedClasses.put(name, new WeakReference<>(result));
+        RfbJfrEvents.endFindClass(jfrEvent, getClassLoaderName(), name, classBytes.length, false);
+        StartupTracer.end(StartupTracer.CATEGORY_CLASS_LOAD, name, getClassLoaderName(), traceStart);
         return result;
     }
 
@@ -313,6 +335,7 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
     @Override
     public void addURL(final URL url) {
         super.addURL(url);
+        JarTransformerApplicability.register(url);
         if (addURLHook != null) {
             addURLHook.accept(url);
         }
@@ -321,6 +344,7 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
     @Override
     public void addSilentURL(@Nullable URL url) {
         super.addURL(url);
+        JarTransformerApplicability.register(url);
         if (addURLHook != null) {
             addURLHook.accept(url);
         }
@@ -377,32 +401,57 @@ public final class RfbSystemClassLoader extends URLClassLoaderWithUtilities impl
         if (cached != null) {
             final byte[] cachedStrong = cached.get();
             if (cachedStrong != null) {
+                RfbMetricsRecorder.recordClassBytesLookup(true);
                 return cachedStrong.clone();
             }
         }
+        RfbMetricsRecorder.recordClassBytesLookup(false);
         final String classPath = name.replace('.', '/') + ".class";
-        final URL resourceUrl = findResource(classPath);
-        URLConnection conn = resourceUrl == null ? null : resourceUrl.openConnection();
-        if (conn == null && platformLoader != null) {
-            // Try JRE classes
-            final URL platformUrl = platformLoader.getResource(classPath);
-            if (platformUrl != null) {
-                conn = platformUrl.openConnection();
+        byte[] contents = readMappedClassBytes(classPath);
+        if (contents == null || contents == MAPPED_CLASS_ABSENT) {
+            final URL resourceUrl = contents == MAPPED_CLASS_ABSENT ? null : findResource(classPath);
+            URLConnection conn = resourceUrl == null ? null : resourceUrl.openConnection();
+            if (conn == null && platformLoader != null) {
+                // Try JRE classes
+                final URL platformUrl = platformLoader.getResource(classPath);
+                if (platformUrl != null) {
+                    conn = platformUrl.openConnection();
+                }
+            }
+            if (conn == null) {
+                return null;
+            }
+            final InputStream is = conn.getInputStream();
+            contents = readFully(is);
+            closeSilently(is);
+            if (contents == null) {
+                return null;
             }
-        }
-        if (conn == null) {
-            return null;
-        }
-        final InputStream is = conn.getInputStream();
-        final byte[] contents = readFully(is);
-        closeSilently(is);
-        if (contents == null) {
-            return null;
         }
         resourceCache.put(name, new SoftReference<>(contents));
         return contents.clone();
     }
 
+    @Override
+    public void forEachClassIn(@NotNull URL classpathEntry, boolean populateCache, @NotNull ClassEntryVisitor visitor)
+            throws IOException {
+        BulkClassReader.forEachClassIn(
+                classpathEntry,
+                visitor,
+                populateCache ? (name, classBytes) -> cacheBulkReadClass(classpathEntry, name, classBytes) : null);
+    }
+
+    private void cacheBulkReadClass(URL classpathEntry, String name, byte[] classBytes) {
+        final SoftReference<byte[]> cached = resourceCache.get(name);
+        if (cached != null && cached.get() != null) {
+            return;
+        }
+        final String classPath = name.replace('.', '/') + ".class";
+        if (BulkClassReader.isResolvedFrom(findResource(classPath), classpathEntry, classPath)) {
+            resourceCache.put(name, new SoftReference<>(classBytes));
+        }
+    }
+
     /** Null-safe, exception-safe close function that silently ignores any errors */
     private static void closeSilently(Closeable closeable) {
         if (closeable == null) {
@@ -12,6 +12,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -31,9 +32,22 @@ public class SharedConfig {
     /** Controlled by system property {@code rfb.dumpClassesAsynchronously=true}, if the class dumps are done from another Thread to avoid slow IO */
     public static final boolean cfgDumpClassesAsynchronously = getBooleanOr("rfb.dumpClassesAsynchronously", true);
 
+    /** Controlled by system property {@code rfb.dumpClassesToArchive=false}, if the class dumps are written into a single zip file per class loader by one writer thread instead of a file per class */
+    public static final boolean cfgDumpClassesToArchive = getBooleanOr("rfb.dumpClassesToArchive", false);
+
+    /**
+     * Controlled by system property {@code rfb.dumpClassFilter=}, a semicolon-separated list of class name globs (a.b.*, a.b.**, a.b.C?) limiting which classes are dumped, all classes are dumped if empty.
+     * In the globs, {@code *} and {@code ?} don't match package separators, {@code **} does.
+     */
+    public static final @Nullable Pattern cfgDumpClassFilter =
+            compileClassGlobs(System.getProperty("rfb.dumpClassFilter", ""));
+
     /** The target class dumping directory, initialized during commandline option parsing. */
     public static @NotNull AtomicReference<@Nullable Path> classDumpDirectory = new AtomicReference<>(null);
 
+    /** The absolute game directory, initialized during commandline option parsing. */
+    public static final @NotNull AtomicReference<@Nullable Path> gameDirectory = new AtomicReference<>(null);
+
     /** An ArrayList of all RFB class transformers used, mutable, in order of application */
     static final @NotNull AtomicReference<@NotNull RfbClassTransformerHandle[]> rfbTransformers =
             new AtomicReference<>(new RfbClassTransformerHandle[0]);
@@ -92,13 +106,69 @@ public class SharedConfig {
         }
     }
 
+    /** Compiles a semicolon-separated list of class name globs into a regex, or returns null if there are none */
+    public static @Nullable Pattern compileClassGlobs(@NotNull String globs) {
+        final StringBuilder regex = new StringBuilder();
+        for (final String glob : globs.split(";")) {
+            final String trimmed = glob.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            int literalStart = 0;
+            for (int i = 0; i < trimmed.length(); i++) {
+                final char c = trimmed.charAt(i);
+                if (c != '*' && c != '?') {
+                    continue;
+                }
+                if (i > literalStart) {
+                    regex.append(Pattern.quote(trimmed.substring(literalStart, i)));
+                }
+                if (c == '?') {
+                    regex.append("[^.]");
+                } else if (i + 1 < trimmed.length() && trimmed.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^.]*");
+                }
+                literalStart = i + 1;
+            }
+            if (literalStart < trimmed.length()) {
+                regex.append(Pattern.quote(trimmed.substring(literalStart)));
+            }
+        }
+        return regex.length() == 0 ? null : Pattern.compile(regex.toString());
+    }
+
+    /**
+     * @param className Regular class name (a.b.C)
+     * @return If the class passes the {@link #cfgDumpClassFilter} filter, check before doing any expensive work to produce the dumped bytes.
+     */
+    public static boolean shouldDumpClass(@NotNull String className) {
+        final Pattern filter = cfgDumpClassFilter;
+        return filter == null || filter.matcher(className).matches();
+    }
+
     /**
      * Asynchronously dumps the given class data if dumping is enabled and initialized, synchronously before Main is called.
      * @param className Regular class name (a.b.C)
      * @param classBytes The bytes to save, assumed to not be modified after passing into this method call
      */
     public static void dumpClass(String classLoaderName, String className, byte[] classBytes) {
-        if (className == null || classBytes == null || className.isEmpty()) {
+        dumpClass(classLoaderName, className, null, classBytes);
+    }
+
+    /**
+     * Asynchronously dumps the given class data if dumping is enabled and initialized, synchronously before Main is called.
+     * @param className Regular class name (a.b.C), matched against {@link #cfgDumpClassFilter}
+     * @param suffix Appended to the dumped file name to distinguish multiple dumps of the same class, or null
+     * @param classBytes The bytes to save, assumed to not be modified after passing into this method call
+     */
+    public static void dumpClass(String classLoaderName, String className, @Nullable String suffix, byte[] classBytes) {
+        if (className == null || classBytes == null || className.isEmpty() || !shouldDumpClass(className)) {
             return;
         }
         try {
@@ -106,12 +176,23 @@ public class SharedConfig {
             if (dumpRoot == null) {
                 return;
             }
+            // Replace $->. because otherwise the files are invisible in IntelliJ
+            final String fullName = suffix == null ? className : className + suffix;
+            final String fileName = fullName.replace('.', '/').replace('$', '.') + ".class";
+            if (cfgDumpClassesToArchive) {
+                final String archiveName = classLoaderName == null ? "" : classLoaderName;
+                final ClassDumpArchive archive = ClassDumpArchive.get(dumpRoot);
+                if (cfgDumpClassesAsynchronously) {
+                    archive.submit(archiveName, fileName, classBytes);
+                } else {
+                    archive.write(archiveName, fileName, classBytes);
+                }
+                return;
+            }
             final Path clRoot = (classLoaderName == null || classLoaderName.isEmpty())
                     ? dumpRoot
                     : dumpRoot.resolve(classLoaderName);
-            // Replace $->. because otherwise the files are invisible in IntelliJ
-            final String internalName = className.replace('.', '/').replace('$', '.');
-            final Path targetPath = clRoot.resolve(internalName + ".class");
+            final Path targetPath = clRoot.resolve(fileName);
             final ExecutorService service = classDumpingService;
             if (cfgDumpClassesAsynchronously && service != null) {
                 service.submit(() -> {
@@ -0,0 +1,244 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An opt-in startup tracer, recording spans of the launch phases and class loads/transforms into a
+ * Chrome trace event format JSON file (viewable in Perfetto or chrome://tracing).
+ * Enabled with {@code -Drfb.startupTrace=true} (writes {@code rfb-startup-trace.json} in the game directory) or
+ * {@code -Drfb.startupTrace=path/to/file.json}. The trace is written on {@link #finish()} or at JVM shutdown, whichever comes first.
+ * <p>
+ * Like {@link SharedConfig}, this class is used from the system class loader, so it can't depend on most libraries.
+ */
+public final class StartupTracer {
+    private StartupTracer() {}
+
+    private static final @Nullable String OUTPUT = System.getProperty("rfb.startupTrace");
+
+    /** If the tracer is recording */
+    public static final boolean ENABLED =
+            OUTPUT != null && !OUTPUT.isEmpty() && !"false".equalsIgnoreCase(OUTPUT);
+
+    /** Category of the launch phase spans */
+    public static final String CATEGORY_PHASE = "phase";
+    /** Category of the class loading spans */
+    public static final String CATEGORY_CLASS_LOAD = "classload";
+    /** Category of the transformer spans */
+    public static final String CATEGORY_TRANSFORM = "transform";
+
+    /** Upper bound on the recorded spans, to not run out of memory on huge modpacks */
+    private static final int MAX_SPANS = 2_000_000;
+
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger spanCount = new AtomicInteger();
+    private static final AtomicInteger droppedSpans = new AtomicInteger();
+    private static final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+    private static volatile boolean finished = false;
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(StartupTracer::finish, "RFB startup trace writer"));
+        }
+    }
+
+    private static final class Span {
+        final String category;
+        final String name;
+        final @Nullable String detail;
+        final long threadId;
+        final long startNanos;
+        // -1 for instant events
+        final long durationNanos;
+
+        Span(
+                String category,
+                String name,
+                @Nullable String detail,
+                long threadId,
+                long startNanos,
+                long durationNanos) {
+            this.category = category;
+            this.name = name;
+            this.detail = detail;
+            this.threadId = threadId;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+    }
+
+    /** @return The timestamp to pass into {@link #end(String, String, String, long)}, 0 when disabled. */
+    public static long begin() {
+        return ENABLED && !finished ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records a span on the current thread, spans on the same thread are nested by their time ranges.
+     * @param category One of the CATEGORY_ constants
+     * @param name The name of the span
+     * @param detail Optional extra information shown in the span details
+     * @param startNanos The value returned by {@link #begin()}
+     */
+    public static void end(
+            @NotNull String category, @NotNull String name, @Nullable String detail, long startNanos) {
+        if (!ENABLED || startNanos == 0L || finished) {
+            return;
+        }
+        add(category, name, detail, startNanos, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a point-in-time marker on the current thread.
+     * @param category One of the CATEGORY_ constants
+     * @param name The name of the marker
+     */
+    public static void instant(@NotNull String category, @NotNull String name) {
+        if (!ENABLED || finished) {
+            return;
+        }
+        add(category, name, null, System.nanoTime(), -1L);
+    }
+
+    @SuppressWarnings("deprecation") // Thread.getId is the only option on Java 8
+    private static void add(String category, String name, @Nullable String detail, long start, long duration) {
+        if (spanCount.incrementAndGet() > MAX_SPANS) {
+            droppedSpans.incrementAndGet();
+            return;
+        }
+        final Thread thread = Thread.currentThread();
+        final long tid = thread.getId();
+        if (!threadNames.containsKey(tid)) {
+            threadNames.put(tid, thread.getName());
+        }
+        spans.add(new Span(category, name, detail, tid, start, duration));
+    }
+
+    /**
+     * Stops recording and writes the trace file. Only the first call has any effect.
+     */
+    public static synchronized void finish() {
+        if (!ENABLED || finished) {
+            return;
+        }
+        finished = true;
+        final Path output = outputPath();
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writeTrace(writer);
+        } catch (IOException e) {
+            SharedConfig.logWarning("Could not write the RFB startup trace to " + output, e);
+            return;
+        }
+        final int dropped = droppedSpans.get();
+        if (dropped > 0) {
+            SharedConfig.logWarning(
+                    "RFB startup trace was truncated, " + dropped + " spans over the limit of " + MAX_SPANS
+                            + " were dropped",
+                    null);
+        }
+        spans.clear();
+    }
+
+    private static Path outputPath() {
+        final String output = OUTPUT;
+        if (output != null && !"true".equalsIgnoreCase(output)) {
+            return Paths.get(output).toAbsolutePath();
+        }
+        final File gameDir = Main.initialGameDir;
+        return (gameDir != null ? gameDir.toPath() : Paths.get("."))
+                .resolve("rfb-startup-trace.json")
+                .toAbsolutePath();
+    }
+
+    private static void writeTrace(Writer out) throws IOException {
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        out.write("{\"ph\":\"M\",\"pid\":1,\"tid\":0,\"name\":\"process_name\","
+                + "\"args\":{\"name\":\"RetroFuturaBootstrap\"}}");
+        for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+            out.write(",\n{\"ph\":\"M\",\"pid\":1,\"tid\":");
+            out.write(Long.toString(thread.getKey()));
+            out.write(",\"name\":\"thread_name\",\"args\":{\"name\":");
+            writeString(out, thread.getValue());
+            out.write("}}");
+        }
+        for (final Span span : spans) {
+            out.write(",\n{\"ph\":\"");
+            out.write(span.durationNanos < 0 ? "i\",\"s\":\"t" : "X");
+            out.write("\",\"pid\":1,\"tid\":");
+            out.write(Long.toString(span.threadId));
+            out.write(",\"cat\":");
+            writeString(out, span.category);
+            out.write(",\"name\":");
+            writeString(out, span.name);
+            out.write(",\"ts\":");
+            writeMicros(out, span.startNanos - ORIGIN_NANOS);
+            if (span.durationNanos >= 0) {
+                out.write(",\"dur\":");
+                writeMicros(out, span.durationNanos);
+            }
+            if (span.detail != null) {
+                out.write(",\"args\":{\"detail\":");
+                writeString(out, span.detail);
+                out.write('}');
+            }
+            out.write('}');
+        }
+        out.write("\n]}\n");
+    }
+
+    private static void writeMicros(Writer out, long nanos) throws IOException {
+        out.write(Long.toString(nanos / 1000L));
+        out.write('.');
+        final long fraction = Math.abs(nanos % 1000L);
+        if (fraction < 100) {
+            out.write('0');
+        }
+        if (fraction < 10) {
+            out.write('0');
+        }
+        out.write(Long.toString(fraction));
+    }
+
+    private static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
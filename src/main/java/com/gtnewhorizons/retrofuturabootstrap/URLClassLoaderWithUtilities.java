@@ -4,34 +4,216 @@ import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.net.URLStreamHandlerFactory;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.jar.Manifest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Non-Java-version-specific extensions to {@link URLClassLoaderBase}
  */
 public class URLClassLoaderWithUtilities extends URLClassLoaderBase {
+    /**
+     * Returned by {@link #readMappedClassBytes(String)} when no classpath entry has the class, compared by identity.
+     */
+    protected static final byte @NotNull [] MAPPED_CLASS_ABSENT = new byte[0];
+
+    /** The classpath in search order, mirrored from addURL for {@link #readMappedClassBytes(String)} */
+    private volatile @NotNull MappedClasspathEntry @NotNull [] mappedClasspath = new MappedClasspathEntry[0];
+
+    private final Object mappedClasspathLock = new Object();
+    /** Guarded by mappedClasspathLock */
+    private boolean mappedClasspathClosed = false;
+
     public URLClassLoaderWithUtilities(URL[] urls, ClassLoader parent) {
         super(urls, parent);
+        mirrorURLs(urls);
     }
 
     public URLClassLoaderWithUtilities(URL[] urls) {
         super(urls);
+        mirrorURLs(urls);
     }
 
     public URLClassLoaderWithUtilities(URL[] urls, ClassLoader parent, URLStreamHandlerFactory factory) {
         super(urls, parent, factory);
+        mirrorURLs(urls);
     }
 
     public URLClassLoaderWithUtilities(String name, URL[] urls, ClassLoader parent) {
         super(name, urls, parent);
+        mirrorURLs(urls);
     }
 
     public URLClassLoaderWithUtilities(String name, URL[] urls, ClassLoader parent, URLStreamHandlerFactory factory) {
         super(name, urls, parent, factory);
+        mirrorURLs(urls);
+    }
+
+    @Override
+    protected void addURL(URL url) {
+        super.addURL(url);
+        mirrorURLs(url);
+    }
+
+    /** Also releases the memory-mapped jars of this loader, unmapping the ones no other loader uses. */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            final MappedClasspathEntry[] entries;
+            synchronized (mappedClasspathLock) {
+                entries = mappedClasspath;
+                mappedClasspath = new MappedClasspathEntry[0];
+                mappedClasspathClosed = true;
+            }
+            for (final MappedClasspathEntry entry : entries) {
+                entry.release();
+            }
+        }
+    }
+
+    private void mirrorURLs(@Nullable URL... urls) {
+        if (urls == null) {
+            return;
+        }
+        synchronized (mappedClasspathLock) {
+            if (mappedClasspathClosed) {
+                return;
+            }
+            MappedClasspathEntry[] entries = mappedClasspath;
+            nextUrl:
+            for (final URL url : urls) {
+                if (url == null) {
+                    continue;
+                }
+                final String urlString = url.toString();
+                for (final MappedClasspathEntry entry : entries) {
+                    if (entry.urlString.equals(urlString)) {
+                        continue nextUrl;
+                    }
+                }
+                entries = Arrays.copyOf(entries, entries.length + 1);
+                entries[entries.length - 1] = new MappedClasspathEntry(url, urlString);
+            }
+            mappedClasspath = entries;
+        }
+    }
+
+    /**
+     * Reads a class file from this loader's classpath without going through URLConnections, using memory-mapped jars.
+     * Searches the classpath in the same order as {@link #findResource(String)}.
+     * @param classPath The class file path, a/b/C.class.
+     * @return The class bytes, {@link #MAPPED_CLASS_ABSENT} if no classpath entry has the class, or null if the
+     *         classpath contains entries this doesn't handle, in which case the class should be looked up through
+     *         {@link #findResource(String)}.
+     */
+    protected byte @Nullable [] readMappedClassBytes(@NotNull String classPath) {
+        if (!MappedJar.cfgMappedJars) {
+            return null;
+        }
+        for (final MappedClasspathEntry entry : mappedClasspath) {
+            switch (entry.resolve()) {
+                case MappedClasspathEntry.JAR:
+                    final MappedJar jar = entry.jar;
+                    if (jar != null && jar.contains(classPath)) {
+                        return jar.read(classPath);
+                    }
+                    break;
+                case MappedClasspathEntry.DIRECTORY:
+                    final File file = new File(entry.directory, classPath.replace('/', File.separatorChar));
+                    if (file.isFile()) {
+                        try {
+                            return Files.readAllBytes(file.toPath());
+                        } catch (IOException e) {
+                            return null;
+                        }
+                    }
+                    break;
+                case MappedClasspathEntry.MISSING:
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return MAPPED_CLASS_ABSENT;
+    }
+
+    private static final class MappedClasspathEntry {
+        static final int UNRESOLVED = 0;
+        static final int JAR = 1;
+        static final int DIRECTORY = 2;
+        /** Skipped by the JDK too */
+        static final int MISSING = 3;
+        /** Has to be read through the JDK */
+        static final int UNSUPPORTED = 4;
+
+        final @NotNull URL url;
+        final @NotNull String urlString;
+        private volatile int state = UNRESOLVED;
+        @Nullable
+        MappedJar jar;
+
+        @Nullable
+        File directory;
+
+        MappedClasspathEntry(@NotNull URL url, @NotNull String urlString) {
+            this.url = url;
+            this.urlString = urlString;
+        }
+
+        /** Releases the mapped jar, the entry is handled by the JDK afterwards. */
+        synchronized void release() {
+            final MappedJar mappedJar = jar;
+            state = UNSUPPORTED;
+            jar = null;
+            if (mappedJar != null) {
+                MappedJar.release(mappedJar);
+            }
+        }
+
+        int resolve() {
+            final int currentState = state;
+            if (currentState != UNRESOLVED) {
+                return currentState;
+            }
+            synchronized (this) {
+                if (state == UNRESOLVED) {
+                    state = resolveState();
+                }
+                return state;
+            }
+        }
+
+        private int resolveState() {
+            if (!"file".equals(url.getProtocol())) {
+                return UNSUPPORTED;
+            }
+            final File file;
+            try {
+                file = new File(url.toURI());
+            } catch (Exception e) {
+                return UNSUPPORTED;
+            }
+            if (urlString.endsWith("/")) {
+                directory = file;
+                return file.isDirectory() ? DIRECTORY : MISSING;
+            }
+            if (!file.exists()) {
+                return MISSING;
+            }
+            jar = file.isFile() ? MappedJar.open(file) : null;
+            return jar == null ? UNSUPPORTED : JAR;
+        }
     }
 
     public byte[] runRfbTransformers(
@@ -40,42 +222,89 @@ public class URLClassLoaderWithUtilities extends URLClassLoaderBase {
             final Manifest manifest,
             final String className,
             byte[] basicClass) {
-        if (rfbTransformers.isEmpty()) {
+        return runRfbTransformers(rfbTransformers, context, manifest, className, basicClass, null, 0);
+    }
+
+    /**
+     * A transformer that replaces itself in the chain while deciding on a class, like the placeholder of a lazily
+     * constructed plugin, makes the class start over with the new chain, from the original bytes.
+     * @param applicability The scan of the jar the untransformed class bytes came from, transformers that can't apply to
+     *                      any class of that jar are skipped. Must be null if the bytes were modified after loading.
+     * @param pretransformedCount The number of transformers at the start of the list that were already applied to the
+     *                            class ahead of time, see {@link PretransformedJar}.
+     */
+    public byte[] runRfbTransformers(
+            final Collection<RfbClassTransformerHandle> rfbTransformers,
+            final RfbClassTransformer.Context context,
+            final Manifest manifest,
+            final String className,
+            byte[] basicClass,
+            final @Nullable JarTransformerApplicability applicability,
+            final int pretransformedCount) {
+        if (rfbTransformers.size() <= pretransformedCount) {
             return basicClass;
         }
         final ExtensibleClassLoader self = (ExtensibleClassLoader) this;
         int xformerIndex = 0;
         final ClassNodeHandle nodeHandle = new ClassNodeHandle(basicClass);
         byte[] previousBytes = basicClass;
+        RfbClassTransformerHandle[] chainSnapshot = SharedConfig.rfbTransformers.get();
+        List<RfbClassTransformerHandle> restartChain = null;
         xformerLoop:
         for (RfbClassTransformerHandle handle : rfbTransformers) {
+            if (xformerIndex < pretransformedCount
+                    || (applicability != null && applicability.canSkip(handle, manifest))) {
+                xformerIndex++;
+                continue;
+            }
             for (final String exclusion : handle.exclusions()) {
                 if (className.startsWith(exclusion)) {
                     continue xformerLoop;
                 }
             }
             final RfbClassTransformer xformer = handle.transformer();
+            final long metricsStartTime = RfbMetricsRecorder.startTime();
+            final long metricsStartAllocation = RfbMetricsRecorder.startAllocation();
+            final Object jfrEvent = RfbJfrEvents.beginTransform();
+            final long traceStart = StartupTracer.begin();
             try {
-                if (xformer.shouldTransformClass(self, context, manifest, className, nodeHandle)) {
-                    boolean transformed =
-                            xformer.transformClassIfNeeded(self, context, manifest, className, nodeHandle);
-
-                    if (transformed) {
-                        nodeHandle.markDirty();
+                boolean transformed = false;
+                // Recorded before the per-transformer dump, and also when the transformer throws
+                try {
+                    if (xformer.shouldTransformClass(self, context, manifest, className, nodeHandle)) {
+                        if (SharedConfig.rfbTransformers.get() != chainSnapshot) {
+                            chainSnapshot = SharedConfig.rfbTransformers.get();
+                            final List<RfbClassTransformerHandle> newChain = Arrays.asList(chainSnapshot);
+                            if (!newChain.contains(handle)
+                                    && keepsPretransformedPrefix(rfbTransformers, newChain, pretransformedCount)) {
+                                restartChain = Collections.unmodifiableList(newChain);
+                                break xformerLoop;
+                            }
+                        }
+                        transformed = xformer.transformClassIfNeeded(self, context, manifest, className, nodeHandle);
                     }
+                } finally {
+                    RfbMetricsRecorder.recordRfbTransformer(
+                            handle.id(), metricsStartTime, metricsStartAllocation, transformed);
+                    RfbJfrEvents.endTransform(
+                            jfrEvent, getClassLoaderName(), handle.id(), className, true, transformed);
+                    StartupTracer.end(StartupTracer.CATEGORY_TRANSFORM, handle.id(), className, traceStart);
+                }
 
-                    if (Main.cfgDumpLoadedClassesPerTransformer && transformed) {
-                        final byte[] newBytes = nodeHandle.computeBytes();
-                        if (newBytes != null && !Arrays.equals(newBytes, previousBytes)) {
-                            Main.dumpClass(
-                                    this.getClassLoaderName(),
-                                    String.format(
-                                            "%s__S%03d_%s",
-                                            className, xformerIndex, handle.id().replace(':', '$')),
-                                    newBytes);
-                        }
-                        previousBytes = newBytes;
+                if (transformed) {
+                    nodeHandle.markDirty();
+                }
+
+                if (Main.cfgDumpLoadedClassesPerTransformer && transformed && Main.shouldDumpClass(className)) {
+                    final byte[] newBytes = nodeHandle.computeBytes();
+                    if (newBytes != null && !Arrays.equals(newBytes, previousBytes)) {
+                        Main.dumpClass(
+                                this.getClassLoaderName(),
+                                className,
+                                String.format("__S%03d_%s", xformerIndex, handle.id().replace(':', '$')),
+                                newBytes);
                     }
+                    previousBytes = newBytes;
                 }
             } catch (UnsupportedOperationException e) {
                 if (e.getMessage().contains("requires ASM")) {
@@ -91,6 +320,34 @@ public class URLClassLoaderWithUtilities extends URLClassLoaderBase {
             }
             xformerIndex++;
         }
+        if (restartChain != null) {
+            return runRfbTransformers(
+                    restartChain, context, manifest, className, basicClass, applicability, pretransformedCount);
+        }
         return nodeHandle.computeBytes();
     }
+
+    /**
+     * Pre-transformed bytes can only start over with a new chain if it begins with the same pre-applied transformers,
+     * otherwise the transformer has to handle the class in its current position.
+     */
+    private static boolean keepsPretransformedPrefix(
+            Collection<RfbClassTransformerHandle> oldChain,
+            List<RfbClassTransformerHandle> newChain,
+            int pretransformedCount) {
+        if (pretransformedCount > newChain.size()) {
+            return false;
+        }
+        int i = 0;
+        for (final RfbClassTransformerHandle handle : oldChain) {
+            if (i >= pretransformedCount) {
+                break;
+            }
+            if (handle != newChain.get(i)) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
 }
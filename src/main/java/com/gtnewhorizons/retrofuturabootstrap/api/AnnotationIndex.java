@@ -0,0 +1,158 @@
+package com.gtnewhorizons.retrofuturabootstrap.api;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable index of the annotations on classes, fields and methods of a set of classpath entries, see {@link RfbApi#annotationIndex}.
+ * Parameter and type annotations, and annotation values are not indexed, read the found classes to get them.
+ */
+public final class AnnotationIndex {
+    /** What kind of element an annotation is attached to */
+    public enum TargetType {
+        CLASS,
+        FIELD,
+        METHOD
+    }
+
+    /** A single annotation usage. */
+    public static final class Entry {
+        private final @NotNull URL source;
+        private final @NotNull String annotationDescriptor;
+        private final @NotNull String className;
+        private final @NotNull TargetType targetType;
+        private final @Nullable String memberName;
+        private final @Nullable String memberDescriptor;
+        private final boolean runtimeVisible;
+
+        public Entry(
+                @NotNull URL source,
+                @NotNull String annotationDescriptor,
+                @NotNull String className,
+                @NotNull TargetType targetType,
+                @Nullable String memberName,
+                @Nullable String memberDescriptor,
+                boolean runtimeVisible) {
+            this.source = source;
+            this.annotationDescriptor = annotationDescriptor;
+            this.className = className;
+            this.targetType = targetType;
+            this.memberName = memberName;
+            this.memberDescriptor = memberDescriptor;
+            this.runtimeVisible = runtimeVisible;
+        }
+
+        /**
+         * @return The classpath entry (jar or directory) the annotated class was found in.
+         */
+        public @NotNull URL source() {
+            return source;
+        }
+
+        /**
+         * @return The descriptor of the annotation type, for example {@code Lcpw/mods/fml/common/Mod;}.
+         */
+        public @NotNull String annotationDescriptor() {
+            return annotationDescriptor;
+        }
+
+        /**
+         * @return The name of the annotated class, or the class declaring the annotated member (in the dot-separated format).
+         */
+        public @NotNull String className() {
+            return className;
+        }
+
+        /**
+         * @return The kind of the annotated element.
+         */
+        public @NotNull TargetType targetType() {
+            return targetType;
+        }
+
+        /**
+         * @return The name of the annotated field or method, null for class annotations.
+         */
+        public @Nullable String memberName() {
+            return memberName;
+        }
+
+        /**
+         * @return The descriptor of the annotated field or method, null for class annotations.
+         */
+        public @Nullable String memberDescriptor() {
+            return memberDescriptor;
+        }
+
+        /**
+         * @return If the annotation has runtime retention, otherwise it has class retention.
+         */
+        public boolean runtimeVisible() {
+            return runtimeVisible;
+        }
+
+        @Override
+        public String toString() {
+            return annotationDescriptor + " on " + targetType + " " + className
+                    + (memberName == null ? "" : "." + memberName + memberDescriptor);
+        }
+    }
+
+    private final @NotNull List<@NotNull Entry> entries;
+    private final @NotNull Map<String, List<Entry>> entriesByAnnotation;
+
+    public AnnotationIndex(@NotNull List<@NotNull Entry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        final HashMap<String, List<Entry>> byAnnotation = new HashMap<>();
+        for (final Entry entry : this.entries) {
+            byAnnotation.computeIfAbsent(entry.annotationDescriptor, k -> new ArrayList<>()).add(entry);
+        }
+        for (final Map.Entry<String, List<Entry>> group : byAnnotation.entrySet()) {
+            group.setValue(Collections.unmodifiableList(group.getValue()));
+        }
+        this.entriesByAnnotation = byAnnotation;
+    }
+
+    /**
+     * @return All the indexed annotation usages, in classpath entry order. The list is unmodifiable.
+     */
+    public @NotNull List<@NotNull Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * @return The descriptors of all annotation types used at least once. The set is unmodifiable.
+     */
+    public @NotNull Set<@NotNull String> annotationDescriptors() {
+        return Collections.unmodifiableSet(entriesByAnnotation.keySet());
+    }
+
+    /**
+     * @param annotationDescriptor The descriptor of the annotation type, for example {@code Lcpw/mods/fml/common/Mod;}.
+     * @return All the usages of the given annotation on classes and members. The list is unmodifiable.
+     */
+    public @NotNull List<@NotNull Entry> find(@NotNull String annotationDescriptor) {
+        final List<Entry> found = entriesByAnnotation.get(annotationDescriptor);
+        return found == null ? Collections.emptyList() : found;
+    }
+
+    /**
+     * @param annotationDescriptor The descriptor of the annotation type, for example {@code Lcpw/mods/fml/common/Mod;}.
+     * @return The names of the classes (in the dot-separated format) that use the given annotation on the class itself or any of its members.
+     */
+    public @NotNull Set<@NotNull String> findClasses(@NotNull String annotationDescriptor) {
+        final LinkedHashSet<String> classes = new LinkedHashSet<>();
+        for (final Entry entry : find(annotationDescriptor)) {
+            classes.add(entry.className);
+        }
+        return Collections.unmodifiableSet(classes);
+    }
+}
@@ -157,6 +157,23 @@ public final class ClassHeaderMetadata implements FastClassAccessor {
      * @return The decoded String.
      */
     public static @NotNull String modifiedUtf8(byte @NotNull [] arr, int off) {
+        final int length = u16(arr, off);
+        final int start = off + 2;
+        if (start + length <= arr.length) {
+            // Fast path for pure ASCII strings, which almost all class and member names are
+            final char[] chars = new char[length];
+            int i = 0;
+            for (; i < length; i++) {
+                final byte b = arr[start + i];
+                if (b <= 0) {
+                    break;
+                }
+                chars[i] = (char) b;
+            }
+            if (i == length) {
+                return new String(chars);
+            }
+        }
         try (ByteArrayInputStream bais = new ByteArrayInputStream(arr, off, arr.length - off);
                 DataInputStream dis = new DataInputStream(bais)) {
             return dis.readUTF();
@@ -165,6 +182,68 @@ public final class ClassHeaderMetadata implements FastClassAccessor {
         }
     }
 
+    /**
+     * Encodes a String into the "modified UTF8" format used by class files, without the length prefix,
+     * for use with the allocation-free comparison methods like {@link #modifiedUtf8Equals(byte[], int, byte[])}.
+     * @param str The string to encode
+     * @return The encoded bytes
+     */
+    public static byte @NotNull [] toModifiedUtf8(@NotNull String str) {
+        final int strLen = str.length();
+        int byteLen = 0;
+        for (int i = 0; i < strLen; i++) {
+            final char c = str.charAt(i);
+            byteLen += (c >= 0x0001 && c <= 0x007F) ? 1 : (c <= 0x07FF ? 2 : 3);
+        }
+        final byte[] out = new byte[byteLen];
+        int pos = 0;
+        for (int i = 0; i < strLen; i++) {
+            final char c = str.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                out[pos++] = (byte) c;
+            } else if (c <= 0x07FF) {
+                out[pos++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                out[pos++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Compares a "modified UTF8" string in a class file against a pre-encoded pattern, without decoding it.
+     * @param arr The byte array to read from.
+     * @param off Offset to the 16-bit length field.
+     * @param pattern The pattern encoded with {@link #toModifiedUtf8(String)}
+     * @return If the string is equal to the pattern.
+     */
+    public static boolean modifiedUtf8Equals(byte @NotNull [] arr, int off, byte @NotNull [] pattern) {
+        return u16(arr, off) == pattern.length && regionMatches(arr, off + 2, pattern);
+    }
+
+    /**
+     * Checks if a "modified UTF8" string in a class file starts with a pre-encoded prefix, without decoding it.
+     * @param arr The byte array to read from.
+     * @param off Offset to the 16-bit length field.
+     * @param prefix The prefix encoded with {@link #toModifiedUtf8(String)}
+     * @return If the string starts with the prefix.
+     */
+    public static boolean modifiedUtf8StartsWith(byte @NotNull [] arr, int off, byte @NotNull [] prefix) {
+        return u16(arr, off) >= prefix.length && regionMatches(arr, off + 2, prefix);
+    }
+
+    private static boolean regionMatches(byte @NotNull [] arr, int start, byte @NotNull [] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (arr[start + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Header offsets from <a href="https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-2.html#jvms-2.1">JVMS for Java 21</a>
      * ClassFile {
@@ -337,6 +416,95 @@ public final class ClassHeaderMetadata implements FastClassAccessor {
         return hasInvokeDynamicEntry;
     }
 
+    /**
+     * @param index A one-indexed constant pool index, like the ones used in class files
+     * @return The offset of the 16-bit length field of the UTF-8 entry at the given index
+     * @throws IllegalArgumentException if the entry is not a UTF-8 entry
+     */
+    public int constantPoolUtf8Offset(int index) {
+        if (index < 1
+                || index >= constantPoolEntryCount
+                || constantPoolEntryTypes[index - 1] != ConstantPoolEntryTypes.Utf8) {
+            throw new IllegalArgumentException("Constant pool index " + index + " is not a UTF8 entry");
+        }
+        return constantPoolEntryOffsets[index - 1] + 1;
+    }
+
+    /**
+     * Compares a constant pool UTF-8 entry against a pattern without decoding it.
+     * @param index A one-indexed constant pool index of a UTF-8 entry
+     * @param pattern The pattern encoded with {@link #toModifiedUtf8(String)}
+     */
+    public boolean constantPoolUtf8Equals(
+            final byte @NotNull [] classBytes, int index, final byte @NotNull [] pattern) {
+        return modifiedUtf8Equals(classBytes, constantPoolUtf8Offset(index), pattern);
+    }
+
+    /**
+     * Finds a UTF-8 constant pool entry equal to the given pattern.
+     * @param pattern The pattern encoded with {@link #toModifiedUtf8(String)}
+     * @return The one-indexed constant pool index of the entry, or 0 if not present.
+     */
+    public int findUtf8Index(final byte @NotNull [] classBytes, final byte @NotNull [] pattern) {
+        for (int entry = 0; entry < constantPoolEntryCount - 1; entry++) {
+            if (constantPoolEntryTypes[entry] == ConstantPoolEntryTypes.Utf8
+                    && modifiedUtf8Equals(classBytes, constantPoolEntryOffsets[entry] + 1, pattern)) {
+                return entry + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds a Class constant pool entry referring to the given binary class name, i.e. checks if this class references another class.
+     * @param binaryName The binary (slash-separated) class name encoded with {@link #toModifiedUtf8(String)}
+     * @return The one-indexed constant pool index of the Class entry, or 0 if not present.
+     */
+    public int findClassIndex(final byte @NotNull [] classBytes, final byte @NotNull [] binaryName) {
+        final int nameIndex = findUtf8Index(classBytes, binaryName);
+        if (nameIndex == 0) {
+            return 0;
+        }
+        for (int entry = 0; entry < constantPoolEntryCount - 1; entry++) {
+            if (constantPoolEntryTypes[entry] == ConstantPoolEntryTypes.Class
+                    && u16(classBytes, constantPoolEntryOffsets[entry] + 1) == nameIndex) {
+                return entry + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param binaryName The binary (slash-separated) class name encoded with {@link #toModifiedUtf8(String)}
+     * @return If the name of this class equals the given name, without decoding it.
+     */
+    public boolean thisNameEquals(final byte @NotNull [] classBytes, final byte @NotNull [] binaryName) {
+        return modifiedUtf8Equals(classBytes, classNameOffset(classBytes, thisClassIndex), binaryName);
+    }
+
+    /**
+     * @param prefix The binary (slash-separated) name prefix encoded with {@link #toModifiedUtf8(String)}
+     * @return If the name of this class starts with the given prefix, without decoding it.
+     */
+    public boolean thisNameStartsWith(final byte @NotNull [] classBytes, final byte @NotNull [] prefix) {
+        return modifiedUtf8StartsWith(classBytes, classNameOffset(classBytes, thisClassIndex), prefix);
+    }
+
+    /**
+     * @param binaryName The binary (slash-separated) class name encoded with {@link #toModifiedUtf8(String)}
+     * @return If the name of the super class equals the given name, without decoding it.
+     */
+    public boolean superNameEquals(final byte @NotNull [] classBytes, final byte @NotNull [] binaryName) {
+        return superClassIndex != 0
+                && modifiedUtf8Equals(classBytes, classNameOffset(classBytes, superClassIndex), binaryName);
+    }
+
+    /** @return The offset of the UTF-8 name length of an already validated Class entry */
+    private int classNameOffset(final byte @NotNull [] classBytes, int classIndex) {
+        final int nameIndex = u16(classBytes, constantPoolEntryOffsets[classIndex - 1] + 1);
+        return constantPoolEntryOffsets[nameIndex - 1] + 1;
+    }
+
     /** @deprecated This method is very slow, use {@link #matchesBytes} instead */
     @Deprecated
     public static boolean hasSubstring(final byte @Nullable [] classBytes, final byte @NotNull [] substring) {
@@ -0,0 +1,279 @@
+package com.gtnewhorizons.retrofuturabootstrap.api;
+
+import static com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata.modifiedUtf8;
+import static com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata.modifiedUtf8Equals;
+import static com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata.modifiedUtf8StartsWith;
+import static com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata.u16;
+import static com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata.u8;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata.ConstantPoolEntryTypes;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata.Offsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * The minimal class header needed for inheritance lookups: access flags, this, super and interface names.
+ * <p>
+ * Unlike {@link ClassHeaderMetadata}, this doesn't keep any per-entry constant pool tables.
+ * The constant pool is walked once into a reused per-thread offset buffer, only the entries of the class names are resolved,
+ * and the names are decoded on first access.
+ * The class bytes are not copied, so the array must not be modified afterwards.
+ */
+public final class ClassHierarchyHeader implements FastClassAccessor {
+    private static final byte[] ENUM_NAME = ClassHeaderMetadata.toModifiedUtf8("java/lang/Enum");
+
+    /** The class bytes this header was scanned from, not copied. */
+    public final byte @NotNull [] classBytes;
+
+    public final int majorVersion;
+    public final int constantPoolEndOffset;
+    public final int accessFlags;
+    public final int interfacesCount;
+
+    /** Offset of the UTF-8 name length of this class */
+    private final int thisNameOffset;
+    /** Offset of the UTF-8 name length of the super class, or -1 for no super class */
+    private final int superNameOffset;
+    /** Offsets of the UTF-8 name lengths of the interfaces, null if there are none */
+    private final int @Nullable [] interfaceNameOffsets;
+
+    // Lazily decoded, racy initialization is fine as they're immutable and always decode to the same value.
+    private @Nullable String binaryThisName;
+    private @Nullable String binarySuperName;
+    private @Nullable List<@NotNull String> binaryInterfaceNames;
+
+    /**
+     * Attempts to scan a class header.
+     * @param bytes The class bytes to scan, the array is shared and must not be modified afterwards.
+     */
+    public ClassHierarchyHeader(byte @NotNull [] bytes) {
+        if (!ClassHeaderMetadata.isValidClass(bytes)) {
+            throw new IllegalArgumentException("Invalid class detected");
+        }
+        this.classBytes = bytes;
+        this.majorVersion = u16(bytes, Offsets.majorVersionU16);
+        final int constantPoolEntryCount = u16(bytes, Offsets.constantPoolCountU16);
+        int[] offsets = scratchOffsets.get();
+        if (offsets.length < constantPoolEntryCount + 1) {
+            offsets = new int[constantPoolEntryCount + 1];
+            scratchOffsets.set(offsets);
+        }
+        this.constantPoolEndOffset = scanConstantPool(bytes, constantPoolEntryCount, offsets);
+        this.accessFlags = u16(bytes, constantPoolEndOffset + Offsets.pastCpAccessFlagsU16);
+        final int thisClassIndex = u16(bytes, constantPoolEndOffset + Offsets.pastCpThisClassU16);
+        final int superClassIndex = u16(bytes, constantPoolEndOffset + Offsets.pastCpSuperClassU16);
+        this.interfacesCount = u16(bytes, constantPoolEndOffset + Offsets.pastCpInterfacesCountU16);
+        if (constantPoolEndOffset + Offsets.pastCpInterfacesList + interfacesCount * 2 > bytes.length) {
+            throw new IllegalArgumentException("Truncated class header");
+        }
+
+        this.thisNameOffset = resolveClassName(bytes, constantPoolEntryCount, offsets, thisClassIndex, 0);
+        // Should only be 0 for this==java/lang/Object
+        this.superNameOffset = superClassIndex == 0
+                ? -1
+                : resolveClassName(bytes, constantPoolEntryCount, offsets, superClassIndex, 1);
+        if (interfacesCount == 0) {
+            this.interfaceNameOffsets = null;
+        } else {
+            final int[] interfaceOffsets = new int[interfacesCount];
+            for (int i = 0; i < interfacesCount; i++) {
+                final int interfaceIndex = u16(bytes, constantPoolEndOffset + Offsets.pastCpInterfacesList + i * 2);
+                interfaceOffsets[i] =
+                        resolveClassName(bytes, constantPoolEntryCount, offsets, interfaceIndex, 2 + i);
+            }
+            this.interfaceNameOffsets = interfaceOffsets;
+        }
+    }
+
+    /**
+     * Safe factory function wrapping the constructor, returns null when the passed in bytes are not a valid class,
+     * including truncated headers and unknown constant pool entries.
+     */
+    public static @Nullable ClassHierarchyHeader of(byte @Nullable [] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return new ClassHierarchyHeader(bytes);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Reusable per-thread buffer of constant pool entry offsets, so that scanning doesn't allocate a table per class */
+    private static final ThreadLocal<int[]> scratchOffsets = ThreadLocal.withInitial(() -> new int[4096]);
+
+    /**
+     * Walks the constant pool, recording the offsets of the entries into the scratch buffer.
+     * @return The offset of the first byte past the constant pool (the access flags).
+     */
+    private static int scanConstantPool(byte @NotNull [] bytes, int constantPoolEntryCount, int @NotNull [] offsets) {
+        int off = Offsets.constantPoolStart;
+        for (int entry = 1; entry < constantPoolEntryCount; entry++) {
+            // The shortest entries are 3 bytes long, and all lengths are read from within those
+            if (off + 3 > bytes.length) {
+                throw new IllegalArgumentException("Truncated constant pool");
+            }
+            offsets[entry] = off;
+            final ConstantPoolEntryTypes type;
+            try {
+                type = ConstantPoolEntryTypes.parse(bytes, off);
+            } catch (UnsupportedOperationException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            if (type == ConstantPoolEntryTypes.Double || type == ConstantPoolEntryTypes.Long) {
+                // Longs and Doubles take up 2 constant pool indices
+                entry++;
+                offsets[entry] = off;
+            }
+            off += type.byteLength(bytes, off);
+        }
+        if (off + Offsets.pastCpInterfacesList > bytes.length) {
+            throw new IllegalArgumentException("Truncated class header");
+        }
+        return off;
+    }
+
+    /**
+     * Finds the UTF-8 name of the given Class constant pool entry.
+     * @param slot Used for the exception messages, see {@link #slotName(int)}
+     * @return The offset of the length of the UTF-8 name entry.
+     */
+    private static int resolveClassName(
+            byte @NotNull [] bytes, int constantPoolEntryCount, int @NotNull [] offsets, int classIndex, int slot) {
+        if (classIndex < 1
+                || classIndex >= constantPoolEntryCount
+                || u8(bytes, offsets[classIndex]) != ConstantPoolEntryTypes.Class.tag) {
+            throw new IllegalArgumentException(slotName(slot) + " index is not a class ref");
+        }
+        final int nameIndex = u16(bytes, offsets[classIndex] + 1);
+        if (nameIndex < 1
+                || nameIndex >= constantPoolEntryCount
+                || u8(bytes, offsets[nameIndex]) != ConstantPoolEntryTypes.Utf8.tag) {
+            throw new IllegalArgumentException(slotName(slot) + " index does not point to a UTF8 entry");
+        }
+        return offsets[nameIndex] + 1;
+    }
+
+    private static String slotName(int slot) {
+        switch (slot) {
+            case 0:
+                return "This class";
+            case 1:
+                return "Super class";
+            default:
+                return "Interface " + (slot - 2);
+        }
+    }
+
+    /**
+     * @param binaryName The binary (slash-separated) class name encoded with {@link ClassHeaderMetadata#toModifiedUtf8(String)}
+     * @return If the name of this class equals the given name, without decoding it.
+     */
+    public boolean thisNameEquals(final byte @NotNull [] binaryName) {
+        return modifiedUtf8Equals(classBytes, thisNameOffset, binaryName);
+    }
+
+    /**
+     * @param prefix The binary (slash-separated) name prefix encoded with {@link ClassHeaderMetadata#toModifiedUtf8(String)}
+     * @return If the name of this class starts with the given prefix, without decoding it.
+     */
+    public boolean thisNameStartsWith(final byte @NotNull [] prefix) {
+        return modifiedUtf8StartsWith(classBytes, thisNameOffset, prefix);
+    }
+
+    /**
+     * @param binaryName The binary (slash-separated) class name encoded with {@link ClassHeaderMetadata#toModifiedUtf8(String)}
+     * @return If the name of the super class equals the given name, without decoding it.
+     */
+    public boolean superNameEquals(final byte @NotNull [] binaryName) {
+        return superNameOffset >= 0 && modifiedUtf8Equals(classBytes, superNameOffset, binaryName);
+    }
+
+    @Override
+    public boolean isPublic() {
+        return (accessFlags & Opcodes.ACC_PUBLIC) != 0;
+    }
+
+    @Override
+    public boolean isFinal() {
+        return (accessFlags & Opcodes.ACC_FINAL) != 0;
+    }
+
+    @Override
+    public boolean isInterface() {
+        return (accessFlags & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    @Override
+    public boolean isAbstract() {
+        return (accessFlags & Opcodes.ACC_ABSTRACT) != 0;
+    }
+
+    @Override
+    public boolean isSynthetic() {
+        return (accessFlags & Opcodes.ACC_SYNTHETIC) != 0;
+    }
+
+    @Override
+    public boolean isAnnotation() {
+        return (accessFlags & Opcodes.ACC_ANNOTATION) != 0;
+    }
+
+    @Override
+    public boolean isEnum() {
+        return superNameEquals(ENUM_NAME);
+    }
+
+    @Override
+    public boolean isModule() {
+        return (accessFlags & Opcodes.ACC_MODULE) != 0;
+    }
+
+    @Override
+    public @NotNull String binaryThisName() {
+        String name = binaryThisName;
+        if (name == null) {
+            name = modifiedUtf8(classBytes, thisNameOffset);
+            binaryThisName = name;
+        }
+        return name;
+    }
+
+    @Override
+    public @Nullable String binarySuperName() {
+        if (superNameOffset < 0) {
+            // Should only be true for this==java/lang/Object
+            return null;
+        }
+        String name = binarySuperName;
+        if (name == null) {
+            name = modifiedUtf8(classBytes, superNameOffset);
+            binarySuperName = name;
+        }
+        return name;
+    }
+
+    @Override
+    public @NotNull List<@NotNull String> binaryInterfaceNames() {
+        List<String> names = binaryInterfaceNames;
+        if (names == null) {
+            final int[] offsets = interfaceNameOffsets;
+            if (offsets == null) {
+                names = Collections.emptyList();
+            } else {
+                final ArrayList<String> decoded = new ArrayList<>(offsets.length);
+                for (final int offset : offsets) {
+                    decoded.add(modifiedUtf8(classBytes, offset));
+                }
+                names = Collections.unmodifiableList(decoded);
+            }
+            binaryInterfaceNames = names;
+        }
+        return names;
+    }
+}
@@ -0,0 +1,139 @@
+package com.gtnewhorizons.retrofuturabootstrap.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+/**
+ * An index of the method, type and invokedynamic instructions of a {@link ClassNode}, built with a single pass over all methods.
+ * Obtained from {@link ClassNodeHandle#getInsnIndex()}, so that multiple transformers matching the same class don't each have to walk every instruction.
+ * <p>
+ * The index is a snapshot of the instructions when it was built. The owning handle discards it when a transformer reports changes
+ * ({@link ClassNodeHandle#markDirty()}), and rebuilds it when the node, method list or instruction list sizes change.
+ * Other edits, like changing the owner of a {@link MethodInsnNode} or replacing instructions with {@link InsnList#set}, are not detected
+ * until then: instructions edited to no longer match are filtered out of query results, but instructions edited to match are missing.
+ */
+public final class ClassInsnIndex {
+    private final @NotNull ClassNode node;
+    private final @NotNull List<MethodNode> methods;
+    private final int methodCount;
+    private final InsnList @NotNull [] insnLists;
+    private final int @NotNull [] insnListSizes;
+
+    private final @NotNull Map<String, List<MethodInsnNode>> methodInsnsByOwner = new HashMap<>();
+    private final @NotNull Map<String, List<TypeInsnNode>> typeInsnsByDesc = new HashMap<>();
+    private final @NotNull List<InvokeDynamicInsnNode> invokeDynamicInsns = new ArrayList<>();
+
+    /** Scans all the instructions of the given node. */
+    public ClassInsnIndex(@NotNull ClassNode node) {
+        this.node = node;
+        this.methods = node.methods;
+        this.methodCount = methods.size();
+        this.insnLists = new InsnList[methodCount];
+        this.insnListSizes = new int[methodCount];
+        for (int m = 0; m < methodCount; m++) {
+            final MethodNode method = methods.get(m);
+            final InsnList insns = method.instructions;
+            insnLists[m] = insns;
+            if (insns == null) {
+                continue;
+            }
+            insnListSizes[m] = insns.size();
+            for (AbstractInsnNode insn : insns) {
+                switch (insn.getType()) {
+                    case AbstractInsnNode.METHOD_INSN: {
+                        final MethodInsnNode mi = (MethodInsnNode) insn;
+                        methodInsnsByOwner
+                                .computeIfAbsent(mi.owner, k -> new ArrayList<>(4))
+                                .add(mi);
+                        break;
+                    }
+                    case AbstractInsnNode.TYPE_INSN: {
+                        final TypeInsnNode ti = (TypeInsnNode) insn;
+                        typeInsnsByDesc
+                                .computeIfAbsent(ti.desc, k -> new ArrayList<>(4))
+                                .add(ti);
+                        break;
+                    }
+                    case AbstractInsnNode.INVOKE_DYNAMIC_INSN:
+                        invokeDynamicInsns.add((InvokeDynamicInsnNode) insn);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param owner Binary (slash-separated) name of the instruction owner, like {@code java/lang/Class}.
+     * @return All method instructions currently referencing the given owner, in method and instruction order. Safe to modify the instructions while iterating.
+     */
+    public @NotNull List<@NotNull MethodInsnNode> methodInsnsByOwner(@NotNull String owner) {
+        final List<MethodInsnNode> found = methodInsnsByOwner.get(owner);
+        if (found == null) {
+            return Collections.emptyList();
+        }
+        final List<MethodInsnNode> result = new ArrayList<>(found.size());
+        for (final MethodInsnNode insn : found) {
+            if (owner.equals(insn.owner)) {
+                result.add(insn);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param desc Binary (slash-separated) name or array descriptor used by the instruction, like {@code org/objectweb/asm/ClassWriter}.
+     * @return All type instructions (NEW, ANEWARRAY, CHECKCAST, INSTANCEOF) currently referencing the given type, in method and instruction order. Safe to modify the instructions while iterating.
+     */
+    public @NotNull List<@NotNull TypeInsnNode> typeInsnsByDesc(@NotNull String desc) {
+        final List<TypeInsnNode> found = typeInsnsByDesc.get(desc);
+        if (found == null) {
+            return Collections.emptyList();
+        }
+        final List<TypeInsnNode> result = new ArrayList<>(found.size());
+        for (final TypeInsnNode insn : found) {
+            if (desc.equals(insn.desc)) {
+                result.add(insn);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return All invokedynamic call sites of the class, in method and instruction order. The list is unmodifiable.
+     */
+    public @NotNull List<@NotNull InvokeDynamicInsnNode> invokeDynamicInsns() {
+        return Collections.unmodifiableList(invokeDynamicInsns);
+    }
+
+    /**
+     * Cheaply checks if the node was replaced, or instructions or methods were added or removed since this index was built.
+     * In-place edits of instructions are not detected, see {@link ClassNodeHandle#invalidateInsnIndex()}.
+     * @param current The node currently held by the handle.
+     * @return true if the index has to be rebuilt.
+     */
+    boolean isStale(@NotNull ClassNode current) {
+        if (current != node || current.methods != methods || methods.size() != methodCount) {
+            return true;
+        }
+        for (int m = 0; m < methodCount; m++) {
+            final InsnList insns = methods.get(m).instructions;
+            if (insns != insnLists[m] || (insns != null && insns.size() != insnListSizes[m])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
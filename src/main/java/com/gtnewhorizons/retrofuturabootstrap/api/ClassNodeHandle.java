@@ -1,5 +1,7 @@
 package com.gtnewhorizons.retrofuturabootstrap.api;
 
+import com.gtnewhorizons.retrofuturabootstrap.RfbJfrEvents;
+import com.gtnewhorizons.retrofuturabootstrap.RfbMetricsRecorder;
 import com.gtnewhorizons.retrofuturabootstrap.asm.SafeAsmClassWriter;
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.Nullable;
@@ -16,6 +18,7 @@ public final class ClassNodeHandle {
     private boolean dirty = false;
     private @Nullable ClassNode node = null;
     private @Nullable FastClassAccessor accessor = null;
+    private @Nullable ClassInsnIndex insnIndex = null;
     private int writerFlags = 0;
 
     /** Parse the class data with no reader options (for fastest speed). */
@@ -72,11 +75,12 @@ public final class ClassNodeHandle {
     }
 
     /**
-     * Marks the class as modified to compute class bytes later.
+     * Marks the class as modified to compute class bytes later, and discards the instruction index.
      * FRB calls it automatically when you return true in transformClassIfNeeded.
      */
     public void markDirty() {
         dirty = true;
+        insnIndex = null;
     }
 
     /** Gets the parsed node of the currently processed class. This can cause full class parsing! */
@@ -85,10 +89,33 @@ public final class ClassNodeHandle {
         return node;
     }
 
+    /**
+     * Gets a lazily built index of the instructions of the currently processed class, shared between all transformers.
+     * This can cause full class parsing! The index is rebuilt after a transformer reports changes to the class, or if the
+     * node is replaced or instructions are added/removed. A transformer querying the index again after its own edits
+     * should call {@link #invalidateInsnIndex()} first.
+     */
+    public @Nullable ClassInsnIndex getInsnIndex() {
+        final ClassNode node = getNode();
+        if (node == null) {
+            return null;
+        }
+        if (insnIndex == null || insnIndex.isStale(node)) {
+            insnIndex = new ClassInsnIndex(node);
+        }
+        return insnIndex;
+    }
+
+    /** Discards the instruction index, use after editing instructions before querying the index again. */
+    public void invalidateInsnIndex() {
+        insnIndex = null;
+    }
+
     /** Overwrites the parsed node of the currently processed class. */
     public void setNode(@Nullable ClassNode node) {
         initialized = true;
         this.node = node;
+        this.insnIndex = null;
         if (node == null) {
             this.accessor = null;
         } else {
@@ -107,9 +134,13 @@ public final class ClassNodeHandle {
         if (node == null) {
             return null;
         }
+        final Object jfrEvent = RfbJfrEvents.beginClassNodeWrite();
         final SafeAsmClassWriter writer = new SafeAsmClassWriter(writerFlags);
         node.accept(writer);
-        return writer.toByteArray();
+        RfbMetricsRecorder.recordClassNodeWrite();
+        final byte[] bytes = writer.toByteArray();
+        RfbJfrEvents.endClassNodeWrite(jfrEvent, node.name, bytes.length, writerFlags);
+        return bytes;
     }
 
     /** Gets the ClassWriter flags for the current class. */
@@ -143,8 +174,11 @@ public final class ClassNodeHandle {
                 node = null;
                 accessor = null;
             } else {
+                final Object jfrEvent = RfbJfrEvents.beginClassNodeParse();
                 node = new ClassNode();
                 new ClassReader(originalBytes).accept(node, readerOptions);
+                RfbMetricsRecorder.recordClassNodeParse();
+                RfbJfrEvents.endClassNodeParse(jfrEvent, node.name, originalBytes.length);
                 accessor = FastClassAccessor.ofAsmNode(node);
             }
             initialized = true;
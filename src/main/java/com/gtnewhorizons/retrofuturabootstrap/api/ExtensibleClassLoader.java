@@ -1,5 +1,7 @@
 package com.gtnewhorizons.retrofuturabootstrap.api;
 
+import com.gtnewhorizons.retrofuturabootstrap.BulkClassReader;
+import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import org.jetbrains.annotations.NotNull;
@@ -11,6 +13,18 @@ import org.jetbrains.annotations.Nullable;
 @SuppressWarnings("unused") // this class provides an API
 public interface ExtensibleClassLoader {
 
+    /** Receives the classes read by {@link #forEachClassIn}. */
+    @FunctionalInterface
+    interface ClassEntryVisitor {
+        /**
+         * Called concurrently from multiple threads, in no particular order.
+         * @param className The name of the class (in the dot-separated format), derived from its path in the classpath entry.
+         * @param classBytes The untransformed class bytes, possibly shared with the class loader's cache, must not be modified.
+         * @param metadata The parsed header of the class.
+         */
+        void visit(@NotNull String className, byte @NotNull [] classBytes, @NotNull ClassHeaderMetadata metadata);
+    }
+
     /**
      * @return this as a {@link URLClassLoader}, all implementations of this interface are classes extending URLClassLoader.
      */
@@ -74,4 +88,19 @@ public interface ExtensibleClassLoader {
      */
     @Nullable
     FastClassAccessor findClassMetadata(final @NotNull String name);
+
+    /**
+     * Reads every class file of a classpath entry using multiple threads for reading and inflating, and passes it to the visitor.
+     * This is much faster than calling getClassBytes for every class when scanning whole jars, for example for annotations.
+     * Blocks until all the classes were visited, files that aren't valid classes and multi-release versioned classes are skipped.
+     * @param classpathEntry A file: URL of a jar/zip file or a class directory, usually one of this loader's URLs.
+     * @param populateCache Whether to also store the read bytes in this loader's class bytes cache, only done for classes
+     *                      this loader would read from this classpath entry.
+     * @param visitor The visitor to call for every class, concurrently.
+     * @throws IOException If the classpath entry could not be read, or rethrown from the visitor.
+     */
+    default void forEachClassIn(@NotNull URL classpathEntry, boolean populateCache, @NotNull ClassEntryVisitor visitor)
+            throws IOException {
+        BulkClassReader.forEachClassIn(classpathEntry, visitor, null);
+    }
 }
@@ -1,7 +1,9 @@
 package com.gtnewhorizons.retrofuturabootstrap.api;
 
 import com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader;
+import java.net.URL;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -81,4 +83,35 @@ public interface RfbApi {
      * @return The ID of the process running the current Java runtime.
      */
     long currentPid();
+
+    /**
+     * @return A snapshot of the transformer and class loading metrics, enabled with {@code -Drfb.metrics=basic} or {@code full}.
+     */
+    @NotNull
+    RfbMetrics metrics();
+
+    /**
+     * Stops the startup tracer enabled with {@code -Drfb.startupTrace} and writes the trace file, no-op if not enabled or already finished.
+     * Call this once the game has finished loading, otherwise the trace is only written at JVM shutdown.
+     */
+    void finishStartupTrace();
+
+    /**
+     * Signals that the game has finished loading: writes the startup trace like {@link #finishStartupTrace()}, and starts
+     * writing the packed class store enabled with {@code -Drfb.classStore} in the background. The cached
+     * {@link #annotationIndex annotation indexes} of jars that were not indexed during this launch are deleted.
+     * Without this call, the trace is only written at JVM shutdown, and the class store is not written at all.
+     */
+    void startupFinished();
+
+    /**
+     * Builds an index of the annotations on the classes, fields and methods of the given jars and class directories, for example for mod discovery.
+     * The index of every jar is cached in {@code rfb-cache/annotation-index} in the game directory keyed by the jar contents,
+     * only new or changed jars are read (in parallel), unless disabled with {@code -Drfb.annotationIndexCache=false}.
+     * Entries that can't be read are skipped with a warning.
+     * @param classpathEntries file: URLs of jars or class directories, the index keeps their order.
+     * @return The combined index.
+     */
+    @NotNull
+    AnnotationIndex annotationIndex(@NotNull Collection<@NotNull URL> classpathEntries);
 }
@@ -54,6 +54,38 @@ public interface RfbClassTransformer {
      */
     default void onRegistration(@NotNull ExtensibleClassLoader classLoader) {}
 
+    /**
+     * An optional jar-level pre-filter, used when jars are scanned in the background to skip transformers that can't apply to any of their classes.
+     * Returning false is a promise that {@link #shouldTransformClass} returns false for every class loaded with a non-null manifest from a jar with this manifest.
+     * @param manifest Manifest of the scanned JAR, or null if not present.
+     * @return false if no class from this jar will be transformed, true if unsure.
+     */
+    default boolean mayTransformJar(@Nullable Manifest manifest) {
+        return true;
+    }
+
+    /**
+     * An optional class-level pre-filter, used when jars are scanned in the background to skip transformers that can't apply to any of their classes.
+     * Returning false is a promise that {@link #shouldTransformClass} returns false for these class bytes, regardless of the context, class loader or manifest.
+     * @param metadata The parsed header of the class.
+     * @param classBytes The untransformed class bytes, must not be modified.
+     * @return false if this class will not be transformed, true if unsure.
+     */
+    default boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
+        return true;
+    }
+
+    /**
+     * Whether this transformer can be applied ahead of time by the offline RFB pre-transformer, and skipped at runtime for pre-transformed jars.
+     * The output must only depend on the class bytes, name, manifest and the other classes on the game classpath, not on the context or any runtime configuration,
+     * and applying the transformer again to its own output must not change it.
+     * Only transformers at the start of the transformer chain, before the first one not supporting this, are pre-applied.
+     * @return true if this transformer can be applied ahead of time.
+     */
+    default boolean supportsPretransformation() {
+        return false;
+    }
+
     /**
      * A fast scanning function that is used to determine if class transformations should be skipped altogether (if all transformers return false).
      * @param classLoader The class loader asking for the transformation.
@@ -5,12 +5,16 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.jetbrains.annotations.NotNull;
 
 /**
  * A handle to a {@link RfbClassTransformer} with metadata about class exclusions and the associated plugin.
  */
 public final class RfbClassTransformerHandle {
+    private static final AtomicInteger nextIndex = new AtomicInteger();
+
+    private final int index = nextIndex.getAndIncrement();
     private final @NotNull String id;
     private final @NotNull String[] additionalIds;
     private final @NotNull RfbPluginMetadata pluginMetadata;
@@ -71,6 +75,13 @@ public final class RfbClassTransformerHandle {
         return id;
     }
 
+    /**
+     * @return A small number unique to this handle within the JVM, used as the bit index in per-jar transformer bitmaps.
+     */
+    public int index() {
+        return index;
+    }
+
     /**
      * @return Additional altplugin:transformer identifiers, one for each alternative ID of the plugin.
      */
@@ -0,0 +1,158 @@
+package com.gtnewhorizons.retrofuturabootstrap.api;
+
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A point-in-time snapshot of the class loading and transformer metrics collected by RFB, see {@link RfbApi#metrics()}.
+ * Collection is controlled by the {@code rfb.metrics} system property, all counters stay at zero when it's disabled.
+ */
+public final class RfbMetrics {
+    private final boolean enabled;
+    private final boolean trackingAllocations;
+    private final @NotNull List<@NotNull TransformerStats> transformers;
+    private final long classNodeParses;
+    private final long classNodeWrites;
+    private final long classBytesCacheHits;
+    private final long classBytesCacheMisses;
+
+    public RfbMetrics(
+            boolean enabled,
+            boolean trackingAllocations,
+            @NotNull List<@NotNull TransformerStats> transformers,
+            long classNodeParses,
+            long classNodeWrites,
+            long classBytesCacheHits,
+            long classBytesCacheMisses) {
+        this.enabled = enabled;
+        this.trackingAllocations = trackingAllocations;
+        this.transformers = transformers;
+        this.classNodeParses = classNodeParses;
+        this.classNodeWrites = classNodeWrites;
+        this.classBytesCacheHits = classBytesCacheHits;
+        this.classBytesCacheMisses = classBytesCacheMisses;
+    }
+
+    /**
+     * @return If metrics are being collected at all.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @return If per-transformer thread allocation is measured, otherwise {@link TransformerStats#allocatedBytes()} is always -1.
+     */
+    public boolean trackingAllocations() {
+        return trackingAllocations;
+    }
+
+    /**
+     * @return Statistics of every transformer that ran so far, sorted by descending wall time. The list is unmodifiable.
+     */
+    public @NotNull List<@NotNull TransformerStats> transformers() {
+        return transformers;
+    }
+
+    /**
+     * @return How many times a {@link ClassNodeHandle} had to fully parse class bytes into a ClassNode.
+     */
+    public long classNodeParses() {
+        return classNodeParses;
+    }
+
+    /**
+     * @return How many times a {@link ClassNodeHandle} had to write a modified ClassNode back into bytes.
+     */
+    public long classNodeWrites() {
+        return classNodeWrites;
+    }
+
+    /**
+     * @return How many class byte lookups were served from the RFB class loaders' byte caches.
+     */
+    public long classBytesCacheHits() {
+        return classBytesCacheHits;
+    }
+
+    /**
+     * @return How many class byte lookups had to read from the classpath.
+     */
+    public long classBytesCacheMisses() {
+        return classBytesCacheMisses;
+    }
+
+    /** Statistics about a single class transformer. */
+    public static final class TransformerStats {
+        private final @NotNull String name;
+        private final boolean rfbTransformer;
+        private final long invocations;
+        private final long modifiedClasses;
+        private final long wallTimeNanos;
+        private final long allocatedBytes;
+
+        public TransformerStats(
+                @NotNull String name,
+                boolean rfbTransformer,
+                long invocations,
+                long modifiedClasses,
+                long wallTimeNanos,
+                long allocatedBytes) {
+            this.name = name;
+            this.rfbTransformer = rfbTransformer;
+            this.invocations = invocations;
+            this.modifiedClasses = modifiedClasses;
+            this.wallTimeNanos = wallTimeNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * @return The {@link RfbClassTransformerHandle#id()} of RFB transformers, or the class name of LaunchWrapper IClassTransformers.
+         */
+        public @NotNull String name() {
+            return name;
+        }
+
+        /**
+         * @return true for RFB transformers, false for LaunchWrapper IClassTransformers.
+         */
+        public boolean rfbTransformer() {
+            return rfbTransformer;
+        }
+
+        /**
+         * @return How many classes were passed to this transformer (not counting classes skipped by exclusions).
+         */
+        public long invocations() {
+            return invocations;
+        }
+
+        /**
+         * @return How many classes were actually changed by this transformer.
+         */
+        public long modifiedClasses() {
+            return modifiedClasses;
+        }
+
+        /**
+         * @return Cumulative wall time spent in this transformer across all threads, in nanoseconds.
+         */
+        public long wallTimeNanos() {
+            return wallTimeNanos;
+        }
+
+        /**
+         * @return Cumulative bytes allocated by the loading thread while running this transformer, or -1 if not tracked.
+         */
+        public long allocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: %d invocations, %d modified, %.3f ms, %d bytes allocated",
+                    name, invocations, modifiedClasses, wallTimeNanos / 1_000_000.0, allocatedBytes);
+        }
+    }
+}
@@ -34,6 +34,7 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
     private final @NotNull String @NotNull [] loadBefore;
     private final @NotNull String @NotNull [] loadAfter;
     private final @NotNull String @NotNull [] loadRequires;
+    private final @NotNull String @NotNull [] transformerTargets;
     private final boolean pinLast;
     private final @NotNull String className;
     private @Nullable RfbPlugin instance;
@@ -52,6 +53,38 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
             String[] loadAfter,
             String[] loadRequires,
             boolean pinLast) {
+        this(
+                classpathEntry,
+                source,
+                id,
+                name,
+                version,
+                additionalVersions,
+                className,
+                versionConstraints,
+                transformerExclusions,
+                loadBefore,
+                loadAfter,
+                loadRequires,
+                new String[0],
+                pinLast);
+    }
+
+    public RfbPluginMetadata(
+            @NotNull URL classpathEntry,
+            @NotNull URI source,
+            @NotNull String id,
+            @NotNull String name,
+            @NotNull ArtifactVersion version,
+            IdAndVersion[] additionalVersions,
+            @NotNull String className,
+            IdAndVersionRange[] versionConstraints,
+            String[] transformerExclusions,
+            String[] loadBefore,
+            String[] loadAfter,
+            String[] loadRequires,
+            String[] transformerTargets,
+            boolean pinLast) {
         this.classpathEntry = Objects.requireNonNull(classpathEntry);
         this.source = Objects.requireNonNull(source);
         Objects.requireNonNull(id);
@@ -65,6 +98,7 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
         this.loadBefore = loadBefore == null ? new String[0] : loadBefore;
         this.loadAfter = loadAfter == null ? new String[0] : loadAfter;
         this.loadRequires = loadRequires == null ? new String[0] : loadRequires;
+        this.transformerTargets = transformerTargets == null ? new String[0] : transformerTargets;
         this.pinLast = pinLast;
     }
 
@@ -175,6 +209,11 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
                     .map(String::trim)
                     .filter(s -> !s.isEmpty())
                     .toArray(String[]::new);
+            this.transformerTargets = Arrays.stream(
+                            props.getProperty("transformerTargets", "").split(";"))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .toArray(String[]::new);
             this.pinLast = pinLast.get();
         } catch (Throwable t) {
             throw new RuntimeException("Error when parsing plugin metadata for plugin " + id, t);
@@ -261,6 +300,14 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
         return loadRequires;
     }
 
+    /**
+     * Class name globs of all the classes the plugin's transformers can modify, empty if not declared.
+     * When present, the plugin is only constructed once the first matching class is loaded.
+     */
+    public @NotNull String @NotNull [] transformerTargets() {
+        return transformerTargets;
+    }
+
     /** if the original loadAfter property contained a "*" */
     public boolean pinLast() {
         return pinLast;
@@ -280,7 +327,8 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
                 && Arrays.equals(this.transformerExclusions, that.transformerExclusions)
                 && Arrays.equals(this.loadBefore, that.loadBefore)
                 && Arrays.equals(this.loadAfter, that.loadAfter)
-                && Arrays.equals(this.loadRequires, that.loadRequires);
+                && Arrays.equals(this.loadRequires, that.loadRequires)
+                && Arrays.equals(this.transformerTargets, that.transformerTargets);
     }
 
     @Override
@@ -294,7 +342,8 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
                 Arrays.hashCode(transformerExclusions),
                 Arrays.hashCode(loadBefore),
                 Arrays.hashCode(loadAfter),
-                Arrays.hashCode(loadRequires));
+                Arrays.hashCode(loadRequires),
+                Arrays.hashCode(transformerTargets));
     }
 
     @Override
@@ -332,6 +381,9 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
                 + ", "
                 + "loadRequires="
                 + Arrays.toString(loadRequires)
+                + ", "
+                + "transformerTargets="
+                + Arrays.toString(transformerTargets)
                 + ']';
     }
 
@@ -442,6 +494,7 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
         String[] loadBefore = new String[0];
         String[] loadAfter = new String[0];
         String[] loadRequires = new String[0];
+        String[] transformerTargets = new String[0];
         boolean pinLast;
 
         public Builder(
@@ -515,6 +568,11 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
             return this;
         }
 
+        public Builder transformerTarget(String glob) {
+            transformerTargets = append(transformerTargets, glob);
+            return this;
+        }
+
         public RfbPluginMetadata build() {
             return new RfbPluginMetadata(
                     classpathEntry,
@@ -529,6 +587,7 @@ public final class RfbPluginMetadata implements Comparable<RfbPluginMetadata> {
                     loadBefore,
                     loadAfter,
                     loadRequires,
+                    transformerTargets,
                     pinLast);
         }
     }
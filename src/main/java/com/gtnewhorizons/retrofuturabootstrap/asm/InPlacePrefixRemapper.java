@@ -0,0 +1,341 @@
+package com.gtnewhorizons.retrofuturabootstrap.asm;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InnerClassNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.RecordComponentNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+/**
+ * Renames classes by internal name prefix directly in a {@link ClassNode}, as a cheaper alternative to copying the whole
+ * class through a {@link org.objectweb.asm.commons.ClassRemapper} when only a few references need to change.
+ * <p>
+ * Every name, descriptor and signature of the class is first checked for the prefixes with a plain substring search,
+ * only the strings that mention one are parsed and remapped (through the regular {@link Remapper} methods), and the
+ * results are memoized as the same few references show up in many classes. Member names are not remapped.
+ * Instances are thread-safe.
+ */
+public class InPlacePrefixRemapper extends Remapper {
+    private final @NotNull String @NotNull [] fromPrefixes;
+    private final @NotNull String @NotNull [] toPrefixes;
+
+    private final ConcurrentHashMap<String, String> mappedNames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> mappedDescriptors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> mappedSignatures = new ConcurrentHashMap<>();
+
+    /**
+     * @param fromPrefixes The internal name prefixes to replace, checked in order.
+     * @param toPrefixes The replacements for the prefixes with the same index.
+     */
+    public InPlacePrefixRemapper(@NotNull String @NotNull [] fromPrefixes, @NotNull String @NotNull [] toPrefixes) {
+        if (fromPrefixes.length != toPrefixes.length) {
+            throw new IllegalArgumentException("Mismatched prefix array lengths");
+        }
+        this.fromPrefixes = fromPrefixes.clone();
+        this.toPrefixes = toPrefixes.clone();
+    }
+
+    @Override
+    public String map(String internalName) {
+        if (internalName == null) {
+            return null;
+        }
+        for (int pfx = 0; pfx < fromPrefixes.length; pfx++) {
+            if (internalName.startsWith(fromPrefixes[pfx])) {
+                return toPrefixes[pfx] + internalName.substring(fromPrefixes[pfx].length());
+            }
+        }
+        return internalName;
+    }
+
+    /** @return If the string contains any of the prefixes, so it may need remapping */
+    public boolean mentionsPrefix(@Nullable String value) {
+        if (value == null) {
+            return false;
+        }
+        for (final String prefix : fromPrefixes) {
+            if (value.contains(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String name(String internalName) {
+        return mentionsPrefix(internalName) ? mappedNames.computeIfAbsent(internalName, this::mapType) : internalName;
+    }
+
+    private String desc(String descriptor) {
+        if (!mentionsPrefix(descriptor)) {
+            return descriptor;
+        }
+        return mappedDescriptors.computeIfAbsent(
+                descriptor, d -> d.charAt(0) == '(' ? mapMethodDesc(d) : mapDesc(d));
+    }
+
+    private String signature(String signature, boolean typeSignature) {
+        if (!mentionsPrefix(signature)) {
+            return signature;
+        }
+        // Type and class/method signatures of the same string map the same way
+        return mappedSignatures.computeIfAbsent(signature, s -> mapSignature(s, typeSignature));
+    }
+
+    private Object value(Object value) {
+        if (value instanceof Type || value instanceof Handle || value instanceof ConstantDynamic) {
+            return mentionsPrefix(value.toString()) ? mapValue(value) : value;
+        }
+        return value;
+    }
+
+    /**
+     * Remaps all the references to the prefixes in the class.
+     * @return If anything was changed.
+     */
+    public boolean remapInPlace(@NotNull ClassNode node) {
+        final Tracker t = new Tracker();
+        node.name = t.track(node.name, name(node.name));
+        node.superName = t.track(node.superName, name(node.superName));
+        node.signature = t.track(node.signature, signature(node.signature, false));
+        node.outerClass = t.track(node.outerClass, name(node.outerClass));
+        node.outerMethodDesc = t.track(node.outerMethodDesc, desc(node.outerMethodDesc));
+        node.nestHostClass = t.track(node.nestHostClass, name(node.nestHostClass));
+        names(t, node.interfaces);
+        names(t, node.nestMembers);
+        names(t, node.permittedSubclasses);
+        if (node.innerClasses != null) {
+            for (final InnerClassNode inner : node.innerClasses) {
+                inner.name = t.track(inner.name, name(inner.name));
+                inner.outerName = t.track(inner.outerName, name(inner.outerName));
+            }
+        }
+        annotations(t, node.visibleAnnotations);
+        annotations(t, node.invisibleAnnotations);
+        annotations(t, node.visibleTypeAnnotations);
+        annotations(t, node.invisibleTypeAnnotations);
+        if (node.recordComponents != null) {
+            for (final RecordComponentNode component : node.recordComponents) {
+                component.descriptor = t.track(component.descriptor, desc(component.descriptor));
+                component.signature = t.track(component.signature, signature(component.signature, true));
+                annotations(t, component.visibleAnnotations);
+                annotations(t, component.invisibleAnnotations);
+                annotations(t, component.visibleTypeAnnotations);
+                annotations(t, component.invisibleTypeAnnotations);
+            }
+        }
+        for (final FieldNode field : node.fields) {
+            field.desc = t.track(field.desc, desc(field.desc));
+            field.signature = t.track(field.signature, signature(field.signature, true));
+            annotations(t, field.visibleAnnotations);
+            annotations(t, field.invisibleAnnotations);
+            annotations(t, field.visibleTypeAnnotations);
+            annotations(t, field.invisibleTypeAnnotations);
+        }
+        for (final MethodNode method : node.methods) {
+            method(t, method);
+        }
+        return t.changed;
+    }
+
+    private void method(Tracker t, MethodNode method) {
+        method.desc = t.track(method.desc, desc(method.desc));
+        method.signature = t.track(method.signature, signature(method.signature, false));
+        names(t, method.exceptions);
+        annotations(t, method.visibleAnnotations);
+        annotations(t, method.invisibleAnnotations);
+        annotations(t, method.visibleTypeAnnotations);
+        annotations(t, method.invisibleTypeAnnotations);
+        parameterAnnotations(t, method.visibleParameterAnnotations);
+        parameterAnnotations(t, method.invisibleParameterAnnotations);
+        annotations(t, method.visibleLocalVariableAnnotations);
+        annotations(t, method.invisibleLocalVariableAnnotations);
+        if (method.annotationDefault != null) {
+            method.annotationDefault = t.track(method.annotationDefault, annotationValue(t, method.annotationDefault));
+        }
+        if (method.localVariables != null) {
+            for (final LocalVariableNode local : method.localVariables) {
+                local.desc = t.track(local.desc, desc(local.desc));
+                local.signature = t.track(local.signature, signature(local.signature, true));
+            }
+        }
+        if (method.tryCatchBlocks != null) {
+            for (final TryCatchBlockNode tryCatch : method.tryCatchBlocks) {
+                tryCatch.type = t.track(tryCatch.type, name(tryCatch.type));
+                annotations(t, tryCatch.visibleTypeAnnotations);
+                annotations(t, tryCatch.invisibleTypeAnnotations);
+            }
+        }
+        if (method.instructions == null) {
+            return;
+        }
+        for (final AbstractInsnNode insn : method.instructions) {
+            switch (insn.getType()) {
+                case AbstractInsnNode.TYPE_INSN: {
+                    final TypeInsnNode ti = (TypeInsnNode) insn;
+                    ti.desc = t.track(ti.desc, name(ti.desc));
+                    break;
+                }
+                case AbstractInsnNode.FIELD_INSN: {
+                    final FieldInsnNode fi = (FieldInsnNode) insn;
+                    fi.owner = t.track(fi.owner, name(fi.owner));
+                    fi.desc = t.track(fi.desc, desc(fi.desc));
+                    break;
+                }
+                case AbstractInsnNode.METHOD_INSN: {
+                    final MethodInsnNode mi = (MethodInsnNode) insn;
+                    mi.owner = t.track(mi.owner, name(mi.owner));
+                    mi.desc = t.track(mi.desc, desc(mi.desc));
+                    break;
+                }
+                case AbstractInsnNode.INVOKE_DYNAMIC_INSN: {
+                    final InvokeDynamicInsnNode indy = (InvokeDynamicInsnNode) insn;
+                    indy.desc = t.track(indy.desc, desc(indy.desc));
+                    indy.bsm = t.track(indy.bsm, (Handle) value(indy.bsm));
+                    if (indy.bsmArgs != null) {
+                        for (int i = 0; i < indy.bsmArgs.length; i++) {
+                            indy.bsmArgs[i] = t.track(indy.bsmArgs[i], value(indy.bsmArgs[i]));
+                        }
+                    }
+                    break;
+                }
+                case AbstractInsnNode.LDC_INSN: {
+                    final LdcInsnNode ldc = (LdcInsnNode) insn;
+                    ldc.cst = t.track(ldc.cst, value(ldc.cst));
+                    break;
+                }
+                case AbstractInsnNode.MULTIANEWARRAY_INSN: {
+                    final MultiANewArrayInsnNode multi = (MultiANewArrayInsnNode) insn;
+                    multi.desc = t.track(multi.desc, desc(multi.desc));
+                    break;
+                }
+                case AbstractInsnNode.FRAME: {
+                    final FrameNode frame = (FrameNode) insn;
+                    frameTypes(t, frame.local);
+                    frameTypes(t, frame.stack);
+                    break;
+                }
+                default:
+                    break;
+            }
+            annotations(t, insn.visibleTypeAnnotations);
+            annotations(t, insn.invisibleTypeAnnotations);
+        }
+    }
+
+    private void names(Tracker t, @Nullable List<String> names) {
+        if (names == null) {
+            return;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            final String original = names.get(i);
+            final String mapped = t.track(original, name(original));
+            if (mapped != original) {
+                names.set(i, mapped);
+            }
+        }
+    }
+
+    private void frameTypes(Tracker t, @Nullable List<Object> types) {
+        if (types == null) {
+            return;
+        }
+        for (int i = 0; i < types.size(); i++) {
+            final Object type = types.get(i);
+            if (type instanceof String) {
+                final Object mapped = t.track(type, name((String) type));
+                if (mapped != type) {
+                    types.set(i, mapped);
+                }
+            }
+        }
+    }
+
+    private void parameterAnnotations(Tracker t, @Nullable List<AnnotationNode> @Nullable [] annotations) {
+        if (annotations == null) {
+            return;
+        }
+        for (final List<AnnotationNode> parameter : annotations) {
+            annotations(t, parameter);
+        }
+    }
+
+    private void annotations(Tracker t, @Nullable List<? extends AnnotationNode> annotations) {
+        if (annotations == null) {
+            return;
+        }
+        for (final AnnotationNode annotation : annotations) {
+            annotation(t, annotation);
+        }
+    }
+
+    private void annotation(Tracker t, AnnotationNode annotation) {
+        annotation.desc = t.track(annotation.desc, desc(annotation.desc));
+        if (annotation.values == null) {
+            return;
+        }
+        // Name/value pairs, only the values can reference classes
+        for (int i = 1; i < annotation.values.size(); i += 2) {
+            final Object original = annotation.values.get(i);
+            final Object mapped = t.track(original, annotationValue(t, original));
+            if (mapped != original) {
+                annotation.values.set(i, mapped);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object annotationValue(Tracker t, Object value) {
+        if (value instanceof Type) {
+            return value(value);
+        } else if (value instanceof String[]) {
+            // Enum values: descriptor, constant name
+            final String[] enumValue = (String[]) value;
+            final String mapped = t.track(enumValue[0], desc(enumValue[0]));
+            return mapped == enumValue[0] ? value : new String[] {mapped, enumValue[1]};
+        } else if (value instanceof AnnotationNode) {
+            annotation(t, (AnnotationNode) value);
+        } else if (value instanceof List) {
+            final List<Object> values = (List<Object>) value;
+            for (int i = 0; i < values.size(); i++) {
+                final Object original = values.get(i);
+                final Object mapped = t.track(original, annotationValue(t, original));
+                if (mapped != original) {
+                    values.set(i, mapped);
+                }
+            }
+        }
+        return value;
+    }
+
+    /** Records whether any reference was replaced, the Remapper methods can return equal copies of unchanged values */
+    private static final class Tracker {
+        boolean changed = false;
+
+        <T> T track(T original, T mapped) {
+            if (mapped == original || mapped.equals(original)) {
+                return original;
+            }
+            changed = true;
+            return mapped;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package com.gtnewhorizons.retrofuturabootstrap.asm;
 
 import com.gtnewhorizons.retrofuturabootstrap.Main;
-import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.RfbJfrEvents;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHierarchyHeader;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.FastClassAccessor;
 import java.util.*;
@@ -22,8 +23,8 @@ public class SafeAsmClassWriter extends ClassWriter {
         super(flags | forcedFlags.get());
         if (forcedOriginalClass.get() != null) {
             // provide some metadata about the class in case it doesn't get initialized early in broken asm patchers.
-            ClassHeaderMetadata chm = new ClassHeaderMetadata(forcedOriginalClass.get());
-            super.visit(chm.majorVersion, chm.accessFlags, chm.binaryThisName, null, chm.binarySuperName, null);
+            ClassHierarchyHeader chm = new ClassHierarchyHeader(forcedOriginalClass.get());
+            super.visit(chm.majorVersion, chm.accessFlags, chm.binaryThisName(), null, chm.binarySuperName(), null);
         }
     }
 
@@ -39,6 +40,13 @@ public class SafeAsmClassWriter extends ClassWriter {
 
     @Override
     protected String getCommonSuperClass(String type1, String type2) {
+        final Object jfrEvent = RfbJfrEvents.beginCommonSuperClass();
+        final String result = computeCommonSuperClass(type1, type2);
+        RfbJfrEvents.endCommonSuperClass(jfrEvent, type1, type2, result);
+        return result;
+    }
+
+    private String computeCommonSuperClass(String type1, String type2) {
         ClassLoader classLoader = getClassLoader();
         if (!(classLoader instanceof ExtensibleClassLoader)) {
             Main.logger.warn(
@@ -1,32 +1,105 @@
 package com.gtnewhorizons.retrofuturabootstrap.asm;
 
+import java.util.concurrent.ConcurrentHashMap;
 import org.objectweb.asm.Type;
 
+/**
+ * The descriptors are checked up front the same way ASM reads them, so invalid descriptors from legacy coremods are
+ * handled without throwing (and filling in the stack trace of) an exception on every call. The types built for invalid
+ * descriptors are cached, as the same coremod code usually runs them over and over.
+ */
 @SuppressWarnings("unused") // Used for an ASM redirect
 public class SafeAsmType {
+    /** Upper bound on the cached legacy types of each method, the cache is cleared when it fills up */
+    private static final int MAX_CACHED_TYPES = 256;
+
+    private static final ConcurrentHashMap<String, Type> legacyTypes = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Type> legacyReturnTypes = new ConcurrentHashMap<>();
+
     /**
      * Redirection target for {@link Type#getType(String)}, that will silently accept invalid descriptors as object descriptors, like ASM5 did.
      */
     public static Type getType(String desc) {
-        try {
+        if (desc.isEmpty() || isTypeStart(desc.charAt(0))) {
             return Type.getType(desc);
-        } catch (IllegalArgumentException e) {
-            // ASM5 Code:
-            // default: return new Type(METHOD, buf, off, buf.length - off);
-            // The accidental usage generally was intended to use Object types, as correct method descriptors start with
-            // '('
-            return Type.getObjectType(desc);
         }
+        final Type cached = legacyTypes.get(desc);
+        if (cached != null) {
+            return cached;
+        }
+        // ASM5 Code:
+        // default: return new Type(METHOD, buf, off, buf.length - off);
+        // The accidental usage generally was intended to use Object types, as correct method descriptors start with
+        // '('
+        return cache(legacyTypes, desc, Type.getObjectType(desc));
     }
 
     /**
      * Redirection target for {@link Type#getReturnType(String)}, that will silently process invalid descriptors like ASM5 did.
      */
     public static Type getReturnType(String desc) {
-        try {
+        if (isValidReturnTypeLookup(desc)) {
             return Type.getReturnType(desc);
-        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
-            return getType(desc.substring(desc.indexOf(')') + 1));
         }
+        final Type cached = legacyReturnTypes.get(desc);
+        if (cached != null) {
+            return cached;
+        }
+        return cache(legacyReturnTypes, desc, getType(desc.substring(desc.indexOf(')') + 1)));
+    }
+
+    /** @return If {@link Type#getType(String)} accepts a descriptor starting with this character */
+    private static boolean isTypeStart(char c) {
+        switch (c) {
+            case 'V':
+            case 'Z':
+            case 'C':
+            case 'B':
+            case 'S':
+            case 'I':
+            case 'F':
+            case 'J':
+            case 'D':
+            case '[':
+            case 'L':
+            case '(':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** @return If {@link Type#getReturnType(String)} succeeds, follows the argument skipping done by ASM */
+    private static boolean isValidReturnTypeLookup(String desc) {
+        final int length = desc.length();
+        int offset = 1;
+        while (true) {
+            if (offset >= length) {
+                return false;
+            }
+            char c = desc.charAt(offset);
+            if (c == ')') {
+                break;
+            }
+            while (c == '[') {
+                if (++offset >= length) {
+                    return false;
+                }
+                c = desc.charAt(offset);
+            }
+            offset++;
+            if (c == 'L') {
+                offset = Math.max(offset, desc.indexOf(';', offset) + 1);
+            }
+        }
+        return offset + 1 < length && isTypeStart(desc.charAt(offset + 1));
+    }
+
+    private static Type cache(ConcurrentHashMap<String, Type> cache, String desc, Type type) {
+        if (cache.size() >= MAX_CACHED_TYPES) {
+            cache.clear();
+        }
+        cache.put(desc, type);
+        return type;
     }
 }
@@ -2,7 +2,7 @@ package com.gtnewhorizons.retrofuturabootstrap.asm;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.*;
+import java.util.Arrays;
 import sun.misc.Unsafe;
 
 /**
@@ -17,15 +17,70 @@ public class UnsafeReflectionRedirector {
 
     private static final Class<?> fieldClass = Field.class;
     private static final Field fieldModifiers;
-    private static final Set<Field> unlockedFields = Collections.newSetFromMap(new WeakHashMap<>());
     private static final Unsafe unsafe;
 
-    private static synchronized void unlockField(Field f) {
-        unlockedFields.add(f);
+    /**
+     * The unlocked fields of each class. Stored in the class itself, so the registry doesn't keep classes (or the
+     * fields, whose static base is the class) from being unloaded, and lookups don't take any lock.
+     */
+    private static final ClassValue<UnlockedFields> unlockedFields = new ClassValue<UnlockedFields>() {
+        @Override
+        protected UnlockedFields computeValue(Class<?> type) {
+            return new UnlockedFields();
+        }
+    };
+    /** Skips the registry lookup in {@link #set(Field, Object, Object)} until any field is unlocked */
+    private static volatile boolean anyFieldUnlocked = false;
+
+    /** A static final field that was made writable, with everything needed to write it precomputed */
+    private static final class UnlockedField {
+        final Field field;
+        final Class<?> type;
+        final Object staticBase;
+        final long staticOffset;
+
+        UnlockedField(Field field) {
+            this.field = field;
+            this.type = field.getType();
+            this.staticBase = unsafe.staticFieldBase(field);
+            this.staticOffset = unsafe.staticFieldOffset(field);
+        }
+    }
+
+    private static final class UnlockedFields {
+        /** Copy-on-write, a class rarely has more than a couple unlocked fields */
+        volatile UnlockedField[] fields = new UnlockedField[0];
+
+        UnlockedField find(Field f) {
+            for (final UnlockedField unlocked : fields) {
+                if (unlocked.field == f || unlocked.field.equals(f)) {
+                    return unlocked;
+                }
+            }
+            return null;
+        }
+
+        synchronized void add(Field f) {
+            if (find(f) != null) {
+                return;
+            }
+            final UnlockedField[] oldFields = fields;
+            final UnlockedField[] newFields = Arrays.copyOf(oldFields, oldFields.length + 1);
+            newFields[oldFields.length] = new UnlockedField(f);
+            fields = newFields;
+        }
     }
 
-    private static synchronized boolean isFieldUnlocked(Field f) {
-        return unlockedFields.contains(f);
+    private static void unlockField(Field f) {
+        unlockedFields.get(f.getDeclaringClass()).add(f);
+        anyFieldUnlocked = true;
+    }
+
+    private static UnlockedField findUnlockedField(Field f) {
+        if (!anyFieldUnlocked) {
+            return null;
+        }
+        return unlockedFields.get(f.getDeclaringClass()).find(f);
     }
 
     static {
@@ -139,18 +194,14 @@ public class UnsafeReflectionRedirector {
             return;
         }
 
-        if (isFieldUnlocked(field)) {
-            // Only static final fields are redirected to Unsafe.
-            if (!Modifier.isStatic(field.getModifiers())) {
-                throw new IllegalStateException("unsafe redirect of non-static field set");
-            }
-            if (!field.getType().isAssignableFrom(value.getClass())) {
+        final UnlockedField unlocked = findUnlockedField(field);
+        if (unlocked != null) {
+            // Only static final fields are unlocked, and redirected to Unsafe.
+            if (!unlocked.type.isAssignableFrom(value.getClass())) {
                 throw new IllegalArgumentException(
-                        "Field " + field.getType() + " not assignable from " + value.getClass());
+                        "Field " + unlocked.type + " not assignable from " + value.getClass());
             }
-            final long staticOffset = unsafe.staticFieldOffset(field);
-            final Object staticObject = unsafe.staticFieldBase(field);
-            unsafe.putObjectVolatile(staticObject, staticOffset, value);
+            unsafe.putObjectVolatile(unlocked.staticBase, unlocked.staticOffset, value);
         } else if (target instanceof Dummy
                 && value instanceof Field) { // Do nothing if trying to cast Field to Dummy$modifiers
             return;
@@ -195,7 +246,7 @@ public class UnsafeReflectionRedirector {
 
     private static int getModifiers(Object target) {
         final Field targetF = (Field) target;
-        final boolean isUnlocked = isFieldUnlocked(targetF);
+        final boolean isUnlocked = findUnlockedField(targetF) != null;
         int modifiers = targetF.getModifiers();
         if (isUnlocked) {
             modifiers &= ~Modifier.FINAL;
@@ -4,10 +4,78 @@ import java.util.UUID;
 
 /**
  * Redirect for {@link UUID#fromString(String)} to the version used in Java 8 that was less strict with validation.
+ * <p>
+ * Valid strings are parsed in a single pass without allocating anything but the UUID, accepting exactly what the Java 8
+ * algorithm accepts: five non-empty hex components (of any length, each fitting in a signed long, using
+ * {@link Character#digit(char, int)} digits), optionally followed by more dashes. Anything else goes through the
+ * original algorithm to throw the same exceptions.
  */
 @SuppressWarnings("unused") // used from asms
 public class UuidStringConstructor {
     public static UUID fromString(String name) {
+        final int length = name.length();
+        long mostSigBits = 0;
+        long leastSigBits = 0;
+        int component = 0;
+        long value = 0;
+        int digits = 0;
+        int i = 0;
+        for (; i < length; i++) {
+            final char c = name.charAt(i);
+            if (c == '-') {
+                if (digits == 0) {
+                    return fromStringJava8(name);
+                }
+                switch (component) {
+                    case 0:
+                        mostSigBits = value;
+                        break;
+                    case 1:
+                    case 2:
+                        mostSigBits = (mostSigBits << 16) | value;
+                        break;
+                    case 3:
+                        leastSigBits = value;
+                        break;
+                    default:
+                        // Trailing empty components are dropped by String.split, anything else is one too many
+                        for (int j = i + 1; j < length; j++) {
+                            if (name.charAt(j) != '-') {
+                                return fromStringJava8(name);
+                            }
+                        }
+                        return new UUID(mostSigBits, (leastSigBits << 48) | value);
+                }
+                component++;
+                value = 0;
+                digits = 0;
+                continue;
+            }
+            final int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                digit = Character.digit(c, 16);
+            }
+            // Long.decode rejects negative digits and values that don't fit in a signed long
+            if (digit < 0 || (value >>> 59) != 0) {
+                return fromStringJava8(name);
+            }
+            value = (value << 4) | digit;
+            digits++;
+        }
+        if (component != 4 || digits == 0) {
+            return fromStringJava8(name);
+        }
+        return new UUID(mostSigBits, (leastSigBits << 48) | value);
+    }
+
+    /** The Java 8 implementation, used for the strings rejected above to throw the same exceptions */
+    private static UUID fromStringJava8(String name) {
         String[] components = name.split("-");
         if (components.length != 5) throw new IllegalArgumentException("Invalid UUID string: " + name);
         for (int i = 0; i < 5; i++) components[i] = "0x" + components[i];
@@ -0,0 +1,221 @@
+package com.gtnewhorizons.retrofuturabootstrap.plugin;
+
+import com.gtnewhorizons.retrofuturabootstrap.Main;
+import com.gtnewhorizons.retrofuturabootstrap.SharedConfig;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.api.PluginContext;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPlugin;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginMetadata;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A placeholder transformer registered instead of a plugin declaring {@code transformerTargets}, which constructs the
+ * plugin and swaps itself for the plugin's transformers once the first class matching the targets is loaded.
+ * The transformers are sorted into their regular position in the chain, and the class that triggered the construction
+ * goes through the new chain from the start (see
+ * {@link com.gtnewhorizons.retrofuturabootstrap.URLClassLoaderWithUtilities#runRfbTransformers}), so it sees
+ * the same transformer order as all later classes.
+ * <p>
+ * The plugin is constructed by the first thread loading a target class, without holding any lock, so the plugin can
+ * load other classes in parallel-capable class loaders. Other threads loading target classes wait for it to finish,
+ * target classes loaded by the construction itself don't get the plugin's transformers. Plugins must not wait on other
+ * threads loading their target classes while constructed, those threads wait for the construction in turn.
+ * <p>
+ * If the plugin can't be constructed, loading the triggering class fails with the error, and the plugin is disabled:
+ * the placeholder removes itself from the chain and all later classes are loaded without the plugin's transformers.
+ */
+final class LazyPluginLoader implements RfbClassTransformer {
+    private static final String ID = "lazy-loader";
+
+    private final @NotNull RfbPluginMetadata metadata;
+    private final @NotNull PluginContext context;
+    private final @NotNull Pattern targets;
+    private final @NotNull String pluginClassName;
+    private final @NotNull String pluginNestedClassPrefix;
+    private final @NotNull RfbClassTransformerHandle handle;
+
+    /** Constructs the plugin, run once by the first thread that needs it */
+    private final @NotNull FutureTask<@Nullable List<RfbClassTransformerHandle>> construction =
+            new FutureTask<>(this::load);
+
+    private final @NotNull AtomicBoolean constructionStarted = new AtomicBoolean(false);
+    private volatile @Nullable Thread constructingThread = null;
+    /** Set if the construction failed, rethrown by the thread that ran it */
+    private volatile @Nullable Throwable failure = null;
+    private volatile @Nullable List<RfbClassTransformerHandle> transformers = null;
+
+    LazyPluginLoader(@NotNull RfbPluginMetadata metadata, @NotNull PluginContext context) {
+        this.metadata = metadata;
+        this.context = context;
+        this.targets = Objects.requireNonNull(
+                SharedConfig.compileClassGlobs(String.join(";", metadata.transformerTargets())));
+        this.handle = new RfbClassTransformerHandle(metadata, Placeholder.INSTANCE, this);
+        this.pluginClassName = metadata.className();
+        this.pluginNestedClassPrefix = pluginClassName + '$';
+    }
+
+    /** @return The handle of this placeholder in the transformer chain */
+    @NotNull
+    RfbClassTransformerHandle handle() {
+        return handle;
+    }
+
+    @Override
+    public @NotNull String id() {
+        return ID;
+    }
+
+    @Override
+    public @NotNull String @Nullable [] sortAfter() {
+        return new String[] {"*"};
+    }
+
+    @Override
+    public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata header, byte @NotNull [] classBytes) {
+        return isTarget(header.binaryThisName.replace('/', '.'));
+    }
+
+    @Override
+    public boolean shouldTransformClass(
+            @NotNull ExtensibleClassLoader classLoader,
+            @NotNull Context context,
+            @Nullable Manifest manifest,
+            @NotNull String className,
+            @NotNull ClassNodeHandle classNode) {
+        if (!isTarget(className)) {
+            return false;
+        }
+        final List<RfbClassTransformerHandle> loaded = construct();
+        return loaded != null && !loaded.isEmpty();
+    }
+
+    /** The plugin class itself must not trigger its construction, other classes in its package can be targets */
+    private boolean isTarget(@NotNull String className) {
+        return !className.equals(pluginClassName)
+                && !className.startsWith(pluginNestedClassPrefix)
+                && targets.matcher(className).matches();
+    }
+
+    @Override
+    public boolean transformClassIfNeeded(
+            @NotNull ExtensibleClassLoader classLoader,
+            @NotNull Context context,
+            @Nullable Manifest manifest,
+            @NotNull String className,
+            @NotNull ClassNodeHandle classNode) {
+        // Only reached if the class couldn't restart with the new chain, the plugin's transformers are applied here
+        final List<RfbClassTransformerHandle> loaded = transformers;
+        if (loaded == null) {
+            return false;
+        }
+        boolean transformed = false;
+        xformerLoop:
+        for (final RfbClassTransformerHandle xhandle : loaded) {
+            for (final String exclusion : xhandle.exclusions()) {
+                if (className.startsWith(exclusion)) {
+                    continue xformerLoop;
+                }
+            }
+            final RfbClassTransformer xformer = xhandle.transformer();
+            if (xformer.shouldTransformClass(classLoader, context, manifest, className, classNode)
+                    && xformer.transformClassIfNeeded(classLoader, context, manifest, className, classNode)) {
+                classNode.markDirty();
+                transformed = true;
+            }
+        }
+        return transformed;
+    }
+
+    /**
+     * Constructs the plugin on first use, or waits for another thread constructing it.
+     * @return The transformers of the plugin, or null if the plugin is being constructed by the current thread or
+     *         failed to construct.
+     */
+    private @Nullable List<RfbClassTransformerHandle> construct() {
+        final List<RfbClassTransformerHandle> loaded = transformers;
+        if (loaded != null) {
+            return loaded;
+        }
+        final Thread currentThread = Thread.currentThread();
+        if (constructingThread == currentThread) {
+            // A target class loaded by the plugin's own construction
+            return null;
+        }
+        if (constructionStarted.compareAndSet(false, true)) {
+            constructingThread = currentThread;
+            try {
+                construction.run();
+            } finally {
+                constructingThread = null;
+            }
+            final Throwable t = failure;
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else if (t != null) {
+                throw new RuntimeException(t);
+            }
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return construction.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // load() catches everything
+                    return null;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                currentThread.interrupt();
+            }
+        }
+    }
+
+    /** Constructs the plugin and swaps this placeholder for its transformers, or removes the placeholder on failure */
+    private @Nullable List<RfbClassTransformerHandle> load() {
+        try {
+            Main.logger.info("Loading deferred RFB plugin {} ({})", metadata.idAndVersion(), metadata.name());
+            final RfbPluginHandle pluginHandle = PluginLoader.constructPlugin(metadata, this.context);
+            final List<RfbClassTransformerHandle> made = PluginLoader.makeTransformers(pluginHandle);
+            Main.mutateRfbTransformers(list -> {
+                list.remove(handle);
+                list.addAll(made);
+                PluginLoader.sortTransformers(list);
+            });
+            PluginLoader.registerTransformers(made);
+            final List<RfbClassTransformerHandle> loaded = Collections.unmodifiableList(made);
+            transformers = loaded;
+            return loaded;
+        } catch (Throwable t) {
+            // Fails the triggering class, later classes are loaded without the plugin
+            failure = t;
+            Main.logger.fatal("Could not load deferred RFB plugin {}, it is disabled", metadata.idAndVersion(), t);
+            Main.mutateRfbTransformers(list -> list.remove(handle));
+            return null;
+        }
+    }
+
+    /** Stands in for the plugin in the placeholder transformer handle */
+    private static final class Placeholder implements RfbPlugin {
+        static final Placeholder INSTANCE = new Placeholder();
+    }
+}
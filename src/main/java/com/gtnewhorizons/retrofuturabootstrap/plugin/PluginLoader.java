@@ -2,6 +2,8 @@ package com.gtnewhorizons.retrofuturabootstrap.plugin;
 
 import com.gtnewhorizons.retrofuturabootstrap.BuildConfig;
 import com.gtnewhorizons.retrofuturabootstrap.Main;
+import com.gtnewhorizons.retrofuturabootstrap.RfbJfrEvents;
+import com.gtnewhorizons.retrofuturabootstrap.StartupTracer;
 import com.gtnewhorizons.retrofuturabootstrap.algorithm.StableTopologicalSort;
 import com.gtnewhorizons.retrofuturabootstrap.api.PluginContext;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
@@ -60,13 +62,25 @@ public final class PluginLoader {
     public static final ArrayList<RfbPluginHandle> loadedPlugins = new ArrayList<>();
     public static final Map<String, RfbPluginHandle> loadedPluginsById = new HashMap<>();
 
+    /**
+     * Controlled by system property {@code rfb.lazyPlugins=true}, plugins declaring {@code transformerTargets} are only
+     * constructed once the first class matching them is loaded, set to false to construct all plugins at startup.
+     */
+    public static final boolean cfgLazyPlugins = Boolean.parseBoolean(System.getProperty("rfb.lazyPlugins", "true"));
+
     public static void initializePlugins() throws Throwable {
+        final Object discoveryEvent = RfbJfrEvents.beginPluginDiscovery();
+        final long discoveryStart = StartupTracer.begin();
         final List<RfbPluginMetadata> pluginMetadata = findPluginManifests();
+        StartupTracer.end(StartupTracer.CATEGORY_PHASE, "Plugin discovery", null, discoveryStart);
+        RfbJfrEvents.endPluginDiscovery(discoveryEvent, pluginMetadata.size());
 
         pluginMetadata.add(makeRfbMetadata());
         pluginMetadata.add(makeJavaMetadata());
 
+        final long sortStart = StartupTracer.begin();
         final Optional<List<RfbPluginMetadata>> sortedMetadata = new PluginSorter(pluginMetadata).resolve();
+        StartupTracer.end(StartupTracer.CATEGORY_PHASE, "PluginSorter.resolve", null, sortStart);
         if (!sortedMetadata.isPresent()) {
             throw new RuntimeException(
                     "There was a critical error during RFB plugin dependency resolution, check the log above for details.");
@@ -86,63 +100,22 @@ public final class PluginLoader {
         loadedPluginsById.clear();
         final PluginContext loadingContext =
                 new PluginContext(loadedPluginMetadata, loadedPlugins, loadedPluginMetadataById, loadedPluginsById);
+        final Set<String> eagerIds = findEagerlyNeededIds(sorted);
+        final List<LazyPluginLoader> lazyPlugins = new ArrayList<>();
         for (final RfbPluginMetadata pluginMeta : sorted) {
-            final String className = pluginMeta.className();
-            try {
-                final Class<?> klass = Class.forName(className, true, Main.compatLoader);
-                if (!RfbPlugin.class.isAssignableFrom(klass)) {
-                    throw new RuntimeException("Plugin class " + className
-                            + " does not implement the required RfbPlugin interface, source: "
-                            + pluginMeta.source());
-                }
-
-                final RfbPlugin plugin = (RfbPlugin) klass.getConstructor().newInstance();
-                final RfbPluginHandle handle = new RfbPluginHandle(pluginMeta, plugin);
+            if (cfgLazyPlugins && isDeferrable(pluginMeta, eagerIds)) {
+                lazyPlugins.add(new LazyPluginLoader(pluginMeta, loadingContext));
                 Main.logger.info(
-                        "Constructed RFB plugin {} ({}): {} ({})",
+                        "Deferred RFB plugin {} ({}) until a class matching {} is loaded",
                         pluginMeta.idAndVersion(),
                         pluginMeta.name(),
-                        className,
-                        pluginMeta.source());
-                loadedPlugins.add(handle);
-                loadedPluginsById.put(pluginMeta.id(), handle);
-                for (RfbPluginMetadata.IdAndVersion extraId : pluginMeta.additionalVersions()) {
-                    loadedPluginsById.put(extraId.id(), handle);
-                }
-                plugin.onConstruction(loadingContext);
-
-                final RfbClassTransformer[] earlyTransformers = plugin.makeEarlyTransformers();
-                if (earlyTransformers != null && earlyTransformers.length > 0) {
-                    if (Arrays.stream(earlyTransformers).anyMatch(Objects::isNull)) {
-                        Main.logger.fatal(
-                                "RFB plugin {} ({}) provided a null early class transformer.",
-                                pluginMeta.idAndVersion(),
-                                pluginMeta.name());
-                        throw new NullPointerException(
-                                "Null early class transformer returned from RFB plugin " + pluginMeta.idAndVersion());
-                    }
-                    final List<RfbClassTransformerHandle> toAdd = Arrays.stream(earlyTransformers)
-                            .map(xformer -> new RfbClassTransformerHandle(pluginMeta, plugin, xformer))
-                            .collect(Collectors.toList());
-                    Main.mutateRfbTransformers(list -> list.addAll(toAdd));
-                    for (RfbClassTransformerHandle newlyRegistered : toAdd) {
-                        handle.registerAdditionalTransformer(newlyRegistered);
-                        newlyRegistered.transformer().onRegistration(Objects.requireNonNull(Main.compatLoader));
-                        newlyRegistered.transformer().onRegistration(Objects.requireNonNull(Main.launchLoader));
-                    }
-                }
-
-            } catch (ReflectiveOperationException e) {
-                Throwable cause = e;
-                if (e instanceof InvocationTargetException) {
-                    cause = e.getCause();
-                }
-                throw new RuntimeException(
-                        "Error constructing plugin " + className + ", source: " + pluginMeta.source(), cause);
+                        Arrays.toString(pluginMeta.transformerTargets()));
+                continue;
             }
+            constructPlugin(pluginMeta, loadingContext);
         }
 
-        if (loadedPlugins.size() != loadedPluginMetadata.size()) {
+        if (loadedPlugins.size() + lazyPlugins.size() != loadedPluginMetadata.size()) {
             final String[] metaClasses = loadedPluginMetadata.stream()
                     .map(RfbPluginMetadata::className)
                     .toArray(String[]::new);
@@ -158,107 +131,221 @@ public final class PluginLoader {
         closeJarFilesystems();
 
         // Ensure makeTransformers is only called once for each plugin.
-        final IdentityHashMap<RfbPluginHandle, RfbClassTransformer[]> madeTransformersCache =
+        final IdentityHashMap<RfbPluginHandle, List<RfbClassTransformerHandle>> madeTransformersCache =
                 new IdentityHashMap<>(loadedPlugins.size());
 
         // It is incredibly unlikely any thread would cause a retry in this compare-and-swap loop as we're still very
         // early in the loading phase, worst case this code will re-run a couple of times if that does happen.
+        final List<RfbClassTransformerHandle> toRegister = new ArrayList<>();
         Main.mutateRfbTransformers(newTransformers -> {
-            final List<RfbClassTransformerHandle> toRegister = new ArrayList<>();
+            toRegister.clear();
             for (final RfbPluginHandle handle : loadedPlugins) {
-                final RfbClassTransformer[] xformers = madeTransformersCache.computeIfAbsent(
-                        handle, h -> h.plugin().makeTransformers());
-                if (xformers == null || xformers.length < 1) {
-                    continue;
-                }
-                for (final RfbClassTransformer xformer : xformers) {
-                    if (xformer == null) {
-                        throw new NullPointerException("Null transformer produced by RFB plugin "
-                                + handle.metadata().id());
-                    }
-                    final RfbClassTransformerHandle xhandle =
-                            new RfbClassTransformerHandle(handle.metadata(), handle.plugin(), xformer);
-                    newTransformers.add(xhandle);
-                    toRegister.add(xhandle);
-                    handle.registerAdditionalTransformer(xhandle);
-                }
+                final List<RfbClassTransformerHandle> xhandles =
+                        madeTransformersCache.computeIfAbsent(handle, PluginLoader::makeTransformers);
+                newTransformers.addAll(xhandles);
+                toRegister.addAll(xhandles);
             }
-            final String[] emptyStrA = new String[0];
-            final IdentityHashMap<RfbClassTransformerHandle, String[]> sortAfterLut = new IdentityHashMap<>();
-            final IdentityHashMap<RfbClassTransformerHandle, String[]> sortBeforeLut = new IdentityHashMap<>();
-            final IdentityHashMap<RfbClassTransformerHandle, Boolean> sortLastLut = new IdentityHashMap<>();
-            for (final RfbClassTransformerHandle xhandle : newTransformers) {
-                final RfbClassTransformer xformer = xhandle.transformer();
-                String[] sortBefore = xformer.sortBefore();
-                if (sortBefore == null) {
-                    sortBefore = emptyStrA;
-                }
-                String[] sortAfter = xformer.sortAfter();
-                if (sortAfter == null) {
-                    sortAfter = emptyStrA;
+            for (final LazyPluginLoader lazyPlugin : lazyPlugins) {
+                newTransformers.add(lazyPlugin.handle());
+            }
+            sortTransformers(newTransformers);
+        });
+        registerTransformers(toRegister);
+    }
+
+    /**
+     * @param eagerIds The result of {@link #findEagerlyNeededIds}
+     * @return If the plugin can be constructed once the first class matching its transformer targets is loaded
+     */
+    static boolean isDeferrable(RfbPluginMetadata pluginMeta, Set<String> eagerIds) {
+        return pluginMeta.transformerTargets().length > 0 && !eagerIds.contains(pluginMeta.id());
+    }
+
+    /**
+     * @return IDs of the plugins other plugins expect to be constructed before them, which can't be deferred
+     */
+    static Set<String> findEagerlyNeededIds(List<RfbPluginMetadata> sorted) {
+        final Set<String> ids = new HashSet<>();
+        for (final RfbPluginMetadata pluginMeta : sorted) {
+            ids.addAll(Arrays.asList(pluginMeta.loadRequires()));
+            ids.addAll(Arrays.asList(pluginMeta.loadAfter()));
+        }
+        for (final RfbPluginMetadata pluginMeta : sorted) {
+            // Plugins loading before others need to be present to register early transformers for them
+            if (pluginMeta.loadBefore().length > 0) {
+                ids.add(pluginMeta.id());
+            }
+            for (RfbPluginMetadata.IdAndVersion extraId : pluginMeta.additionalVersions()) {
+                if (ids.contains(extraId.id())) {
+                    ids.add(pluginMeta.id());
                 }
-                boolean sortLast = Arrays.asList(sortAfter).contains("*");
-                sortBeforeLut.put(xhandle, sortBefore);
-                sortAfterLut.put(xhandle, sortAfter);
-                sortLastLut.put(xhandle, sortLast);
             }
-            // sort transformers
+        }
+        return ids;
+    }
 
-            {
-                final Comparator<RfbClassTransformerHandle> initialSorter =
-                        Comparator.<RfbClassTransformerHandle, Boolean>comparing(sortLastLut::get)
-                                .thenComparing(RfbClassTransformerHandle::id);
-                newTransformers.sort(initialSorter);
-                final List<List<Integer>> edges = new ArrayList<>(newTransformers.size());
-                final Map<String, Integer> idLookup = new HashMap<>();
-                for (int i = 0; i < newTransformers.size(); i++) {
-                    edges.add(new ArrayList<>(0));
-                    final RfbClassTransformerHandle newTransformer = newTransformers.get(i);
-                    idLookup.put(newTransformer.id(), i);
-                    for (String additionalId : newTransformer.additionalIds()) {
-                        idLookup.put(additionalId, i);
-                    }
+    /**
+     * Constructs a plugin, adds it to the loaded plugin lists and registers its early transformers.
+     */
+    static RfbPluginHandle constructPlugin(RfbPluginMetadata pluginMeta, PluginContext loadingContext) {
+        final String className = pluginMeta.className();
+        final long constructionStart = StartupTracer.begin();
+        try {
+            final Class<?> klass = Class.forName(className, true, Main.compatLoader);
+            if (!RfbPlugin.class.isAssignableFrom(klass)) {
+                throw new RuntimeException("Plugin class " + className
+                        + " does not implement the required RfbPlugin interface, source: "
+                        + pluginMeta.source());
+            }
+
+            final RfbPlugin plugin = (RfbPlugin) klass.getConstructor().newInstance();
+            final RfbPluginHandle handle = new RfbPluginHandle(pluginMeta, plugin);
+            Main.logger.info(
+                    "Constructed RFB plugin {} ({}): {} ({})",
+                    pluginMeta.idAndVersion(),
+                    pluginMeta.name(),
+                    className,
+                    pluginMeta.source());
+            // Deferred plugins are added from class loading threads
+            synchronized (loadedPlugins) {
+                loadedPlugins.add(handle);
+                loadedPluginsById.put(pluginMeta.id(), handle);
+                for (RfbPluginMetadata.IdAndVersion extraId : pluginMeta.additionalVersions()) {
+                    loadedPluginsById.put(extraId.id(), handle);
                 }
-                for (int i = 0; i < newTransformers.size(); i++) {
-                    final RfbClassTransformerHandle handle = newTransformers.get(i);
-                    final String[] before = sortBeforeLut.get(handle);
-                    final String[] after = sortAfterLut.get(handle);
-                    for (String dep : before) {
-                        final Integer depIdx = idLookup.get(dep);
-                        if (depIdx != null) {
-                            edges.get(i).add(depIdx);
-                        }
-                    }
-                    for (String dep : after) {
-                        final Integer depIdx = idLookup.get(dep);
-                        if (depIdx != null) {
-                            edges.get(depIdx).add(i);
-                        }
-                    }
+            }
+            plugin.onConstruction(loadingContext);
+
+            final RfbClassTransformer[] earlyTransformers = plugin.makeEarlyTransformers();
+            if (earlyTransformers != null && earlyTransformers.length > 0) {
+                if (Arrays.stream(earlyTransformers).anyMatch(Objects::isNull)) {
+                    Main.logger.fatal(
+                            "RFB plugin {} ({}) provided a null early class transformer.",
+                            pluginMeta.idAndVersion(),
+                            pluginMeta.name());
+                    throw new NullPointerException(
+                            "Null early class transformer returned from RFB plugin " + pluginMeta.idAndVersion());
                 }
-                try {
-                    final List<RfbClassTransformerHandle> toposorted =
-                            StableTopologicalSort.sort(newTransformers, edges);
-                    newTransformers.clear();
-                    newTransformers.addAll(toposorted);
-                } catch (StableTopologicalSort.CycleException err) {
-                    final Set<RfbClassTransformerHandle> cycle = err.cyclicElements(RfbClassTransformerHandle.class);
-                    Main.logger.error("Cycle found among the following RFB class transformers, aborting launch:");
-                    for (final RfbClassTransformerHandle xformer : cycle) {
-                        Main.logger.error(
-                                "{} ({})",
-                                xformer.id(),
-                                xformer.pluginMetadata().idAndVersion());
-                    }
-                    throw new RuntimeException("Cycle among RFB transformer sorting constraints.");
+                final List<RfbClassTransformerHandle> toAdd = Arrays.stream(earlyTransformers)
+                        .map(xformer -> new RfbClassTransformerHandle(pluginMeta, plugin, xformer))
+                        .collect(Collectors.toList());
+                Main.mutateRfbTransformers(list -> list.addAll(toAdd));
+                for (RfbClassTransformerHandle newlyRegistered : toAdd) {
+                    handle.registerAdditionalTransformer(newlyRegistered);
                 }
+                registerTransformers(toAdd);
+            }
+            StartupTracer.end(StartupTracer.CATEGORY_PHASE, "Plugin construction", pluginMeta.id(), constructionStart);
+            return handle;
+        } catch (ReflectiveOperationException e) {
+            Throwable cause = e;
+            if (e instanceof InvocationTargetException) {
+                cause = e.getCause();
+            }
+            throw new RuntimeException(
+                    "Error constructing plugin " + className + ", source: " + pluginMeta.source(), cause);
+        }
+    }
+
+    /**
+     * Calls {@link RfbPlugin#makeTransformers()} and creates handles for the returned transformers, without adding them
+     * to the transformer chain yet.
+     */
+    static List<RfbClassTransformerHandle> makeTransformers(RfbPluginHandle handle) {
+        final RfbClassTransformer[] xformers = handle.plugin().makeTransformers();
+        if (xformers == null || xformers.length < 1) {
+            return Collections.emptyList();
+        }
+        final List<RfbClassTransformerHandle> xhandles = new ArrayList<>(xformers.length);
+        for (final RfbClassTransformer xformer : xformers) {
+            if (xformer == null) {
+                throw new NullPointerException(
+                        "Null transformer produced by RFB plugin " + handle.metadata().id());
+            }
+            final RfbClassTransformerHandle xhandle =
+                    new RfbClassTransformerHandle(handle.metadata(), handle.plugin(), xformer);
+            xhandles.add(xhandle);
+            handle.registerAdditionalTransformer(xhandle);
+        }
+        return xhandles;
+    }
 
-                for (RfbClassTransformerHandle newlyRegistered : toRegister) {
-                    newlyRegistered.transformer().onRegistration(Objects.requireNonNull(Main.compatLoader));
-                    newlyRegistered.transformer().onRegistration(Objects.requireNonNull(Main.launchLoader));
+    /** Calls {@link RfbClassTransformer#onRegistration} with both RFB class loaders */
+    static void registerTransformers(List<RfbClassTransformerHandle> xhandles) {
+        for (RfbClassTransformerHandle newlyRegistered : xhandles) {
+            newlyRegistered.transformer().onRegistration(Objects.requireNonNull(Main.compatLoader));
+            newlyRegistered.transformer().onRegistration(Objects.requireNonNull(Main.launchLoader));
+        }
+    }
+
+    /** Sorts the transformer chain in place according to the sorting constraints of the transformers */
+    static void sortTransformers(List<RfbClassTransformerHandle> newTransformers) {
+        final String[] emptyStrA = new String[0];
+        final IdentityHashMap<RfbClassTransformerHandle, String[]> sortAfterLut = new IdentityHashMap<>();
+        final IdentityHashMap<RfbClassTransformerHandle, String[]> sortBeforeLut = new IdentityHashMap<>();
+        final IdentityHashMap<RfbClassTransformerHandle, Boolean> sortLastLut = new IdentityHashMap<>();
+        for (final RfbClassTransformerHandle xhandle : newTransformers) {
+            final RfbClassTransformer xformer = xhandle.transformer();
+            String[] sortBefore = xformer.sortBefore();
+            if (sortBefore == null) {
+                sortBefore = emptyStrA;
+            }
+            String[] sortAfter = xformer.sortAfter();
+            if (sortAfter == null) {
+                sortAfter = emptyStrA;
+            }
+            boolean sortLast = Arrays.asList(sortAfter).contains("*");
+            sortBeforeLut.put(xhandle, sortBefore);
+            sortAfterLut.put(xhandle, sortAfter);
+            sortLastLut.put(xhandle, sortLast);
+        }
+        final Comparator<RfbClassTransformerHandle> initialSorter =
+                Comparator.<RfbClassTransformerHandle, Boolean>comparing(sortLastLut::get)
+                        .thenComparing(RfbClassTransformerHandle::id);
+        newTransformers.sort(initialSorter);
+        final List<List<Integer>> edges = new ArrayList<>(newTransformers.size());
+        final Map<String, Integer> idLookup = new HashMap<>();
+        for (int i = 0; i < newTransformers.size(); i++) {
+            edges.add(new ArrayList<>(0));
+            final RfbClassTransformerHandle newTransformer = newTransformers.get(i);
+            idLookup.put(newTransformer.id(), i);
+            for (String additionalId : newTransformer.additionalIds()) {
+                idLookup.put(additionalId, i);
+            }
+        }
+        for (int i = 0; i < newTransformers.size(); i++) {
+            final RfbClassTransformerHandle handle = newTransformers.get(i);
+            final String[] before = sortBeforeLut.get(handle);
+            final String[] after = sortAfterLut.get(handle);
+            for (String dep : before) {
+                final Integer depIdx = idLookup.get(dep);
+                if (depIdx != null) {
+                    edges.get(i).add(depIdx);
                 }
             }
-        });
+            for (String dep : after) {
+                final Integer depIdx = idLookup.get(dep);
+                if (depIdx != null) {
+                    edges.get(depIdx).add(i);
+                }
+            }
+        }
+        try {
+            final List<RfbClassTransformerHandle> toposorted =
+                    StableTopologicalSort.sort(newTransformers, edges);
+            newTransformers.clear();
+            newTransformers.addAll(toposorted);
+        } catch (StableTopologicalSort.CycleException err) {
+            final Set<RfbClassTransformerHandle> cycle = err.cyclicElements(RfbClassTransformerHandle.class);
+            Main.logger.error("Cycle found among the following RFB class transformers, aborting launch:");
+            for (final RfbClassTransformerHandle xformer : cycle) {
+                Main.logger.error(
+                        "{} ({})",
+                        xformer.id(),
+                        xformer.pluginMetadata().idAndVersion());
+            }
+            throw new RuntimeException("Cycle among RFB transformer sorting constraints.");
+        }
     }
 
     private static final URI myURI;
@@ -429,7 +516,7 @@ public final class PluginLoader {
         return pluginMetadata;
     }
 
-    private static RfbPluginMetadata parseMetadata(
+    static RfbPluginMetadata parseMetadata(
             URL classpathEntry, URI source, String filename, BufferedReader contents) throws IOException {
         final int dot = filename.lastIndexOf('.');
         final String id = filename.substring(0, dot);
@@ -1,6 +1,7 @@
 package com.gtnewhorizons.retrofuturabootstrap.plugin;
 
 import com.gtnewhorizons.retrofuturabootstrap.Main;
+import com.gtnewhorizons.retrofuturabootstrap.RfbJfrEvents;
 import com.gtnewhorizons.retrofuturabootstrap.algorithm.StableTopologicalSort;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginMetadata;
 import com.gtnewhorizons.retrofuturabootstrap.versioning.ArtifactVersion;
@@ -29,8 +30,10 @@ public class PluginSorter {
      * @return The still-enabled plugin metadata in load order, or empty option if there were unresolved conflicts.
      */
     public Optional<List<RfbPluginMetadata>> resolve() {
+        final Object jfrEvent = RfbJfrEvents.beginPluginSort();
         handleDuplicates();
         handleLoadRelations();
+        RfbJfrEvents.endPluginSort(jfrEvent, plugins.size(), !criticalIssuesFound);
         return criticalIssuesFound ? Optional.empty() : Optional.of(plugins);
     }
 
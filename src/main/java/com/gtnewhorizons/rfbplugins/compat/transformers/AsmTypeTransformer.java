@@ -2,6 +2,7 @@ package com.gtnewhorizons.rfbplugins.compat.transformers;
 
 import com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassInsnIndex;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
@@ -11,10 +12,7 @@ import org.intellij.lang.annotations.Pattern;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 
 /**
  * ASM 5 accepted "a/b/Klass" in Type.getType, newer asm correctly rejects it as invalid - it should be "La/b/Klass;".
@@ -42,21 +40,32 @@ public class AsmTypeTransformer implements RfbClassTransformer {
         if (!classNode.isPresent()) {
             return false;
         }
-        if (manifest != null && "true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE))) {
+        if (!mayTransformJar(manifest)) {
             return false;
         }
 
         final ClassHeaderMetadata metadata = classNode.getOriginalMetadata();
-        if (metadata == null) {
-            return false;
-        }
+        return metadata != null && mayTransformClassBytes(metadata, classNode.getOriginalBytes());
+    }
+
+    @Override
+    public boolean mayTransformJar(@Nullable Manifest manifest) {
+        return manifest == null || !"true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE));
+    }
 
+    @Override
+    public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
         // Assume classes for java 9+ were tested against a newer asm.
         if (metadata.majorVersion >= Opcodes.V9) {
             return false;
         }
 
-        return metadata.matchesBytes(classNode.getOriginalBytes(), methodDescMatcher);
+        return metadata.matchesBytes(classBytes, methodDescMatcher);
+    }
+
+    @Override
+    public boolean supportsPretransformation() {
+        return true;
     }
 
     @Override
@@ -66,25 +75,16 @@ public class AsmTypeTransformer implements RfbClassTransformer {
             @Nullable Manifest manifest,
             @NotNull String className,
             @NotNull ClassNodeHandle classNode) {
-        final ClassNode node = classNode.getNode();
+        final ClassInsnIndex index = classNode.getInsnIndex();
         boolean transformed = false;
-        if (node == null) {
+        if (index == null) {
             return false;
         }
-        for (MethodNode method : node.methods) {
-            if (method.instructions == null) {
-                continue;
-            }
-            for (AbstractInsnNode insn : method.instructions) {
-                if (insn.getType() == AbstractInsnNode.METHOD_INSN) {
-                    MethodInsnNode mi = (MethodInsnNode) insn;
-                    if ("org/objectweb/asm/Type".equals(mi.owner)
-                            && ("getType".equals(mi.name) || "getReturnType".equals(mi.name))
-                            && "(Ljava/lang/String;)Lorg/objectweb/asm/Type;".equals(mi.desc)) {
-                        mi.owner = "com/gtnewhorizons/retrofuturabootstrap/asm/SafeAsmType";
-                        transformed = true;
-                    }
-                }
+        for (MethodInsnNode mi : index.methodInsnsByOwner("org/objectweb/asm/Type")) {
+            if (("getType".equals(mi.name) || "getReturnType".equals(mi.name))
+                    && "(Ljava/lang/String;)Lorg/objectweb/asm/Type;".equals(mi.desc)) {
+                mi.owner = "com/gtnewhorizons/retrofuturabootstrap/asm/SafeAsmType";
+                transformed = true;
             }
         }
         return transformed;
@@ -2,6 +2,7 @@ package com.gtnewhorizons.rfbplugins.compat.transformers;
 
 import com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassInsnIndex;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
@@ -15,10 +16,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 
 /**
@@ -59,7 +58,17 @@ public class AsmUpgradeTransformer implements RfbClassTransformer {
         }
 
         final ClassHeaderMetadata metadata = classNode.getOriginalMetadata();
-        return metadata != null && metadata.matchesBytes(classNode.getOriginalBytes(), asmClassMatcher);
+        return metadata != null && mayTransformClassBytes(metadata, classNode.getOriginalBytes());
+    }
+
+    @Override
+    public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
+        return metadata.matchesBytes(classBytes, asmClassMatcher);
+    }
+
+    @Override
+    public boolean supportsPretransformation() {
+        return true;
     }
 
     @Override
@@ -83,27 +92,21 @@ public class AsmUpgradeTransformer implements RfbClassTransformer {
             }
         }
 
-        for (MethodNode method : node.methods) {
-            if (method.instructions == null) {
-                continue;
+        final ClassInsnIndex index = classNode.getInsnIndex();
+        if (index == null) {
+            return transformed;
+        }
+        for (Map.Entry<String, String> upgrade : upgradeMap.entrySet()) {
+            for (TypeInsnNode insn : index.typeInsnsByDesc(upgrade.getKey())) {
+                if (insn.getOpcode() == Opcodes.NEW) {
+                    insn.desc = upgrade.getValue();
+                    transformed = true;
+                }
             }
-            for (AbstractInsnNode rawInsn : method.instructions) {
-                if (rawInsn.getType() == AbstractInsnNode.TYPE_INSN && rawInsn.getOpcode() == Opcodes.NEW) {
-                    final TypeInsnNode insn = (TypeInsnNode) rawInsn;
-                    final String upgraded = upgradeMap.get(insn.desc);
-                    if (upgraded != null) {
-                        insn.desc = upgraded;
-                        transformed = true;
-                    }
-                } else if (rawInsn.getType() == AbstractInsnNode.METHOD_INSN) {
-                    final MethodInsnNode insn = (MethodInsnNode) rawInsn;
-                    if (insn.name.equals("<init>")) {
-                        final String upgraded = upgradeMap.get(insn.owner);
-                        if (upgraded != null) {
-                            insn.owner = upgraded;
-                            transformed = true;
-                        }
-                    }
+            for (MethodInsnNode insn : index.methodInsnsByOwner(upgrade.getKey())) {
+                if (insn.name.equals("<init>")) {
+                    insn.owner = upgrade.getValue();
+                    transformed = true;
                 }
             }
         }
@@ -3,23 +3,21 @@ package com.gtnewhorizons.rfbplugins.compat.transformers;
 import com.gtnewhorizons.retrofuturabootstrap.SharedConfig;
 import com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassInsnIndex;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.asm.InPlacePrefixRemapper;
 import java.util.Arrays;
 import java.util.jar.Manifest;
 import java.util.stream.Stream;
 import org.intellij.lang.annotations.Pattern;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.commons.ClassRemapper;
 import org.objectweb.asm.commons.Remapper;
-import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Redirects various deprecated Java classes/methods to dummy implementations.
@@ -32,6 +30,8 @@ public class DeprecatedRedirectTransformer extends Remapper implements RfbClassT
         "com/gtnewhorizons/retrofuturabootstrap/SecurityManager"
     };
 
+    final InPlacePrefixRemapper remapper = new InPlacePrefixRemapper(fromPrefixes, toPrefixes);
+
     final BytePatternMatcher deprecatedClassMatcher =
             new BytePatternMatcher(fromPrefixes, BytePatternMatcher.Mode.Contains);
 
@@ -60,14 +60,21 @@ public class DeprecatedRedirectTransformer extends Remapper implements RfbClassT
         }
 
         final ClassHeaderMetadata metadata = classNode.getOriginalMetadata();
-        if (metadata == null) {
-            return false;
-        }
+        return metadata != null && mayTransformClassBytes(metadata, classNode.getOriginalBytes());
+    }
+
+    @Override
+    public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
         if (metadata.majorVersion >= Opcodes.V21) {
             return false;
         }
 
-        return metadata.matchesBytes(classNode.getOriginalBytes(), deprecatedClassMatcher);
+        return metadata.matchesBytes(classBytes, deprecatedClassMatcher);
+    }
+
+    @Override
+    public boolean supportsPretransformation() {
+        return true;
     }
 
     @Override
@@ -82,51 +89,44 @@ public class DeprecatedRedirectTransformer extends Remapper implements RfbClassT
             return false;
         }
 
-        final ClassNode outputNode = new ClassNode();
-        final ClassVisitor visitor = new ClassRemapper(outputNode, this);
-
+        // Only the few references to the deprecated classes are rewritten, instead of copying the whole class
+        boolean transformed;
         try {
-            inputNode.accept(visitor);
+            transformed = remapper.remapInPlace(inputNode);
         } catch (Exception e) {
             SharedConfig.logWarning("Couldn't remap class " + className, e);
             return false;
         }
 
+        if (transformed) {
+            // The instructions were edited in place, an index built by an earlier transformer lists the old owners
+            classNode.invalidateInsnIndex();
+        }
+
         // Remap SecurityManager getter/setter
-        if (outputNode.methods != null) {
-            for (final MethodNode mn : outputNode.methods) {
-                if (mn.instructions == null) {
+        final ClassInsnIndex index = classNode.getInsnIndex();
+        if (index != null) {
+            boolean redirected = false;
+            for (final MethodInsnNode minsn : index.methodInsnsByOwner("java/lang/System")) {
+                if (minsn.getOpcode() != Opcodes.INVOKESTATIC) {
                     continue;
                 }
-                for (final AbstractInsnNode insn : mn.instructions) {
-                    if (insn.getOpcode() != Opcodes.INVOKESTATIC) {
-                        continue;
-                    }
-                    final MethodInsnNode minsn = (MethodInsnNode) insn;
-                    if (!"java/lang/System".equals(minsn.owner)) {
-                        continue;
-                    }
-                    if ("getSecurityManager".equals(minsn.name) || "setSecurityManager".equals(minsn.name)) {
-                        minsn.owner = "com/gtnewhorizons/retrofuturabootstrap/SecurityManager";
-                    }
+                if ("getSecurityManager".equals(minsn.name) || "setSecurityManager".equals(minsn.name)) {
+                    minsn.owner = "com/gtnewhorizons/retrofuturabootstrap/SecurityManager";
+                    redirected = true;
                 }
             }
+            if (redirected) {
+                classNode.invalidateInsnIndex();
+                transformed = true;
+            }
         }
 
-        classNode.setNode(outputNode);
-        return true;
+        return transformed;
     }
 
     @Override
     public String map(String typeName) {
-        if (typeName == null) {
-            return null;
-        }
-        for (int pfx = 0; pfx < fromPrefixes.length; pfx++) {
-            if (typeName.startsWith(fromPrefixes[pfx])) {
-                return toPrefixes[pfx] + typeName.substring(fromPrefixes[pfx].length());
-            }
-        }
-        return typeName;
+        return remapper.map(typeName);
     }
 }
@@ -1,12 +1,16 @@
 package com.gtnewhorizons.rfbplugins.compat.transformers;
 
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassInsnIndex;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.FastClassAccessor;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
 import com.gtnewhorizons.rfbplugins.compat.ModernJavaCompatibilityPlugin;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import org.intellij.lang.annotations.Pattern;
@@ -14,10 +18,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.InvokeDynamicInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Fixes a bug of ASM 5.0 used in the java 8 era of modding, leading to the following exception at runtime:
@@ -34,6 +36,14 @@ public class InterfaceMethodRefFixer implements RfbClassTransformer {
     /** Attribute to set to "true" on a JAR to skip class transforms from this transformer entirely */
     public static final Attributes.Name MANIFEST_SAFE_ATTRIBUTE = new Attributes.Name("Has-Safe-InterfaceMethodRefs");
 
+    /**
+     * Whether a class is an interface, by internal name, per class loader. Only classes that were found are cached, a
+     * class can't turn into an interface or back afterwards (class redefinition can't change it either), but a class that
+     * was missing can still be added to the classpath later.
+     */
+    private final Map<ExtensibleClassLoader, ConcurrentHashMap<String, Boolean>> ownerInterfaceCaches =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     @Pattern("[a-z0-9-]+")
     @Override
     public @NotNull String id() {
@@ -50,23 +60,34 @@ public class InterfaceMethodRefFixer implements RfbClassTransformer {
         if (!classNode.isPresent()) {
             return false;
         }
-
-        final ClassHeaderMetadata metadata = classNode.getOriginalMetadata();
-        if (metadata == null) {
+        if (!mayTransformJar(manifest)) {
             return false;
         }
 
+        final ClassHeaderMetadata metadata = classNode.getOriginalMetadata();
+        return metadata != null && mayTransformClassBytes(metadata, classNode.getOriginalBytes());
+    }
+
+    @Override
+    public boolean mayTransformJar(@Nullable Manifest manifest) {
+        return manifest == null || !"true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE));
+    }
+
+    @Override
+    public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
         // Assume classes for java 9+ were not plagued by the asm 5.0 interfacemethodref bug.
         if (metadata.majorVersion >= Opcodes.V9) {
             return false;
         }
-        if (manifest != null && "true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE))) {
-            return false;
-        }
 
         return metadata.hasInvokeDynamicEntry();
     }
 
+    @Override
+    public boolean supportsPretransformation() {
+        return true;
+    }
+
     @Override
     public boolean transformClassIfNeeded(
             @NotNull ExtensibleClassLoader classLoader,
@@ -86,25 +107,18 @@ public class InterfaceMethodRefFixer implements RfbClassTransformer {
         // classLoader.findClassMetadata() reads the class bytes and constructs ClassHeaderMetadata with expensive
         // <init> when the class hasn't been loaded by this loader. Furthermore, this method doesn't load the class,
         // so every call it reads the bytes again, luckily from cache, but creates expensive ClassHeaderMetadata again.
-        // Preventing ClassHeaderMetadata re-instantiation for the same class even per class file prevents nearly
-        // 10,000 instantiations during the full pack load
-        final HashMap<String, Boolean> ownerInterfaceCache = new HashMap<>();
+        // Caching the result for the whole loader means common owners (java/util/function, Guava, mod APIs) are only
+        // looked up once, instead of once per class with lambdas
+        final ConcurrentHashMap<String, Boolean> ownerInterfaceCache =
+                ownerInterfaceCaches.computeIfAbsent(classLoader, k -> new ConcurrentHashMap<>());
 
-        for (MethodNode method : node.methods) {
-            if (method.instructions == null) {
-                continue;
-            }
-
-            for (AbstractInsnNode insn : method.instructions) {
-                if (insn instanceof InvokeDynamicInsnNode) {
-                    transformed |= fixInvokeDynamicInsn(
-                            classLoader,
-                            internalClassName,
-                            classIsInterface,
-                            ownerInterfaceCache,
-                            (InvokeDynamicInsnNode) insn);
-                }
-            }
+        final ClassInsnIndex index = classNode.getInsnIndex();
+        if (index == null) {
+            return false;
+        }
+        for (InvokeDynamicInsnNode insn : index.invokeDynamicInsns()) {
+            transformed |= fixInvokeDynamicInsn(
+                    classLoader, internalClassName, classIsInterface, ownerInterfaceCache, insn);
         }
 
         return transformed;
@@ -114,7 +128,7 @@ public class InterfaceMethodRefFixer implements RfbClassTransformer {
             ExtensibleClassLoader classLoader,
             String internalClassName,
             boolean classIsInterface,
-            HashMap<String, Boolean> ownerInterfaceCache,
+            ConcurrentHashMap<String, Boolean> ownerInterfaceCache,
             InvokeDynamicInsnNode insn) {
         boolean transformed = false;
         final Handle fixedBootstrapMethod =
@@ -150,7 +164,7 @@ public class InterfaceMethodRefFixer implements RfbClassTransformer {
             ExtensibleClassLoader classLoader,
             String internalClassName,
             boolean classIsInterface,
-            HashMap<String, Boolean> ownerInterfaceCache,
+            ConcurrentHashMap<String, Boolean> ownerInterfaceCache,
             Handle handle) {
         if (handle.isInterface()) {
             return null;
@@ -197,14 +211,19 @@ public class InterfaceMethodRefFixer implements RfbClassTransformer {
     }
 
     private static boolean ownerIsInterface(
-            ExtensibleClassLoader classLoader, HashMap<String, Boolean> ownerInterfaceCache, String ownerInternalName) {
+            ExtensibleClassLoader classLoader,
+            ConcurrentHashMap<String, Boolean> ownerInterfaceCache,
+            String ownerInternalName) {
         final Boolean cached = ownerInterfaceCache.get(ownerInternalName);
         if (cached != null) {
             return cached;
         }
 
         final FastClassAccessor metadata = classLoader.findClassMetadata(ownerInternalName.replace('/', '.'));
-        final boolean isInterface = metadata != null && metadata.isInterface();
+        if (metadata == null) {
+            return false;
+        }
+        final boolean isInterface = metadata.isInterface();
 
         ownerInterfaceCache.put(ownerInternalName, isInterface);
         return isInterface;
@@ -2,6 +2,7 @@ package com.gtnewhorizons.rfbplugins.compat.transformers;
 
 import com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassInsnIndex;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
@@ -13,10 +14,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 
 /**
@@ -48,12 +47,27 @@ public class SafeClassWriterTransformer implements RfbClassTransformer {
         if (!classNode.isPresent()) {
             return false;
         }
-        if (manifest != null && "true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE))) {
+        if (!mayTransformJar(manifest)) {
             return false;
         }
 
         final ClassHeaderMetadata metadata = classNode.getOriginalMetadata();
-        return metadata != null && metadata.matchesBytes(classNode.getOriginalBytes(), classWriterMatcher);
+        return metadata != null && mayTransformClassBytes(metadata, classNode.getOriginalBytes());
+    }
+
+    @Override
+    public boolean mayTransformJar(@Nullable Manifest manifest) {
+        return manifest == null || !"true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE));
+    }
+
+    @Override
+    public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
+        return metadata.matchesBytes(classBytes, classWriterMatcher);
+    }
+
+    @Override
+    public boolean supportsPretransformation() {
+        return true;
     }
 
     @Override
@@ -74,24 +88,20 @@ public class SafeClassWriterTransformer implements RfbClassTransformer {
             transformed = true;
         }
 
-        for (MethodNode method : node.methods) {
-            if (method.instructions == null) {
-                continue;
+        final ClassInsnIndex index = classNode.getInsnIndex();
+        if (index == null) {
+            return transformed;
+        }
+        for (TypeInsnNode insn : index.typeInsnsByDesc(CLASS_WRITER_NAME)) {
+            if (insn.getOpcode() == Opcodes.NEW) {
+                insn.desc = SAFE_WRITER_NAME;
+                transformed = true;
             }
-            for (AbstractInsnNode rawInsn : method.instructions) {
-                if (rawInsn.getType() == AbstractInsnNode.TYPE_INSN && rawInsn.getOpcode() == Opcodes.NEW) {
-                    final TypeInsnNode insn = (TypeInsnNode) rawInsn;
-                    if (insn.desc.equals(CLASS_WRITER_NAME)) {
-                        insn.desc = SAFE_WRITER_NAME;
-                        transformed = true;
-                    }
-                } else if (rawInsn.getType() == AbstractInsnNode.METHOD_INSN) {
-                    final MethodInsnNode insn = (MethodInsnNode) rawInsn;
-                    if (insn.owner.equals(CLASS_WRITER_NAME) && insn.name.equals("<init>")) {
-                        insn.owner = SAFE_WRITER_NAME;
-                        transformed = true;
-                    }
-                }
+        }
+        for (MethodInsnNode insn : index.methodInsnsByOwner(CLASS_WRITER_NAME)) {
+            if (insn.name.equals("<init>")) {
+                insn.owner = SAFE_WRITER_NAME;
+                transformed = true;
             }
         }
 
@@ -2,6 +2,7 @@ package com.gtnewhorizons.rfbplugins.compat.transformers;
 
 import com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassInsnIndex;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
@@ -15,10 +16,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Replaces the broken "remove final from Field.modifiers" approach with a redirection to our Unsafe-based method.
@@ -68,12 +66,27 @@ public class UnsafeReflectionTransformer implements RfbClassTransformer {
         if (!classNode.isPresent()) {
             return false;
         }
-        if (manifest != null && "true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE))) {
+        if (!mayTransformJar(manifest)) {
             return false;
         }
 
         final ClassHeaderMetadata metadata = classNode.getOriginalMetadata();
-        return metadata != null && metadata.matchesBytes(classNode.getOriginalBytes(), reflectionMatcher);
+        return metadata != null && mayTransformClassBytes(metadata, classNode.getOriginalBytes());
+    }
+
+    @Override
+    public boolean mayTransformJar(@Nullable Manifest manifest) {
+        return manifest == null || !"true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE));
+    }
+
+    @Override
+    public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
+        return metadata.matchesBytes(classBytes, reflectionMatcher);
+    }
+
+    @Override
+    public boolean supportsPretransformation() {
+        return true;
     }
 
     @Override
@@ -83,45 +96,35 @@ public class UnsafeReflectionTransformer implements RfbClassTransformer {
             @Nullable Manifest manifest,
             @NotNull String className,
             @NotNull ClassNodeHandle classNode) {
-        final ClassNode node = classNode.getNode();
+        final ClassInsnIndex index = classNode.getInsnIndex();
         boolean transformed = false;
-        if (node == null) {
+        if (index == null) {
             return false;
         }
 
-        for (MethodNode method : node.methods) {
-            if (method.instructions == null) {
-                continue;
+        for (MethodInsnNode insn : index.methodInsnsByOwner(CLASS_NAME)) {
+            if (insn.name.equals("getDeclaredField") && insn.desc.equals(CLASS_GET_DECLARED_FIELD_DESC)) {
+                // getDeclaredField(Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/reflect/Field;
+                insn.setOpcode(Opcodes.INVOKESTATIC);
+                insn.owner = REDIRECTION_NAME;
+                insn.desc = "(Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/reflect/Field;";
+                transformed = true;
+            } else if (insn.name.equals("getDeclaredFields") && insn.desc.equals(CLASS_GET_DECLARED_FIELDS_DESC)) {
+                // getDeclaredFields(Ljava/lang/Class;)[Ljava/lang/reflect/Field;
+                insn.setOpcode(Opcodes.INVOKESTATIC);
+                insn.owner = REDIRECTION_NAME;
+                insn.desc = "(Ljava/lang/Class;)[Ljava/lang/reflect/Field;";
+                transformed = true;
             }
-            for (AbstractInsnNode rawInsn : method.instructions) {
-                if (rawInsn.getType() == AbstractInsnNode.METHOD_INSN) {
-                    final MethodInsnNode insn = (MethodInsnNode) rawInsn;
-                    if (insn.owner.equals(CLASS_NAME)
-                            && insn.name.equals("getDeclaredField")
-                            && insn.desc.equals(CLASS_GET_DECLARED_FIELD_DESC)) {
-                        // getDeclaredField(Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/reflect/Field;
-                        insn.setOpcode(Opcodes.INVOKESTATIC);
-                        insn.owner = REDIRECTION_NAME;
-                        insn.desc = "(Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/reflect/Field;";
-                        transformed = true;
-                    } else if (insn.owner.equals(CLASS_NAME)
-                            && insn.name.equals("getDeclaredFields")
-                            && insn.desc.equals(CLASS_GET_DECLARED_FIELDS_DESC)) {
-                        // getDeclaredFields(Ljava/lang/Class;)[Ljava/lang/reflect/Field;
-                        insn.setOpcode(Opcodes.INVOKESTATIC);
-                        insn.owner = REDIRECTION_NAME;
-                        insn.desc = "(Ljava/lang/Class;)[Ljava/lang/reflect/Field;";
-                        transformed = true;
-                    } else if (insn.owner.equals(FIELD_NAME)
-                            && REDIRECT_FIELD_METHODS.contains(insn.name + insn.desc)) {
-                        // add a Field argument at the start
-                        String newDesc = "(Ljava/lang/reflect/Field;" + insn.desc.substring(1);
-                        insn.setOpcode(Opcodes.INVOKESTATIC);
-                        insn.owner = REDIRECTION_NAME;
-                        insn.desc = newDesc;
-                        transformed = true;
-                    }
-                }
+        }
+        for (MethodInsnNode insn : index.methodInsnsByOwner(FIELD_NAME)) {
+            if (REDIRECT_FIELD_METHODS.contains(insn.name + insn.desc)) {
+                // add a Field argument at the start
+                String newDesc = "(Ljava/lang/reflect/Field;" + insn.desc.substring(1);
+                insn.setOpcode(Opcodes.INVOKESTATIC);
+                insn.owner = REDIRECTION_NAME;
+                insn.desc = newDesc;
+                transformed = true;
             }
         }
 
@@ -2,6 +2,7 @@ package com.gtnewhorizons.rfbplugins.compat.transformers;
 
 import com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassInsnIndex;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
@@ -14,10 +15,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Redirect the {@link UUID#fromString(String)} factory function to an implementation copying Java 8's less strict behaviour.
@@ -49,19 +47,31 @@ public class UuidTransformer implements RfbClassTransformer {
         if (!classNode.isPresent()) {
             return false;
         }
-        if (manifest != null && "true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE))) {
+        if (!mayTransformJar(manifest)) {
             return false;
         }
 
         final ClassHeaderMetadata metadata = classNode.getOriginalMetadata();
-        if (metadata == null) {
-            return false;
-        }
+        return metadata != null && mayTransformClassBytes(metadata, classNode.getOriginalBytes());
+    }
+
+    @Override
+    public boolean mayTransformJar(@Nullable Manifest manifest) {
+        return manifest == null || !"true".equals(manifest.getMainAttributes().getValue(MANIFEST_SAFE_ATTRIBUTE));
+    }
+
+    @Override
+    public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
         if (metadata.majorVersion >= Opcodes.V9) {
             return false;
         }
 
-        return metadata.matchesBytes(classNode.getOriginalBytes(), fromStringMethodMatcher);
+        return metadata.matchesBytes(classBytes, fromStringMethodMatcher);
+    }
+
+    @Override
+    public boolean supportsPretransformation() {
+        return true;
     }
 
     @Override
@@ -71,26 +81,16 @@ public class UuidTransformer implements RfbClassTransformer {
             @Nullable Manifest manifest,
             @NotNull String className,
             @NotNull ClassNodeHandle classNode) {
-        final ClassNode node = classNode.getNode();
+        final ClassInsnIndex index = classNode.getInsnIndex();
         boolean transformed = false;
-        if (node == null) {
+        if (index == null) {
             return false;
         }
 
-        for (MethodNode method : node.methods) {
-            if (method.instructions == null) {
-                continue;
-            }
-            for (AbstractInsnNode rawInsn : method.instructions) {
-                if (rawInsn.getType() == AbstractInsnNode.METHOD_INSN) {
-                    final MethodInsnNode insn = (MethodInsnNode) rawInsn;
-                    if (insn.owner.equals(UUID_NAME)
-                            && insn.name.equals("fromString")
-                            && insn.desc.equals(UUID_FROM_STRING_DESC)) {
-                        insn.owner = REDIRECTION_NAME;
-                        transformed = true;
-                    }
-                }
+        for (MethodInsnNode insn : index.methodInsnsByOwner(UUID_NAME)) {
+            if (insn.name.equals("fromString") && insn.desc.equals(UUID_FROM_STRING_DESC)) {
+                insn.owner = REDIRECTION_NAME;
+                transformed = true;
             }
         }
 
@@ -2,6 +2,8 @@ package net.minecraft.launchwrapper;
 
 import com.gtnewhorizons.retrofuturabootstrap.Main;
 import com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.SharedConfig;
+import com.gtnewhorizons.retrofuturabootstrap.StartupTracer;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.plugin.PluginLoader;
 import java.io.File;
@@ -164,6 +166,7 @@ public class Launch {
         Launch.assetsDir = assetsDir;
         Main.initialGameVersion = version;
         Main.initialGameDir = gameDir != null ? gameDir : new File(".");
+        SharedConfig.gameDirectory.set(Main.initialGameDir.toPath().toAbsolutePath());
         Main.initialAssetsDir = assetsDir;
 
         if ((Main.cfgDumpLoadedClasses || Main.cfgDumpLoadedClassesPerTransformer)
@@ -194,7 +197,9 @@ public class Launch {
         final List<ITweaker> tweaks = new ArrayList<>();
         blackboard.put(RFB$BLACKBOARD_TWEAKS, tweaks);
 
+        final long pluginsStart = StartupTracer.begin();
         PluginLoader.initializePlugins();
+        StartupTracer.end(StartupTracer.CATEGORY_PHASE, "Plugin initialization", null, pluginsStart);
 
         final Set<String> dedupTweakClasses = new HashSet<>();
         final List<ITweaker> allTweakers = new ArrayList<>();
@@ -215,8 +220,10 @@ public class Launch {
                     classLoader.addClassLoaderExclusion(tweakPackagePrefix);
 
                     LogWrapper.rfb$logger.info("Constructing tweaker {}", tweakClass);
+                    final long tweakerStart = StartupTracer.begin();
                     Class<?> tweakerClass = Class.forName(tweakClass, true, classLoader);
                     ITweaker tweaker = (ITweaker) tweakerClass.getConstructor().newInstance();
+                    StartupTracer.end(StartupTracer.CATEGORY_PHASE, "Tweaker construction", tweakClass, tweakerStart);
                     tweaks.add(tweaker);
                     iter.remove();
                     if (firstTweaker == null) {
@@ -231,8 +238,14 @@ public class Launch {
                 final ITweaker tweaker = iter.next();
                 LogWrapper.rfb$logger.info(
                         "Installing tweaker {}", tweaker.getClass().getName());
+                final long injectStart = StartupTracer.begin();
                 tweaker.acceptOptions(remainingArgs, gameDir, assetsDir, version);
                 tweaker.injectIntoClassLoader(classLoader);
+                StartupTracer.end(
+                        StartupTracer.CATEGORY_PHASE,
+                        "Tweaker injectIntoClassLoader",
+                        tweaker.getClass().getName(),
+                        injectStart);
                 allTweakers.add(tweaker);
                 iter.remove();
             }
@@ -243,10 +256,13 @@ public class Launch {
         }
 
         try {
+            final long targetStart = StartupTracer.begin();
             final String launchTargetName =
                     Objects.requireNonNull(firstTweaker, "No tweaker supplied").getLaunchTarget();
             final Class<?> launchTarget = Class.forName(launchTargetName, false, classLoader);
             final Method mainM = launchTarget.getMethod("main", String[].class);
+            StartupTracer.end(StartupTracer.CATEGORY_PHASE, "Launch target loading", launchTargetName, targetStart);
+            StartupTracer.instant(StartupTracer.CATEGORY_PHASE, "Launch target main");
             mainM.invoke(null, (Object) argumentList.toArray(new String[0]));
         } catch (InvocationTargetException e) {
             throw e.getCause();
@@ -1,12 +1,20 @@
 package net.minecraft.launchwrapper;
 
+import com.gtnewhorizons.retrofuturabootstrap.BulkClassReader;
+import com.gtnewhorizons.retrofuturabootstrap.CachedClassNotFoundException;
+import com.gtnewhorizons.retrofuturabootstrap.JarTransformerApplicability;
 import com.gtnewhorizons.retrofuturabootstrap.Main;
+import com.gtnewhorizons.retrofuturabootstrap.PretransformedJar;
+import com.gtnewhorizons.retrofuturabootstrap.RfbJfrEvents;
+import com.gtnewhorizons.retrofuturabootstrap.RfbMetricsRecorder;
 import com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.StartupTracer;
 import com.gtnewhorizons.retrofuturabootstrap.URLClassLoaderWithUtilities;
-import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHierarchyHeader;
 import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
 import com.gtnewhorizons.retrofuturabootstrap.api.FastClassAccessor;
 import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
 import com.gtnewhorizons.retrofuturabootstrap.asm.SafeAsmClassWriter;
 import java.io.Closeable;
 import java.io.File;
@@ -214,16 +222,19 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
     @Override
     public @NotNull Class<?> findClass(final @NotNull String name) throws ClassNotFoundException {
         if (invalidClasses.contains(name)) {
-            throw new ClassNotFoundException(name + " in invalid class cache");
+            throw CachedClassNotFoundException.of(name, " in invalid class cache");
         }
         for (final String exception : classLoaderExceptions) {
             if (name.startsWith(exception)) {
                 return parent.loadClass(name);
             }
         }
+        final Object jfrEvent = RfbJfrEvents.beginFindClass();
+        final long traceStart = StartupTracer.begin();
         {
             final Class<?> cached = cachedClasses.get(name);
             if (cached != null) {
+                RfbJfrEvents.endFindClass(jfrEvent, getClassLoaderName(), name, 0, true);
                 return cached;
             }
         }
@@ -238,6 +249,7 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
         {
             Class<?> transformedClass = cachedClasses.get(transformedName);
             if (transformedClass != null) {
+                RfbJfrEvents.endFindClass(jfrEvent, getClassLoaderName(), name, 0, true);
                 return transformedClass;
             }
         }
@@ -249,11 +261,13 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
         Package pkg = null;
         final CodeSource codeSource;
         Manifest manifest = null;
+        URL jarFileUrl = null;
         byte[] classBytes = null;
         if (!packageName.isEmpty()) {
             if (!untransformedName.startsWith("net.minecraft.") && connection instanceof JarURLConnection) {
                 final JarURLConnection jarConnection = (JarURLConnection) connection;
                 final URL packageSourceUrl = jarConnection.getJarFileURL();
+                jarFileUrl = packageSourceUrl;
                 CodeSigner[] codeSigners = null;
                 try {
                     manifest = jarConnection.getManifest();
@@ -286,8 +300,9 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
             }
         }
         if (Main.cfgDumpLoadedClassesPerTransformer && classBytes != null) {
-            Main.dumpClass(this.getClassLoaderName(), transformedName + "__000_pretransform", classBytes);
+            Main.dumpClass(this.getClassLoaderName(), transformedName, "__000_pretransform", classBytes);
         }
+        final byte[] untransformedBytes = classBytes;
         if (runTransformers) {
             try {
                 classBytes = runTransformers(untransformedName, transformedName, classBytes);
@@ -311,8 +326,26 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
                     final RfbClassTransformer.Context context = runTransformers
                             ? RfbClassTransformer.Context.LCL_WITH_TRANSFORMS
                             : RfbClassTransformer.Context.LCL_NO_TRANSFORMS;
+                    final List<RfbClassTransformerHandle> rfbTransformers = Main.getRfbTransformers();
+                    // The jar scan only holds for the original bytes, not ones rewritten by LaunchWrapper transformers
+                    final JarTransformerApplicability applicability = classBytes == untransformedBytes
+                            ? JarTransformerApplicability.lookup(jarFileUrl)
+                            : null;
+                    // Likewise, the pre-applied transformers must run again on bytes rewritten by LaunchWrapper
+                    final PretransformedJar pretransformedJar = classBytes == untransformedBytes
+                            ? PretransformedJar.of(jarFileUrl, manifest)
+                            : null;
+                    final int pretransformedCount = pretransformedJar == null
+                            ? 0
+                            : pretransformedJar.pretransformedCount(context, rfbTransformers, classPath, classBytes);
                     classBytes = runRfbTransformers(
-                            Main.getRfbTransformers(), context, manifest, transformedName, classBytes);
+                            rfbTransformers,
+                            context,
+                            manifest,
+                            transformedName,
+                            classBytes,
+                            applicability,
+                            pretransformedCount);
                 } catch (Throwable t) {
                     ClassNotFoundException err =
                             new ClassNotFoundException("Exception caught while transforming class " + name, t);
@@ -333,6 +366,8 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
         }
         Class<?> result = defineClass(transformedName, classBytes, 0, classBytes.length, codeSource);
         cachedClasses.put(transformedName, result);
+        RfbJfrEvents.endFindClass(jfrEvent, getClassLoaderName(), name, classBytes.length, false);
+        StartupTracer.end(StartupTracer.CATEGORY_CLASS_LOAD, name, getClassLoaderName(), traceStart);
         return result;
     }
 
@@ -403,36 +438,62 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
     private byte[] runTransformers(final String name, final String transformedName, byte[] basicClass) {
         int xformerIndex = 1;
         for (IClassTransformer xformer : transformers) {
+            final long metricsStartTime = RfbMetricsRecorder.startTime();
+            final long metricsStartAllocation = RfbMetricsRecorder.startAllocation();
+            final Object jfrEvent = RfbJfrEvents.beginTransform();
+            final long traceStart = StartupTracer.begin();
             try {
-                byte[] newKlass;
+                byte[] newKlass = basicClass;
+                // Recorded before the per-transformer dump, and also when the transformer throws
                 try {
-                    newKlass = xformer.transform(name, transformedName, basicClass);
-                } catch (Exception e) {
-                    // retry in case of invalid frames written
-                    if (e.getStackTrace() != null
-                            && e.getStackTrace().length > 2
-                            && e.getStackTrace()[0].getClassName().contains("asm.MethodWriter")) {
-                        SafeAsmClassWriter.forcedFlags.set(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
-                        SafeAsmClassWriter.forcedOriginalClass.set(basicClass);
+                    try {
                         newKlass = xformer.transform(name, transformedName, basicClass);
-                        SafeAsmClassWriter.forcedOriginalClass.set(null);
-                        SafeAsmClassWriter.forcedFlags.set(0);
-                        LogWrapper.rfb$logger.warn(
-                                "Transformer {} did not generate correct frames for {}, had to re-compute using asm.",
+                    } catch (Exception e) {
+                        // retry in case of invalid frames written
+                        if (e.getStackTrace() != null
+                                && e.getStackTrace().length > 2
+                                && e.getStackTrace()[0].getClassName().contains("asm.MethodWriter")) {
+                            SafeAsmClassWriter.forcedFlags.set(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+                            SafeAsmClassWriter.forcedOriginalClass.set(basicClass);
+                            newKlass = xformer.transform(name, transformedName, basicClass);
+                            SafeAsmClassWriter.forcedOriginalClass.set(null);
+                            SafeAsmClassWriter.forcedFlags.set(0);
+                            LogWrapper.rfb$logger.warn(
+                                    "Transformer {} did not generate correct frames for {}, had to re-compute using asm.",
+                                    xformer.getClass().getName(),
+                                    transformedName);
+                        } else {
+                            throw e;
+                        }
+                    }
+                } finally {
+                    if (RfbMetricsRecorder.ENABLED || jfrEvent != null) {
+                        final boolean modified = newKlass != basicClass && !Arrays.equals(basicClass, newKlass);
+                        RfbMetricsRecorder.recordLaunchTransformer(
+                                xformer.getClass(), metricsStartTime, metricsStartAllocation, modified);
+                        RfbJfrEvents.endTransform(
+                                jfrEvent,
+                                getClassLoaderName(),
                                 xformer.getClass().getName(),
-                                transformedName);
-                    } else {
-                        throw e;
+                                transformedName,
+                                false,
+                                modified);
                     }
+                    StartupTracer.end(
+                            StartupTracer.CATEGORY_TRANSFORM,
+                            xformer.getClass().getName(),
+                            transformedName,
+                            traceStart);
                 }
                 if (Main.cfgDumpLoadedClassesPerTransformer
                         && newKlass != null
+                        && Main.shouldDumpClass(transformedName)
                         && !Arrays.equals(basicClass, newKlass)) {
                     Main.dumpClass(
                             this.getClassLoaderName(),
+                            transformedName,
                             String.format(
-                                    "%s__%03d_%s",
-                                    transformedName,
+                                    "__%03d_%s",
                                     xformerIndex,
                                     xformer.getClass()
                                             .getName()
@@ -465,6 +526,7 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
     public void addURL(final URL url) {
         this.negativeResourceCache.clear();
         super.addURL(url);
+        JarTransformerApplicability.register(url);
         sources.add(url);
     }
 
@@ -472,6 +534,7 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
     public void addSilentURL(@Nullable URL url) {
         this.negativeResourceCache.clear();
         super.addURL(url);
+        JarTransformerApplicability.register(url);
     }
 
     /** Returns the saved classpath list */
@@ -554,7 +617,7 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
         try {
             final byte[] classBytes = getClassBytes(name);
             if (classBytes != null) {
-                return ClassHeaderMetadata.of(classBytes);
+                return ClassHierarchyHeader.of(classBytes);
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -574,10 +637,12 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
      */
     public byte[] getClassBytes(String name) throws IOException {
         if (negativeResourceCache.contains(name)) {
+            RfbMetricsRecorder.recordClassBytesLookup(true);
             return null;
         }
         final byte[] cached = resourceCache.get(name);
         if (cached != null) {
+            RfbMetricsRecorder.recordClassBytesLookup(true);
             return cached.clone();
         }
         if (!name.contains(".") && name.length() >= 3 && name.length() <= 4) {
@@ -593,6 +658,7 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
                 }
             }
         }
+        RfbMetricsRecorder.recordClassBytesLookup(false);
         final byte[] data = rfb$getUncachedClassBytes(name);
         if (data == null) {
             negativeResourceCache.add(name);
@@ -604,7 +670,11 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
 
     private byte[] rfb$getUncachedClassBytes(String name) throws IOException {
         final String classPath = name.replace('.', '/') + ".class";
-        final URL resourceUrl = findResource(classPath);
+        final byte[] mapped = readMappedClassBytes(classPath);
+        if (mapped != null && mapped != MAPPED_CLASS_ABSENT) {
+            return mapped;
+        }
+        final URL resourceUrl = mapped == MAPPED_CLASS_ABSENT ? null : findResource(classPath);
         URLConnection conn = resourceUrl == null ? null : resourceUrl.openConnection();
         if (conn == null) {
             if (rfb$platformLoader != null) {
@@ -642,6 +712,25 @@ public class LaunchClassLoader extends URLClassLoaderWithUtilities implements Ex
         }
     }
 
+    @Override
+    public void forEachClassIn(@NotNull URL classpathEntry, boolean populateCache, @NotNull ClassEntryVisitor visitor)
+            throws IOException {
+        BulkClassReader.forEachClassIn(
+                classpathEntry,
+                visitor,
+                populateCache ? (name, classBytes) -> rfb$cacheBulkReadClass(classpathEntry, name, classBytes) : null);
+    }
+
+    private void rfb$cacheBulkReadClass(URL classpathEntry, String name, byte[] classBytes) {
+        if (resourceCache.containsKey(name) || negativeResourceCache.contains(name)) {
+            return;
+        }
+        final String classPath = name.replace('.', '/') + ".class";
+        if (BulkClassReader.isResolvedFrom(findResource(classPath), classpathEntry, classPath)) {
+            resourceCache.putIfAbsent(name, classBytes);
+        }
+    }
+
     /** Removes all of entriesToClear from negativeResourceCache */
     public void clearNegativeEntries(Set<String> entriesToClear) {
         negativeResourceCache.removeAll(entriesToClear);
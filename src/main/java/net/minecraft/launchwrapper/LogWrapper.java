@@ -1,6 +1,7 @@
 package net.minecraft.launchwrapper;
 
 import com.gtnewhorizons.retrofuturabootstrap.Main;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,6 +15,8 @@ public class LogWrapper {
     private static volatile boolean configured;
     /** RFB-added: public logger accessor for convenience */
     public static Logger rfb$logger;
+    /** RFB-added: loggers of the log channels used so far, so they're not looked up in log4j on every call */
+    private static final ConcurrentHashMap<String, Logger> channelLoggers = new ConcurrentHashMap<>();
 
     /**
      * <ul>
@@ -45,40 +48,58 @@ public class LogWrapper {
      * </ul>
      */
     public static void log(String logChannel, Level level, String format, Object... data) {
-        if (format.contains("{}")) {
-            LogManager.getLogger(logChannel).log(level, format, data);
-        } else {
-            LogManager.getLogger(logChannel).log(level, String.format(format, data));
-        }
+        log(getChannelLogger(logChannel), level, format, data);
     }
 
     /** Like above, but logs to myLog (and configures logging first if guard is false). */
     public static void log(Level level, String format, Object... data) {
         configureLogging();
-        if (format.contains("{}")) {
-            log.myLog.log(level, format, data);
-        } else {
-            log.myLog.log(level, String.format(format, data));
-        }
+        log(log.myLog, level, format, data);
     }
 
     /** Like above, with a Throwable */
     public static void log(String logChannel, Level level, Throwable ex, String format, Object... data) {
-        if (format.contains("{}")) {
-            LogManager.getLogger(logChannel).log(level, format, data, ex);
-        } else {
-            LogManager.getLogger(logChannel).log(level, String.format(format, data), ex);
-        }
+        log(getChannelLogger(logChannel), level, ex, format, data);
     }
 
     /** Like above, with a Throwable */
     public static void log(Level level, Throwable ex, String format, Object... data) {
         configureLogging();
+        log(log.myLog, level, ex, format, data);
+    }
+
+    /** RFB-added: skips all formatting if the level is disabled */
+    private static void log(Logger logger, Level level, String format, Object[] data) {
+        if (!logger.isEnabled(level)) {
+            return;
+        }
         if (format.contains("{}")) {
-            log.myLog.log(level, format, data, ex);
+            logger.log(level, format, data);
         } else {
-            log.myLog.log(level, String.format(format, data), ex);
+            logger.log(level, String.format(format, data));
+        }
+    }
+
+    /** RFB-added: skips all formatting if the level is disabled */
+    private static void log(Logger logger, Level level, Throwable ex, String format, Object[] data) {
+        if (!logger.isEnabled(level)) {
+            return;
+        }
+        if (format.contains("{}")) {
+            logger.log(level, format, data, ex);
+        } else {
+            logger.log(level, String.format(format, data), ex);
+        }
+    }
+
+    /** RFB-added: the cached logger of a log channel */
+    private static Logger getChannelLogger(String logChannel) {
+        if (logChannel == null) {
+            // log4j names the logger after the caller in this case
+            return LogManager.getLogger(logChannel);
         }
+        final Logger logger = channelLoggers.get(logChannel);
+        return logger != null ? logger : channelLoggers.computeIfAbsent(logChannel, LogManager::getLogger);
     }
 
     /** Trivial wrapper */
@@ -113,6 +134,6 @@ public class LogWrapper {
 
     /** Ensures a given logger name is initialized (pointless?!) */
     public static void makeLog(String logChannel) {
-        LogManager.getLogger(logChannel);
+        getChannelLogger(logChannel);
     }
 }
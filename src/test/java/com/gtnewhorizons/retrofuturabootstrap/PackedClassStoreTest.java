@@ -0,0 +1,175 @@
+package com.gtnewhorizons.retrofuturabootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unlike the other tests, this one is in the main package: {@link PackedClassStore} is a package-private part of the
+ * system class loader, and the file format is only reachable through its package-private write, open and read methods.
+ */
+public class PackedClassStoreTest {
+    private static final String CONTENT_HASH = "00112233445566778899aabbccddeeff00112233";
+
+    @Test
+    void readsBackWrittenClasses() throws IOException {
+        final Random random = new Random(41);
+        final List<byte[]> names = new ArrayList<>();
+        final List<byte[]> classes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            names.add(utf8("com/example/pkg" + random.nextInt(10) + "/Class" + i + "$Inner.class"));
+            final byte[] data = new byte[random.nextInt(4000)];
+            random.nextBytes(data);
+            classes.add(data);
+        }
+        names.add(utf8("com/example/Ünïcode.class"));
+        classes.add(new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+        final Path dir = Files.createTempDirectory("rfb-class-store");
+        try {
+            final byte[] rawHash = rawHash();
+            Assertions.assertTrue(PackedClassStore.write(dir, CONTENT_HASH, rawHash, names, classes));
+            final PackedClassStore store = PackedClassStore.open(dir, CONTENT_HASH, rawHash);
+            Assertions.assertNotNull(store);
+            for (int i = 0; i < names.size(); i++) {
+                Assertions.assertArrayEquals(classes.get(i), read(store, names.get(i), classes.get(i).length));
+            }
+            Assertions.assertNull(read(store, utf8("com/example/Missing.class"), 10));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void rejectsMismatchedSizes() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-class-store");
+        try {
+            final byte[] rawHash = rawHash();
+            writeSingleClass(dir, rawHash);
+            final PackedClassStore store = PackedClassStore.open(dir, CONTENT_HASH, rawHash);
+            Assertions.assertNotNull(store);
+            Assertions.assertNotNull(read(store, utf8("a/A.class"), 3));
+            // The jar entry changed size, the stored bytes are stale
+            Assertions.assertNull(read(store, utf8("a/A.class"), 4));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void rejectsStoresOfOtherJarContents() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-class-store");
+        try {
+            final byte[] rawHash = rawHash();
+            writeSingleClass(dir, rawHash);
+            final byte[] otherHash = rawHash.clone();
+            otherHash[otherHash.length - 1] ^= 1;
+            Assertions.assertNull(PackedClassStore.open(dir, CONTENT_HASH, otherHash));
+            Assertions.assertNotNull(PackedClassStore.open(dir, CONTENT_HASH, rawHash));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void rejectsInvalidHeaders() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-class-store");
+        try {
+            final byte[] rawHash = rawHash();
+            // Magic, version, and a table size that isn't a power of two or runs past the end of the file
+            final int[][] corruptions = {{0, 0x12345678}, {4, 2}, {8, 3}, {8, 1 << 20}, {8, -16}};
+            for (int i = 0; i < corruptions.length; i++) {
+                // Mapped files can't be replaced on Windows, every case gets its own store directory
+                final Path caseDir = dir.resolve("case" + i);
+                final Path file = writeSingleClass(caseDir, rawHash);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    final ByteBuffer value = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+                    value.putInt(0, corruptions[i][1]);
+                    channel.write(value, corruptions[i][0]);
+                }
+                Assertions.assertNull(
+                        PackedClassStore.open(caseDir, CONTENT_HASH, rawHash),
+                        "offset " + corruptions[i][0] + " set to " + corruptions[i][1]);
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void ignoresTruncatedStores() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-class-store");
+        try {
+            final byte[] rawHash = rawHash();
+            // Cut off the class bytes: the store still opens, but the record is not returned
+            final Path recordsDir = dir.resolve("records");
+            truncate(writeSingleClass(recordsDir, rawHash), -2);
+            final PackedClassStore store = PackedClassStore.open(recordsDir, CONTENT_HASH, rawHash);
+            Assertions.assertNotNull(store);
+            Assertions.assertNull(read(store, utf8("a/A.class"), 3));
+            // Cut into the header
+            final Path headerDir = dir.resolve("header");
+            final Path headerFile = writeSingleClass(headerDir, rawHash);
+            truncate(headerFile, 20 - Files.size(headerFile));
+            Assertions.assertNull(PackedClassStore.open(headerDir, CONTENT_HASH, rawHash));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static Path writeSingleClass(Path dir, byte[] rawHash) throws IOException {
+        final List<byte[]> names = new ArrayList<>();
+        final List<byte[]> classes = new ArrayList<>();
+        names.add(utf8("a/A.class"));
+        classes.add(new byte[] {1, 2, 3});
+        Assertions.assertTrue(PackedClassStore.write(dir, CONTENT_HASH, rawHash, names, classes));
+        return dir.resolve(CONTENT_HASH + ".rfbcs");
+    }
+
+    private static void truncate(Path file, long sizeChange) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() + sizeChange);
+        }
+    }
+
+    private static byte[] read(PackedClassStore store, byte[] name, long size) {
+        return store.read(ByteBuffer.wrap(name), 0, name.length, size);
+    }
+
+    private static byte[] rawHash() {
+        final byte[] hash = new byte[20];
+        for (int i = 0; i < hash.length; i++) {
+            hash[i] = (byte) Integer.parseInt(CONTENT_HASH.substring(i * 2, i * 2 + 2), 16);
+        }
+        return hash;
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Best effort, Windows doesn't allow deleting the stores that are still mapped */
+    private static void deleteRecursively(Path dir) {
+        final File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (file.isDirectory()) {
+                    deleteRecursively(file.toPath());
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        dir.toFile().delete();
+    }
+}
@@ -0,0 +1,412 @@
+package com.gtnewhorizons.retrofuturabootstrap.plugin;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.gtnewhorizons.retrofuturabootstrap.Main;
+import com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.api.PluginContext;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPlugin;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginMetadata;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+
+/**
+ * Unlike the other tests, this one is in the plugin package: the placeholder of deferred plugins and the deferral
+ * decision are package-private parts of the plugin loader.
+ */
+public class LazyPluginLoaderTest {
+    private static final String PROPERTIES_ENTRY = "META-INF/rfb-plugin/lazy-test.properties";
+    private static final String PLUGIN_PROPERTIES = "name=Lazy Test\n"
+            + "version=1.0.0\n"
+            + "className=" + TestPlugin.class.getName() + "\n"
+            + "transformerTargets= lazytest.Target* ; ;lazytest.Triggered?\n";
+    private static final String[] CLASSES = {
+        "lazytest.Other", "lazytest.Target", "lazytest.Target2", "lazytest.TargetOfConstruction", "lazytest.Later"
+    };
+    private static final URI DUMMY_SOURCE = URI.create("file:dummy");
+    private static final URL DUMMY_URL;
+
+    static {
+        try {
+            DUMMY_URL = DUMMY_SOURCE.toURL();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final RfbPluginMetadata OBSERVER_METADATA = new RfbPluginMetadata.Builder(
+                    DUMMY_URL, DUMMY_SOURCE, "lazy-observer", "Lazy Observer", "1.0.0", "lazy.Observer")
+            .build();
+
+    @Test
+    void parsesTransformerTargets() throws IOException {
+        final RfbPluginMetadata metadata = parseMetadata(writeJar());
+        assertEquals("lazy-test", metadata.id());
+        assertArrayEquals(new String[] {"lazytest.Target*", "lazytest.Triggered?"}, metadata.transformerTargets());
+        final RfbPluginMetadata undeclared = new RfbPluginMetadata.Builder(
+                        DUMMY_URL, DUMMY_SOURCE, "plain", "Plain", "1.0.0", "plain.Plugin")
+                .build();
+        assertArrayEquals(new String[0], undeclared.transformerTargets());
+    }
+
+    @Test
+    void defersOnlyPluginsNothingDependsOn() {
+        final RfbPluginMetadata deferred = plugin("deferred", "a.*").build();
+        final RfbPluginMetadata noTargets = plugin("no-targets").build();
+        final RfbPluginMetadata required = plugin("required", "a.*").build();
+        final RfbPluginMetadata loadedAfter = plugin("loaded-after", "a.*").build();
+        final RfbPluginMetadata loadsBefore =
+                plugin("loads-before", "a.*").loadBefore("deferred").build();
+        final RfbPluginMetadata renamed = plugin("renamed", "a.*")
+                .additionalVersion("old-name", "1.0.0")
+                .build();
+        final RfbPluginMetadata dependent = plugin("dependent")
+                .loadRequires("required")
+                .loadAfter("loaded-after")
+                .loadAfter("old-name")
+                .build();
+        final List<RfbPluginMetadata> all =
+                Arrays.asList(deferred, noTargets, required, loadedAfter, loadsBefore, renamed, dependent);
+        final Set<String> eagerIds = PluginLoader.findEagerlyNeededIds(all);
+        assertTrue(PluginLoader.isDeferrable(deferred, eagerIds));
+        assertFalse(PluginLoader.isDeferrable(noTargets, eagerIds));
+        assertFalse(PluginLoader.isDeferrable(required, eagerIds));
+        assertFalse(PluginLoader.isDeferrable(loadedAfter, eagerIds));
+        assertFalse(PluginLoader.isDeferrable(loadsBefore, eagerIds));
+        assertFalse(PluginLoader.isDeferrable(renamed, eagerIds));
+        assertFalse(PluginLoader.isDeferrable(dependent, eagerIds));
+    }
+
+    @Test
+    void constructsThePluginForTheFirstTargetClass() throws Exception {
+        try (LazyLaunch launch = new LazyLaunch()) {
+            final LazyPluginLoader lazy = launch.install();
+            assertEquals(Collections.singletonList("f0_observer"), launch.fields("lazytest.Other"));
+            assertEquals(0, TestPlugin.constructions.get());
+
+            // Restarts with the new chain, so the plugin's transformer runs before the observer like for later classes
+            assertEquals(Arrays.asList("f0_marker", "f1_observer"), launch.fields("lazytest.Target"));
+            assertEquals(1, TestPlugin.constructions.get());
+            final List<RfbClassTransformerHandle> chain = Main.getRfbTransformers();
+            assertFalse(chain.contains(lazy.handle()));
+            assertEquals(
+                    Arrays.asList("lazy-test:marker", "lazy-observer:observer"),
+                    Arrays.asList(chain.get(chain.size() - 2).id(), chain.get(chain.size() - 1).id()));
+
+            assertEquals(Arrays.asList("f0_marker", "f1_observer"), launch.fields("lazytest.Later"));
+            assertEquals(Arrays.asList("f0_marker", "f1_observer"), launch.fields("lazytest.Target2"));
+            assertEquals(1, TestPlugin.constructions.get());
+        }
+    }
+
+    @Test
+    void targetsLoadedByTheConstructionSkipThePlugin() throws Exception {
+        try (LazyLaunch launch = new LazyLaunch()) {
+            launch.install();
+            TestPlugin.loadDuringConstruction = "lazytest.TargetOfConstruction";
+            assertEquals(Arrays.asList("f0_marker", "f1_observer"), launch.fields("lazytest.Target"));
+            final Class<?> loadedByPlugin = TestPlugin.loadedDuringConstruction.get();
+            assertNotNull(loadedByPlugin);
+            assertSame(loadedByPlugin, launch.loader.loadClass("lazytest.TargetOfConstruction"));
+            assertEquals(Collections.singletonList("f0_observer"), fieldNames(loadedByPlugin));
+        }
+    }
+
+    @Test
+    void otherThreadsWaitForTheConstruction() throws Exception {
+        try (LazyLaunch launch = new LazyLaunch()) {
+            launch.install();
+            final CountDownLatch release = new CountDownLatch(1);
+            TestPlugin.release = release;
+            final AtomicReference<List<String>> firstFields = new AtomicReference<>();
+            final AtomicReference<List<String>> secondFields = new AtomicReference<>();
+            final Thread first = launch.loadInThread("lazytest.Target", firstFields);
+            first.start();
+            awaitTrue(() -> TestPlugin.constructions.get() == 1);
+            final Thread second = launch.loadInThread("lazytest.Target2", secondFields);
+            second.start();
+            awaitTrue(() -> second.getState() == Thread.State.WAITING || second.getState() == Thread.State.BLOCKED);
+            release.countDown();
+            first.join(TimeUnit.SECONDS.toMillis(10));
+            second.join(TimeUnit.SECONDS.toMillis(10));
+            assertEquals(Arrays.asList("f0_marker", "f1_observer"), firstFields.get());
+            assertEquals(Arrays.asList("f0_marker", "f1_observer"), secondFields.get());
+            assertEquals(1, TestPlugin.constructions.get());
+        }
+    }
+
+    @Test
+    void disablesPluginsThatFailToConstruct() throws Exception {
+        try (LazyLaunch launch = new LazyLaunch()) {
+            final LazyPluginLoader lazy = launch.install();
+            TestPlugin.fail = true;
+            final ClassNotFoundException error =
+                    assertThrows(ClassNotFoundException.class, () -> launch.loader.loadClass("lazytest.Target"));
+            Throwable cause = error;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertEquals("Failing as requested", cause.getMessage());
+            assertFalse(Main.getRfbTransformers().contains(lazy.handle()));
+
+            assertEquals(Collections.singletonList("f0_observer"), launch.fields("lazytest.Target2"));
+            assertEquals(1, TestPlugin.constructions.get());
+        }
+    }
+
+    /** Writes a jar with the plugin properties and empty classes in the lazytest package */
+    private static File writeJar() throws IOException {
+        final File jar = File.createTempFile("rfb-lazy-plugin", ".jar");
+        // Stays open in the class loaders until the end of the tests
+        jar.deleteOnExit();
+        try (OutputStream os = Files.newOutputStream(jar.toPath());
+                ZipOutputStream zip = new ZipOutputStream(os)) {
+            zip.putNextEntry(new ZipEntry(PROPERTIES_ENTRY));
+            zip.write(PLUGIN_PROPERTIES.getBytes(StandardCharsets.ISO_8859_1));
+            zip.closeEntry();
+            for (final String className : CLASSES) {
+                zip.putNextEntry(new ZipEntry(className.replace('.', '/') + ".class"));
+                zip.write(emptyClass(className));
+                zip.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static RfbPluginMetadata parseMetadata(File jar) throws IOException {
+        final URL jarUrl = jar.toURI().toURL();
+        try (ZipFile zip = new ZipFile(jar);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        zip.getInputStream(zip.getEntry(PROPERTIES_ENTRY)), StandardCharsets.ISO_8859_1))) {
+            return PluginLoader.parseMetadata(
+                    jarUrl, URI.create("jar:" + jarUrl + "!/" + PROPERTIES_ENTRY), "lazy-test.properties", reader);
+        }
+    }
+
+    /** Loads classes from the plugin jar with the loaders and chain of a launch, restoring the real ones on close */
+    private static final class LazyLaunch implements AutoCloseable {
+        final RfbPluginMetadata metadata;
+        final RfbSystemClassLoader loader;
+        private final RfbSystemClassLoader originalCompatLoader = Main.compatLoader;
+        private final ExtensibleClassLoader originalLaunchLoader = Main.launchLoader;
+        private final List<RfbClassTransformerHandle> originalChain = Main.getRfbTransformers();
+
+        LazyLaunch() throws IOException {
+            final File jar = writeJar();
+            metadata = parseMetadata(jar);
+            TestPlugin.reset();
+            loader = new RfbSystemClassLoader("lazy-test", new URL[] {jar.toURI().toURL()});
+            Main.compatLoader = loader;
+            Main.launchLoader = new LaunchClassLoader(new URL[0]);
+        }
+
+        /** Replaces the chain with the observer and a placeholder for the test plugin */
+        LazyPluginLoader install() {
+            final PluginContext context = new PluginContext(
+                    new ArrayList<>(Collections.singletonList(metadata)),
+                    new ArrayList<>(),
+                    new HashMap<>(Collections.singletonMap(metadata.id(), metadata)),
+                    new HashMap<>());
+            final LazyPluginLoader lazy = new LazyPluginLoader(metadata, context);
+            final RfbClassTransformerHandle observer = new RfbClassTransformerHandle(
+                    OBSERVER_METADATA, new TestPlugin.Observer(), new FieldAdder("observer"));
+            Main.mutateRfbTransformers(list -> {
+                list.clear();
+                list.add(observer);
+                list.add(lazy.handle());
+                PluginLoader.sortTransformers(list);
+            });
+            return lazy;
+        }
+
+        List<String> fields(String className) throws ClassNotFoundException {
+            return fieldNames(loader.loadClass(className));
+        }
+
+        Thread loadInThread(String className, AtomicReference<List<String>> result) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    result.set(fields(className));
+                } catch (ClassNotFoundException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.setDaemon(true);
+            return thread;
+        }
+
+        @Override
+        public void close() throws IOException {
+            Main.mutateRfbTransformers(list -> {
+                list.clear();
+                list.addAll(originalChain);
+            });
+            synchronized (PluginLoader.loadedPlugins) {
+                PluginLoader.loadedPlugins.removeIf(handle -> handle.metadata() == metadata);
+                PluginLoader.loadedPluginsById.remove(metadata.id());
+            }
+            Main.compatLoader = originalCompatLoader;
+            Main.launchLoader = originalLaunchLoader;
+            loader.close();
+        }
+    }
+
+    private static List<String> fieldNames(Class<?> klass) {
+        final List<String> names = new ArrayList<>();
+        for (final Field field : klass.getDeclaredFields()) {
+            names.add(field.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static RfbPluginMetadata.Builder plugin(String id, String... targets) {
+        final RfbPluginMetadata.Builder builder =
+                new RfbPluginMetadata.Builder(DUMMY_URL, DUMMY_SOURCE, id, id, "1.0.0", "plugins." + id);
+        for (final String target : targets) {
+            builder.transformerTarget(target);
+        }
+        return builder;
+    }
+
+    private static byte[] emptyClass(String className) {
+        final ClassWriter cw = new ClassWriter(0);
+        cw.visit(
+                Opcodes.V1_8,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER,
+                className.replace('.', '/'),
+                null,
+                "java/lang/Object",
+                null);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** Adds a field named after its position and the transformer to every class */
+    private static final class FieldAdder implements RfbClassTransformer {
+        private final String id;
+        private final String[] sortBefore;
+
+        FieldAdder(String id, String... sortBefore) {
+            this.id = id;
+            this.sortBefore = sortBefore;
+        }
+
+        @Override
+        public @NotNull String id() {
+            return id;
+        }
+
+        @Override
+        public @NotNull String @Nullable [] sortBefore() {
+            return sortBefore;
+        }
+
+        @Override
+        public boolean shouldTransformClass(
+                @NotNull ExtensibleClassLoader classLoader,
+                @NotNull Context context,
+                @Nullable Manifest manifest,
+                @NotNull String className,
+                @NotNull ClassNodeHandle classNode) {
+            return className.startsWith("lazytest.");
+        }
+
+        @Override
+        public boolean transformClassIfNeeded(
+                @NotNull ExtensibleClassLoader classLoader,
+                @NotNull Context context,
+                @Nullable Manifest manifest,
+                @NotNull String className,
+                @NotNull ClassNodeHandle classNode) {
+            final ClassNode node = classNode.getNode();
+            assertNotNull(node);
+            node.fields.add(new FieldNode(
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "f" + node.fields.size() + "_" + id, "I", null, null));
+            return true;
+        }
+    }
+
+    /** The deferred plugin declared in the properties file, constructed by the placeholder through reflection */
+    public static final class TestPlugin implements RfbPlugin {
+        static final AtomicInteger constructions = new AtomicInteger();
+        static final AtomicReference<Class<?>> loadedDuringConstruction = new AtomicReference<>();
+        static volatile boolean fail;
+        static volatile @Nullable CountDownLatch release;
+        static volatile @Nullable String loadDuringConstruction;
+
+        static void reset() {
+            constructions.set(0);
+            loadedDuringConstruction.set(null);
+            fail = false;
+            release = null;
+            loadDuringConstruction = null;
+        }
+
+        public TestPlugin() throws Exception {
+            constructions.incrementAndGet();
+            final CountDownLatch latch = release;
+            if (latch != null) {
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+            }
+            if (fail) {
+                throw new IllegalStateException("Failing as requested");
+            }
+            final String toLoad = loadDuringConstruction;
+            if (toLoad != null) {
+                loadedDuringConstruction.set(Class.forName(toLoad, true, Main.compatLoader));
+            }
+        }
+
+        @Override
+        public @NotNull RfbClassTransformer @Nullable [] makeTransformers() {
+            return new RfbClassTransformer[] {new FieldAdder("marker", "lazy-observer:observer")};
+        }
+
+        /** Owns the observer transformer */
+        static final class Observer implements RfbPlugin {}
+    }
+}
@@ -0,0 +1,191 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.gtnewhorizons.retrofuturabootstrap.AnnotationIndexer;
+import com.gtnewhorizons.retrofuturabootstrap.api.AnnotationIndex;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class AnnotationIndexerTest {
+    private static final String MARKER = "Ltest/Marker;";
+    private static final List<String> ANNOTATED_ENTRIES = Arrays.asList(
+            "Ljava/lang/Deprecated; on CLASS test.Annotated visible",
+            "Ltest/Marker; on FIELD test.Annotated.valueI invisible",
+            "Ltest/Marker; on METHOD test.Annotated.run()V visible");
+
+    @Test
+    void readsBackTheCachedIndex() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-annotation-index");
+        try {
+            final Path cache = dir.resolve("cache");
+            final Path jar = writeJar(dir.resolve("first.jar"), "test/Annotated", "test/Plain");
+            assertEquals(ANNOTATED_ENTRIES, describe(index(jar, cache)));
+            final List<Path> indexFiles = listFiles(cache);
+            assertEquals(1, indexFiles.size(), indexFiles.toString());
+            final Path indexFile = indexFiles.get(0);
+            Files.setLastModifiedTime(indexFile, FileTime.fromMillis(0));
+
+            // Same contents under another URL, so the index is read from the file instead of from memory
+            final Path copy = Files.copy(jar, dir.resolve("copy.jar"));
+            final AnnotationIndex copyIndex = index(copy, cache);
+            assertEquals(ANNOTATED_ENTRIES, describe(copyIndex));
+            for (final AnnotationIndex.Entry entry : copyIndex.entries()) {
+                assertEquals(copy.toUri().toURL(), entry.source());
+            }
+            assertEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(indexFile), "The index was rewritten");
+            assertEquals(Collections.singletonList(indexFile), listFiles(cache));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void reindexesChangedJars() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-annotation-index");
+        try {
+            final Path cache = dir.resolve("cache");
+            final Path jar = writeJar(dir.resolve("mod.jar"), "test/Annotated");
+            assertEquals(ANNOTATED_ENTRIES, describe(index(jar, cache)));
+
+            writeJar(jar, "test/Annotated", "test/Added");
+            final List<String> expected = new ArrayList<>(ANNOTATED_ENTRIES);
+            expected.add(0, "Ljava/lang/Deprecated; on CLASS test.Added visible");
+            expected.add(1, "Ltest/Marker; on FIELD test.Added.valueI invisible");
+            expected.add(2, "Ltest/Marker; on METHOD test.Added.run()V visible");
+            assertEquals(expected, describe(index(jar, cache)));
+            assertEquals(2, listFiles(cache).size());
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void skipsClassesWithoutAnnotationAttributes() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-annotation-index");
+        try {
+            final Map<String, byte[]> classes = new LinkedHashMap<>();
+            classes.put("test/Annotated", annotatedClass("test/Annotated"));
+            final byte[] plain = plainClass("test/Broken");
+            // The header is intact, but ASM would fail on the missing class attributes
+            classes.put("test/Broken", Arrays.copyOf(plain, plain.length - 2));
+            final Path jar = writeJar(dir.resolve("broken.jar"), classes);
+            assertEquals(ANNOTATED_ENTRIES, describe(index(jar, null)));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void deletesIndexesOfJarsNotIndexedThisLaunch() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-annotation-index");
+        try {
+            final Path cache = dir.resolve("cache");
+            index(writeJar(dir.resolve("mod.jar"), "test/Annotated"), cache);
+            final Path used = listFiles(cache).get(0);
+            final Path stale = Files.write(cache.resolve("0123456789abcdef0123456789abcdef01234567.idx"), new byte[0]);
+            final Path unrelated = Files.write(cache.resolve("notes.txt"), new byte[0]);
+            final Path otherCache = Files.createDirectories(dir.resolve("other"));
+            final Path otherStale = Files.write(otherCache.resolve("0123.idx"), new byte[0]);
+
+            AnnotationIndexer.deleteStaleIndexes(cache);
+            AnnotationIndexer.deleteStaleIndexes(otherCache);
+            assertTrue(Files.exists(used));
+            assertFalse(Files.exists(stale));
+            assertTrue(Files.exists(unrelated));
+            // Never used for indexing during this launch
+            assertTrue(Files.exists(otherStale));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static AnnotationIndex index(Path jar, Path cache) throws IOException {
+        return AnnotationIndexer.index(Collections.singletonList(jar.toUri().toURL()), cache);
+    }
+
+    private static List<String> describe(AnnotationIndex index) {
+        final List<String> descriptions = new ArrayList<>();
+        for (final AnnotationIndex.Entry entry : index.entries()) {
+            descriptions.add(entry + (entry.runtimeVisible() ? " visible" : " invisible"));
+        }
+        return descriptions;
+    }
+
+    private static byte[] annotatedClass(String name) {
+        final ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, name, null, "java/lang/Object", null);
+        cw.visitAnnotation("Ljava/lang/Deprecated;", true).visitEnd();
+        final FieldVisitor fv = cw.visitField(Opcodes.ACC_PRIVATE, "value", "I", null, null);
+        fv.visitAnnotation(MARKER, false).visitEnd();
+        fv.visitEnd();
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "run", "()V", null, null);
+        mv.visitAnnotation(MARKER, true).visitEnd();
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] plainClass(String name) {
+        final ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, name, null, "java/lang/Object", null);
+        cw.visitField(Opcodes.ACC_PRIVATE, "value", "I", null, null).visitEnd();
+        cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "run", "()V", null, null).visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** Writes annotated classes, or plain ones if the name contains Plain */
+    private static Path writeJar(Path jar, String... classNames) throws IOException {
+        final Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (final String name : classNames) {
+            classes.put(name, name.contains("Plain") ? plainClass(name) : annotatedClass(name));
+        }
+        return writeJar(jar, classes);
+    }
+
+    private static Path writeJar(Path jar, Map<String, byte[]> classes) throws IOException {
+        try (OutputStream os = Files.newOutputStream(jar);
+                ZipOutputStream zip = new ZipOutputStream(os)) {
+            for (final Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey() + ".class"));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.gtnewhorizons.retrofuturabootstrap.SharedConfig;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+public class ClassGlobsTest {
+
+    @Test
+    void singleStarStaysInOnePackage() {
+        final Pattern glob = compile("a.b.*");
+        assertMatches(glob, "a.b.C", "a.b.Long$Inner");
+        assertNoMatch(glob, "a.b.c.D", "a.bC", "a.b");
+    }
+
+    @Test
+    void doubleStarCrossesPackages() {
+        final Pattern glob = compile("a.b.**");
+        assertMatches(glob, "a.b.C", "a.b.c.D", "a.b.c.d.E");
+        assertNoMatch(glob, "a.bc.D", "x.a.b.C");
+    }
+
+    @Test
+    void starsInTheMiddle() {
+        assertMatches(compile("a.*.C"), "a.b.C", "a.xyz.C");
+        assertNoMatch(compile("a.*.C"), "a.b.c.C");
+        assertMatches(compile("a.**.C"), "a.b.C", "a.b.c.C");
+        assertMatches(compile("a.b.*Mixin"), "a.b.FooMixin", "a.b.Mixin");
+        assertNoMatch(compile("a.b.*Mixin"), "a.b.c.FooMixin");
+    }
+
+    @Test
+    void questionMarkMatchesOneNonSeparator() {
+        final Pattern glob = compile("a.b.C?");
+        assertMatches(glob, "a.b.C1", "a.b.CD");
+        assertNoMatch(glob, "a.b.C", "a.b.C12", "a.b.C.D");
+    }
+
+    @Test
+    void everythingElseIsLiteral() {
+        final Pattern glob = compile("a.b.Outer$Inner");
+        assertMatches(glob, "a.b.Outer$Inner");
+        assertNoMatch(glob, "axb.Outer$Inner", "a.b.Outer");
+    }
+
+    @Test
+    void semicolonSeparatedListMatchesAny() {
+        final Pattern glob = compile(" a.b.* ; ;x.Y;c.**");
+        assertMatches(glob, "a.b.C", "x.Y", "c.d.E");
+        assertNoMatch(glob, "a.b.c.D", "x.Y2", "d.E");
+    }
+
+    @Test
+    void emptyInputMeansNoFilter() {
+        assertNull(SharedConfig.compileClassGlobs(""));
+        assertNull(SharedConfig.compileClassGlobs("  "));
+        assertNull(SharedConfig.compileClassGlobs(";; ;"));
+    }
+
+    private static Pattern compile(String globs) {
+        final Pattern pattern = SharedConfig.compileClassGlobs(globs);
+        assertNotNull(pattern, globs);
+        return pattern;
+    }
+
+    private static void assertMatches(Pattern pattern, String... classNames) {
+        for (final String className : classNames) {
+            assertTrue(pattern.matcher(className).matches(), pattern + " should match " + className);
+        }
+    }
+
+    private static void assertNoMatch(Pattern pattern, String... classNames) {
+        for (final String className : classNames) {
+            assertFalse(pattern.matcher(className).matches(), pattern + " should not match " + className);
+        }
+    }
+}
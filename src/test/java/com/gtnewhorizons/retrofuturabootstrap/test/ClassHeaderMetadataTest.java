@@ -6,13 +6,29 @@ import static com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher.Mode
 
 import com.gtnewhorizons.retrofuturabootstrap.api.BytePatternMatcher;
 import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHierarchyHeader;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class ClassHeaderMetadataTest {
+    /** JDK classes covering no super class, Long/Double pool entries, interfaces, enums and annotations */
+    private static final String[] HEADER_CORPUS = {
+        "java/lang/Object",
+        "java/lang/Long",
+        "java/lang/Double",
+        "java/lang/Math",
+        "java/lang/String",
+        "java/util/HashMap",
+        "java/util/List",
+        "java/util/concurrent/TimeUnit",
+        "java/lang/Thread$State",
+        "java/lang/Deprecated",
+    };
 
     @Test
     void matchesBytesContains() throws IOException {
@@ -53,6 +69,171 @@ public class ClassHeaderMetadataTest {
         Assertions.assertFalse(metadata.matchesBytes(classBytes, matcher("org/lwjgl/opengl/GL11/meh", StartsWith)));
     }
 
+    @Test
+    void byteLevelNameComparisons() throws IOException {
+        byte[] classBytes = stubClassBytes("org/lwjgl/opengl/GL11");
+        ClassHeaderMetadata metadata = new ClassHeaderMetadata(classBytes);
+        byte[] object = ClassHeaderMetadata.toModifiedUtf8("java/lang/Object");
+
+        Assertions.assertTrue(metadata.thisNameEquals(classBytes, ClassHeaderMetadata.toModifiedUtf8("StubClass")));
+        Assertions.assertFalse(metadata.thisNameEquals(classBytes, ClassHeaderMetadata.toModifiedUtf8("Stub")));
+        Assertions.assertTrue(metadata.thisNameStartsWith(classBytes, ClassHeaderMetadata.toModifiedUtf8("Stub")));
+        Assertions.assertTrue(metadata.superNameEquals(classBytes, object));
+        Assertions.assertEquals(3, metadata.findUtf8Index(classBytes, object));
+        Assertions.assertEquals(4, metadata.findClassIndex(classBytes, object));
+        Assertions.assertEquals(
+                0, metadata.findClassIndex(classBytes, ClassHeaderMetadata.toModifiedUtf8("org/lwjgl/opengl/GL11")));
+        Assertions.assertTrue(metadata.constantPoolUtf8Equals(
+                classBytes, 5, ClassHeaderMetadata.toModifiedUtf8("org/lwjgl/opengl/GL11")));
+
+        for (String str : new String[] {"", "a/b/C", "caf\u00e9", "\u0000null", "\u4e2d\u6587", "\ud83d\ude00"}) {
+            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+            new DataOutputStream(byteStream).writeUTF(str);
+            byte[] encoded = byteStream.toByteArray();
+            Assertions.assertArrayEquals(
+                    Arrays.copyOfRange(encoded, 2, encoded.length), ClassHeaderMetadata.toModifiedUtf8(str));
+            Assertions.assertEquals(str, ClassHeaderMetadata.modifiedUtf8(encoded, 0));
+            Assertions.assertTrue(
+                    ClassHeaderMetadata.modifiedUtf8Equals(encoded, 0, ClassHeaderMetadata.toModifiedUtf8(str)));
+        }
+    }
+
+    @Test
+    void hierarchyHeaderMatchesFullMetadata() throws IOException {
+        for (String name : HEADER_CORPUS) {
+            byte[] classBytes = readSystemClass(name);
+            Assertions.assertNotNull(classBytes, name);
+            assertSameHeader(classBytes);
+        }
+        assertSameHeader(widePoolClassBytes());
+        assertSameHeader(stubClassBytes("org/lwjgl/opengl/GL11"));
+    }
+
+    @Test
+    void hierarchyHeaderRejectsTruncatedClasses() throws IOException {
+        for (byte[] classBytes : new byte[][] {widePoolClassBytes(), readSystemClass("java/lang/Long")}) {
+            ClassHeaderMetadata full = new ClassHeaderMetadata(classBytes);
+            int headerEnd = full.constantPoolEndOffset + 8 + 2 * full.interfacesCount;
+            for (int length = 0; length < headerEnd; length++) {
+                Assertions.assertNull(
+                        ClassHierarchyHeader.of(Arrays.copyOf(classBytes, length)), "Truncated to " + length);
+            }
+            // Everything past the interfaces is not read
+            ClassHierarchyHeader header = ClassHierarchyHeader.of(Arrays.copyOf(classBytes, headerEnd));
+            Assertions.assertNotNull(header);
+            Assertions.assertEquals(full.binaryThisName, header.binaryThisName());
+            Assertions.assertEquals(full.binaryInterfaceNames, header.binaryInterfaceNames());
+        }
+    }
+
+    @Test
+    void hierarchyHeaderRejectsInvalidClasses() throws IOException {
+        Assertions.assertNull(ClassHierarchyHeader.of(null));
+        Assertions.assertNull(ClassHierarchyHeader.of(new byte[0]));
+        byte[] valid = widePoolClassBytes();
+        ClassHeaderMetadata full = new ClassHeaderMetadata(valid);
+        int pastPool = full.constantPoolEndOffset;
+
+        Assertions.assertNull(ClassHierarchyHeader.of(patchU16(valid, 0, 0xBEEF)), "Bad magic");
+        Assertions.assertNull(ClassHierarchyHeader.of(patchU16(valid, pastPool + 2, 5)), "This class is a UTF-8 entry");
+        Assertions.assertNull(ClassHierarchyHeader.of(patchU16(valid, pastPool + 2, 0)), "This class is 0");
+        Assertions.assertNull(ClassHierarchyHeader.of(patchU16(valid, pastPool + 4, 13)), "Super class out of range");
+        Assertions.assertNull(ClassHierarchyHeader.of(patchU16(valid, pastPool + 4, 2)), "Super class is a Long slot");
+        Assertions.assertNull(ClassHierarchyHeader.of(patchU16(valid, pastPool + 8, 0)), "Interface is 0");
+        Assertions.assertNull(ClassHierarchyHeader.of(patchU16(valid, pastPool + 6, 1000)), "Too many interfaces");
+        byte[] unknownTag = valid.clone();
+        unknownTag[full.constantPoolEntryOffsets[4]] = 2;
+        Assertions.assertNull(ClassHierarchyHeader.of(unknownTag), "Unknown constant pool tag");
+    }
+
+    private static void assertSameHeader(byte[] classBytes) {
+        ClassHeaderMetadata full = new ClassHeaderMetadata(classBytes);
+        ClassHierarchyHeader header = ClassHierarchyHeader.of(classBytes);
+        String name = full.binaryThisName;
+        Assertions.assertNotNull(header, name);
+        Assertions.assertEquals(full.majorVersion, header.majorVersion, name);
+        Assertions.assertEquals(full.constantPoolEndOffset, header.constantPoolEndOffset, name);
+        Assertions.assertEquals(full.accessFlags, header.accessFlags, name);
+        Assertions.assertEquals(full.interfacesCount, header.interfacesCount, name);
+        Assertions.assertEquals(full.binaryThisName, header.binaryThisName(), name);
+        Assertions.assertEquals(full.binarySuperName, header.binarySuperName(), name);
+        Assertions.assertEquals(full.binaryInterfaceNames, header.binaryInterfaceNames(), name);
+        Assertions.assertEquals(full.isPublic(), header.isPublic(), name);
+        Assertions.assertEquals(full.isFinal(), header.isFinal(), name);
+        Assertions.assertEquals(full.isInterface(), header.isInterface(), name);
+        Assertions.assertEquals(full.isAbstract(), header.isAbstract(), name);
+        Assertions.assertEquals(full.isSynthetic(), header.isSynthetic(), name);
+        Assertions.assertEquals(full.isAnnotation(), header.isAnnotation(), name);
+        Assertions.assertEquals(full.isEnum(), header.isEnum(), name);
+        Assertions.assertEquals(full.isModule(), header.isModule(), name);
+        Assertions.assertTrue(header.thisNameEquals(ClassHeaderMetadata.toModifiedUtf8(full.binaryThisName)), name);
+        Assertions.assertEquals(
+                full.binarySuperName != null,
+                header.superNameEquals(ClassHeaderMetadata.toModifiedUtf8(String.valueOf(full.binarySuperName))),
+                name);
+    }
+
+    private static byte[] patchU16(byte[] classBytes, int offset, int value) {
+        byte[] patched = classBytes.clone();
+        patched[offset] = (byte) (value >>> 8);
+        patched[offset + 1] = (byte) value;
+        return patched;
+    }
+
+    private static byte[] readSystemClass(String name) throws IOException {
+        try (InputStream is = ClassLoader.getSystemResourceAsStream(name + ".class")) {
+            if (is == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /** Long and Double entries before and after the class names, which take up two pool indices each */
+    private static byte[] widePoolClassBytes() throws IOException {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(byteStream);
+
+        out.writeInt(0xCAFEBABE); // magic
+        out.writeShort(0); // minor version
+        out.writeShort(52); // major version (Java 8)
+
+        // Constant pool layout:
+        //  #1 Long, #3 Double, #5 Utf8 "wide/Pool", #6 Class #5, #7 Utf8 "java/lang/Object", #8 Class #7,
+        //  #9 Utf8 "java/lang/Runnable", #10 Class #9, #11 Long
+        out.writeShort(13);
+        out.writeByte(5);
+        out.writeLong(Long.MIN_VALUE);
+        out.writeByte(6);
+        out.writeDouble(Math.PI);
+        writeUtf8(out, "wide/Pool");
+        writeClass(out, 5);
+        writeUtf8(out, "java/lang/Object");
+        writeClass(out, 7);
+        writeUtf8(out, "java/lang/Runnable");
+        writeClass(out, 9);
+        out.writeByte(5);
+        out.writeLong(42);
+
+        out.writeShort(0x0031); // access_flags (public + final + super)
+        out.writeShort(6); // this_class (#6)
+        out.writeShort(8); // super_class (#8)
+        out.writeShort(1); // interfaces_count
+        out.writeShort(10); // interfaces (#10)
+        out.writeShort(0); // fields_count
+        out.writeShort(0); // methods_count
+        out.writeShort(0); // attributes_count
+
+        out.flush();
+        return byteStream.toByteArray();
+    }
+
     private static BytePatternMatcher matcher(String str, BytePatternMatcher.Mode mode) {
         return new BytePatternMatcher(str, mode);
     }
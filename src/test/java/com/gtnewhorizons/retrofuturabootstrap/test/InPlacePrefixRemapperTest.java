@@ -0,0 +1,204 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassInsnIndex;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.asm.InPlacePrefixRemapper;
+import com.gtnewhorizons.rfbplugins.compat.transformers.DeprecatedRedirectTransformer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.tree.ClassNode;
+
+public class InPlacePrefixRemapperTest {
+    private static final String[] FROM_PREFIXES = {"java/lang/Compiler", "java/lang/SecurityManager"};
+    private static final String[] TO_PREFIXES = {
+        "com/gtnewhorizons/retrofuturabootstrap/asm/DummyCompiler",
+        "com/gtnewhorizons/retrofuturabootstrap/SecurityManager"
+    };
+    private static final String SECURITY_MANAGER = "java/lang/SecurityManager";
+    private static final String SM_DESC = "Ljava/lang/SecurityManager;";
+
+    @Test
+    void matchesClassRemapperOnSyntheticClass() {
+        assertSameAsClassRemapper(syntheticClass());
+    }
+
+    @Test
+    void matchesClassRemapperOnJdkClasses() throws IOException {
+        int compared = 0;
+        for (final String name : new String[] {"java/lang/System", "java/lang/Runtime", "java/lang/Thread"}) {
+            final byte[] bytes = readSystemClass(name);
+            if (bytes != null && new String(bytes, StandardCharsets.ISO_8859_1).contains(SECURITY_MANAGER)) {
+                assertSameAsClassRemapper(bytes);
+                compared++;
+            }
+        }
+        Assertions.assertTrue(compared > 0, "No JDK class references " + SECURITY_MANAGER);
+    }
+
+    @Test
+    void leavesUnrelatedClassesAlone() throws IOException {
+        final byte[] bytes = readSystemClass("java/util/ArrayList");
+        Assertions.assertNotNull(bytes);
+        final ClassNode node = new ClassNode();
+        new ClassReader(bytes).accept(node, 0);
+        Assertions.assertFalse(new InPlacePrefixRemapper(FROM_PREFIXES, TO_PREFIXES).remapInPlace(node));
+        Assertions.assertArrayEquals(write(readNode(bytes)), write(node));
+    }
+
+    @Test
+    void transformerRefreshesTheInstructionIndex() throws IOException {
+        final ClassNodeHandle handle = new ClassNodeHandle(syntheticClass());
+        // Built before the transformer runs, like an earlier transformer in the chain would
+        Assertions.assertEquals(1, handle.getInsnIndex().methodInsnsByOwner(SECURITY_MANAGER).size());
+        try (LaunchClassLoader loader = new LaunchClassLoader(new URL[0])) {
+            Assertions.assertTrue(new DeprecatedRedirectTransformer()
+                    .transformClassIfNeeded(
+                            loader, RfbClassTransformer.Context.LCL_WITH_TRANSFORMS, null, "test.Subject", handle));
+        }
+        final ClassInsnIndex index = handle.getInsnIndex();
+        Assertions.assertTrue(index.methodInsnsByOwner(SECURITY_MANAGER).isEmpty());
+        Assertions.assertTrue(index.methodInsnsByOwner("java/lang/System").isEmpty());
+        Assertions.assertEquals(2, index.methodInsnsByOwner(TO_PREFIXES[1]).size());
+    }
+
+    /** Compares the in-place remapping with copying the class through a ClassRemapper, as it was done before */
+    private static void assertSameAsClassRemapper(byte[] bytes) {
+        final InPlacePrefixRemapper remapper = new InPlacePrefixRemapper(FROM_PREFIXES, TO_PREFIXES);
+        final ClassNode expected = new ClassNode();
+        new ClassReader(bytes).accept(new ClassRemapper(expected, remapper), 0);
+        final ClassNode actual = readNode(bytes);
+        Assertions.assertTrue(remapper.remapInPlace(actual), "Nothing remapped in " + actual.name);
+        Assertions.assertArrayEquals(write(expected), write(actual));
+    }
+
+    /** A class referencing the prefixes from every place a class name can appear */
+    private static byte[] syntheticClass() {
+        final ClassWriter cw = new ClassWriter(0);
+        cw.visit(
+                Opcodes.V17,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER,
+                "test/Subject",
+                "Ljava/lang/Object;Ljava/util/function/Supplier<Ljava/lang/SecurityManager;>;",
+                "java/lang/Object",
+                new String[] {"java/util/function/Supplier"});
+        cw.visitInnerClass("java/lang/SecurityManager$Denied", SECURITY_MANAGER, "Denied", Opcodes.ACC_STATIC);
+        cw.visitRecordComponent("manager", SM_DESC, null).visitEnd();
+        final AnnotationVisitor classAnnotation = cw.visitAnnotation("Ljava/lang/Compiler$Marker;", true);
+        classAnnotation.visit("type", Type.getType("Ljava/lang/Compiler;"));
+        classAnnotation.visitEnum("mode", "Ljava/lang/SecurityManager$Mode;", "STRICT");
+        classAnnotation.visitEnd();
+        final FieldVisitor fv = cw.visitField(
+                Opcodes.ACC_PRIVATE,
+                "managers",
+                "Ljava/util/List;",
+                "Ljava/util/List<Ljava/lang/SecurityManager;>;",
+                null);
+        fv.visitAnnotation("Ljava/lang/SecurityManager$Marker;", false).visitEnd();
+        fv.visitEnd();
+
+        final MethodVisitor mv = cw.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "check",
+                "(Ljava/lang/SecurityManager;[Ljava/lang/Compiler;)Ljava/lang/Object;",
+                null,
+                new String[] {"java/lang/SecurityManager$Denied"});
+        mv.visitParameterAnnotation(0, "Ljava/lang/SecurityManager$Marker;", true).visitEnd();
+        mv.visitCode();
+        final Label start = new Label();
+        final Label end = new Label();
+        final Label handler = new Label();
+        mv.visitTryCatchBlock(start, end, handler, "java/lang/SecurityManager$Denied");
+        mv.visitLabel(start);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "getSecurityManager", "()" + SM_DESC, false);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, SECURITY_MANAGER);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SECURITY_MANAGER, "checkExit", "(I)V", false);
+        mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/Compiler", "instance", "Ljava/lang/Compiler;");
+        mv.visitInsn(Opcodes.POP);
+        mv.visitLdcInsn(Type.getType("[Ljava/lang/Compiler;"));
+        mv.visitInsn(Opcodes.POP);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, SECURITY_MANAGER);
+        mv.visitInsn(Opcodes.POP);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitMultiANewArrayInsn("[[" + SM_DESC, 2);
+        mv.visitInsn(Opcodes.POP);
+        mv.visitInvokeDynamicInsn(
+                "get",
+                "(" + SM_DESC + ")Ljava/util/function/Supplier;",
+                new Handle(
+                        Opcodes.H_INVOKESTATIC,
+                        "java/lang/invoke/LambdaMetafactory",
+                        "metafactory",
+                        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+                                + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;"
+                                + "Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;",
+                        false),
+                Type.getType("()Ljava/lang/Object;"),
+                new Handle(
+                        Opcodes.H_INVOKEVIRTUAL, SECURITY_MANAGER, "getSecurityContext", "()Ljava/lang/Object;", false),
+                Type.getType("()Ljava/lang/Object;"));
+        mv.visitLabel(end);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitLabel(handler);
+        mv.visitFrame(
+                Opcodes.F_FULL,
+                3,
+                new Object[] {"test/Subject", SECURITY_MANAGER, "[Ljava/lang/Compiler;"},
+                1,
+                new Object[] {"java/lang/SecurityManager$Denied"});
+        mv.visitInsn(Opcodes.ACONST_NULL);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitLocalVariable("manager", SM_DESC, null, start, handler, 1);
+        mv.visitLocalVariable("compilers", "[Ljava/lang/Compiler;", null, start, handler, 2);
+        mv.visitMaxs(3, 3);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static ClassNode readNode(byte[] bytes) {
+        final ClassNode node = new ClassNode();
+        new ClassReader(bytes).accept(node, 0);
+        return node;
+    }
+
+    private static byte[] write(ClassNode node) {
+        final ClassWriter writer = new ClassWriter(0);
+        node.accept(writer);
+        return writer.toByteArray();
+    }
+
+    private static byte[] readSystemClass(String name) throws IOException {
+        try (InputStream is = ClassLoader.getSystemResourceAsStream(name + ".class")) {
+            if (is == null) {
+                return null;
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
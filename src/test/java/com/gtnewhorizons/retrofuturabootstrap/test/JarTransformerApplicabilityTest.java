@@ -0,0 +1,149 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.gtnewhorizons.retrofuturabootstrap.JarTransformerApplicability;
+import com.gtnewhorizons.retrofuturabootstrap.Main;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassHeaderMetadata;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPlugin;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginMetadata;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+public class JarTransformerApplicabilityTest {
+
+    private static final RfbPluginMetadata METADATA = new RfbPluginMetadata.Builder(
+                    PluginDependencyTest.DUMMY_URL,
+                    PluginDependencyTest.DUMMY_SOURCE,
+                    "applicability-test",
+                    "Applicability Test",
+                    "1.0.0",
+                    JarTransformerApplicabilityTest.class.getName())
+            .build();
+    private static final RfbPlugin PLUGIN = new RfbPlugin() {};
+
+    @Test
+    void skipsTransformersThatRejectEveryClass() throws IOException {
+        final File jar = writeJar(".jar");
+        final RfbClassTransformerHandle never = handle(new FixedAnswerTransformer("never", false));
+        final RfbClassTransformerHandle always = handle(new FixedAnswerTransformer("always", true));
+        final List<RfbClassTransformerHandle> added = Arrays.asList(never, always);
+        Main.mutateRfbTransformers(list -> list.addAll(added));
+        try {
+            final URL url = jar.toURI().toURL();
+            JarTransformerApplicability.register(url);
+            final JarTransformerApplicability scan = awaitScan(url);
+            assertTrue(scan.canSkip(never, null));
+            assertFalse(scan.canSkip(always, null));
+            // Registered after the scan finished, so the scan knows nothing about it
+            final RfbClassTransformerHandle late = handle(new FixedAnswerTransformer("late", false));
+            assertFalse(scan.canSkip(late, null));
+            assertFalse(scan.canSkip(late, new Manifest()));
+        } finally {
+            Main.mutateRfbTransformers(list -> list.removeAll(added));
+        }
+    }
+
+    @Test
+    void registersUpperCaseExtensionsInAnyLocale() throws IOException {
+        final Locale defaultLocale = Locale.getDefault();
+        // The Turkish lower case of "ZIP" is "zıp" with a dotless i
+        Locale.setDefault(new Locale("tr", "TR"));
+        final File jar = writeJar(".ZIP");
+        final List<RfbClassTransformerHandle> added =
+                Arrays.asList(handle(new FixedAnswerTransformer("never-zip", false)));
+        Main.mutateRfbTransformers(list -> list.addAll(added));
+        try {
+            final URL url = jar.toURI().toURL();
+            JarTransformerApplicability.register(url);
+            assertTrue(awaitScan(url).canSkip(added.get(0), null));
+        } finally {
+            Locale.setDefault(defaultLocale);
+            Main.mutateRfbTransformers(list -> list.removeAll(added));
+        }
+    }
+
+    private static RfbClassTransformerHandle handle(RfbClassTransformer transformer) {
+        return new RfbClassTransformerHandle(METADATA, PLUGIN, transformer);
+    }
+
+    private static JarTransformerApplicability awaitScan(URL url) {
+        final long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            final JarTransformerApplicability scan = JarTransformerApplicability.lookup(url);
+            if (scan != null) {
+                return scan;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fail("The jar was not scanned: " + url);
+    }
+
+    private static File writeJar(String extension) throws IOException {
+        final File jar = File.createTempFile("rfb-applicability", extension);
+        // Stays registered and gets rescanned whenever the transformer chain changes
+        jar.deleteOnExit();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("test/Scanned.class"));
+            final ClassWriter cw = new ClassWriter(0);
+            cw.visit(
+                    Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "test/Scanned", null, "java/lang/Object", null);
+            cw.visitEnd();
+            zip.write(cw.toByteArray());
+            zip.closeEntry();
+        }
+        return jar;
+    }
+
+    private static final class FixedAnswerTransformer implements RfbClassTransformer {
+        private final String id;
+        private final boolean mayTransform;
+
+        FixedAnswerTransformer(String id, boolean mayTransform) {
+            this.id = id;
+            this.mayTransform = mayTransform;
+        }
+
+        @Override
+        public @NotNull String id() {
+            return id;
+        }
+
+        @Override
+        public boolean mayTransformClassBytes(@NotNull ClassHeaderMetadata metadata, byte @NotNull [] classBytes) {
+            return mayTransform;
+        }
+
+        @Override
+        public boolean shouldTransformClass(
+                @NotNull ExtensibleClassLoader classLoader,
+                @NotNull Context context,
+                @Nullable Manifest manifest,
+                @NotNull String className,
+                @NotNull ClassNodeHandle classNode) {
+            return false;
+        }
+    }
+}
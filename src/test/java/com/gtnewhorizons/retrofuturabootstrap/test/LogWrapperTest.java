@@ -0,0 +1,103 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.minecraft.launchwrapper.LogWrapper;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+public class LogWrapperTest {
+
+    @Test
+    void passesPlaceholderFormatsToLog4j() {
+        final List<String> calls = capture(true, () -> {
+            LogWrapper.log(Level.INFO, "Loaded {} of {}", 3, "mods");
+            LogWrapper.info("No {} here either", "args");
+        });
+        assertEquals(
+                Arrays.asList("INFO log(Loaded {} of {}, [3, mods])", "INFO log(No {} here either, [args])"), calls);
+    }
+
+    @Test
+    void formatsPrintfFormatsItself() {
+        final List<String> calls = capture(true, () -> {
+            LogWrapper.log(Level.WARN, "Loaded %d of %s", 3, "mods");
+            LogWrapper.severe("100%% done");
+        });
+        assertEquals(Arrays.asList("WARN log(Loaded 3 of mods)", "ERROR log(100% done)"), calls);
+    }
+
+    @Test
+    void passesThrowables() {
+        final Exception ex = new IllegalStateException("boom");
+        final List<String> calls = capture(true, () -> {
+            LogWrapper.log(Level.ERROR, ex, "Failed {}", "x");
+            LogWrapper.log(Level.ERROR, ex, "Failed %s", "y");
+        });
+        // The {} path passes the arguments array and the throwable as the two parameters, like before
+        assertEquals(
+                Arrays.asList("ERROR log(Failed {}, [[x], " + ex + "])", "ERROR log(Failed y, " + ex + ")"),
+                calls);
+    }
+
+    @Test
+    void skipsDisabledLevels() {
+        final List<String> calls = capture(false, () -> {
+            // Would throw a MissingFormatArgumentException if it was formatted
+            LogWrapper.fine("Missing %s");
+            LogWrapper.finest("Missing {}");
+        });
+        assertEquals(Collections.emptyList(), calls);
+    }
+
+    /** Runs the action with LogWrapper retargeted to a logger recording its log calls */
+    private static List<String> capture(boolean enabled, Runnable action) {
+        LogWrapper.configureLogging();
+        final Logger original = LogWrapper.rfb$logger;
+        final List<String> calls = new ArrayList<>();
+        final Logger recorder = (Logger) Proxy.newProxyInstance(
+                LogWrapperTest.class.getClassLoader(), new Class<?>[] {Logger.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isEnabled":
+                            return enabled;
+                        case "log":
+                            calls.add(describeLog(args));
+                            return null;
+                        case "getName":
+                        case "toString":
+                            return "recorder";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.toString());
+                    }
+                });
+        LogWrapper.retarget(recorder);
+        try {
+            action.run();
+        } finally {
+            LogWrapper.retarget(original);
+        }
+        return calls;
+    }
+
+    private static String describeLog(Object[] args) {
+        final StringBuilder call = new StringBuilder().append(args[0]).append(" log(").append(args[1]);
+        for (int i = 2; i < args.length; i++) {
+            // Empty parameter arrays are left out, so they look like a log(Level, String) call
+            if (args[i] instanceof Object[] && ((Object[]) args[i]).length == 0 && i == args.length - 1) {
+                continue;
+            }
+            call.append(", ").append(args[i] instanceof Object[] ? Arrays.deepToString((Object[]) args[i]) : args[i]);
+        }
+        return call.append(')').toString();
+    }
+}
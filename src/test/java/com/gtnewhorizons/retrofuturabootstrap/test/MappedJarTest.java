@@ -0,0 +1,257 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import com.gtnewhorizons.retrofuturabootstrap.URLClassLoaderBase;
+import com.gtnewhorizons.retrofuturabootstrap.URLClassLoaderWithUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MappedJarTest {
+    private static final String CLASS_A = "a/b/A.class";
+    private static final String CLASS_B = "a/b/B.class";
+
+    /** Exposes the mapped class reads of the RFB class loaders */
+    private static final class TestLoader extends URLClassLoaderWithUtilities {
+        TestLoader(File... jars) throws IOException {
+            super(toUrls(jars), null);
+        }
+
+        byte[] read(String classPath) {
+            return readMappedClassBytes(classPath);
+        }
+
+        boolean isAbsent(byte[] result) {
+            return result == MAPPED_CLASS_ABSENT;
+        }
+
+        private static URL[] toUrls(File... jars) throws IOException {
+            final URL[] urls = new URL[jars.length];
+            for (int i = 0; i < jars.length; i++) {
+                urls[i] = jars[i].toURI().toURL();
+            }
+            return urls;
+        }
+    }
+
+    @Test
+    void readsStoredEntries() throws IOException {
+        final Map<String, byte[]> entries = classEntries(1);
+        final Path dir = Files.createTempDirectory("rfb-mapped-jar");
+        try {
+            final File jar = writeJar(dir.resolve("stored.jar"), null, entries, ZipEntry.STORED);
+            assertReads(jar, entries);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void readsDeflatedEntries() throws IOException {
+        final Map<String, byte[]> entries = classEntries(2);
+        final Path dir = Files.createTempDirectory("rfb-mapped-jar");
+        try {
+            final File jar = writeJar(dir.resolve("deflated.jar"), new Manifest(), entries, ZipEntry.DEFLATED);
+            assertReads(jar, entries);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void searchesJarsInClasspathOrder() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-mapped-jar");
+        try {
+            final Map<String, byte[]> first = new LinkedHashMap<>();
+            first.put(CLASS_A, bytes("first A"));
+            final Map<String, byte[]> second = new LinkedHashMap<>();
+            second.put(CLASS_A, bytes("second A"));
+            second.put(CLASS_B, bytes("second B"));
+            final File firstJar = writeJar(dir.resolve("first.jar"), null, first, ZipEntry.DEFLATED);
+            final File secondJar = writeJar(dir.resolve("second.jar"), null, second, ZipEntry.STORED);
+            try (TestLoader loader = new TestLoader(firstJar, secondJar)) {
+                Assertions.assertArrayEquals(bytes("first A"), loader.read(CLASS_A));
+                Assertions.assertArrayEquals(bytes("second B"), loader.read(CLASS_B));
+                Assertions.assertTrue(loader.isAbsent(loader.read("a/b/Missing.class")));
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void readsMultiReleaseEntries() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-mapped-jar");
+        try {
+            final Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(new Attributes.Name("Multi-Release"), "true");
+            final Map<String, byte[]> entries = new LinkedHashMap<>();
+            entries.put(CLASS_A, bytes("base A"));
+            entries.put("META-INF/versions/9/" + CLASS_A, bytes("java 9 A"));
+            entries.put(CLASS_B, bytes("base B"));
+            entries.put("META-INF/versions/9999/" + CLASS_B, bytes("future B"));
+            final File jar = writeJar(dir.resolve("multi-release.jar"), manifest, entries, ZipEntry.DEFLATED);
+            try (TestLoader loader = new TestLoader(jar)) {
+                final boolean versioned = URLClassLoaderBase.getJavaMajorVersion() >= 9;
+                Assertions.assertArrayEquals(bytes(versioned ? "java 9 A" : "base A"), loader.read(CLASS_A));
+                Assertions.assertArrayEquals(bytes("base B"), loader.read(CLASS_B));
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void leavesClassPathJarsToTheJdk() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-mapped-jar");
+        try {
+            final Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "other.jar");
+            final File jar = writeJar(dir.resolve("class-path.jar"), manifest, classEntries(3), ZipEntry.DEFLATED);
+            assertFallsBack(jar);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void leavesSignedJarsToTheJdk() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-mapped-jar");
+        try {
+            final Map<String, byte[]> entries = classEntries(4);
+            entries.put("META-INF/SIGNER.SF", bytes("Signature-Version: 1.0\r\n"));
+            entries.put("META-INF/signer.rsa", bytes("not a real signature"));
+            final File jar = writeJar(dir.resolve("signed.jar"), new Manifest(), entries, ZipEntry.DEFLATED);
+            assertFallsBack(jar);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void leavesZip64JarsToTheJdk() throws IOException {
+        final Path dir = Files.createTempDirectory("rfb-mapped-jar");
+        try {
+            // More entries than the regular end of central directory record can count
+            final File jar = dir.resolve("zip64.jar").toFile();
+            try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+                zos.setLevel(0);
+                for (int i = 0; i < 0x10000; i++) {
+                    zos.putNextEntry(new ZipEntry("a/b/C" + i + ".class"));
+                    zos.closeEntry();
+                }
+                zos.putNextEntry(new ZipEntry(CLASS_A));
+                zos.write(bytes("A"));
+                zos.closeEntry();
+            }
+            assertFallsBack(jar);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    void closingOneLoaderKeepsSharedJarsReadable() throws IOException {
+        final Map<String, byte[]> entries = classEntries(5);
+        final Path dir = Files.createTempDirectory("rfb-mapped-jar");
+        try {
+            final File jar = writeJar(dir.resolve("shared.jar"), null, entries, ZipEntry.DEFLATED);
+            try (TestLoader kept = new TestLoader(jar)) {
+                final TestLoader closed = new TestLoader(jar);
+                Assertions.assertArrayEquals(entries.get(CLASS_A), closed.read(CLASS_A));
+                Assertions.assertArrayEquals(entries.get(CLASS_A), kept.read(CLASS_A));
+                closed.close();
+                Assertions.assertArrayEquals(entries.get(CLASS_B), kept.read(CLASS_B));
+                Assertions.assertTrue(closed.isAbsent(closed.read(CLASS_B)));
+            }
+            // Both loaders are closed and the file is unmapped, Windows refuses to delete mapped files
+            Assertions.assertTrue(jar.delete());
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void assertReads(File jar, Map<String, byte[]> entries) throws IOException {
+        try (TestLoader loader = new TestLoader(jar)) {
+            for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                Assertions.assertArrayEquals(entry.getValue(), loader.read(entry.getKey()));
+            }
+            Assertions.assertTrue(loader.isAbsent(loader.read("a/b/Missing.class")));
+        }
+    }
+
+    private static void assertFallsBack(File jar) throws IOException {
+        try (TestLoader loader = new TestLoader(jar)) {
+            Assertions.assertNull(loader.read(CLASS_A));
+            Assertions.assertNull(loader.read("a/b/Missing.class"));
+        }
+    }
+
+    /** Two classes with random, partly compressible contents */
+    private static Map<String, byte[]> classEntries(long seed) {
+        final Random random = new Random(seed);
+        final Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (final String name : new String[] {CLASS_A, CLASS_B}) {
+            final byte[] data = new byte[1000 + random.nextInt(20000)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt() : i / 64);
+            }
+            entries.put(name, data);
+        }
+        return entries;
+    }
+
+    private static File writeJar(Path path, Manifest manifest, Map<String, byte[]> entries, int method)
+            throws IOException {
+        if (manifest != null) {
+            manifest.getMainAttributes().putIfAbsent(Attributes.Name.MANIFEST_VERSION, "1.0");
+        }
+        try (OutputStream os = Files.newOutputStream(path);
+                ZipOutputStream zos = manifest == null ? new ZipOutputStream(os) : new JarOutputStream(os, manifest)) {
+            for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                final byte[] data = entry.getValue();
+                final ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setMethod(method);
+                if (method == ZipEntry.STORED) {
+                    final CRC32 crc = new CRC32();
+                    crc.update(data, 0, data.length);
+                    zipEntry.setSize(data.length);
+                    zipEntry.setCompressedSize(data.length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+                zos.putNextEntry(zipEntry);
+                zos.write(data);
+                zos.closeEntry();
+            }
+        }
+        return path.toFile();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        final File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+}
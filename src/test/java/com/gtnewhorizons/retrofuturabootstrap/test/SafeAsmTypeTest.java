@@ -0,0 +1,131 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import com.gtnewhorizons.retrofuturabootstrap.asm.SafeAsmType;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Type;
+
+public class SafeAsmTypeTest {
+    /** Characters the fuzzer builds descriptors from, weighted towards the ones ASM parses */
+    private static final char[] ALPHABET = "VZCBSIFJD[[LL;;(())/abcx".toCharArray();
+
+    private static final String[] VALID_DESCRIPTORS = {
+        "I",
+        "[[J",
+        "Ljava/lang/String;",
+        "[Ljava/util/List;",
+        "()V",
+        "(IJ[Ljava/lang/Object;)Ljava/lang/String;",
+        "(Lfoo;[[D)[Z",
+    };
+
+    @Test
+    void matchesTryCatchImplementation() {
+        final String[] cases = {
+            "",
+            "java/lang/String",
+            "Ljava/lang/String",
+            "Iabc",
+            "[",
+            "L",
+            "(",
+            ")",
+            "()",
+            "(I)",
+            "(I)x",
+            "()Lfoo",
+            "(Lfoo)V",
+            "(Lfoo;V",
+            "(L;)V",
+            "([)V",
+            "([",
+            "foo)V",
+            "foo)Lbar;",
+            "x)java/lang/Object",
+            "(Ljava/lang/String;)java/lang/String",
+        };
+        for (final String desc : cases) {
+            assertSameOutcome(desc);
+        }
+        for (final String desc : VALID_DESCRIPTORS) {
+            assertSameOutcome(desc);
+        }
+    }
+
+    @Test
+    void fuzzAgainstTryCatchImplementation() {
+        final Random random = new Random(4321);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            sb.setLength(0);
+            if (random.nextBoolean()) {
+                // Mutate a valid descriptor
+                sb.append(VALID_DESCRIPTORS[random.nextInt(VALID_DESCRIPTORS.length)]);
+                final int mutations = 1 + random.nextInt(3);
+                for (int m = 0; m < mutations; m++) {
+                    final int at = random.nextInt(sb.length() + 1);
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            sb.insert(at, ALPHABET[random.nextInt(ALPHABET.length)]);
+                            break;
+                        case 1:
+                            if (at < sb.length()) {
+                                sb.deleteCharAt(at);
+                            }
+                            break;
+                        default:
+                            if (at < sb.length()) {
+                                sb.setCharAt(at, ALPHABET[random.nextInt(ALPHABET.length)]);
+                            }
+                    }
+                }
+            } else {
+                final int length = random.nextInt(16);
+                for (int c = 0; c < length; c++) {
+                    sb.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+                }
+            }
+            assertSameOutcome(sb.toString());
+        }
+    }
+
+    private static void assertSameOutcome(String desc) {
+        Assertions.assertEquals(
+                outcome(SafeAsmTypeTest::tryCatchGetType, desc),
+                outcome(SafeAsmType::getType, desc),
+                "Different getType outcome for \"" + desc + "\"");
+        Assertions.assertEquals(
+                outcome(SafeAsmTypeTest::tryCatchGetReturnType, desc),
+                outcome(SafeAsmType::getReturnType, desc),
+                "Different getReturnType outcome for \"" + desc + "\"");
+    }
+
+    private static Object outcome(Function<String, Type> lookup, String desc) {
+        try {
+            final Type type = lookup.apply(desc);
+            return type.getSort() + ":" + type.getDescriptor();
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    /** The exception-catching {@link SafeAsmType#getType(String)} it replaced */
+    private static Type tryCatchGetType(String desc) {
+        try {
+            return Type.getType(desc);
+        } catch (IllegalArgumentException e) {
+            return Type.getObjectType(desc);
+        }
+    }
+
+    /** The exception-catching {@link SafeAsmType#getReturnType(String)} it replaced */
+    private static Type tryCatchGetReturnType(String desc) {
+        try {
+            return Type.getReturnType(desc);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return tryCatchGetType(desc.substring(desc.indexOf(')') + 1));
+        }
+    }
+}
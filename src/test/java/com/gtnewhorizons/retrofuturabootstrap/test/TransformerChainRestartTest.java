@@ -0,0 +1,198 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.gtnewhorizons.retrofuturabootstrap.Main;
+import com.gtnewhorizons.retrofuturabootstrap.RfbSystemClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.api.ClassNodeHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.ExtensibleClassLoader;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformer;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbClassTransformerHandle;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPlugin;
+import com.gtnewhorizons.retrofuturabootstrap.api.RfbPluginMetadata;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.jar.Manifest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+
+/** Transformers replacing themselves in the global chain while deciding on a class, like lazily constructed plugins */
+public class TransformerChainRestartTest {
+    private static final String CLASS_NAME = "chain.Subject";
+    private static final RfbPluginMetadata METADATA = new RfbPluginMetadata.Builder(
+                    PluginDependencyTest.DUMMY_URL,
+                    PluginDependencyTest.DUMMY_SOURCE,
+                    "chain-test",
+                    "Chain Test",
+                    "1.0.0",
+                    TransformerChainRestartTest.class.getName())
+            .build();
+    private static final RfbPlugin PLUGIN = new RfbPlugin() {};
+
+    @Test
+    void restartsFromTheOriginalBytesWithTheNewChain() throws IOException {
+        final RfbClassTransformerHandle a = handle(new FieldAdder("a"));
+        final RfbClassTransformerHandle b = handle(new FieldAdder("b"));
+        final SelfReplacing replacer = new SelfReplacing(list -> list.add(0, b));
+        // The field a added in the first pass is discarded
+        assertEquals(Arrays.asList("f0_b", "f1_a"), transform(Arrays.asList(a, replacer.handle), 0));
+    }
+
+    @Test
+    void restartsBehindAnUnchangedPretransformedPrefix() throws IOException {
+        final RfbClassTransformerHandle a = handle(new FieldAdder("a"));
+        final RfbClassTransformerHandle b = handle(new FieldAdder("b"));
+        final SelfReplacing replacer = new SelfReplacing(list -> list.add(b));
+        // a was applied ahead of time, and stays the first transformer
+        assertEquals(Arrays.asList("f0_b"), transform(Arrays.asList(a, replacer.handle), 1));
+    }
+
+    @Test
+    void transformsInPlaceIfThePretransformedPrefixChanged() throws IOException {
+        final RfbClassTransformerHandle a = handle(new FieldAdder("a"));
+        final RfbClassTransformerHandle b = handle(new FieldAdder("b"));
+        final SelfReplacing replacer = new SelfReplacing(list -> list.add(0, b));
+        assertEquals(Arrays.asList("f0_replacer"), transform(Arrays.asList(a, replacer.handle), 1));
+    }
+
+    @Test
+    void transformsInPlaceIfTheTransformerStaysInTheChain() throws IOException {
+        final RfbClassTransformerHandle a = handle(new FieldAdder("a"));
+        final RfbClassTransformerHandle b = handle(new FieldAdder("b"));
+        final SelfReplacing replacer = new SelfReplacing(list -> list.add(0, b));
+        replacer.keepsItself = true;
+        assertEquals(Arrays.asList("f0_a", "f1_replacer"), transform(Arrays.asList(a, replacer.handle), 0));
+    }
+
+    /**
+     * Runs the chain on an empty class, with the chain as the whole global chain while it runs.
+     * @return The names of the fields added by the transformers, in order.
+     */
+    private static List<String> transform(List<RfbClassTransformerHandle> chain, int pretransformedCount)
+            throws IOException {
+        final List<RfbClassTransformerHandle> original = Main.getRfbTransformers();
+        Main.mutateRfbTransformers(list -> {
+            list.clear();
+            list.addAll(chain);
+        });
+        try (RfbSystemClassLoader loader = new RfbSystemClassLoader("chain-test", new URL[0])) {
+            final byte[] transformed = loader.runRfbTransformers(
+                    chain,
+                    RfbClassTransformer.Context.SYSTEM,
+                    null,
+                    CLASS_NAME,
+                    emptyClass(),
+                    null,
+                    pretransformedCount);
+            final ClassNode node = new ClassNode();
+            new ClassReader(transformed).accept(node, 0);
+            final List<String> fields = new ArrayList<>();
+            for (final FieldNode field : node.fields) {
+                fields.add(field.name);
+            }
+            return fields;
+        } finally {
+            Main.mutateRfbTransformers(list -> {
+                list.clear();
+                list.addAll(original);
+            });
+        }
+    }
+
+    private static byte[] emptyClass() {
+        final ClassWriter cw = new ClassWriter(0);
+        cw.visit(
+                Opcodes.V1_8,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER,
+                CLASS_NAME.replace('.', '/'),
+                null,
+                "java/lang/Object",
+                null);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static RfbClassTransformerHandle handle(RfbClassTransformer transformer) {
+        return new RfbClassTransformerHandle(METADATA, PLUGIN, transformer);
+    }
+
+    /** Adds a field named after its position and the transformer */
+    private static class FieldAdder implements RfbClassTransformer {
+        private final String id;
+
+        FieldAdder(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public @NotNull String id() {
+            return id;
+        }
+
+        @Override
+        public boolean shouldTransformClass(
+                @NotNull ExtensibleClassLoader classLoader,
+                @NotNull Context context,
+                @Nullable Manifest manifest,
+                @NotNull String className,
+                @NotNull ClassNodeHandle classNode) {
+            return true;
+        }
+
+        @Override
+        public boolean transformClassIfNeeded(
+                @NotNull ExtensibleClassLoader classLoader,
+                @NotNull Context context,
+                @Nullable Manifest manifest,
+                @NotNull String className,
+                @NotNull ClassNodeHandle classNode) {
+            final ClassNode node = classNode.getNode();
+            assertNotNull(node);
+            node.fields.add(new FieldNode(
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "f" + node.fields.size() + "_" + id, "I", null, null));
+            return true;
+        }
+    }
+
+    /** Replaces itself in the global chain the first time it decides on a class */
+    private static final class SelfReplacing extends FieldAdder {
+        private final Consumer<List<RfbClassTransformerHandle>> replacement;
+        private final AtomicBoolean replaced = new AtomicBoolean(false);
+        final RfbClassTransformerHandle handle = handle(this);
+        boolean keepsItself = false;
+
+        SelfReplacing(Consumer<List<RfbClassTransformerHandle>> replacement) {
+            super("replacer");
+            this.replacement = replacement;
+        }
+
+        @Override
+        public boolean shouldTransformClass(
+                @NotNull ExtensibleClassLoader classLoader,
+                @NotNull Context context,
+                @Nullable Manifest manifest,
+                @NotNull String className,
+                @NotNull ClassNodeHandle classNode) {
+            if (replaced.compareAndSet(false, true)) {
+                Main.mutateRfbTransformers(list -> {
+                    if (!keepsItself) {
+                        list.remove(handle);
+                    }
+                    replacement.accept(list);
+                });
+            }
+            return true;
+        }
+    }
+}
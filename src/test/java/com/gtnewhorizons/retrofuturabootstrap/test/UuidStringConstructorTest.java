@@ -0,0 +1,127 @@
+package com.gtnewhorizons.retrofuturabootstrap.test;
+
+import com.gtnewhorizons.retrofuturabootstrap.asm.UuidStringConstructor;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class UuidStringConstructorTest {
+    /** Characters the fuzzer builds strings from, including Unicode hex digits accepted by Character.digit */
+    private static final char[] ALPHABET = "0123456789abcdefABCDEF----gxX+ ٣Ａｆ\uD83D".toCharArray();
+
+    @Test
+    void parsesStandardUuids() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            final UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            Assertions.assertEquals(uuid, UuidStringConstructor.fromString(uuid.toString()));
+            Assertions.assertEquals(uuid, UuidStringConstructor.fromString(uuid.toString().toUpperCase()));
+        }
+    }
+
+    @Test
+    void matchesJava8Leniency() {
+        final String[] cases = {
+            "",
+            "-",
+            "1-2-3-4-5",
+            "1-2-3-4-5-",
+            "1-2-3-4-5---",
+            "1-2-3-4-",
+            "1-2-3-4--",
+            "-1-2-3-4",
+            "1--2-3-4-5",
+            "1-2-3-4-5-6",
+            "1-2-3-4-5-6-",
+            "+1-2-3-4-5",
+            "1-2-3-4-+5",
+            "0x1-2-3-4-5",
+            "1-2-3-4-5 ",
+            "12345678-1234-1234-1234-1234567890ab",
+            "123456789-1234-1234-1234-1234567890ab",
+            "7fffffffffffffff-ffffffffffff-1-1-1",
+            "8000000000000000-1-1-1-1",
+            "1-1-1-1-7fffffffffffffff",
+            "1-1-1-1-8000000000000000",
+            "0000000000000000000001-1-1-1-1",
+            "٣-Ａ-ｆ-1-1",
+            "\uD83D-1-1-1-1",
+        };
+        for (final String name : cases) {
+            assertSameOutcome(name);
+        }
+    }
+
+    @Test
+    void fuzzAgainstJava8Algorithm() {
+        final Random random = new Random(1234);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            sb.setLength(0);
+            if (random.nextBoolean()) {
+                // Mutate a valid UUID string
+                sb.append(new UUID(random.nextLong(), random.nextLong()));
+                final int mutations = 1 + random.nextInt(3);
+                for (int m = 0; m < mutations; m++) {
+                    final int at = random.nextInt(sb.length() + 1);
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            sb.insert(at, ALPHABET[random.nextInt(ALPHABET.length)]);
+                            break;
+                        case 1:
+                            if (at < sb.length()) {
+                                sb.deleteCharAt(at);
+                            }
+                            break;
+                        default:
+                            if (at < sb.length()) {
+                                sb.setCharAt(at, ALPHABET[random.nextInt(ALPHABET.length)]);
+                            }
+                    }
+                }
+            } else {
+                final int length = random.nextInt(48);
+                for (int c = 0; c < length; c++) {
+                    sb.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+                }
+            }
+            assertSameOutcome(sb.toString());
+        }
+    }
+
+    private static void assertSameOutcome(String name) {
+        Object expected;
+        try {
+            expected = java8FromString(name);
+        } catch (RuntimeException e) {
+            expected = e.getClass().getName() + ": " + e.getMessage();
+        }
+        Object actual;
+        try {
+            actual = UuidStringConstructor.fromString(name);
+        } catch (RuntimeException e) {
+            actual = e.getClass().getName() + ": " + e.getMessage();
+        }
+        Assertions.assertEquals(expected, actual, "Different outcome for \"" + name + "\"");
+    }
+
+    /** {@link UUID#fromString(String)} from Java 8 */
+    private static UUID java8FromString(String name) {
+        String[] components = name.split("-");
+        if (components.length != 5) throw new IllegalArgumentException("Invalid UUID string: " + name);
+        for (int i = 0; i < 5; i++) components[i] = "0x" + components[i];
+
+        long mostSigBits = Long.decode(components[0]).longValue();
+        mostSigBits <<= 16;
+        mostSigBits |= Long.decode(components[1]).longValue();
+        mostSigBits <<= 16;
+        mostSigBits |= Long.decode(components[2]).longValue();
+
+        long leastSigBits = Long.decode(components[3]).longValue();
+        leastSigBits <<= 48;
+        leastSigBits |= Long.decode(components[4]).longValue();
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}